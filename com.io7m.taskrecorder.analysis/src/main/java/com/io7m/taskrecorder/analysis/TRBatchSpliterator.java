@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.taskrecorder.analysis;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * A spliterator over an iterator of unknown size that splits off batches
+ * of a fixed size. The spliterators provided by the JDK for iterators
+ * split off progressively larger batches (up to millions of elements),
+ * which defeats bounded memory use when the elements are large.
+ *
+ * @param <T> The type of elements
+ */
+
+final class TRBatchSpliterator<T> implements Spliterator<T>
+{
+  private final Iterator<? extends T> iterator;
+  private final int batchSize;
+
+  TRBatchSpliterator(
+    final Iterator<? extends T> inIterator,
+    final int inBatchSize)
+  {
+    this.iterator = Objects.requireNonNull(inIterator, "iterator");
+    this.batchSize = inBatchSize;
+  }
+
+  @Override
+  public boolean tryAdvance(
+    final Consumer<? super T> action)
+  {
+    if (this.iterator.hasNext()) {
+      action.accept(this.iterator.next());
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  public void forEachRemaining(
+    final Consumer<? super T> action)
+  {
+    this.iterator.forEachRemaining(action);
+  }
+
+  @Override
+  public Spliterator<T> trySplit()
+  {
+    final var batch = new Object[this.batchSize];
+    int count = 0;
+    while (count < batch.length && this.iterator.hasNext()) {
+      batch[count] = this.iterator.next();
+      ++count;
+    }
+    if (count == 0) {
+      return null;
+    }
+    return Spliterators.spliterator(batch, 0, count, this.characteristics());
+  }
+
+  @Override
+  public long estimateSize()
+  {
+    return Long.MAX_VALUE;
+  }
+
+  @Override
+  public int characteristics()
+  {
+    return Spliterator.ORDERED | Spliterator.NONNULL;
+  }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.taskrecorder.analysis;
+
+import java.util.Objects;
+
+/**
+ * A group of failures with the same signature.
+ *
+ * @param signature The signature
+ * @param count     The number of failures
+ * @param message   The resolution message of one of the failures
+ */
+
+public record TRFailureCluster(
+  TRFailureSignature signature,
+  long count,
+  String message)
+{
+  /**
+   * A group of failures with the same signature.
+   *
+   * @param signature The signature
+   * @param count     The number of failures
+   * @param message   The resolution message of one of the failures
+   */
+
+  public TRFailureCluster
+  {
+    Objects.requireNonNull(signature, "signature");
+    Objects.requireNonNull(message, "message");
+
+    if (count < 1L) {
+      throw new IllegalArgumentException(
+        "Count %d must be positive.".formatted(Long.valueOf(count))
+      );
+    }
+  }
+}
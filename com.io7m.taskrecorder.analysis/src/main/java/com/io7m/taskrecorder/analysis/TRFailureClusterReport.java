@@ -0,0 +1,53 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.taskrecorder.analysis;
+
+import java.util.List;
+
+/**
+ * The result of clustering a set of tasks.
+ *
+ * @param tasks       The number of tasks examined
+ * @param failures    The number of failed tasks
+ * @param unclustered The number of failed tasks that were not assigned to a
+ *                    cluster because the maximum number of clusters had
+ *                    been reached
+ * @param clusters    The clusters, largest first
+ */
+
+public record TRFailureClusterReport(
+  long tasks,
+  long failures,
+  long unclustered,
+  List<TRFailureCluster> clusters)
+{
+  /**
+   * The result of clustering a set of tasks.
+   *
+   * @param tasks       The number of tasks examined
+   * @param failures    The number of failed tasks
+   * @param unclustered The number of failed tasks that were not assigned to
+   *                    a cluster because the maximum number of clusters had
+   *                    been reached
+   * @param clusters    The clusters, largest first
+   */
+
+  public TRFailureClusterReport
+  {
+    clusters = List.copyOf(clusters);
+  }
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.taskrecorder.analysis;
+
+import com.io7m.taskrecorder.core.TRStep;
+import com.io7m.taskrecorder.core.TRStepFailed;
+import com.io7m.taskrecorder.core.TRTask;
+import com.io7m.taskrecorder.core.TRTaskFailed;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Functions to group failed tasks by the path to the step that failed.
+ *
+ * <p>Unlike {@link TRFingerprints}, which distinguishes tasks by their
+ * entire structure, clustering only considers the failure itself: two
+ * failed tasks are placed in the same cluster if the first failure in each
+ * occurred at the same path of task and step descriptions with the same
+ * type of exception, regardless of what else the tasks did.</p>
+ *
+ * <p>Clustering reads tasks from the source in fixed-size batches that are
+ * processed on all cores using a parallel stream, and retains only the
+ * clusters, so any number of tasks can be clustered in memory bounded by
+ * the batch size, the parallelism, and the maximum number of clusters.</p>
+ */
+
+public final class TRFailureClustering
+{
+  private TRFailureClustering()
+  {
+
+  }
+
+  /**
+   * Determine the signature of the first failure in a task. The first
+   * failure is found by starting at the task and repeatedly descending into
+   * the first failed item (step or subtask) until a failed step is reached,
+   * or a failed task that contains no failed items.
+   *
+   * @param task           The task
+   * @param exceptionTypes A function that names the type of an exception
+   *
+   * @return The signature, or nothing if the task did not fail
+   */
+
+  public static Optional<TRFailureSignature> signatureOf(
+    final TRTask<?> task,
+    final Function<Throwable, String> exceptionTypes)
+  {
+    Objects.requireNonNull(task, "task");
+    Objects.requireNonNull(exceptionTypes, "exceptionTypes");
+
+    final var failure = failureOf(task, exceptionTypes);
+    if (failure == null) {
+      return Optional.empty();
+    }
+    return Optional.of(failure.signature());
+  }
+
+  private static TRFailure failureOf(
+    final TRTask<?> task,
+    final Function<Throwable, String> exceptionTypes)
+  {
+    if (!(task.resolution() instanceof final TRTaskFailed<?> taskFailed)) {
+      return null;
+    }
+
+    final var path = new ArrayList<String>();
+    var current = task;
+    var exception = taskFailed.exception();
+    var message = taskFailed.message();
+
+    descend:
+    while (true) {
+      path.add(current.description());
+
+      final var items = current.items();
+      for (int index = 0; index < items.size(); ++index) {
+        final var item = items.get(index);
+        if (item instanceof final TRTask<?> subtask
+            && subtask.resolution() instanceof final TRTaskFailed<?> failed) {
+          current = subtask;
+          exception = failed.exception();
+          message = failed.message();
+          continue descend;
+        }
+        if (item instanceof final TRStep step
+            && step.resolution() instanceof final TRStepFailed failed) {
+          if (index > 0) {
+            path.add(step.description());
+          }
+          exception = failed.exception();
+          message = failed.message();
+          break descend;
+        }
+      }
+      break;
+    }
+
+    return new TRFailure(
+      new TRFailureSignature(path, exception.map(exceptionTypes)),
+      message
+    );
+  }
+
+  private record TRFailure(
+    TRFailureSignature signature,
+    String message)
+  {
+
+  }
+
+  /**
+   * Cluster the failed tasks in the given stream. The stream is consumed
+   * and closed.
+   *
+   * @param tasks         The tasks
+   * @param configuration The configuration
+   *
+   * @return The clusters
+   */
+
+  public static TRFailureClusterReport cluster(
+    final Stream<? extends TRTask<?>> tasks,
+    final TRFailureClusteringConfiguration configuration)
+  {
+    Objects.requireNonNull(tasks, "tasks");
+
+    try (tasks) {
+      return cluster(tasks.iterator(), configuration);
+    }
+  }
+
+  /**
+   * Cluster the failed tasks produced by the given iterator. The iterator
+   * is only ever accessed by one thread at a time.
+   *
+   * @param tasks         The tasks
+   * @param configuration The configuration
+   *
+   * @return The clusters
+   */
+
+  public static TRFailureClusterReport cluster(
+    final Iterator<? extends TRTask<?>> tasks,
+    final TRFailureClusteringConfiguration configuration)
+  {
+    Objects.requireNonNull(tasks, "tasks");
+    Objects.requireNonNull(configuration, "configuration");
+
+    final var clusters = new TRClusters(configuration);
+    StreamSupport.stream(
+        new TRBatchSpliterator<TRTask<?>>(tasks, configuration.batchSize()),
+        true)
+      .forEach(clusters::add);
+    return clusters.report();
+  }
+
+  private static final class TRClusters
+  {
+    private final TRFailureClusteringConfiguration configuration;
+    private final ConcurrentHashMap<TRFailureSignature, TRCluster> clusters;
+    private final Object admission;
+    private volatile boolean full;
+    private final LongAdder tasks;
+    private final LongAdder failures;
+    private final LongAdder unclustered;
+
+    TRClusters(
+      final TRFailureClusteringConfiguration inConfiguration)
+    {
+      this.configuration = inConfiguration;
+      this.clusters = new ConcurrentHashMap<>();
+      this.admission = new Object();
+      this.full = false;
+      this.tasks = new LongAdder();
+      this.failures = new LongAdder();
+      this.unclustered = new LongAdder();
+    }
+
+    void add(
+      final TRTask<?> task)
+    {
+      this.tasks.increment();
+
+      final var failure =
+        failureOf(task, this.configuration.exceptionTypes());
+      if (failure == null) {
+        return;
+      }
+      this.failures.increment();
+
+      final var signature = failure.signature();
+      var cluster = this.clusters.get(signature);
+      if (cluster == null) {
+        cluster = this.admit(signature, failure.message());
+        if (cluster == null) {
+          this.unclustered.increment();
+          return;
+        }
+      }
+      cluster.count.increment();
+    }
+
+    /*
+     * New signatures are admitted one at a time, so a failure is only
+     * unclustered if its signature is absent and the limit has really been
+     * reached. Clusters are never removed, so once the limit is reached it
+     * stays reached, and later misses can skip the lock.
+     */
+
+    private TRCluster admit(
+      final TRFailureSignature signature,
+      final String message)
+    {
+      if (this.full) {
+        return this.clusters.get(signature);
+      }
+
+      synchronized (this.admission) {
+        final var existing = this.clusters.get(signature);
+        if (existing != null) {
+          return existing;
+        }
+
+        final var maximum = this.configuration.maximumClusters();
+        if (this.clusters.size() >= maximum) {
+          this.full = true;
+          return null;
+        }
+
+        final var created = new TRCluster(message);
+        this.clusters.put(signature, created);
+        this.full = this.clusters.size() >= maximum;
+        return created;
+      }
+    }
+
+    TRFailureClusterReport report()
+    {
+      final var results = new ArrayList<TRFailureCluster>(this.clusters.size());
+      this.clusters.forEach((signature, cluster) -> {
+        results.add(
+          new TRFailureCluster(signature, cluster.count.sum(), cluster.message)
+        );
+      });
+      results.sort(
+        Comparator.comparingLong(TRFailureCluster::count)
+          .reversed()
+          .thenComparing(c -> c.signature().render())
+      );
+
+      return new TRFailureClusterReport(
+        this.tasks.sum(),
+        this.failures.sum(),
+        this.unclustered.sum(),
+        results
+      );
+    }
+  }
+
+  private static final class TRCluster
+  {
+    private final String message;
+    private final LongAdder count;
+
+    TRCluster(
+      final String inMessage)
+    {
+      this.message = inMessage;
+      this.count = new LongAdder();
+    }
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.taskrecorder.analysis;
+
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * The configuration for failure clustering.
+ *
+ * @param exceptionTypes  A function that names the type of an exception
+ * @param batchSize       The number of tasks read from the source at a time
+ *                        and handed to a worker thread
+ * @param maximumClusters The maximum number of distinct clusters
+ */
+
+public record TRFailureClusteringConfiguration(
+  Function<Throwable, String> exceptionTypes,
+  int batchSize,
+  int maximumClusters)
+{
+  /**
+   * The default batch size.
+   */
+
+  public static final int BATCH_SIZE_DEFAULT = 256;
+
+  /**
+   * The default maximum number of clusters.
+   */
+
+  public static final int MAXIMUM_CLUSTERS_DEFAULT = 10_000;
+
+  /**
+   * The configuration for failure clustering.
+   *
+   * @param exceptionTypes  A function that names the type of an exception
+   * @param batchSize       The number of tasks read from the source at a
+   *                        time and handed to a worker thread
+   * @param maximumClusters The maximum number of distinct clusters
+   */
+
+  public TRFailureClusteringConfiguration
+  {
+    Objects.requireNonNull(exceptionTypes, "exceptionTypes");
+
+    if (batchSize < 1) {
+      throw new IllegalArgumentException(
+        "Batch size %d must be positive."
+          .formatted(Integer.valueOf(batchSize))
+      );
+    }
+    if (maximumClusters < 1) {
+      throw new IllegalArgumentException(
+        "Maximum clusters %d must be positive."
+          .formatted(Integer.valueOf(maximumClusters))
+      );
+    }
+  }
+
+  /**
+   * @return The default configuration, which names exceptions by their
+   * class names
+   */
+
+  public static TRFailureClusteringConfiguration defaults()
+  {
+    return new TRFailureClusteringConfiguration(
+      e -> e.getClass().getName(),
+      BATCH_SIZE_DEFAULT,
+      MAXIMUM_CLUSTERS_DEFAULT
+    );
+  }
+
+  /**
+   * @param types A function that names the type of an exception
+   *
+   * @return This configuration with the given exception naming function
+   */
+
+  public TRFailureClusteringConfiguration withExceptionTypes(
+    final Function<Throwable, String> types)
+  {
+    return new TRFailureClusteringConfiguration(
+      types,
+      this.batchSize,
+      this.maximumClusters
+    );
+  }
+}
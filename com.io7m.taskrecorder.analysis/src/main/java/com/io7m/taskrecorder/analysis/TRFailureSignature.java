@@ -0,0 +1,71 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.taskrecorder.analysis;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * The signature of a failure: the descriptions of the tasks leading from
+ * the root task to the failing step, and the type of the exception that
+ * caused the failure, if any.
+ *
+ * @param path          The descriptions from the root task to the failing
+ *                      step (or to the failing task, if the task failed
+ *                      without a failing step)
+ * @param exceptionType The name of the type of the exception
+ *
+ * @see TRFailureClustering#signatureOf(com.io7m.taskrecorder.core.TRTask,
+ * java.util.function.Function)
+ */
+
+public record TRFailureSignature(
+  List<String> path,
+  Optional<String> exceptionType)
+{
+  /**
+   * The signature of a failure.
+   *
+   * @param path          The descriptions from the root task to the failing
+   *                      step (or to the failing task, if the task failed
+   *                      without a failing step)
+   * @param exceptionType The name of the type of the exception
+   */
+
+  public TRFailureSignature
+  {
+    path = List.copyOf(path);
+    Objects.requireNonNull(exceptionType, "exceptionType");
+
+    if (path.isEmpty()) {
+      throw new IllegalArgumentException("Failure paths cannot be empty.");
+    }
+  }
+
+  /**
+   * @return The signature as a single line of text
+   */
+
+  public String render()
+  {
+    final var text = String.join(" / ", this.path);
+    return this.exceptionType
+      .map(type -> "%s (%s)".formatted(text, type))
+      .orElse(text);
+  }
+}
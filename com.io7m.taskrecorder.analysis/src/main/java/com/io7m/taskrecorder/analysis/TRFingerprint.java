@@ -0,0 +1,66 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.taskrecorder.analysis;
+
+import java.util.HexFormat;
+
+/**
+ * A 128-bit structural fingerprint of a task or step.
+ *
+ * @param high The high 64 bits
+ * @param low  The low 64 bits
+ *
+ * @see TRFingerprints
+ */
+
+public record TRFingerprint(
+  long high,
+  long low)
+{
+  /**
+   * Parse a fingerprint from the 32 hexadecimal digits produced by
+   * {@link #toString()}.
+   *
+   * @param text The text
+   *
+   * @return The fingerprint
+   *
+   * @throws IllegalArgumentException If the text is not a fingerprint
+   */
+
+  public static TRFingerprint parse(
+    final String text)
+    throws IllegalArgumentException
+  {
+    if (text.length() != 32) {
+      throw new IllegalArgumentException(
+        "Fingerprint '%s' must be 32 hexadecimal digits.".formatted(text)
+      );
+    }
+    return new TRFingerprint(
+      HexFormat.fromHexDigitsToLong(text, 0, 16),
+      HexFormat.fromHexDigitsToLong(text, 16, 32)
+    );
+  }
+
+  @Override
+  public String toString()
+  {
+    final var hex = HexFormat.of();
+    return hex.toHexDigits(this.high) + hex.toHexDigits(this.low);
+  }
+}
@@ -0,0 +1,321 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.taskrecorder.analysis;
+
+import com.io7m.taskrecorder.core.TRStep;
+import com.io7m.taskrecorder.core.TRStepFailed;
+import com.io7m.taskrecorder.core.TRTask;
+import com.io7m.taskrecorder.core.TRTaskFailed;
+import com.io7m.taskrecorder.core.TRTaskItemType;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Functions to compute structural fingerprints of tasks.
+ *
+ * <p>A fingerprint covers the shape of a task: the description of every
+ * step and subtask, their order and nesting, and whether each one succeeded
+ * or failed. It deliberately ignores everything that typically varies
+ * between otherwise identical runs: resolution messages, exceptions, times,
+ * attributes, and task results. Two tasks with equal fingerprints therefore
+ * "failed in the same way".</p>
+ *
+ * <p>The fingerprint of each task is computed once and cached for as long
+ * as the task is reachable. Because the fingerprint of a task is computed
+ * from the cached fingerprints of its subtasks, fingerprinting successive
+ * snapshots of a recorder (which share unchanged subtasks) only examines
+ * the parts that changed. Task trees are walked bottom-up with an
+ * explicit stack rather than by recursion, so the depth of a task is not
+ * limited by the thread stack.</p>
+ */
+
+public final class TRFingerprints
+{
+  private static final long TAG_STEP = 0x5354L;
+  private static final long TAG_TASK = 0x544bL;
+  private static final long RESOLUTION_SUCCEEDED = 0L;
+  private static final long RESOLUTION_FAILED = 1L;
+
+  private static final long C1 = 0x87c37b91114253d5L;
+  private static final long C2 = 0x4cf5ad432745937fL;
+
+  private static final ConcurrentHashMap<TRTaskKey, TRFingerprint> CACHE =
+    new ConcurrentHashMap<>();
+  private static final ReferenceQueue<TRTask<?>> CLEARED =
+    new ReferenceQueue<>();
+
+  private TRFingerprints()
+  {
+
+  }
+
+  /**
+   * Compute the fingerprint of a task or step.
+   *
+   * @param item The task or step
+   *
+   * @return The fingerprint
+   */
+
+  public static TRFingerprint of(
+    final TRTaskItemType item)
+  {
+    Objects.requireNonNull(item, "item");
+
+    if (item instanceof final TRTask<?> task) {
+      return ofTask(task);
+    }
+
+    final var hasher = new TRHasher();
+    hashStep(hasher, (TRStep) item);
+    return hasher.finish();
+  }
+
+  private static TRFingerprint ofTask(
+    final TRTask<?> task)
+  {
+    expunge();
+
+    final var existing = cached(task);
+    if (existing != null) {
+      return existing;
+    }
+
+    final var stack = new ArrayDeque<TRTaskFrame>();
+    stack.push(new TRTaskFrame(task));
+
+    while (true) {
+      final var frame = stack.peek();
+      final var items = frame.task.items();
+      if (frame.index < items.size()) {
+        final var item = items.get(frame.index);
+        ++frame.index;
+
+        if (item instanceof final TRTask<?> subtask) {
+          final var fingerprint = cached(subtask);
+          if (fingerprint != null) {
+            frame.addSubtask(fingerprint);
+          } else {
+            stack.push(new TRTaskFrame(subtask));
+          }
+        } else {
+          hashStep(frame.hasher, (TRStep) item);
+        }
+        continue;
+      }
+
+      stack.pop();
+      final var fingerprint = frame.hasher.finish();
+      CACHE.put(new TRTaskKey(frame.task, CLEARED), fingerprint);
+      if (stack.isEmpty()) {
+        return fingerprint;
+      }
+      stack.peek().addSubtask(fingerprint);
+    }
+  }
+
+  private static TRFingerprint cached(
+    final TRTask<?> task)
+  {
+    return CACHE.get(new TRTaskKey(task, null));
+  }
+
+  private static void hashStep(
+    final TRHasher hasher,
+    final TRStep step)
+  {
+    hasher.add(TAG_STEP);
+    hasher.add(
+      step.resolution() instanceof TRStepFailed
+        ? RESOLUTION_FAILED
+        : RESOLUTION_SUCCEEDED
+    );
+    hasher.add(step.description());
+  }
+
+  private static void expunge()
+  {
+    while (true) {
+      final var reference = CLEARED.poll();
+      if (reference == null) {
+        return;
+      }
+      CACHE.remove(reference);
+    }
+  }
+
+  /**
+   * A weak reference to a task compared by identity, so that looking up a
+   * task does not walk the task tree as the record's own {@code equals}
+   * and {@code hashCode} would.
+   */
+
+  private static final class TRTaskKey extends WeakReference<TRTask<?>>
+  {
+    private final int hash;
+
+    TRTaskKey(
+      final TRTask<?> task,
+      final ReferenceQueue<TRTask<?>> queue)
+    {
+      super(task, queue);
+      this.hash = System.identityHashCode(task);
+    }
+
+    @Override
+    public boolean equals(
+      final Object other)
+    {
+      if (this == other) {
+        return true;
+      }
+      if (other instanceof final TRTaskKey key) {
+        final var task = this.get();
+        return task != null && task == key.get();
+      }
+      return false;
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return this.hash;
+    }
+  }
+
+  /**
+   * A task whose fingerprint is being computed: the hasher holding the
+   * task's own tag, resolution, and item count, and the index of the next
+   * item to hash.
+   */
+
+  private static final class TRTaskFrame
+  {
+    private final TRTask<?> task;
+    private final TRHasher hasher;
+    private int index;
+
+    TRTaskFrame(
+      final TRTask<?> inTask)
+    {
+      this.task = inTask;
+      this.hasher = new TRHasher();
+      this.hasher.add(TAG_TASK);
+      this.hasher.add(
+        inTask.resolution() instanceof TRTaskFailed<?>
+          ? RESOLUTION_FAILED
+          : RESOLUTION_SUCCEEDED
+      );
+      this.hasher.add(inTask.items().size());
+      this.index = 0;
+    }
+
+    void addSubtask(
+      final TRFingerprint fingerprint)
+    {
+      this.hasher.add(fingerprint.high());
+      this.hasher.add(fingerprint.low());
+    }
+  }
+
+  /**
+   * A 128-bit hash built from the mixing steps of MurmurHash3 (x64, 128-bit
+   * variant), consuming one 64-bit value at a time.
+   */
+
+  private static final class TRHasher
+  {
+    private long h1;
+    private long h2;
+    private long count;
+
+    TRHasher()
+    {
+
+    }
+
+    void add(
+      final long value)
+    {
+      var k1 = value * C1;
+      k1 = Long.rotateLeft(k1, 31);
+      k1 *= C2;
+      this.h1 ^= k1;
+      this.h1 = Long.rotateLeft(this.h1, 27);
+      this.h1 += this.h2;
+      this.h1 = this.h1 * 5L + 0x52dce729L;
+
+      var k2 = value * C2;
+      k2 = Long.rotateLeft(k2, 33);
+      k2 *= C1;
+      this.h2 ^= k2;
+      this.h2 = Long.rotateLeft(this.h2, 31);
+      this.h2 += this.h1;
+      this.h2 = this.h2 * 5L + 0x38495ab5L;
+
+      ++this.count;
+    }
+
+    void add(
+      final String text)
+    {
+      final var length = text.length();
+      this.add(length);
+
+      long packed = 0L;
+      for (int index = 0; index < length; ++index) {
+        packed = (packed << 16) | text.charAt(index);
+        if ((index & 3) == 3) {
+          this.add(packed);
+          packed = 0L;
+        }
+      }
+      if ((length & 3) != 0) {
+        this.add(packed);
+      }
+    }
+
+    TRFingerprint finish()
+    {
+      var r1 = this.h1 ^ this.count;
+      var r2 = this.h2 ^ this.count;
+      r1 += r2;
+      r2 += r1;
+      r1 = mix(r1);
+      r2 = mix(r2);
+      r1 += r2;
+      r2 += r1;
+      return new TRFingerprint(r1, r2);
+    }
+
+    private static long mix(
+      final long value)
+    {
+      var k = value;
+      k ^= k >>> 33;
+      k *= 0xff51afd7ed558ccdL;
+      k ^= k >>> 33;
+      k *= 0xc4ceb9fe1a85ec53L;
+      k ^= k >>> 33;
+      return k;
+    }
+  }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.analysis;
+
+import java.time.Duration;
+
+/**
+ * The type of differences between aligned task items.
+ */
+
+public sealed interface TRItemDiffType
+  permits TRItemAdded, TRItemRemoved, TRStepDiff, TRTaskDiff
+{
+  /**
+   * @return The description of the item
+   */
+
+  String description();
+
+  /**
+   * Determine if the item differs between the two trees. Items that were
+   * added or removed are always considered to have changed.
+   *
+   * @param tolerance The amount by which durations may differ before they
+   *                  are considered to have changed
+   *
+   * @return {@code true} if the item changed
+   */
+
+  boolean isChanged(Duration tolerance);
+}
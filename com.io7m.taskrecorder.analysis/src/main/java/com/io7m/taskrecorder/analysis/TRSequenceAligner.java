@@ -0,0 +1,289 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.analysis;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * <p>An aligner for sequences of integer symbols.</p>
+ *
+ * <p>Common prefixes and suffixes are matched first. Symbols that occur
+ * exactly once in both of the remaining regions are then used as anchors
+ * (taking the longest increasing subsequence of their positions), and the
+ * regions between anchors are aligned independently. Regions without
+ * unique symbols are aligned using Myers' O(ND) algorithm with a bounded
+ * number of edits; regions that exceed the bound are left unmatched.</p>
+ */
+
+final class TRSequenceAligner
+{
+  private static final int EDIT_LIMIT = 1024;
+
+  private final int[] a;
+  private final int[] b;
+  private final int[] matches;
+  private final int[] countA;
+  private final int[] countB;
+  private final int[] positionB;
+  private final ArrayDeque<int[]> regions;
+
+  private TRSequenceAligner(
+    final int[] inA,
+    final int[] inB,
+    final int symbols)
+  {
+    this.a = inA;
+    this.b = inB;
+    this.matches = new int[inA.length];
+    Arrays.fill(this.matches, -1);
+    this.countA = new int[symbols];
+    this.countB = new int[symbols];
+    this.positionB = new int[symbols];
+    this.regions = new ArrayDeque<>();
+  }
+
+  /**
+   * Align two sequences of symbols in the range {@code [0, symbols)}.
+   *
+   * @param a       The first sequence
+   * @param b       The second sequence
+   * @param symbols The number of distinct symbols
+   *
+   * @return An array {@code m} such that {@code m[i]} is the index in
+   * {@code b} that is matched with {@code a[i]}, or {@code -1} if the
+   * element is unmatched; matched indices are strictly increasing
+   */
+
+  static int[] align(
+    final int[] a,
+    final int[] b,
+    final int symbols)
+  {
+    final var aligner = new TRSequenceAligner(a, b, symbols);
+    aligner.regions.push(new int[]{0, a.length, 0, b.length});
+    while (!aligner.regions.isEmpty()) {
+      final var region = aligner.regions.pop();
+      aligner.alignRegion(region[0], region[1], region[2], region[3]);
+    }
+    return aligner.matches;
+  }
+
+  private void alignRegion(
+    final int aStart,
+    final int aEnd,
+    final int bStart,
+    final int bEnd)
+  {
+    int aLo = aStart;
+    int aHi = aEnd;
+    int bLo = bStart;
+    int bHi = bEnd;
+
+    while (aLo < aHi && bLo < bHi && this.a[aLo] == this.b[bLo]) {
+      this.matches[aLo] = bLo;
+      ++aLo;
+      ++bLo;
+    }
+    while (aLo < aHi && bLo < bHi && this.a[aHi - 1] == this.b[bHi - 1]) {
+      --aHi;
+      --bHi;
+      this.matches[aHi] = bHi;
+    }
+
+    if (aLo == aHi || bLo == bHi) {
+      return;
+    }
+    if (!this.alignUnique(aLo, aHi, bLo, bHi)) {
+      this.alignMyers(aLo, aHi, bLo, bHi);
+    }
+  }
+
+  private boolean alignUnique(
+    final int aLo,
+    final int aHi,
+    final int bLo,
+    final int bHi)
+  {
+    for (int i = aLo; i < aHi; ++i) {
+      ++this.countA[this.a[i]];
+    }
+    for (int j = bLo; j < bHi; ++j) {
+      final var s = this.b[j];
+      ++this.countB[s];
+      this.positionB[s] = j;
+    }
+
+    final var anchorsA = new int[Math.min(aHi - aLo, bHi - bLo)];
+    final var anchorsB = new int[anchorsA.length];
+    int anchorCount = 0;
+    for (int i = aLo; i < aHi; ++i) {
+      final var s = this.a[i];
+      if (this.countA[s] == 1 && this.countB[s] == 1) {
+        anchorsA[anchorCount] = i;
+        anchorsB[anchorCount] = this.positionB[s];
+        ++anchorCount;
+      }
+    }
+
+    for (int i = aLo; i < aHi; ++i) {
+      this.countA[this.a[i]] = 0;
+    }
+    for (int j = bLo; j < bHi; ++j) {
+      this.countB[this.b[j]] = 0;
+    }
+
+    if (anchorCount == 0) {
+      return false;
+    }
+
+    final var kept = longestIncreasing(anchorsB, anchorCount);
+    int prevA = aLo;
+    int prevB = bLo;
+    for (final var index : kept) {
+      final var ai = anchorsA[index];
+      final var bj = anchorsB[index];
+      this.matches[ai] = bj;
+      this.regions.push(new int[]{prevA, ai, prevB, bj});
+      prevA = ai + 1;
+      prevB = bj + 1;
+    }
+    this.regions.push(new int[]{prevA, aHi, prevB, bHi});
+    return true;
+  }
+
+  /**
+   * @return The indices of a longest strictly increasing subsequence of
+   * the first {@code count} values
+   */
+
+  private static int[] longestIncreasing(
+    final int[] values,
+    final int count)
+  {
+    final var tails = new int[count];
+    final var previous = new int[count];
+    int length = 0;
+
+    for (int index = 0; index < count; ++index) {
+      final var value = values[index];
+      int lo = 0;
+      int hi = length;
+      while (lo < hi) {
+        final var mid = (lo + hi) >>> 1;
+        if (values[tails[mid]] < value) {
+          lo = mid + 1;
+        } else {
+          hi = mid;
+        }
+      }
+      previous[index] = lo > 0 ? tails[lo - 1] : -1;
+      tails[lo] = index;
+      if (lo == length) {
+        ++length;
+      }
+    }
+
+    final var result = new int[length];
+    int index = length == 0 ? -1 : tails[length - 1];
+    for (int k = length - 1; k >= 0; --k) {
+      result[k] = index;
+      index = previous[index];
+    }
+    return result;
+  }
+
+  private void alignMyers(
+    final int aLo,
+    final int aHi,
+    final int bLo,
+    final int bHi)
+  {
+    final var n = aHi - aLo;
+    final var m = bHi - bLo;
+    final var max = Math.min(n + m, EDIT_LIMIT);
+    final var offset = max + 1;
+    final var v = new int[(2 * max) + 3];
+    final var trace = new ArrayList<int[]>();
+
+    for (int d = 0; d <= max; ++d) {
+      for (int k = -d; k <= d; k += 2) {
+        int x;
+        if (k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1])) {
+          x = v[offset + k + 1];
+        } else {
+          x = v[offset + k - 1] + 1;
+        }
+        int y = x - k;
+        while (x < n && y < m && this.a[aLo + x] == this.b[bLo + y]) {
+          ++x;
+          ++y;
+        }
+        v[offset + k] = x;
+
+        if (x >= n && y >= m) {
+          this.backtrack(trace, aLo, bLo, n, m, d);
+          return;
+        }
+      }
+      trace.add(Arrays.copyOfRange(v, offset - d, offset + d + 1));
+    }
+  }
+
+  private void backtrack(
+    final ArrayList<int[]> trace,
+    final int aLo,
+    final int bLo,
+    final int n,
+    final int m,
+    final int edits)
+  {
+    int x = n;
+    int y = m;
+
+    for (int d = edits; d > 0; --d) {
+      final var v = trace.get(d - 1);
+      final var base = d - 1;
+      final var k = x - y;
+
+      final int kPrev;
+      if (k == -d || (k != d && v[base + k - 1] < v[base + k + 1])) {
+        kPrev = k + 1;
+      } else {
+        kPrev = k - 1;
+      }
+
+      final var xPrev = v[base + kPrev];
+      final var yPrev = xPrev - kPrev;
+      while (x > xPrev && y > yPrev) {
+        --x;
+        --y;
+        this.matches[aLo + x] = bLo + y;
+      }
+      x = xPrev;
+      y = yPrev;
+    }
+
+    while (x > 0 && y > 0) {
+      --x;
+      --y;
+      this.matches[aLo + x] = bLo + y;
+    }
+  }
+}
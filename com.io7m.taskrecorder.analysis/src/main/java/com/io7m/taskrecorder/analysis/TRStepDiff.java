@@ -0,0 +1,82 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.taskrecorder.analysis;
+
+import com.io7m.taskrecorder.core.TRStep;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * A step that is present in both trees.
+ *
+ * @param before The step in the older tree
+ * @param after  The step in the newer tree
+ */
+
+public record TRStepDiff(
+  TRStep before,
+  TRStep after)
+  implements TRItemDiffType
+{
+  /**
+   * A step that is present in both trees.
+   *
+   * @param before The step in the older tree
+   * @param after  The step in the newer tree
+   */
+
+  public TRStepDiff
+  {
+    Objects.requireNonNull(before, "before");
+    Objects.requireNonNull(after, "after");
+  }
+
+  @Override
+  public String description()
+  {
+    return this.after.description();
+  }
+
+  /**
+   * @return {@code true} if the step succeeded in one tree and failed in
+   * the other
+   */
+
+  public boolean resolutionChanged()
+  {
+    return this.before.resolution().getClass()
+           != this.after.resolution().getClass();
+  }
+
+  /**
+   * @return The duration of the newer step minus the duration of the older
+   */
+
+  public Duration durationDelta()
+  {
+    return this.after.duration().minus(this.before.duration());
+  }
+
+  @Override
+  public boolean isChanged(
+    final Duration tolerance)
+  {
+    return this.resolutionChanged()
+           || this.durationDelta().abs().compareTo(tolerance) > 0;
+  }
+}
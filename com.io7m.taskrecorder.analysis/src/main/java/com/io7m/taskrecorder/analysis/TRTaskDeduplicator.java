@@ -0,0 +1,213 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.taskrecorder.analysis;
+
+import com.io7m.taskrecorder.core.TRTask;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A counting deduplicator that groups tasks by their structural
+ * fingerprint, keeping the first task seen with each fingerprint as an
+ * exemplar. Tasks may be added from any number of threads.
+ *
+ * <p>To bound memory use, at most a fixed number of distinct fingerprints
+ * are tracked. Tasks with new fingerprints that arrive once the limit has
+ * been reached are counted by {@link #overflowed()} but are otherwise
+ * discarded.</p>
+ *
+ * @see TRFingerprints
+ */
+
+public final class TRTaskDeduplicator
+{
+  /**
+   * The default maximum number of distinct fingerprints.
+   */
+
+  public static final int MAXIMUM_FINGERPRINTS_DEFAULT = 10_000;
+
+  private final ConcurrentHashMap<TRFingerprint, TREntry> entries;
+  private final int maximumFingerprints;
+  private final AtomicInteger fingerprints;
+  private final LongAdder overflowed;
+
+  private TRTaskDeduplicator(
+    final int inMaximumFingerprints)
+  {
+    this.maximumFingerprints = inMaximumFingerprints;
+    this.entries = new ConcurrentHashMap<>();
+    this.fingerprints = new AtomicInteger();
+    this.overflowed = new LongAdder();
+  }
+
+  /**
+   * Create a deduplicator that tracks up to
+   * {@link #MAXIMUM_FINGERPRINTS_DEFAULT} distinct fingerprints.
+   *
+   * @return A new deduplicator
+   */
+
+  public static TRTaskDeduplicator create()
+  {
+    return create(MAXIMUM_FINGERPRINTS_DEFAULT);
+  }
+
+  /**
+   * Create a deduplicator.
+   *
+   * @param maximumFingerprints The maximum number of distinct fingerprints
+   *
+   * @return A new deduplicator
+   */
+
+  public static TRTaskDeduplicator create(
+    final int maximumFingerprints)
+  {
+    if (maximumFingerprints < 1) {
+      throw new IllegalArgumentException(
+        "Maximum fingerprints %d must be positive."
+          .formatted(Integer.valueOf(maximumFingerprints))
+      );
+    }
+    return new TRTaskDeduplicator(maximumFingerprints);
+  }
+
+  /**
+   * Add a task.
+   *
+   * @param task The task
+   *
+   * @return The number of tasks seen with the same fingerprint, including
+   * this one, or {@code 0} if the fingerprint could not be tracked
+   */
+
+  public long add(
+    final TRTask<?> task)
+  {
+    Objects.requireNonNull(task, "task");
+
+    final var fingerprint = TRFingerprints.of(task);
+    var entry = this.entries.get(fingerprint);
+    if (entry == null) {
+      if (this.fingerprints.incrementAndGet() > this.maximumFingerprints) {
+        this.fingerprints.decrementAndGet();
+        this.overflowed.increment();
+        return 0L;
+      }
+
+      final var created = new TREntry(task);
+      entry = this.entries.putIfAbsent(fingerprint, created);
+      if (entry == null) {
+        entry = created;
+      } else {
+        this.fingerprints.decrementAndGet();
+      }
+    }
+
+    entry.count.increment();
+    return entry.count.sum();
+  }
+
+  /**
+   * @param fingerprint The fingerprint
+   *
+   * @return The number of tasks seen with the given fingerprint
+   */
+
+  public long count(
+    final TRFingerprint fingerprint)
+  {
+    Objects.requireNonNull(fingerprint, "fingerprint");
+
+    final var entry = this.entries.get(fingerprint);
+    if (entry == null) {
+      return 0L;
+    }
+    return entry.count.sum();
+  }
+
+  /**
+   * @return The number of distinct fingerprints tracked
+   */
+
+  public int size()
+  {
+    return this.entries.size();
+  }
+
+  /**
+   * @return The number of tasks discarded because the maximum number of
+   * distinct fingerprints had been reached
+   */
+
+  public long overflowed()
+  {
+    return this.overflowed.sum();
+  }
+
+  /**
+   * @return The occurrences of each tracked fingerprint, most frequent first
+   */
+
+  public List<TRTaskOccurrences> occurrences()
+  {
+    final var results = new ArrayList<TRTaskOccurrences>(this.entries.size());
+    this.entries.forEach((fingerprint, entry) -> {
+      final var count = entry.count.sum();
+      if (count > 0L) {
+        results.add(new TRTaskOccurrences(fingerprint, entry.exemplar, count));
+      }
+    });
+    results.sort(
+      Comparator.comparingLong(TRTaskOccurrences::count)
+        .reversed()
+        .thenComparing(o -> o.fingerprint().toString())
+    );
+    return List.copyOf(results);
+  }
+
+  /**
+   * Forget all fingerprints and counts.
+   */
+
+  public void clear()
+  {
+    this.entries.clear();
+    this.fingerprints.set(0);
+    this.overflowed.reset();
+  }
+
+  private static final class TREntry
+  {
+    private final TRTask<?> exemplar;
+    private final LongAdder count;
+
+    TREntry(
+      final TRTask<?> inExemplar)
+    {
+      this.exemplar = inExemplar;
+      this.count = new LongAdder();
+    }
+  }
+}
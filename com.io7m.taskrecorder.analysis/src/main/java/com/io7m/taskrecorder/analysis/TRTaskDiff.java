@@ -0,0 +1,171 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.taskrecorder.analysis;
+
+import com.io7m.taskrecorder.core.TRTask;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A task that is present in both trees, along with the differences
+ * between the items of each version of the task. Whether the task or
+ * anything beneath it changed is summarized when the diff is built, so
+ * {@link #isChanged(Duration)} takes constant time.
+ *
+ * @param before                The task in the older tree
+ * @param after                 The task in the newer tree
+ * @param items                 The aligned items
+ * @param structureChanged      {@code true} if an item was added or removed
+ *                              anywhere beneath the task, or the task or
+ *                              any item beneath it changed resolution
+ * @param durationDeltaMaximum  The largest absolute change in duration of
+ *                              the task or any item beneath it
+ */
+
+public record TRTaskDiff(
+  TRTask<?> before,
+  TRTask<?> after,
+  List<TRItemDiffType> items,
+  boolean structureChanged,
+  Duration durationDeltaMaximum)
+  implements TRItemDiffType
+{
+  /**
+   * A task that is present in both trees, along with the differences
+   * between the items of each version of the task.
+   *
+   * @param before                The task in the older tree
+   * @param after                 The task in the newer tree
+   * @param items                 The aligned items
+   * @param structureChanged      {@code true} if an item was added or
+   *                              removed anywhere beneath the task, or the
+   *                              task or any item beneath it changed
+   *                              resolution
+   * @param durationDeltaMaximum  The largest absolute change in duration of
+   *                              the task or any item beneath it
+   */
+
+  public TRTaskDiff
+  {
+    Objects.requireNonNull(before, "before");
+    Objects.requireNonNull(after, "after");
+    Objects.requireNonNull(durationDeltaMaximum, "durationDeltaMaximum");
+    items = List.copyOf(items);
+  }
+
+  /**
+   * A task that is present in both trees, along with the differences
+   * between the items of each version of the task. The summary of changes
+   * is computed from the task and its immediate items.
+   *
+   * @param before The task in the older tree
+   * @param after  The task in the newer tree
+   * @param items  The aligned items
+   */
+
+  public TRTaskDiff(
+    final TRTask<?> before,
+    final TRTask<?> after,
+    final List<TRItemDiffType> items)
+  {
+    this(
+      before,
+      after,
+      items,
+      structureChangedOf(before, after, items),
+      durationDeltaMaximumOf(before, after, items)
+    );
+  }
+
+  private static boolean structureChangedOf(
+    final TRTask<?> before,
+    final TRTask<?> after,
+    final List<TRItemDiffType> items)
+  {
+    if (before.resolution().getClass() != after.resolution().getClass()) {
+      return true;
+    }
+    for (final var item : items) {
+      final var changed = switch (item) {
+        case final TRItemAdded added -> true;
+        case final TRItemRemoved removed -> true;
+        case final TRStepDiff step -> step.resolutionChanged();
+        case final TRTaskDiff task -> task.structureChanged();
+      };
+      if (changed) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static Duration durationDeltaMaximumOf(
+    final TRTask<?> before,
+    final TRTask<?> after,
+    final List<TRItemDiffType> items)
+  {
+    var maximum = after.duration().minus(before.duration()).abs();
+    for (final var item : items) {
+      final var delta = switch (item) {
+        case final TRItemAdded added -> Duration.ZERO;
+        case final TRItemRemoved removed -> Duration.ZERO;
+        case final TRStepDiff step -> step.durationDelta().abs();
+        case final TRTaskDiff task -> task.durationDeltaMaximum();
+      };
+      if (delta.compareTo(maximum) > 0) {
+        maximum = delta;
+      }
+    }
+    return maximum;
+  }
+
+  @Override
+  public String description()
+  {
+    return this.after.description();
+  }
+
+  /**
+   * @return {@code true} if the task succeeded in one tree and failed in
+   * the other
+   */
+
+  public boolean resolutionChanged()
+  {
+    return this.before.resolution().getClass()
+           != this.after.resolution().getClass();
+  }
+
+  /**
+   * @return The duration of the newer task minus the duration of the older
+   */
+
+  public Duration durationDelta()
+  {
+    return this.after.duration().minus(this.before.duration());
+  }
+
+  @Override
+  public boolean isChanged(
+    final Duration tolerance)
+  {
+    return this.structureChanged
+           || this.durationDeltaMaximum.compareTo(tolerance) > 0;
+  }
+}
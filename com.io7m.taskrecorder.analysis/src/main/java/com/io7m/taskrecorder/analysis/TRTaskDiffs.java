@@ -0,0 +1,317 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.analysis;
+
+import com.io7m.taskrecorder.core.TRStep;
+import com.io7m.taskrecorder.core.TRStepFailed;
+import com.io7m.taskrecorder.core.TRTask;
+import com.io7m.taskrecorder.core.TRTaskFailed;
+import com.io7m.taskrecorder.core.TRTaskItemType;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Functions to compute and display the differences between two task trees.
+ */
+
+public final class TRTaskDiffs
+{
+  private TRTaskDiffs()
+  {
+
+  }
+
+  /**
+   * Compute the differences between two versions of a task. The items of
+   * each task are aligned by description (steps are only aligned with steps,
+   * and subtasks with subtasks), and aligned subtasks are compared in the
+   * same way. Subtasks are compared using an explicit stack, so the depth of
+   * the trees is not limited by the depth of the call stack.
+   *
+   * @param before The older task
+   * @param after  The newer task
+   *
+   * @return The differences
+   */
+
+  public static TRTaskDiff diff(
+    final TRTask<?> before,
+    final TRTask<?> after)
+  {
+    Objects.requireNonNull(before, "before");
+    Objects.requireNonNull(after, "after");
+
+    final var stack = new ArrayDeque<TRDiffFrame>();
+    stack.push(new TRDiffFrame(before, after));
+
+    while (true) {
+      final var frame = stack.peek();
+      final var child = frame.advance();
+      if (child != null) {
+        stack.push(child);
+        continue;
+      }
+
+      stack.pop();
+      final var result =
+        new TRTaskDiff(frame.before, frame.after, frame.results);
+      final var parent = stack.peek();
+      if (parent == null) {
+        return result;
+      }
+      parent.results.add(result);
+    }
+  }
+
+  /**
+   * The state of the comparison of one pair of aligned tasks.
+   */
+
+  private static final class TRDiffFrame
+  {
+    private final TRTask<?> before;
+    private final TRTask<?> after;
+    private final List<TRTaskItemType> itemsBefore;
+    private final List<TRTaskItemType> itemsAfter;
+    private final int[] matches;
+    private final ArrayList<TRItemDiffType> results;
+    private int i;
+    private int j;
+
+    TRDiffFrame(
+      final TRTask<?> inBefore,
+      final TRTask<?> inAfter)
+    {
+      this.before = inBefore;
+      this.after = inAfter;
+      this.itemsBefore = inBefore.items();
+      this.itemsAfter = inAfter.items();
+
+      final var steps = new HashMap<String, Integer>();
+      final var tasks = new HashMap<String, Integer>();
+      final var symbolsBefore = symbolsOf(this.itemsBefore, steps, tasks);
+      final var symbolsAfter = symbolsOf(this.itemsAfter, steps, tasks);
+      this.matches =
+        TRSequenceAligner.align(
+          symbolsBefore,
+          symbolsAfter,
+          steps.size() + tasks.size()
+        );
+      this.results =
+        new ArrayList<>(Math.max(
+          this.itemsBefore.size(),
+          this.itemsAfter.size()));
+    }
+
+    /**
+     * Add the differences of items up to the next pair of aligned subtasks.
+     *
+     * @return The frame for the next pair of aligned subtasks, or
+     * {@code null} if all items have been compared
+     */
+
+    TRDiffFrame advance()
+    {
+      while (this.i < this.matches.length) {
+        final var match = this.matches[this.i];
+        final var itemBefore = this.itemsBefore.get(this.i);
+        ++this.i;
+
+        if (match == -1) {
+          this.results.add(new TRItemRemoved(itemBefore));
+          continue;
+        }
+        while (this.j < match) {
+          this.results.add(new TRItemAdded(this.itemsAfter.get(this.j)));
+          ++this.j;
+        }
+
+        final var itemAfter = this.itemsAfter.get(this.j);
+        ++this.j;
+        if (itemBefore instanceof final TRTask<?> taskBefore
+            && itemAfter instanceof final TRTask<?> taskAfter) {
+          return new TRDiffFrame(taskBefore, taskAfter);
+        }
+        this.results.add(new TRStepDiff((TRStep) itemBefore, (TRStep) itemAfter));
+      }
+
+      while (this.j < this.itemsAfter.size()) {
+        this.results.add(new TRItemAdded(this.itemsAfter.get(this.j)));
+        ++this.j;
+      }
+      return null;
+    }
+  }
+
+  private static int[] symbolsOf(
+    final List<TRTaskItemType> items,
+    final HashMap<String, Integer> steps,
+    final HashMap<String, Integer> tasks)
+  {
+    final var symbols = new int[items.size()];
+    int index = 0;
+    for (final var item : items) {
+      final var table = item instanceof TRTask<?> ? tasks : steps;
+      final var description = item.description();
+      var symbol = table.get(description);
+      if (symbol == null) {
+        symbol = Integer.valueOf(steps.size() + tasks.size());
+        table.put(description, symbol);
+      }
+      symbols[index] = symbol.intValue();
+      ++index;
+    }
+    return symbols;
+  }
+
+  /**
+   * Render the changed parts of the given diff as human-readable text. Each
+   * line is prefixed with {@code +} (added), {@code -} (removed),
+   * {@code ~} (changed), or a space (an unchanged task containing changes).
+   *
+   * @param diff      The diff
+   * @param tolerance The amount by which durations may differ before they
+   *                  are considered to have changed
+   *
+   * @return The rendered text
+   */
+
+  public static String render(
+    final TRTaskDiff diff,
+    final Duration tolerance)
+  {
+    Objects.requireNonNull(diff, "diff");
+    Objects.requireNonNull(tolerance, "tolerance");
+
+    final var text = new StringBuilder(256);
+    final var items = new ArrayDeque<TRItemDiffType>();
+    final var depths = new ArrayDeque<Integer>();
+    items.push(diff);
+    depths.push(Integer.valueOf(0));
+
+    while (!items.isEmpty()) {
+      renderItem(text, items, depths, tolerance);
+    }
+    return text.toString();
+  }
+
+  /**
+   * Render the item at the top of the stack, pushing the items of changed
+   * tasks so that they are rendered next, in order.
+   */
+
+  private static void renderItem(
+    final StringBuilder text,
+    final ArrayDeque<TRItemDiffType> items,
+    final ArrayDeque<Integer> depths,
+    final Duration tolerance)
+  {
+    final var item = items.pop();
+    final var depth = depths.pop().intValue();
+
+    switch (item) {
+      case final TRItemAdded added -> {
+        renderLine(text, '+', depth, added.description());
+        text.append('\n');
+      }
+      case final TRItemRemoved removed -> {
+        renderLine(text, '-', depth, removed.description());
+        text.append('\n');
+      }
+      case final TRStepDiff step -> {
+        if (step.isChanged(tolerance)) {
+          renderLine(text, '~', depth, step.description());
+          renderChanges(
+            text,
+            step.resolutionChanged(),
+            step.before().resolution() instanceof TRStepFailed,
+            step.before().duration(),
+            step.after().duration(),
+            tolerance
+          );
+          text.append('\n');
+        }
+      }
+      case final TRTaskDiff task -> {
+        if (task.isChanged(tolerance)) {
+          final var selfChanged =
+            task.resolutionChanged()
+            || task.durationDelta().abs().compareTo(tolerance) > 0;
+          renderLine(text, selfChanged ? '~' : ' ', depth, task.description());
+          renderChanges(
+            text,
+            task.resolutionChanged(),
+            task.before().resolution() instanceof TRTaskFailed,
+            task.before().duration(),
+            task.after().duration(),
+            tolerance
+          );
+          text.append('\n');
+
+          final var children = task.items();
+          final var childDepth = Integer.valueOf(depth + 1);
+          for (int index = children.size() - 1; index >= 0; --index) {
+            items.push(children.get(index));
+            depths.push(childDepth);
+          }
+        }
+      }
+    }
+  }
+
+  private static void renderLine(
+    final StringBuilder text,
+    final char prefix,
+    final int depth,
+    final String description)
+  {
+    text.append(prefix);
+    text.append(' ');
+    text.repeat("  ", depth);
+    text.append(description);
+  }
+
+  private static void renderChanges(
+    final StringBuilder text,
+    final boolean resolutionChanged,
+    final boolean failedBefore,
+    final Duration durationBefore,
+    final Duration durationAfter,
+    final Duration tolerance)
+  {
+    if (resolutionChanged) {
+      text.append(
+        failedBefore
+          ? " [failed -> succeeded]"
+          : " [succeeded -> failed]"
+      );
+    }
+    if (durationAfter.minus(durationBefore).abs().compareTo(tolerance) > 0) {
+      text.append(" [duration ");
+      text.append(durationBefore);
+      text.append(" -> ");
+      text.append(durationAfter);
+      text.append(']');
+    }
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.taskrecorder.analysis;
+
+import com.io7m.taskrecorder.core.TRTask;
+
+import java.util.Objects;
+
+/**
+ * The number of times that tasks with a given fingerprint have been seen.
+ *
+ * @param fingerprint The fingerprint
+ * @param exemplar    The first task seen with the fingerprint
+ * @param count       The number of tasks seen with the fingerprint
+ */
+
+public record TRTaskOccurrences(
+  TRFingerprint fingerprint,
+  TRTask<?> exemplar,
+  long count)
+{
+  /**
+   * The number of times that tasks with a given fingerprint have been seen.
+   *
+   * @param fingerprint The fingerprint
+   * @param exemplar    The first task seen with the fingerprint
+   * @param count       The number of tasks seen with the fingerprint
+   */
+
+  public TRTaskOccurrences
+  {
+    Objects.requireNonNull(fingerprint, "fingerprint");
+    Objects.requireNonNull(exemplar, "exemplar");
+
+    if (count < 1L) {
+      throw new IllegalArgumentException(
+        "Count %d must be positive.".formatted(Long.valueOf(count))
+      );
+    }
+  }
+}
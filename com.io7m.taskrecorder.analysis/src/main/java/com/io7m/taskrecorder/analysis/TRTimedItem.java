@@ -0,0 +1,58 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.taskrecorder.analysis;
+
+import com.io7m.taskrecorder.core.TRTaskItemType;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * The timing of a single item in a task tree.
+ *
+ * @param item      The item
+ * @param depth     The depth of the item, where the root task has depth
+ *                  {@code 0}
+ * @param inclusive The time between the start and end of the item
+ * @param self      The part of the inclusive time not covered by any of the
+ *                  item's children
+ */
+
+public record TRTimedItem(
+  TRTaskItemType item,
+  int depth,
+  Duration inclusive,
+  Duration self)
+{
+  /**
+   * The timing of a single item in a task tree.
+   *
+   * @param item      The item
+   * @param depth     The depth of the item, where the root task has depth
+   *                  {@code 0}
+   * @param inclusive The time between the start and end of the item
+   * @param self      The part of the inclusive time not covered by any of
+   *                  the item's children
+   */
+
+  public TRTimedItem
+  {
+    Objects.requireNonNull(item, "item");
+    Objects.requireNonNull(inclusive, "inclusive");
+    Objects.requireNonNull(self, "self");
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.taskrecorder.analysis;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The result of analyzing the timing of a task tree.
+ *
+ * @param items        The number of items (tasks and steps) in the tree
+ * @param total        The inclusive time of the root task
+ * @param hottest      The items with the largest self time, largest first
+ * @param criticalPath The critical path, in the order that the items
+ *                     started
+ */
+
+public record TRTimingAnalysis(
+  long items,
+  Duration total,
+  List<TRTimedItem> hottest,
+  List<TRTimedItem> criticalPath)
+{
+  /**
+   * The result of analyzing the timing of a task tree.
+   *
+   * @param items        The number of items (tasks and steps) in the tree
+   * @param total        The inclusive time of the root task
+   * @param hottest      The items with the largest self time, largest first
+   * @param criticalPath The critical path, in the order that the items
+   *                     started
+   */
+
+  public TRTimingAnalysis
+  {
+    Objects.requireNonNull(total, "total");
+    hottest = List.copyOf(hottest);
+    criticalPath = List.copyOf(criticalPath);
+  }
+}
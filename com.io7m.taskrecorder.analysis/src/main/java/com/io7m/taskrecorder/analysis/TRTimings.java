@@ -0,0 +1,393 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.taskrecorder.analysis;
+
+import com.io7m.taskrecorder.core.TRTask;
+import com.io7m.taskrecorder.core.TRTaskItemType;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * <p>Functions to analyze where the time in a task tree was spent.</p>
+ *
+ * <p>The <i>inclusive</i> time of an item is the time between its start
+ * and end. The <i>self</i> time of a task is the part of its inclusive time
+ * that is not covered by any of its items (the union of the items'
+ * intervals is used, so items that overlap, such as grafted tasks that ran
+ * in parallel, are not counted twice); the self time of a step is its
+ * inclusive time.</p>
+ *
+ * <p>The <i>critical path</i> is the chain of items that determined when
+ * the root task ended. It is found by starting at the end of the root task
+ * and repeatedly choosing the item that ended last before the current
+ * point, moving the current point to the start of that item, and
+ * descending into each chosen subtask in the same way. For a task whose
+ * items ran one after another, every item is on the critical path; for
+ * items that overlapped, only the one that finished last is.</p>
+ *
+ * <p>The tree is traversed once without recursion, so arbitrarily large
+ * and deep trees can be analyzed. The items of each task are expected to
+ * be in the order that they started, as they are when recorded; items that
+ * are not are sorted, which is the only part of the analysis that is not
+ * linear in the number of items.</p>
+ */
+
+public final class TRTimings
+{
+  private TRTimings()
+  {
+
+  }
+
+  /**
+   * Analyze the timing of a task tree.
+   *
+   * @param task    The root task
+   * @param hottest The number of items with the largest self time to retain
+   *
+   * @return The analysis
+   */
+
+  public static TRTimingAnalysis analyze(
+    final TRTask<?> task,
+    final int hottest)
+  {
+    return analyze(task, hottest, null);
+  }
+
+  /**
+   * Analyze the timing of a task tree, passing the timing of every item in
+   * the tree to the given receiver. Items are passed in depth-first order,
+   * each task before its items.
+   *
+   * @param task     The root task
+   * @param hottest  The number of items with the largest self time to
+   *                 retain
+   * @param receiver The receiver of the timings of all items, if any
+   *
+   * @return The analysis
+   */
+
+  public static TRTimingAnalysis analyze(
+    final TRTask<?> task,
+    final int hottest,
+    final Consumer<TRTimedItem> receiver)
+  {
+    Objects.requireNonNull(task, "task");
+
+    if (hottest < 0) {
+      throw new IllegalArgumentException(
+        "Hottest item count %d must be non-negative."
+          .formatted(Integer.valueOf(hottest))
+      );
+    }
+
+    final var scratch = new TRScratch();
+    final var hot = new TRHottest(hottest);
+    final var stack = new ArrayDeque<TRFrame>();
+    stack.push(new TRFrame(task, 0));
+
+    long count = 0L;
+    while (!stack.isEmpty()) {
+      final var frame = stack.pop();
+      final var item = frame.item();
+      ++count;
+
+      final long inclusive;
+      final long self;
+      if (item instanceof final TRTask<?> subtask) {
+        inclusive = scratch.load(subtask);
+        self = inclusive - scratch.covered();
+
+        final var items = subtask.items();
+        for (int index = items.size() - 1; index >= 0; --index) {
+          stack.push(new TRFrame(items.get(index), frame.depth() + 1));
+        }
+      } else {
+        inclusive = inclusiveOf(item);
+        self = inclusive;
+      }
+
+      hot.offer(item, frame.depth(), inclusive, self);
+      if (receiver != null) {
+        receiver.accept(timed(item, frame.depth(), inclusive, self));
+      }
+    }
+
+    return new TRTimingAnalysis(
+      count,
+      Duration.ofNanos(inclusiveOf(task)),
+      hot.toList(),
+      criticalPath(task, scratch)
+    );
+  }
+
+  private static ArrayList<TRTimedItem> criticalPath(
+    final TRTask<?> task,
+    final TRScratch scratch)
+  {
+    final var path = new ArrayList<TRTimedItem>();
+    final var stack = new ArrayDeque<TRFrame>();
+    stack.push(new TRFrame(task, 0));
+
+    while (!stack.isEmpty()) {
+      final var frame = stack.pop();
+      final var item = frame.item();
+
+      if (item instanceof final TRTask<?> subtask) {
+        final var inclusive = scratch.load(subtask);
+        final var items = subtask.items();
+        final var depth = frame.depth() + 1;
+        scratch.forEachOnPath(inclusive, index -> {
+          stack.push(new TRFrame(items.get(index), depth));
+        });
+
+        final var self = inclusive - scratch.covered();
+        path.add(timed(item, frame.depth(), inclusive, self));
+      } else {
+        final var inclusive = inclusiveOf(item);
+        path.add(timed(item, frame.depth(), inclusive, inclusive));
+      }
+    }
+    return path;
+  }
+
+  private static TRTimedItem timed(
+    final TRTaskItemType item,
+    final int depth,
+    final long inclusive,
+    final long self)
+  {
+    return new TRTimedItem(
+      item,
+      depth,
+      Duration.ofNanos(inclusive),
+      Duration.ofNanos(self)
+    );
+  }
+
+  private static long inclusiveOf(
+    final TRTaskItemType item)
+  {
+    return Math.max(0L, nanosBetween(item.timeStarted(), item.timeEnded()));
+  }
+
+  private static long nanosBetween(
+    final Instant from,
+    final Instant to)
+  {
+    return (to.getEpochSecond() - from.getEpochSecond()) * 1_000_000_000L
+           + (long) (to.getNano() - from.getNano());
+  }
+
+  private record TRFrame(
+    TRTaskItemType item,
+    int depth)
+  {
+
+  }
+
+  private interface TRIndexConsumerType
+  {
+    void accept(int index);
+  }
+
+  /**
+   * The intervals of the items of one task, relative to the start of the
+   * task and clipped to the task, reused for each task.
+   */
+
+  private static final class TRScratch
+  {
+    private long[] starts;
+    private long[] ends;
+    private int count;
+    private boolean startsSorted;
+    private boolean endsSorted;
+
+    TRScratch()
+    {
+      this.starts = new long[16];
+      this.ends = new long[16];
+    }
+
+    long load(
+      final TRTask<?> task)
+    {
+      final var origin = task.timeStarted();
+      final var inclusive = inclusiveOf(task);
+      final var items = task.items();
+      final var size = items.size();
+
+      if (this.starts.length < size) {
+        final var capacity = Math.max(size, this.starts.length * 2);
+        this.starts = new long[capacity];
+        this.ends = new long[capacity];
+      }
+
+      this.count = size;
+      this.startsSorted = true;
+      this.endsSorted = true;
+
+      for (int index = 0; index < size; ++index) {
+        final var item = items.get(index);
+        final var start =
+          clamp(nanosBetween(origin, item.timeStarted()), 0L, inclusive);
+        final var end =
+          clamp(nanosBetween(origin, item.timeEnded()), start, inclusive);
+
+        if (index > 0) {
+          this.startsSorted &= this.starts[index - 1] <= start;
+          this.endsSorted &= this.ends[index - 1] <= end;
+        }
+        this.starts[index] = start;
+        this.ends[index] = end;
+      }
+      return inclusive;
+    }
+
+    /**
+     * Pass the indices of the items on the critical path to the consumer,
+     * latest first.
+     */
+
+    void forEachOnPath(
+      final long inclusive,
+      final TRIndexConsumerType consumer)
+    {
+      var cursor = inclusive;
+      if (this.endsSorted) {
+        for (int index = this.count - 1; index >= 0; --index) {
+          if (this.ends[index] <= cursor) {
+            consumer.accept(index);
+            cursor = this.starts[index];
+          }
+        }
+        return;
+      }
+
+      final var order = new Integer[this.count];
+      Arrays.setAll(order, Integer::valueOf);
+      Arrays.sort(order, Comparator.comparingLong(i -> this.ends[i]));
+      for (int position = this.count - 1; position >= 0; --position) {
+        final var index = order[position].intValue();
+        if (this.ends[index] <= cursor) {
+          consumer.accept(index);
+          cursor = this.starts[index];
+        }
+      }
+    }
+
+    /**
+     * @return The length of the union of the intervals; this may reorder
+     * the intervals
+     */
+
+    long covered()
+    {
+      if (!this.startsSorted) {
+        Arrays.sort(this.starts, 0, this.count);
+      }
+      if (!this.endsSorted) {
+        Arrays.sort(this.ends, 0, this.count);
+      }
+
+      long covered = 0L;
+      long coverStart = 0L;
+      int active = 0;
+      int s = 0;
+      int e = 0;
+      while (e < this.count) {
+        if (s < this.count && this.starts[s] <= this.ends[e]) {
+          if (active == 0) {
+            coverStart = this.starts[s];
+          }
+          ++active;
+          ++s;
+        } else {
+          --active;
+          if (active == 0) {
+            covered += this.ends[e] - coverStart;
+          }
+          ++e;
+        }
+      }
+      return covered;
+    }
+
+    private static long clamp(
+      final long value,
+      final long minimum,
+      final long maximum)
+    {
+      return Math.max(minimum, Math.min(value, maximum));
+    }
+  }
+
+  /**
+   * The items with the largest self time seen so far.
+   */
+
+  private static final class TRHottest
+  {
+    private final int limit;
+    private final PriorityQueue<TRTimedItem> queue;
+
+    TRHottest(
+      final int inLimit)
+    {
+      this.limit = inLimit;
+      this.queue = new PriorityQueue<>(
+        Math.max(1, inLimit),
+        Comparator.comparing(TRTimedItem::self)
+      );
+    }
+
+    void offer(
+      final TRTaskItemType item,
+      final int depth,
+      final long inclusive,
+      final long self)
+    {
+      if (this.limit == 0) {
+        return;
+      }
+      if (this.queue.size() == this.limit) {
+        if (this.queue.peek().self().toNanos() >= self) {
+          return;
+        }
+        this.queue.poll();
+      }
+      this.queue.add(timed(item, depth, inclusive, self));
+    }
+
+    ArrayList<TRTimedItem> toList()
+    {
+      final var results = new ArrayList<>(this.queue);
+      results.sort(Comparator.comparing(TRTimedItem::self).reversed());
+      return results;
+    }
+  }
+}
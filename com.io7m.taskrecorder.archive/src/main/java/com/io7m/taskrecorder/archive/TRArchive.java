@@ -0,0 +1,523 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.archive;
+
+import com.io7m.taskrecorder.core.TRTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static com.io7m.taskrecorder.archive.TRArchiveSegment.DATA_SUFFIX;
+import static com.io7m.taskrecorder.archive.TRArchiveSegment.INDEX_SUFFIX;
+import static com.io7m.taskrecorder.archive.TRArchiveSegment.TEMPORARY_SUFFIX;
+
+/**
+ * An embedded, file-based archive of completed tasks.
+ *
+ * <p>Tasks are appended to segment files, and each segment has an index
+ * holding the start time, end time, status, and description hash of every
+ * task. Queries skip segments whose range of start times lies outside the
+ * query without opening them, then consult the index of each remaining
+ * segment and only decode the tasks that match, reading segments through
+ * memory mappings. The index has an entry for every task rather than for
+ * blocks of tasks, so that status and description filters never require
+ * decoding tasks that do not match. Segments whose tasks have all
+ * expired are deleted, and segments containing some expired tasks are
+ * rewritten, either in the background or on calls to {@link #maintain()}.
+ * </p>
+ *
+ * <p>Segments are not deleted or rewritten whilst a query result that reads
+ * them is open; maintenance of such segments is deferred to a later run.
+ * Because some platforms do not allow files to be removed whilst they are
+ * mapped, segments that cannot yet be removed are also retried on later
+ * runs.</p>
+ *
+ * <p>Archives are safe for use from multiple threads. Query results reflect
+ * the contents of the archive at the time the query was made.</p>
+ */
+
+public final class TRArchive implements Closeable
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(TRArchive.class);
+
+  private final TRArchiveConfiguration configuration;
+  private final Object lock;
+  private final Object maintenanceLock;
+  private final ArrayList<TRArchiveSegment> segments;
+  private final ScheduledExecutorService maintenance;
+  private final ArrayList<TRArchiveSegment> deletionsPending;
+  private boolean closed;
+
+  private TRArchive(
+    final TRArchiveConfiguration inConfiguration,
+    final ArrayList<TRArchiveSegment> inSegments)
+  {
+    this.configuration =
+      Objects.requireNonNull(inConfiguration, "configuration");
+    this.segments =
+      Objects.requireNonNull(inSegments, "segments");
+    this.lock = new Object();
+    this.maintenanceLock = new Object();
+    this.deletionsPending = new ArrayList<>();
+
+    final var interval = inConfiguration.maintenanceInterval();
+    if (interval.isZero()) {
+      this.maintenance = null;
+    } else {
+      this.maintenance = Executors.newSingleThreadScheduledExecutor(
+        Thread.ofPlatform()
+          .daemon()
+          .name("com.io7m.taskrecorder.archive.maintenance-", 0L)
+          .factory()
+      );
+      this.maintenance.scheduleWithFixedDelay(
+        this::maintainInBackground,
+        interval.toNanos(),
+        interval.toNanos(),
+        TimeUnit.NANOSECONDS
+      );
+    }
+  }
+
+  /**
+   * Open or create an archive.
+   *
+   * @param configuration The configuration
+   *
+   * @return An archive
+   *
+   * @throws IOException On errors
+   */
+
+  public static TRArchive open(
+    final TRArchiveConfiguration configuration)
+    throws IOException
+  {
+    Objects.requireNonNull(configuration, "configuration");
+
+    final var directory = configuration.directory();
+    Files.createDirectories(directory);
+
+    final var ids = new ArrayList<Long>();
+    try (var files = Files.list(directory)) {
+      for (final var file : files.toList()) {
+        final var name = file.getFileName().toString();
+        if (name.endsWith(TEMPORARY_SUFFIX)) {
+          Files.deleteIfExists(file);
+          continue;
+        }
+        if (name.endsWith(DATA_SUFFIX)) {
+          ids.add(parseId(file, name));
+        }
+      }
+    }
+    ids.sort(Long::compare);
+
+    final var segments = new ArrayList<TRArchiveSegment>(ids.size() + 1);
+    try {
+      for (int index = 0; index < ids.size(); ++index) {
+        final var writable = index + 1 == ids.size();
+        segments.add(
+          TRArchiveSegment.open(directory, ids.get(index).longValue(), writable)
+        );
+      }
+      if (segments.isEmpty()) {
+        segments.add(TRArchiveSegment.create(directory, 0L));
+      }
+    } catch (final IOException e) {
+      for (final var segment : segments) {
+        segment.close();
+      }
+      throw e;
+    }
+
+    return new TRArchive(configuration, segments);
+  }
+
+  private static Long parseId(
+    final Path file,
+    final String name)
+    throws IOException
+  {
+    try {
+      return Long.valueOf(
+        Long.parseUnsignedLong(
+          name.substring(0, name.length() - DATA_SUFFIX.length()),
+          16
+        )
+      );
+    } catch (final NumberFormatException e) {
+      throw new IOException(
+        "Unrecognized file %s in archive directory.".formatted(file), e
+      );
+    }
+  }
+
+  /**
+   * @return The configuration
+   */
+
+  public TRArchiveConfiguration configuration()
+  {
+    return this.configuration;
+  }
+
+  /**
+   * Append a task to the archive.
+   *
+   * @param task The task
+   *
+   * @throws IOException On errors
+   */
+
+  public void append(
+    final TRTask<?> task)
+    throws IOException
+  {
+    Objects.requireNonNull(task, "task");
+
+    final var payload = TRTaskSerialization.serialize(task);
+    synchronized (this.lock) {
+      this.checkNotClosed();
+
+      var active = this.segments.get(this.segments.size() - 1);
+      if (active.entryCount() > 0
+          && active.dataSize() + payload.length
+             > this.configuration.segmentSizeLimit()) {
+        active.force();
+        active.close();
+        active = TRArchiveSegment.create(
+          this.configuration.directory(),
+          active.id() + 1L
+        );
+        this.segments.add(active);
+      }
+      active.append(task, payload);
+    }
+  }
+
+  /**
+   * Find all archived tasks matching the given query. The returned stream
+   * is lazy; tasks are only decoded as the stream is consumed. The segments
+   * read by the stream are not deleted or rewritten until the stream has
+   * been consumed entirely or closed, so streams that may not be consumed
+   * entirely should be closed.
+   *
+   * @param query The query
+   *
+   * @return The matching tasks, in the order they were appended
+   *
+   * @throws IOException On errors
+   */
+
+  public Stream<TRTask<?>> query(
+    final TRArchiveQuery query)
+    throws IOException
+  {
+    Objects.requireNonNull(query, "query");
+
+    final var views = new ArrayList<TRArchiveSegment.TRArchiveSegmentView>();
+    final var retained = new ArrayList<TRArchiveSegment>();
+    synchronized (this.lock) {
+      this.checkNotClosed();
+      try {
+        for (final var segment : this.segments) {
+          if (!segment.mayMatch(query)) {
+            continue;
+          }
+          views.add(segment.snapshot());
+          segment.retain();
+          retained.add(segment);
+        }
+      } catch (final IOException e) {
+        retained.forEach(TRArchiveSegment::release);
+        throw e;
+      }
+    }
+
+    final var released = new AtomicBoolean();
+    final Runnable release = () -> {
+      if (released.compareAndSet(false, true)) {
+        synchronized (this.lock) {
+          retained.forEach(TRArchiveSegment::release);
+        }
+      }
+    };
+
+    final var tasks =
+      views.stream()
+        .flatMap(view -> view.query(query))
+        .spliterator();
+
+    return StreamSupport.stream(
+        new TRReleasingSpliterator(tasks, release),
+        false
+      )
+      .onClose(release);
+  }
+
+  /**
+   * @return The number of tasks in the archive
+   */
+
+  public long size()
+  {
+    synchronized (this.lock) {
+      return this.segments.stream()
+        .mapToLong(TRArchiveSegment::entryCount)
+        .sum();
+    }
+  }
+
+  /**
+   * @return The number of segments in the archive
+   */
+
+  public int segmentCount()
+  {
+    synchronized (this.lock) {
+      return this.segments.size();
+    }
+  }
+
+  /**
+   * Remove expired tasks from all segments other than the active segment.
+   *
+   * @throws IOException On errors
+   */
+
+  public void maintain()
+    throws IOException
+  {
+    synchronized (this.maintenanceLock) {
+      final List<TRArchiveSegment> sealed;
+      synchronized (this.lock) {
+        this.checkNotClosed();
+        sealed = List.copyOf(this.segments.subList(0, this.segments.size() - 1));
+      }
+
+      final var retry = List.copyOf(this.deletionsPending);
+      this.deletionsPending.clear();
+      retry.forEach(this::deleteSegment);
+
+      final var cutoff =
+        TRArchiveSegment.epochNanos(
+          this.configuration.clock()
+            .instant()
+            .minus(this.configuration.retention())
+        );
+
+      for (final var segment : sealed) {
+        if (segment.maxEnded() < cutoff) {
+          synchronized (this.lock) {
+            if (segment.views() > 0) {
+              LOG.debug("Deferring deletion of segment {}", TRArchiveSegment.baseName(segment.id()));
+              continue;
+            }
+            this.segments.remove(segment);
+          }
+          LOG.debug("Deleting expired segment {}", TRArchiveSegment.baseName(segment.id()));
+          this.deleteSegment(segment);
+        } else if (segment.minEnded() < cutoff) {
+          this.compactSegment(segment, cutoff);
+        }
+      }
+    }
+  }
+
+  private void deleteSegment(
+    final TRArchiveSegment segment)
+  {
+    try {
+      segment.delete();
+    } catch (final IOException e) {
+      LOG.debug(
+        "Deferring deletion of segment {}: ",
+        TRArchiveSegment.baseName(segment.id()),
+        e
+      );
+      this.deletionsPending.add(segment);
+    }
+  }
+
+  private void compactSegment(
+    final TRArchiveSegment segment,
+    final long cutoff)
+    throws IOException
+  {
+    final var directory = this.configuration.directory();
+    final var name = TRArchiveSegment.baseName(segment.id());
+
+    synchronized (this.lock) {
+      if (segment.views() > 0) {
+        LOG.debug("Deferring compaction of segment {}", name);
+        return;
+      }
+    }
+
+    LOG.debug("Compacting segment {}", name);
+    segment.compact(directory, cutoff);
+
+    /*
+     * The files are replaced whilst holding the lock, so that no query can
+     * open a view of the segment in the meantime.
+     */
+
+    synchronized (this.lock) {
+      if (segment.views() > 0) {
+        LOG.debug("Deferring compaction of segment {}", name);
+        segment.discardCompacted(directory);
+        return;
+      }
+
+      final TRArchiveSegment replacement;
+      try {
+        replacement = segment.replaceWithCompacted(directory);
+      } catch (final IOException e) {
+        LOG.debug("Deferring compaction of segment {}: ", name, e);
+        return;
+      }
+
+      final var index = this.segments.indexOf(segment);
+      if (index >= 0) {
+        this.segments.set(index, replacement);
+      }
+    }
+  }
+
+  private void maintainInBackground()
+  {
+    try {
+      this.maintain();
+    } catch (final IllegalStateException e) {
+      // The archive was closed.
+    } catch (final Exception e) {
+      LOG.error("Archive maintenance failed: ", e);
+    }
+  }
+
+  private void checkNotClosed()
+  {
+    if (this.closed) {
+      throw new IllegalStateException("Archive is closed.");
+    }
+  }
+
+  @Override
+  public void close()
+    throws IOException
+  {
+    if (this.maintenance != null) {
+      this.maintenance.shutdownNow();
+    }
+
+    synchronized (this.maintenanceLock) {
+      synchronized (this.lock) {
+        if (this.closed) {
+          return;
+        }
+        this.closed = true;
+
+        final var active = this.segments.get(this.segments.size() - 1);
+        try {
+          active.force();
+        } finally {
+          active.close();
+        }
+      }
+    }
+  }
+
+  @Override
+  public String toString()
+  {
+    return "[TRArchive %s]".formatted(this.configuration.directory());
+  }
+
+  /**
+   * A spliterator that runs an action once its source is exhausted.
+   */
+
+  private static final class TRReleasingSpliterator
+    implements Spliterator<TRTask<?>>
+  {
+    private final Spliterator<TRTask<?>> source;
+    private final Runnable release;
+
+    TRReleasingSpliterator(
+      final Spliterator<TRTask<?>> inSource,
+      final Runnable inRelease)
+    {
+      this.source = inSource;
+      this.release = inRelease;
+    }
+
+    @Override
+    public boolean tryAdvance(
+      final Consumer<? super TRTask<?>> action)
+    {
+      if (this.source.tryAdvance(action)) {
+        return true;
+      }
+      this.release.run();
+      return false;
+    }
+
+    @Override
+    public void forEachRemaining(
+      final Consumer<? super TRTask<?>> action)
+    {
+      this.source.forEachRemaining(action);
+      this.release.run();
+    }
+
+    @Override
+    public Spliterator<TRTask<?>> trySplit()
+    {
+      return null;
+    }
+
+    @Override
+    public long estimateSize()
+    {
+      return this.source.estimateSize();
+    }
+
+    @Override
+    public int characteristics()
+    {
+      return this.source.characteristics() & (ORDERED | NONNULL);
+    }
+  }
+}
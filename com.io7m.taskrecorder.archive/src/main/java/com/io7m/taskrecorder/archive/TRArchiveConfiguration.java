@@ -0,0 +1,109 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.archive;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * The configuration for archives.
+ *
+ * @param directory           The directory containing the archive segments
+ * @param segmentSizeLimit    The size in bytes at which the active segment is
+ *                            sealed and a new segment is started
+ * @param retention           The length of time tasks are retained after
+ *                            they end
+ * @param maintenanceInterval The interval at which expired tasks are removed
+ *                            in the background, or {@link Duration#ZERO} to
+ *                            disable background maintenance
+ * @param clock               The clock used to determine expiry
+ */
+
+public record TRArchiveConfiguration(
+  Path directory,
+  long segmentSizeLimit,
+  Duration retention,
+  Duration maintenanceInterval,
+  Clock clock)
+{
+  private static final long MAXIMUM_SEGMENT_SIZE = 1L << 30;
+
+  /**
+   * The configuration for archives.
+   *
+   * @param directory           The directory containing the archive segments
+   * @param segmentSizeLimit    The size in bytes at which the active segment
+   *                            is sealed and a new segment is started
+   * @param retention           The length of time tasks are retained after
+   *                            they end
+   * @param maintenanceInterval The interval at which expired tasks are
+   *                            removed in the background, or
+   *                            {@link Duration#ZERO} to disable background
+   *                            maintenance
+   * @param clock               The clock used to determine expiry
+   */
+
+  public TRArchiveConfiguration
+  {
+    Objects.requireNonNull(directory, "directory");
+    Objects.requireNonNull(retention, "retention");
+    Objects.requireNonNull(maintenanceInterval, "maintenanceInterval");
+    Objects.requireNonNull(clock, "clock");
+
+    if (segmentSizeLimit < 1L || segmentSizeLimit > MAXIMUM_SEGMENT_SIZE) {
+      throw new IllegalArgumentException(
+        "Segment size limit %d must be in the range [1, 2^30]."
+          .formatted(Long.valueOf(segmentSizeLimit))
+      );
+    }
+    if (retention.isNegative()) {
+      throw new IllegalArgumentException(
+        "Retention %s must be non-negative.".formatted(retention)
+      );
+    }
+    if (maintenanceInterval.isNegative()) {
+      throw new IllegalArgumentException(
+        "Maintenance interval %s must be non-negative."
+          .formatted(maintenanceInterval)
+      );
+    }
+  }
+
+  /**
+   * A configuration with 64MiB segments, 30 days of retention, and
+   * maintenance every minute.
+   *
+   * @param directory The directory containing the archive segments
+   *
+   * @return A configuration
+   */
+
+  public static TRArchiveConfiguration defaults(
+    final Path directory)
+  {
+    return new TRArchiveConfiguration(
+      directory,
+      64L * 1024L * 1024L,
+      Duration.ofDays(30L),
+      Duration.ofMinutes(1L),
+      Clock.systemUTC()
+    );
+  }
+}
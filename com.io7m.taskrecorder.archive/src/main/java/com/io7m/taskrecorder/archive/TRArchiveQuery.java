@@ -0,0 +1,123 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.archive;
+
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * A query against an archive. A task matches if it started within
+ * {@code [timeLower, timeUpper)}, has one of the given statuses, and (if
+ * present) has exactly the given top-level description.
+ *
+ * @param timeLower   The inclusive lower bound on the task start time
+ * @param timeUpper   The exclusive upper bound on the task start time
+ * @param statuses    The accepted statuses
+ * @param description The required top-level description, if any
+ */
+
+public record TRArchiveQuery(
+  Instant timeLower,
+  Instant timeUpper,
+  Set<TRArchiveStatus> statuses,
+  Optional<String> description)
+{
+  /**
+   * A query against an archive. A task matches if it started within
+   * {@code [timeLower, timeUpper)}, has one of the given statuses, and (if
+   * present) has exactly the given top-level description.
+   *
+   * @param timeLower   The inclusive lower bound on the task start time
+   * @param timeUpper   The exclusive upper bound on the task start time
+   * @param statuses    The accepted statuses
+   * @param description The required top-level description, if any
+   */
+
+  public TRArchiveQuery
+  {
+    Objects.requireNonNull(timeLower, "timeLower");
+    Objects.requireNonNull(timeUpper, "timeUpper");
+    Objects.requireNonNull(description, "description");
+    statuses = Set.copyOf(statuses);
+  }
+
+  /**
+   * @return A query that matches all tasks
+   */
+
+  public static TRArchiveQuery all()
+  {
+    return new TRArchiveQuery(
+      Instant.MIN,
+      Instant.MAX,
+      EnumSet.allOf(TRArchiveStatus.class),
+      Optional.empty()
+    );
+  }
+
+  /**
+   * @param lower The inclusive lower bound on the task start time
+   * @param upper The exclusive upper bound on the task start time
+   *
+   * @return This query with the given time range
+   */
+
+  public TRArchiveQuery withTimeRange(
+    final Instant lower,
+    final Instant upper)
+  {
+    return new TRArchiveQuery(lower, upper, this.statuses, this.description);
+  }
+
+  /**
+   * @param status The accepted status
+   *
+   * @return This query accepting only the given status
+   */
+
+  public TRArchiveQuery withStatus(
+    final TRArchiveStatus status)
+  {
+    return new TRArchiveQuery(
+      this.timeLower,
+      this.timeUpper,
+      EnumSet.of(status),
+      this.description
+    );
+  }
+
+  /**
+   * @param text The required top-level description
+   *
+   * @return This query requiring the given description
+   */
+
+  public TRArchiveQuery withDescription(
+    final String text)
+  {
+    return new TRArchiveQuery(
+      this.timeLower,
+      this.timeUpper,
+      this.statuses,
+      Optional.of(text)
+    );
+  }
+}
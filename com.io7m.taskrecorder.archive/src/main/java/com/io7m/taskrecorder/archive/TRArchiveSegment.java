@@ -0,0 +1,846 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.archive;
+
+import com.io7m.taskrecorder.core.TRTask;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * A single archive segment. A segment consists of a data file containing
+ * framed, checksummed task records, and an index file containing one
+ * fixed-width entry per record. The index can always be rebuilt from the
+ * data file.
+ *
+ * <p>The index is deliberately dense. Each entry holds the start time,
+ * status, and description hash of its task, so queries filter on all three
+ * without decoding any task that does not match. A sparse index would
+ * only narrow a query to a block of records by time, and every task in
+ * that block would have to be decoded to test its status and description.
+ * At 40 bytes per task, the dense index is small compared to the
+ * serialized tasks. Coarse pruning is done instead with the minimum and
+ * maximum start times of each segment, held in memory, so segments
+ * outside a query's time range are never mapped.</p>
+ */
+
+final class TRArchiveSegment
+{
+  static final String DATA_SUFFIX = ".trd";
+  static final String INDEX_SUFFIX = ".tri";
+  static final String TEMPORARY_SUFFIX = ".tmp";
+
+  private static final int DATA_MAGIC = 0x54524144;
+  private static final int INDEX_MAGIC = 0x54524149;
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 8;
+  private static final int RECORD_HEADER_SIZE = 8;
+
+  private static final int ENTRY_OFFSET = 0;
+  private static final int ENTRY_STARTED = 8;
+  private static final int ENTRY_ENDED = 16;
+  private static final int ENTRY_LENGTH = 24;
+  private static final int ENTRY_HASH = 28;
+  private static final int ENTRY_STATUS = 32;
+  private static final int ENTRY_SIZE = 40;
+
+  private static final TRArchiveStatus[] STATUSES =
+    TRArchiveStatus.values();
+
+  private final long id;
+  private final Path dataFile;
+  private final Path indexFile;
+  private FileChannel dataChannel;
+  private FileChannel indexChannel;
+  private long dataSize;
+  private int entryCount;
+  private long minStarted;
+  private long maxStarted;
+  private long minEnded;
+  private long maxEnded;
+  private int views;
+
+  private TRArchiveSegment(
+    final long inId,
+    final Path inDataFile,
+    final Path inIndexFile)
+  {
+    this.id = inId;
+    this.dataFile = Objects.requireNonNull(inDataFile, "dataFile");
+    this.indexFile = Objects.requireNonNull(inIndexFile, "indexFile");
+    this.resetStatistics();
+  }
+
+  private void resetStatistics()
+  {
+    this.dataSize = HEADER_SIZE;
+    this.entryCount = 0;
+    this.minStarted = Long.MAX_VALUE;
+    this.maxStarted = Long.MIN_VALUE;
+    this.minEnded = Long.MAX_VALUE;
+    this.maxEnded = Long.MIN_VALUE;
+  }
+
+  static String baseName(
+    final long id)
+  {
+    return "%016x".formatted(Long.valueOf(id));
+  }
+
+  /**
+   * Convert a time to nanoseconds since the epoch, saturating at the limits
+   * of {@code long}.
+   *
+   * @param time The time
+   *
+   * @return The time in nanoseconds
+   */
+
+  static long epochNanos(
+    final Instant time)
+  {
+    try {
+      return Math.addExact(
+        Math.multiplyExact(time.getEpochSecond(), 1_000_000_000L),
+        time.getNano()
+      );
+    } catch (final ArithmeticException e) {
+      return time.getEpochSecond() < 0L ? Long.MIN_VALUE : Long.MAX_VALUE;
+    }
+  }
+
+  /**
+   * Create a new, empty, writable segment.
+   *
+   * @param directory The archive directory
+   * @param id        The segment ID
+   *
+   * @return A segment
+   *
+   * @throws IOException On errors
+   */
+
+  static TRArchiveSegment create(
+    final Path directory,
+    final long id)
+    throws IOException
+  {
+    final var name = baseName(id);
+    return createAt(
+      id,
+      directory.resolve(name + DATA_SUFFIX),
+      directory.resolve(name + INDEX_SUFFIX)
+    );
+  }
+
+  private static TRArchiveSegment createAt(
+    final long id,
+    final Path dataFile,
+    final Path indexFile)
+    throws IOException
+  {
+    final var segment = new TRArchiveSegment(id, dataFile, indexFile);
+    segment.dataChannel = FileChannel.open(dataFile, CREATE_NEW, READ, WRITE);
+    segment.indexChannel = FileChannel.open(indexFile, CREATE_NEW, READ, WRITE);
+    writeHeader(segment.dataChannel, DATA_MAGIC);
+    writeHeader(segment.indexChannel, INDEX_MAGIC);
+    return segment;
+  }
+
+  /**
+   * Open an existing segment, repairing the index if necessary. Entries
+   * whose records are missing or damaged are discarded, and any valid
+   * records in the data file that are missing from the index are indexed.
+   *
+   * @param directory The archive directory
+   * @param id        The segment ID
+   * @param writable  {@code true} if the segment will be appended to
+   *
+   * @return A segment
+   *
+   * @throws IOException On errors
+   */
+
+  static TRArchiveSegment open(
+    final Path directory,
+    final long id,
+    final boolean writable)
+    throws IOException
+  {
+    final var name = baseName(id);
+    final var segment =
+      new TRArchiveSegment(
+        id,
+        directory.resolve(name + DATA_SUFFIX),
+        directory.resolve(name + INDEX_SUFFIX)
+      );
+
+    segment.dataChannel =
+      FileChannel.open(segment.dataFile, READ, WRITE);
+    segment.indexChannel =
+      FileChannel.open(segment.indexFile, CREATE, READ, WRITE);
+
+    try {
+      segment.recover();
+    } catch (final IOException e) {
+      segment.close();
+      throw e;
+    }
+
+    if (!writable) {
+      segment.close();
+    }
+    return segment;
+  }
+
+  private static void writeHeader(
+    final FileChannel channel,
+    final int magic)
+    throws IOException
+  {
+    final var header = ByteBuffer.allocate(HEADER_SIZE);
+    header.putInt(magic);
+    header.putInt(VERSION);
+    header.flip();
+    channel.truncate(0L);
+    writeFully(channel, header, 0L);
+  }
+
+  private static boolean hasHeader(
+    final FileChannel channel,
+    final int magic)
+    throws IOException
+  {
+    if (channel.size() < HEADER_SIZE) {
+      return false;
+    }
+    final var header = ByteBuffer.allocate(HEADER_SIZE);
+    readFully(channel, header, 0L);
+    header.flip();
+    return header.getInt() == magic && header.getInt() == VERSION;
+  }
+
+  private void recover()
+    throws IOException
+  {
+    if (!hasHeader(this.dataChannel, DATA_MAGIC)) {
+      if (this.dataChannel.size() >= HEADER_SIZE) {
+        throw new IOException(
+          "File %s is not a supported archive segment."
+            .formatted(this.dataFile)
+        );
+      }
+      writeHeader(this.dataChannel, DATA_MAGIC);
+    }
+    if (!hasHeader(this.indexChannel, INDEX_MAGIC)) {
+      writeHeader(this.indexChannel, INDEX_MAGIC);
+    }
+
+    final var fileDataSize = this.dataChannel.size();
+    final var indexCount =
+      (int) Math.min(
+        Integer.MAX_VALUE,
+        (this.indexChannel.size() - HEADER_SIZE) / ENTRY_SIZE
+      );
+
+    final var index = ByteBuffer.allocate(indexCount * ENTRY_SIZE);
+    readFully(this.indexChannel, index, HEADER_SIZE);
+    index.flip();
+
+    this.resetStatistics();
+    for (int entry = 0; entry < indexCount; ++entry) {
+      final var base = entry * ENTRY_SIZE;
+      final var offset = index.getLong(base + ENTRY_OFFSET);
+      final var length = index.getInt(base + ENTRY_LENGTH);
+      final var end = offset + RECORD_HEADER_SIZE + length;
+      if (offset != this.dataSize || length < 0 || end > fileDataSize) {
+        break;
+      }
+      this.dataSize = end;
+      this.entryCount = entry + 1;
+      this.updateStatistics(
+        index.getLong(base + ENTRY_STARTED),
+        index.getLong(base + ENTRY_ENDED)
+      );
+    }
+    this.indexChannel.truncate(HEADER_SIZE + (long) this.entryCount * ENTRY_SIZE);
+
+    final var recordHeader = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+    while (this.dataSize + RECORD_HEADER_SIZE <= fileDataSize) {
+      recordHeader.clear();
+      readFully(this.dataChannel, recordHeader, this.dataSize);
+      recordHeader.flip();
+
+      final var length = recordHeader.getInt();
+      final var checksum = recordHeader.getInt();
+      if (length < 0
+          || this.dataSize + RECORD_HEADER_SIZE + length > fileDataSize) {
+        break;
+      }
+
+      final var payload = ByteBuffer.allocate(length);
+      readFully(this.dataChannel, payload, this.dataSize + RECORD_HEADER_SIZE);
+      payload.flip();
+      if (checksumOf(payload) != checksum) {
+        break;
+      }
+
+      final TRTask<?> task;
+      try {
+        task = TRTaskSerialization.deserialize(payload.duplicate());
+      } catch (final IOException e) {
+        break;
+      }
+      this.writeEntry(task, this.dataSize, length);
+    }
+    this.dataChannel.truncate(this.dataSize);
+  }
+
+  static int checksumOf(
+    final ByteBuffer payload)
+  {
+    final var crc = new CRC32();
+    crc.update(payload.duplicate());
+    return (int) crc.getValue();
+  }
+
+  private void updateStatistics(
+    final long started,
+    final long ended)
+  {
+    this.minStarted = Math.min(this.minStarted, started);
+    this.maxStarted = Math.max(this.maxStarted, started);
+    this.minEnded = Math.min(this.minEnded, ended);
+    this.maxEnded = Math.max(this.maxEnded, ended);
+  }
+
+  /**
+   * Append a serialized task to the segment.
+   *
+   * @param task    The task
+   * @param payload The serialized form of the task
+   *
+   * @throws IOException On errors
+   */
+
+  void append(
+    final TRTask<?> task,
+    final byte[] payload)
+    throws IOException
+  {
+    final var offset = this.dataSize;
+    if (offset + RECORD_HEADER_SIZE + payload.length > Integer.MAX_VALUE) {
+      throw new IOException(
+        "A task of %d bytes does not fit in archive segment %s."
+          .formatted(Integer.valueOf(payload.length), this.dataFile)
+      );
+    }
+
+    final var record = ByteBuffer.allocate(RECORD_HEADER_SIZE + payload.length);
+    record.putInt(payload.length);
+    record.putInt(checksumOf(ByteBuffer.wrap(payload)));
+    record.put(payload);
+    record.flip();
+    writeFully(this.dataChannel, record, offset);
+    this.writeEntry(task, offset, payload.length);
+  }
+
+  private void writeEntry(
+    final TRTask<?> task,
+    final long offset,
+    final int length)
+    throws IOException
+  {
+    final var started = epochNanos(task.timeStarted());
+    final var ended = epochNanos(task.timeEnded());
+
+    final var entry = ByteBuffer.allocate(ENTRY_SIZE);
+    entry.putLong(ENTRY_OFFSET, offset);
+    entry.putLong(ENTRY_STARTED, started);
+    entry.putLong(ENTRY_ENDED, ended);
+    entry.putInt(ENTRY_LENGTH, length);
+    entry.putInt(ENTRY_HASH, task.description().hashCode());
+    entry.put(ENTRY_STATUS, (byte) TRArchiveStatus.of(task).ordinal());
+    writeFully(
+      this.indexChannel,
+      entry,
+      HEADER_SIZE + (long) this.entryCount * ENTRY_SIZE
+    );
+
+    this.dataSize = offset + RECORD_HEADER_SIZE + length;
+    this.entryCount += 1;
+    this.updateStatistics(started, ended);
+  }
+
+  /**
+   * Write a copy of this segment containing only those records that ended
+   * at or after the given time to temporary files. The segment is read
+   * through its file rather than a mapping, so that the segment files can
+   * be replaced afterwards on platforms that do not allow mapped files to
+   * be replaced. This segment must not be writable.
+   *
+   * @param directory The archive directory
+   * @param cutoff    The cutoff time in nanoseconds since the epoch
+   *
+   * @throws IOException On errors
+   *
+   * @see #replaceWithCompacted(Path)
+   * @see #discardCompacted(Path)
+   */
+
+  void compact(
+    final Path directory,
+    final long cutoff)
+    throws IOException
+  {
+    final var name = baseName(this.id);
+    final var dataTemporary =
+      directory.resolve(name + DATA_SUFFIX + TEMPORARY_SUFFIX);
+    final var indexTemporary =
+      directory.resolve(name + INDEX_SUFFIX + TEMPORARY_SUFFIX);
+
+    Files.deleteIfExists(dataTemporary);
+    Files.deleteIfExists(indexTemporary);
+
+    final var output = createAt(this.id, dataTemporary, indexTemporary);
+    try (var data = FileChannel.open(this.dataFile, READ);
+         var index = FileChannel.open(this.indexFile, READ)) {
+      final var entries =
+        ByteBuffer.allocate(this.entryCount * ENTRY_SIZE);
+      readFully(index, entries, HEADER_SIZE);
+
+      for (int entry = 0; entry < this.entryCount; ++entry) {
+        final var base = entry * ENTRY_SIZE;
+        if (entries.getLong(base + ENTRY_ENDED) < cutoff) {
+          continue;
+        }
+
+        final var offset = entries.getLong(base + ENTRY_OFFSET);
+        final var length = entries.getInt(base + ENTRY_LENGTH);
+        final var record = ByteBuffer.allocate(RECORD_HEADER_SIZE + length);
+        readFully(data, record, offset);
+        final var payload = record.slice(RECORD_HEADER_SIZE, length);
+        if (checksumOf(payload) != record.getInt(4)) {
+          throw new IOException(
+            "Checksum mismatch for the record at offset %d."
+              .formatted(Long.valueOf(offset))
+          );
+        }
+
+        final var bytes = new byte[payload.remaining()];
+        payload.get(bytes);
+        output.append(
+          TRTaskSerialization.deserialize(ByteBuffer.wrap(bytes)),
+          bytes
+        );
+      }
+      output.dataChannel.force(true);
+      output.indexChannel.force(true);
+    } finally {
+      output.close();
+    }
+  }
+
+  /**
+   * Replace this segment with the copy written by
+   * {@link #compact(Path, long)}. No views of this segment may be open. If
+   * the data file cannot be replaced (for example, because the platform
+   * still considers it to be mapped), the copy is discarded, this segment's
+   * index is rebuilt, and the exception is raised; this segment remains
+   * usable.
+   *
+   * @param directory The archive directory
+   *
+   * @return The replacement segment
+   *
+   * @throws IOException On errors
+   */
+
+  TRArchiveSegment replaceWithCompacted(
+    final Path directory)
+    throws IOException
+  {
+    final var name = baseName(this.id);
+    final var dataTemporary =
+      directory.resolve(name + DATA_SUFFIX + TEMPORARY_SUFFIX);
+    final var indexTemporary =
+      directory.resolve(name + INDEX_SUFFIX + TEMPORARY_SUFFIX);
+
+    /*
+     * The index is removed first. If the process is interrupted, or the
+     * data file cannot be replaced, before the new index is in place, the
+     * index is rebuilt from whichever data file survived.
+     */
+
+    Files.delete(this.indexFile);
+    try {
+      Files.move(dataTemporary, this.dataFile, ATOMIC_MOVE, REPLACE_EXISTING);
+    } catch (final IOException e) {
+      try {
+        this.discardCompacted(directory);
+        open(directory, this.id, false);
+      } catch (final IOException ex) {
+        e.addSuppressed(ex);
+      }
+      throw e;
+    }
+
+    try {
+      Files.move(indexTemporary, this.indexFile, ATOMIC_MOVE, REPLACE_EXISTING);
+    } catch (final IOException e) {
+      // The index is rebuilt from the new data file below.
+      Files.deleteIfExists(indexTemporary);
+    }
+    return open(directory, this.id, false);
+  }
+
+  /**
+   * Delete the copy written by {@link #compact(Path, long)}, if any.
+   *
+   * @param directory The archive directory
+   *
+   * @throws IOException On errors
+   */
+
+  void discardCompacted(
+    final Path directory)
+    throws IOException
+  {
+    final var name = baseName(this.id);
+    Files.deleteIfExists(
+      directory.resolve(name + DATA_SUFFIX + TEMPORARY_SUFFIX));
+    Files.deleteIfExists(
+      directory.resolve(name + INDEX_SUFFIX + TEMPORARY_SUFFIX));
+  }
+
+  /**
+   * Map the currently committed contents of the segment for reading.
+   *
+   * @return A read-only view of the segment
+   *
+   * @throws IOException On errors
+   */
+
+  TRArchiveSegmentView snapshot()
+    throws IOException
+  {
+    /*
+     * The whole segment is read through a single mapping. The segment size
+     * limit keeps segments written by the archive below this size.
+     */
+
+    if (this.dataSize > Integer.MAX_VALUE) {
+      throw new IOException(
+        "Archive segment %s is too large (%d bytes) to be mapped."
+          .formatted(this.dataFile, Long.valueOf(this.dataSize))
+      );
+    }
+
+    final MappedByteBuffer data;
+    try (var channel = FileChannel.open(this.dataFile, READ)) {
+      data = channel.map(FileChannel.MapMode.READ_ONLY, 0L, this.dataSize);
+    }
+    final MappedByteBuffer index;
+    try (var channel = FileChannel.open(this.indexFile, READ)) {
+      index = channel.map(
+        FileChannel.MapMode.READ_ONLY,
+        HEADER_SIZE,
+        (long) this.entryCount * ENTRY_SIZE
+      );
+    }
+    return new TRArchiveSegmentView(data, index, this.entryCount);
+  }
+
+  /**
+   * Determine, from the bounds held in memory, whether any task in this
+   * segment could match the given query. Segments that cannot match are
+   * not mapped at all.
+   *
+   * @param query The query
+   *
+   * @return {@code false} if no task in the segment can match
+   */
+
+  boolean mayMatch(
+    final TRArchiveQuery query)
+  {
+    return this.entryCount > 0
+           && this.maxStarted >= epochNanos(query.timeLower())
+           && this.minStarted < epochNanos(query.timeUpper());
+  }
+
+  long id()
+  {
+    return this.id;
+  }
+
+  /**
+   * Record that a view of this segment has been opened. Guarded by the
+   * archive's lock.
+   */
+
+  void retain()
+  {
+    ++this.views;
+  }
+
+  /**
+   * Record that a view of this segment has been closed. Guarded by the
+   * archive's lock.
+   */
+
+  void release()
+  {
+    if (this.views <= 0) {
+      throw new IllegalStateException(
+        "Segment %s has no open views.".formatted(baseName(this.id))
+      );
+    }
+    --this.views;
+  }
+
+  /**
+   * @return The number of open views of this segment; guarded by the
+   * archive's lock
+   */
+
+  int views()
+  {
+    return this.views;
+  }
+
+  long dataSize()
+  {
+    return this.dataSize;
+  }
+
+  int entryCount()
+  {
+    return this.entryCount;
+  }
+
+  long minEnded()
+  {
+    return this.minEnded;
+  }
+
+  long maxEnded()
+  {
+    return this.maxEnded;
+  }
+
+  /**
+   * Flush written data to storage.
+   *
+   * @throws IOException On errors
+   */
+
+  void force()
+    throws IOException
+  {
+    if (this.dataChannel != null) {
+      this.dataChannel.force(true);
+      this.indexChannel.force(true);
+    }
+  }
+
+  /**
+   * Close the segment for writing.
+   *
+   * @throws IOException On errors
+   */
+
+  void close()
+    throws IOException
+  {
+    final var data = this.dataChannel;
+    final var index = this.indexChannel;
+    this.dataChannel = null;
+    this.indexChannel = null;
+
+    try {
+      if (data != null) {
+        data.close();
+      }
+    } finally {
+      if (index != null) {
+        index.close();
+      }
+    }
+  }
+
+  /**
+   * Close and delete the segment.
+   *
+   * @throws IOException On errors
+   */
+
+  void delete()
+    throws IOException
+  {
+    this.close();
+    Files.deleteIfExists(this.indexFile);
+    Files.deleteIfExists(this.dataFile);
+  }
+
+  static void writeFully(
+    final FileChannel channel,
+    final ByteBuffer buffer,
+    final long position)
+    throws IOException
+  {
+    long current = position;
+    while (buffer.hasRemaining()) {
+      current += channel.write(buffer, current);
+    }
+  }
+
+  static void readFully(
+    final FileChannel channel,
+    final ByteBuffer buffer,
+    final long position)
+    throws IOException
+  {
+    long current = position;
+    while (buffer.hasRemaining()) {
+      final var count = channel.read(buffer, current);
+      if (count < 0) {
+        throw new IOException(
+          "Unexpected end of file at offset %d."
+            .formatted(Long.valueOf(current))
+        );
+      }
+      current += count;
+    }
+  }
+
+  /**
+   * A read-only, memory-mapped view of the committed contents of a segment.
+   */
+
+  static final class TRArchiveSegmentView
+  {
+    private final ByteBuffer data;
+    private final ByteBuffer index;
+    private final int entryCount;
+
+    TRArchiveSegmentView(
+      final ByteBuffer inData,
+      final ByteBuffer inIndex,
+      final int inEntryCount)
+    {
+      this.data = inData;
+      this.index = inIndex;
+      this.entryCount = inEntryCount;
+    }
+
+    long ended(
+      final int entry)
+    {
+      return this.index.getLong(entry * ENTRY_SIZE + ENTRY_ENDED);
+    }
+
+    ByteBuffer payload(
+      final int entry)
+      throws IOException
+    {
+      final var base = entry * ENTRY_SIZE;
+      final var offset =
+        Math.toIntExact(this.index.getLong(base + ENTRY_OFFSET));
+      final var length =
+        this.index.getInt(base + ENTRY_LENGTH);
+
+      final var payload =
+        this.data.slice(offset + RECORD_HEADER_SIZE, length);
+      if (checksumOf(payload) != this.data.getInt(offset + 4)) {
+        throw new IOException(
+          "Checksum mismatch for the record at offset %d."
+            .formatted(Integer.valueOf(offset))
+        );
+      }
+      return payload;
+    }
+
+    /**
+     * Find the tasks in this segment matching the given query.
+     *
+     * @param query The query
+     *
+     * @return The matching tasks
+     */
+
+    Stream<TRTask<?>> query(
+      final TRArchiveQuery query)
+    {
+      final var lower = epochNanos(query.timeLower());
+      final var upper = epochNanos(query.timeUpper());
+
+      var statusMask = 0;
+      for (final var status : query.statuses()) {
+        statusMask |= 1 << status.ordinal();
+      }
+      final var statuses = statusMask;
+      final var description = query.description();
+      final var hash = description.map(String::hashCode).orElse(null);
+
+      return IntStream.range(0, this.entryCount)
+        .filter(entry -> {
+          final var base = entry * ENTRY_SIZE;
+          final var started = this.index.getLong(base + ENTRY_STARTED);
+          if (started < lower || started >= upper) {
+            return false;
+          }
+          final var status = STATUSES[this.index.get(base + ENTRY_STATUS)];
+          if ((statuses & (1 << status.ordinal())) == 0) {
+            return false;
+          }
+          return hash == null
+                 || this.index.getInt(base + ENTRY_HASH) == hash.intValue();
+        })
+        .<TRTask<?>>mapToObj(entry -> {
+          try {
+            return TRTaskSerialization.deserialize(this.payload(entry));
+          } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        })
+        .filter(task -> {
+          return description.isEmpty()
+                 || description.get().equals(task.description());
+        });
+    }
+  }
+}
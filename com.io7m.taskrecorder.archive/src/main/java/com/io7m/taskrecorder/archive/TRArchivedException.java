@@ -0,0 +1,87 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.archive;
+
+import java.util.Objects;
+
+/**
+ * An exception read back from an archive. Archived exceptions retain the
+ * name of the original exception class, the message, the stack trace, and
+ * the chain of causes, but not the original type.
+ */
+
+public final class TRArchivedException extends Exception
+{
+  private static final long serialVersionUID = 1L;
+
+  private final String className;
+
+  /**
+   * Create an archived exception.
+   *
+   * @param inClassName The name of the original exception class
+   * @param message     The original message, if any
+   */
+
+  public TRArchivedException(
+    final String inClassName,
+    final String message)
+  {
+    super(message);
+    this.className = Objects.requireNonNull(inClassName, "className");
+  }
+
+  /**
+   * @return The name of the original exception class
+   */
+
+  public String className()
+  {
+    return this.className;
+  }
+
+  /**
+   * Name the type of an exception. This is the name of the original
+   * exception class for archived exceptions, and the name of the class of
+   * the exception otherwise, so that exceptions are named consistently
+   * whether or not they have been archived.
+   *
+   * @param exception The exception
+   *
+   * @return The name of the type of the exception
+   */
+
+  public static String classNameOf(
+    final Throwable exception)
+  {
+    if (exception instanceof final TRArchivedException archived) {
+      return archived.className;
+    }
+    return exception.getClass().getName();
+  }
+
+  @Override
+  public String toString()
+  {
+    final var message = this.getMessage();
+    if (message == null) {
+      return this.className;
+    }
+    return "%s: %s".formatted(this.className, message);
+  }
+}
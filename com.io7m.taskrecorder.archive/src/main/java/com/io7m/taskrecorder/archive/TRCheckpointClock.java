@@ -0,0 +1,88 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.taskrecorder.archive;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Objects;
+
+/**
+ * A clock that can be pinned to a specific time. The checkpoint journal pins
+ * the clock before each operation so that the time observed by the
+ * underlying recorder is exactly the time written to the journal, and
+ * replaying the journal pins the clock to each recorded time in turn.
+ */
+
+final class TRCheckpointClock extends Clock
+{
+  private final Clock base;
+  private Instant pinned;
+
+  TRCheckpointClock(
+    final Clock inBase)
+  {
+    this.base = Objects.requireNonNull(inBase, "base");
+  }
+
+  /**
+   * Pin the clock to the current time of the base clock.
+   *
+   * @return The pinned time
+   */
+
+  Instant pin()
+  {
+    this.pinned = this.base.instant();
+    return this.pinned;
+  }
+
+  /**
+   * Pin the clock to the given time.
+   *
+   * @param time The time
+   */
+
+  void pin(
+    final Instant time)
+  {
+    this.pinned = Objects.requireNonNull(time, "time");
+  }
+
+  @Override
+  public ZoneId getZone()
+  {
+    return this.base.getZone();
+  }
+
+  @Override
+  public Clock withZone(
+    final ZoneId zone)
+  {
+    return new TRCheckpointClock(this.base.withZone(zone));
+  }
+
+  @Override
+  public Instant instant()
+  {
+    final var time = this.pinned;
+    if (time != null) {
+      return time;
+    }
+    return this.base.instant();
+  }
+}
@@ -0,0 +1,400 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.taskrecorder.archive;
+
+import com.io7m.taskrecorder.core.TRAttributes;
+import com.io7m.taskrecorder.core.TRNoResult;
+import com.io7m.taskrecorder.core.TRStepFailed;
+import com.io7m.taskrecorder.core.TRStepResolutionType;
+import com.io7m.taskrecorder.core.TRStepSucceeded;
+import com.io7m.taskrecorder.core.TRTask;
+import com.io7m.taskrecorder.core.TRTaskFailed;
+import com.io7m.taskrecorder.core.TRTaskResolutionType;
+import com.io7m.taskrecorder.core.TRTaskSucceeded;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Objects;
+
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * The journal behind a checkpointed recording. Every operation performed on
+ * a recorder in the task tree is encoded into a pending buffer, and each
+ * checkpoint appends the pending operations to the file as a single framed,
+ * checksummed record. Checkpoints therefore cost time proportional to what
+ * changed since the previous checkpoint rather than to the size of the
+ * task.
+ *
+ * <p>Tasks are identified by the order in which they were started, with the
+ * root task having identifier {@code 0}. Steps are identified by their task
+ * and by the order in which they were started within that task, with the
+ * initial step of each task having index {@code 0}. Callers must hold the
+ * journal's monitor across each journal operation and the corresponding
+ * operation on the underlying recorder, so that the time pinned by the
+ * journal is the time observed by the recorder.</p>
+ */
+
+final class TRCheckpointJournal implements Closeable
+{
+  static final int MAGIC = 0x5452434B;
+  static final int VERSION = 1;
+  static final int HEADER_SIZE = 8;
+  static final int FRAME_HEADER_SIZE = 8;
+
+  static final int OP_CREATE = 0;
+  static final int OP_SUBTASK = 1;
+  static final int OP_STEP = 2;
+  static final int OP_STEP_RESOLVED = 3;
+  static final int OP_TASK_RESOLVED = 4;
+  static final int OP_STEP_ATTRIBUTES = 5;
+  static final int OP_TASK_ATTRIBUTES = 6;
+  static final int OP_GRAFT = 7;
+
+  static final int RESOLUTION_SUCCEEDED = 0;
+  static final int RESOLUTION_SUCCEEDED_STRING = 1;
+  static final int RESOLUTION_FAILED = 2;
+
+  private final Path file;
+  private final FileChannel channel;
+  private final TRCheckpointClock clock;
+  private final ByteArrayOutputStream pendingBytes;
+  private final DataOutputStream pending;
+  private long size;
+  private int taskCount;
+
+  TRCheckpointJournal(
+    final Path inFile,
+    final FileChannel inChannel,
+    final TRCheckpointClock inClock,
+    final long inSize,
+    final int inTaskCount)
+  {
+    this.file =
+      Objects.requireNonNull(inFile, "file");
+    this.channel =
+      Objects.requireNonNull(inChannel, "channel");
+    this.clock =
+      Objects.requireNonNull(inClock, "clock");
+    this.size =
+      inSize;
+    this.taskCount =
+      inTaskCount;
+    this.pendingBytes =
+      new ByteArrayOutputStream();
+    this.pending =
+      new DataOutputStream(this.pendingBytes);
+  }
+
+  /**
+   * Create a new, empty journal. The file must not already exist.
+   *
+   * @param file  The file
+   * @param clock The clock
+   *
+   * @return A journal
+   *
+   * @throws IOException On errors
+   */
+
+  static TRCheckpointJournal create(
+    final Path file,
+    final TRCheckpointClock clock)
+    throws IOException
+  {
+    final var channel = FileChannel.open(file, CREATE_NEW, READ, WRITE);
+    try {
+      final var header = ByteBuffer.allocate(HEADER_SIZE);
+      header.putInt(MAGIC);
+      header.putInt(VERSION);
+      header.flip();
+      TRArchiveSegment.writeFully(channel, header, 0L);
+      return new TRCheckpointJournal(file, channel, clock, HEADER_SIZE, 0);
+    } catch (final IOException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  @Override
+  public String toString()
+  {
+    return "[TRCheckpointJournal %s]".formatted(this.file);
+  }
+
+  /**
+   * Record the creation of the root task.
+   *
+   * @param description The description of the initial step
+   */
+
+  synchronized void create(
+    final String description)
+  {
+    Objects.requireNonNull(description, "description");
+
+    final var time = this.clock.pin();
+    try {
+      this.pending.writeByte(OP_CREATE);
+      TRTaskSerialization.writeInstant(this.pending, time);
+      TRTaskSerialization.writeString(this.pending, description);
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    this.taskCount = 1;
+  }
+
+  /**
+   * Record the start of a subtask.
+   *
+   * @param parent      The parent task
+   * @param description The description of the initial step
+   *
+   * @return The identifier of the new subtask
+   */
+
+  synchronized int beginSubtask(
+    final int parent,
+    final String description)
+  {
+    Objects.requireNonNull(description, "description");
+
+    final var time = this.clock.pin();
+    try {
+      this.pending.writeByte(OP_SUBTASK);
+      this.pending.writeInt(parent);
+      TRTaskSerialization.writeInstant(this.pending, time);
+      TRTaskSerialization.writeString(this.pending, description);
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return this.taskCount++;
+  }
+
+  /**
+   * Record the start of a step.
+   *
+   * @param task        The task
+   * @param description The description
+   */
+
+  synchronized void beginStep(
+    final int task,
+    final String description)
+  {
+    Objects.requireNonNull(description, "description");
+
+    final var time = this.clock.pin();
+    try {
+      this.pending.writeByte(OP_STEP);
+      this.pending.writeInt(task);
+      TRTaskSerialization.writeInstant(this.pending, time);
+      TRTaskSerialization.writeString(this.pending, description);
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Record the resolution of a step.
+   *
+   * @param task       The task
+   * @param step       The step index within the task
+   * @param resolution The resolution
+   */
+
+  synchronized void stepResolved(
+    final int task,
+    final int step,
+    final TRStepResolutionType resolution)
+  {
+    Objects.requireNonNull(resolution, "resolution");
+
+    final var time = this.clock.pin();
+    try {
+      this.pending.writeByte(OP_STEP_RESOLVED);
+      this.pending.writeInt(task);
+      this.pending.writeInt(step);
+      TRTaskSerialization.writeInstant(this.pending, time);
+      if (resolution instanceof final TRStepSucceeded succeeded) {
+        this.pending.writeByte(RESOLUTION_SUCCEEDED);
+        TRTaskSerialization.writeString(this.pending, succeeded.message());
+      } else if (resolution instanceof final TRStepFailed failed) {
+        this.pending.writeByte(RESOLUTION_FAILED);
+        TRTaskSerialization.writeString(this.pending, failed.message());
+        TRTaskSerialization.writeException(
+          this.pending, failed.exception().orElse(null), 0);
+      }
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Record the resolution of a task.
+   *
+   * @param task       The task
+   * @param resolution The resolution
+   */
+
+  synchronized void taskResolved(
+    final int task,
+    final TRTaskResolutionType<?> resolution)
+  {
+    Objects.requireNonNull(resolution, "resolution");
+
+    final var time = this.clock.pin();
+    try {
+      this.pending.writeByte(OP_TASK_RESOLVED);
+      this.pending.writeInt(task);
+      TRTaskSerialization.writeInstant(this.pending, time);
+      if (resolution instanceof final TRTaskSucceeded<?> succeeded) {
+        if (succeeded.result() instanceof TRNoResult) {
+          this.pending.writeByte(RESOLUTION_SUCCEEDED);
+          TRTaskSerialization.writeString(this.pending, succeeded.message());
+        } else {
+          this.pending.writeByte(RESOLUTION_SUCCEEDED_STRING);
+          TRTaskSerialization.writeString(this.pending, succeeded.message());
+          TRTaskSerialization.writeString(
+            this.pending, String.valueOf(succeeded.result()));
+        }
+      } else if (resolution instanceof final TRTaskFailed<?> failed) {
+        this.pending.writeByte(RESOLUTION_FAILED);
+        TRTaskSerialization.writeString(this.pending, failed.message());
+        TRTaskSerialization.writeException(
+          this.pending, failed.exception().orElse(null), 0);
+      }
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Record attributes set on a step.
+   *
+   * @param task       The task
+   * @param step       The step index within the task
+   * @param attributes The attributes
+   */
+
+  synchronized void stepAttributes(
+    final int task,
+    final int step,
+    final TRAttributes attributes)
+  {
+    try {
+      this.pending.writeByte(OP_STEP_ATTRIBUTES);
+      this.pending.writeInt(task);
+      this.pending.writeInt(step);
+      TRTaskSerialization.writeAttributes(this.pending, attributes);
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Record attributes set on a task.
+   *
+   * @param task       The task
+   * @param attributes The attributes
+   */
+
+  synchronized void taskAttributes(
+    final int task,
+    final TRAttributes attributes)
+  {
+    try {
+      this.pending.writeByte(OP_TASK_ATTRIBUTES);
+      this.pending.writeInt(task);
+      TRTaskSerialization.writeAttributes(this.pending, attributes);
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Record a completed task grafted into a task.
+   *
+   * @param task    The task
+   * @param grafted The grafted task
+   */
+
+  synchronized void graft(
+    final int task,
+    final TRTask<?> grafted)
+  {
+    final var bytes = TRTaskSerialization.serialize(grafted);
+    try {
+      this.pending.writeByte(OP_GRAFT);
+      this.pending.writeInt(task);
+      this.pending.writeInt(bytes.length);
+      this.pending.write(bytes);
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Append all pending operations to the file as a single frame, and force
+   * the file to storage.
+   *
+   * @throws IOException On errors
+   */
+
+  synchronized void checkpoint()
+    throws IOException
+  {
+    if (this.pendingBytes.size() == 0) {
+      return;
+    }
+
+    final var payload = this.pendingBytes.toByteArray();
+    final var frame = ByteBuffer.allocate(FRAME_HEADER_SIZE + payload.length);
+    frame.putInt(payload.length);
+    frame.putInt(TRArchiveSegment.checksumOf(ByteBuffer.wrap(payload)));
+    frame.put(payload);
+    frame.flip();
+
+    TRArchiveSegment.writeFully(this.channel, frame, this.size);
+    this.channel.force(false);
+    this.size += frame.capacity();
+    this.pendingBytes.reset();
+  }
+
+  @Override
+  public synchronized void close()
+    throws IOException
+  {
+    if (!this.channel.isOpen()) {
+      return;
+    }
+
+    try {
+      this.checkpoint();
+    } finally {
+      this.channel.close();
+    }
+  }
+}
@@ -0,0 +1,323 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.taskrecorder.archive;
+
+import com.io7m.taskrecorder.core.TRAttributeKey;
+import com.io7m.taskrecorder.core.TRAttributes;
+import com.io7m.taskrecorder.core.TRStep;
+import com.io7m.taskrecorder.core.TRStepResolutionType;
+import com.io7m.taskrecorder.core.TRTask;
+import com.io7m.taskrecorder.core.TRTaskProgressView;
+import com.io7m.taskrecorder.core.TRTaskRecorderType;
+import com.io7m.taskrecorder.core.TRTaskResolutionType;
+import com.io7m.taskrecorder.core.TRTaskStepRecorderType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A task recorder that writes each operation to a checkpoint journal before
+ * passing it on to another recorder. Every operation that reads or writes
+ * the underlying recorder holds the journal's monitor, which is shared by
+ * the whole task tree.
+ *
+ * @param <T> The type of returned values
+ */
+
+final class TRCheckpointRecorder<T> implements TRCheckpointRecorderType<T>
+{
+  private final TRCheckpointJournal journal;
+  private final TRTaskRecorderType<T> delegate;
+  private final int task;
+  private int stepCount;
+
+  TRCheckpointRecorder(
+    final TRCheckpointJournal inJournal,
+    final TRTaskRecorderType<T> inDelegate,
+    final int inTask,
+    final int inStepCount)
+  {
+    this.journal =
+      Objects.requireNonNull(inJournal, "journal");
+    this.delegate =
+      Objects.requireNonNull(inDelegate, "delegate");
+    this.task =
+      inTask;
+    this.stepCount =
+      inStepCount;
+  }
+
+  @Override
+  public String toString()
+  {
+    return this.delegate.toString();
+  }
+
+  @Override
+  public <U> TRCheckpointRecorderType<U> beginSubtask(
+    final String description)
+  {
+    synchronized (this.journal) {
+      final var id = this.journal.beginSubtask(this.task, description);
+      return new TRCheckpointRecorder<>(
+        this.journal,
+        this.delegate.<U>beginSubtask(description),
+        id,
+        1
+      );
+    }
+  }
+
+  @Override
+  public TRTaskStepRecorderType beginStep(
+    final String description)
+  {
+    synchronized (this.journal) {
+      this.journal.beginStep(this.task, description);
+      final var step = this.delegate.beginStep(description);
+      final var index = this.stepCount++;
+      return new TRCheckpointStepRecorder(this.journal, step, this.task, index);
+    }
+  }
+
+  @Override
+  public TRTaskStepRecorderType stepCurrent()
+  {
+    synchronized (this.journal) {
+      return new TRCheckpointStepRecorder(
+        this.journal,
+        this.delegate.stepCurrent(),
+        this.task,
+        this.stepCount - 1
+      );
+    }
+  }
+
+  @Override
+  public void graft(
+    final TRTask<?> grafted)
+  {
+    Objects.requireNonNull(grafted, "task");
+
+    synchronized (this.journal) {
+      this.journal.graft(this.task, grafted);
+      this.delegate.graft(grafted);
+    }
+  }
+
+  @Override
+  public void setTaskResolution(
+    final TRTaskResolutionType<T> resolution)
+  {
+    synchronized (this.journal) {
+      this.journal.taskResolved(this.task, resolution);
+      this.delegate.setTaskResolution(resolution);
+    }
+  }
+
+  @Override
+  public TRTask<T> toTask()
+  {
+    synchronized (this.journal) {
+      return this.delegate.toTask();
+    }
+  }
+
+  @Override
+  public TRTask<T> toTaskParallel(
+    final ForkJoinPool pool,
+    final int threshold)
+  {
+    synchronized (this.journal) {
+      return this.delegate.toTaskParallel(pool, threshold);
+    }
+  }
+
+  @Override
+  public TRTaskProgressView progress()
+  {
+    /*
+     * The progress view may be read from any thread without the lock.
+     */
+
+    return this.delegate.progress();
+  }
+
+  @Override
+  public void setAttribute(
+    final TRAttributeKey<Long> key,
+    final long value)
+  {
+    synchronized (this.journal) {
+      this.journal.taskAttributes(
+        this.task, TRAttributes.builder().set(key, value).build());
+      this.delegate.setAttribute(key, value);
+    }
+  }
+
+  @Override
+  public void setAttribute(
+    final TRAttributeKey<Double> key,
+    final double value)
+  {
+    synchronized (this.journal) {
+      this.journal.taskAttributes(
+        this.task, TRAttributes.builder().set(key, value).build());
+      this.delegate.setAttribute(key, value);
+    }
+  }
+
+  @Override
+  public void setAttribute(
+    final TRAttributeKey<Boolean> key,
+    final boolean value)
+  {
+    synchronized (this.journal) {
+      this.journal.taskAttributes(
+        this.task, TRAttributes.builder().set(key, value).build());
+      this.delegate.setAttribute(key, value);
+    }
+  }
+
+  @Override
+  public void setAttribute(
+    final TRAttributeKey<String> key,
+    final String value)
+  {
+    synchronized (this.journal) {
+      this.journal.taskAttributes(
+        this.task, TRAttributes.builder().set(key, value).build());
+      this.delegate.setAttribute(key, value);
+    }
+  }
+
+  @Override
+  public void checkpoint()
+    throws IOException
+  {
+    this.journal.checkpoint();
+  }
+
+  @Override
+  public void close()
+    throws IllegalStateException
+  {
+    synchronized (this.journal) {
+      if (this.task != 0) {
+        this.delegate.close();
+        return;
+      }
+
+      try {
+        this.journal.close();
+      } catch (final IOException e) {
+        throw new UncheckedIOException(e);
+      } finally {
+        this.delegate.close();
+      }
+    }
+  }
+
+  private static final class TRCheckpointStepRecorder
+    implements TRTaskStepRecorderType
+  {
+    private final TRCheckpointJournal journal;
+    private final TRTaskStepRecorderType delegate;
+    private final int task;
+    private final int step;
+
+    TRCheckpointStepRecorder(
+      final TRCheckpointJournal inJournal,
+      final TRTaskStepRecorderType inDelegate,
+      final int inTask,
+      final int inStep)
+    {
+      this.journal = inJournal;
+      this.delegate = inDelegate;
+      this.task = inTask;
+      this.step = inStep;
+    }
+
+    @Override
+    public TRStep toStep()
+    {
+      synchronized (this.journal) {
+        return this.delegate.toStep();
+      }
+    }
+
+    @Override
+    public void setStepResolution(
+      final TRStepResolutionType resolution)
+    {
+      synchronized (this.journal) {
+        this.journal.stepResolved(this.task, this.step, resolution);
+        this.delegate.setStepResolution(resolution);
+      }
+    }
+
+    @Override
+    public void setAttribute(
+      final TRAttributeKey<Long> key,
+      final long value)
+    {
+      synchronized (this.journal) {
+        this.journal.stepAttributes(
+          this.task, this.step, TRAttributes.builder().set(key, value).build());
+        this.delegate.setAttribute(key, value);
+      }
+    }
+
+    @Override
+    public void setAttribute(
+      final TRAttributeKey<Double> key,
+      final double value)
+    {
+      synchronized (this.journal) {
+        this.journal.stepAttributes(
+          this.task, this.step, TRAttributes.builder().set(key, value).build());
+        this.delegate.setAttribute(key, value);
+      }
+    }
+
+    @Override
+    public void setAttribute(
+      final TRAttributeKey<Boolean> key,
+      final boolean value)
+    {
+      synchronized (this.journal) {
+        this.journal.stepAttributes(
+          this.task, this.step, TRAttributes.builder().set(key, value).build());
+        this.delegate.setAttribute(key, value);
+      }
+    }
+
+    @Override
+    public void setAttribute(
+      final TRAttributeKey<String> key,
+      final String value)
+    {
+      synchronized (this.journal) {
+        this.journal.stepAttributes(
+          this.task, this.step, TRAttributes.builder().set(key, value).build());
+        this.delegate.setAttribute(key, value);
+      }
+    }
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.taskrecorder.archive;
+
+import com.io7m.taskrecorder.core.TRTaskRecorderType;
+
+import java.io.IOException;
+
+/**
+ * A task recorder that journals every operation so that an in-progress
+ * recording can be checkpointed to a file and later resumed.
+ *
+ * <p>Unlike most recorders, checkpoint recorders are thread-safe. All of the
+ * recorders in a task tree share a single lock, and every operation on any
+ * of them, including taking snapshots with {@link #toTask()} and
+ * checkpointing, holds that lock. Recorders in the same tree may therefore
+ * be used from any number of threads, although operations on the tree are
+ * serialized rather than concurrent.</p>
+ *
+ * @param <T> The type of returned values
+ *
+ * @see TRCheckpoints
+ */
+
+public interface TRCheckpointRecorderType<T> extends TRTaskRecorderType<T>
+{
+  @Override
+  <U> TRCheckpointRecorderType<U> beginSubtask(
+    String description);
+
+  /**
+   * Append everything recorded since the last checkpoint to the checkpoint
+   * file, and force it to storage. The checkpoint file is shared by the
+   * whole task tree, so checkpointing any recorder in the tree checkpoints
+   * all of them. Checkpointing when nothing has changed does nothing.
+   *
+   * @throws IOException On I/O errors
+   */
+
+  void checkpoint()
+    throws IOException;
+}
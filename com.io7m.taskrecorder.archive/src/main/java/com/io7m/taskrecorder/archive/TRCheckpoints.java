@@ -0,0 +1,499 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.taskrecorder.archive;
+
+import com.io7m.taskrecorder.core.TRAttributeKey;
+import com.io7m.taskrecorder.core.TRAttributeRecorderType;
+import com.io7m.taskrecorder.core.TRAttributes;
+import com.io7m.taskrecorder.core.TRNoResult;
+import com.io7m.taskrecorder.core.TRStepFailed;
+import com.io7m.taskrecorder.core.TRStepSucceeded;
+import com.io7m.taskrecorder.core.TRTaskFailed;
+import com.io7m.taskrecorder.core.TRTaskRecorder;
+import com.io7m.taskrecorder.core.TRTaskRecorderType;
+import com.io7m.taskrecorder.core.TRTaskStepRecorderType;
+import com.io7m.taskrecorder.core.TRTaskSucceeded;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.DateTimeException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+
+import static com.io7m.taskrecorder.archive.TRCheckpointJournal.FRAME_HEADER_SIZE;
+import static com.io7m.taskrecorder.archive.TRCheckpointJournal.HEADER_SIZE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Functions to create checkpointed recordings, and to resume them.
+ *
+ * <p>A checkpointed recording journals every operation performed on any
+ * recorder in the task tree. Calling
+ * {@link TRCheckpointRecorderType#checkpoint()} appends the operations
+ * performed since the previous checkpoint to the checkpoint file, so the
+ * cost of a checkpoint depends only on what changed. Resuming replays the
+ * journal, reproducing the recorded steps, subtasks, attributes, and times
+ * exactly, and returns recorders that continue appending to the same file.
+ * A checkpoint that was only partially written (for example, because the
+ * process was killed during the write) is discarded on resumption.</p>
+ *
+ * <p>As with {@link TRTaskSerialization}, task results are stored as
+ * strings (with {@link TRNoResult} preserved), and exceptions are restored
+ * as {@link TRArchivedException} values.</p>
+ */
+
+public final class TRCheckpoints
+{
+  private TRCheckpoints()
+  {
+
+  }
+
+  /**
+   * Create a new checkpointed recording. The checkpoint file must not
+   * already exist. The creation of the root task is checkpointed
+   * immediately.
+   *
+   * @param logger      The logger used for debug messages
+   * @param file        The checkpoint file
+   * @param description The description of the first step
+   * @param <T>         The type of returned values
+   *
+   * @return A new task recorder
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public static <T> TRCheckpointRecorderType<T> create(
+    final Logger logger,
+    final Path file,
+    final String description)
+    throws IOException
+  {
+    return create(logger, Clock.systemUTC(), file, description);
+  }
+
+  /**
+   * Create a new checkpointed recording. The checkpoint file must not
+   * already exist. The creation of the root task is checkpointed
+   * immediately.
+   *
+   * @param logger      The logger used for debug messages
+   * @param clock       The clock used to timestamp steps and tasks
+   * @param file        The checkpoint file
+   * @param description The description of the first step
+   * @param <T>         The type of returned values
+   *
+   * @return A new task recorder
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public static <T> TRCheckpointRecorderType<T> create(
+    final Logger logger,
+    final Clock clock,
+    final Path file,
+    final String description)
+    throws IOException
+  {
+    Objects.requireNonNull(logger, "logger");
+    Objects.requireNonNull(file, "file");
+    Objects.requireNonNull(description, "description");
+
+    final var checkpointClock = new TRCheckpointClock(clock);
+    final var journal = TRCheckpointJournal.create(file, checkpointClock);
+    final TRCheckpointRecorder<T> recorder;
+    synchronized (journal) {
+      journal.create(description);
+      recorder = new TRCheckpointRecorder<>(
+        journal,
+        TRTaskRecorder.create(logger, checkpointClock, description),
+        0,
+        1
+      );
+    }
+
+    try {
+      journal.checkpoint();
+    } catch (final IOException e) {
+      journal.close();
+      throw e;
+    }
+    return recorder;
+  }
+
+  /**
+   * Resume a checkpointed recording.
+   *
+   * @param logger The logger used for debug messages
+   * @param file   The checkpoint file
+   *
+   * @return The restored recording
+   *
+   * @throws IOException On I/O errors, or if the file is not a checkpoint
+   *                     file
+   */
+
+  public static TRCheckpointRestored resume(
+    final Logger logger,
+    final Path file)
+    throws IOException
+  {
+    return resume(logger, Clock.systemUTC(), file);
+  }
+
+  /**
+   * Resume a checkpointed recording. Any partially written checkpoint at
+   * the end of the file is discarded.
+   *
+   * @param logger The logger used for debug messages
+   * @param clock  The clock used to timestamp steps and tasks
+   * @param file   The checkpoint file
+   *
+   * @return The restored recording
+   *
+   * @throws IOException On I/O errors, or if the file is not a checkpoint
+   *                     file
+   */
+
+  public static TRCheckpointRestored resume(
+    final Logger logger,
+    final Clock clock,
+    final Path file)
+    throws IOException
+  {
+    Objects.requireNonNull(logger, "logger");
+    Objects.requireNonNull(file, "file");
+
+    final var checkpointClock = new TRCheckpointClock(clock);
+    final var channel = FileChannel.open(file, READ, WRITE);
+    try {
+      final var fileSize = channel.size();
+      if (fileSize < HEADER_SIZE) {
+        throw notCheckpoint(file);
+      }
+
+      final var header = ByteBuffer.allocate(HEADER_SIZE);
+      TRArchiveSegment.readFully(channel, header, 0L);
+      header.flip();
+      if (header.getInt() != TRCheckpointJournal.MAGIC
+          || header.getInt() != TRCheckpointJournal.VERSION) {
+        throw notCheckpoint(file);
+      }
+
+      final var replay = new TRReplay(logger, checkpointClock);
+      final var frameHeader = ByteBuffer.allocate(FRAME_HEADER_SIZE);
+      long size = HEADER_SIZE;
+      while (size + FRAME_HEADER_SIZE <= fileSize) {
+        frameHeader.clear();
+        TRArchiveSegment.readFully(channel, frameHeader, size);
+        frameHeader.flip();
+
+        final var length = frameHeader.getInt();
+        final var checksum = frameHeader.getInt();
+        if (length < 0 || size + FRAME_HEADER_SIZE + length > fileSize) {
+          break;
+        }
+
+        final var payload = ByteBuffer.allocate(length);
+        TRArchiveSegment.readFully(channel, payload, size + FRAME_HEADER_SIZE);
+        payload.flip();
+        if (TRArchiveSegment.checksumOf(payload) != checksum) {
+          break;
+        }
+
+        replay.apply(payload);
+        size += FRAME_HEADER_SIZE + length;
+      }
+
+      if (replay.tasks.isEmpty()) {
+        throw new IOException(
+          "File %s does not contain a complete checkpoint.".formatted(file)
+        );
+      }
+
+      channel.truncate(size);
+
+      final var journal =
+        new TRCheckpointJournal(
+          file,
+          channel,
+          checkpointClock,
+          size,
+          replay.tasks.size()
+        );
+
+      final var unresolved =
+        new ArrayList<TRCheckpointRecorderType<Object>>();
+      for (int task = 1; task < replay.tasks.size(); ++task) {
+        if (!replay.resolved.get(task)) {
+          unresolved.add(replay.recorderOf(journal, task));
+        }
+      }
+      return new TRCheckpointRestored(
+        replay.recorderOf(journal, 0),
+        unresolved
+      );
+    } catch (final IOException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  private static IOException notCheckpoint(
+    final Path file)
+  {
+    return new IOException(
+      "File %s is not a supported checkpoint file.".formatted(file)
+    );
+  }
+
+  private static final class TRReplay
+  {
+    private final Logger logger;
+    private final TRCheckpointClock clock;
+    private final List<TRTaskRecorderType<Object>> tasks;
+    private final List<List<TRTaskStepRecorderType>> steps;
+    private final BitSet resolved;
+
+    TRReplay(
+      final Logger inLogger,
+      final TRCheckpointClock inClock)
+    {
+      this.logger = inLogger;
+      this.clock = inClock;
+      this.tasks = new ArrayList<>();
+      this.steps = new ArrayList<>();
+      this.resolved = new BitSet();
+    }
+
+    TRCheckpointRecorderType<Object> recorderOf(
+      final TRCheckpointJournal journal,
+      final int task)
+    {
+      return new TRCheckpointRecorder<>(
+        journal,
+        this.tasks.get(task),
+        task,
+        this.steps.get(task).size()
+      );
+    }
+
+    void apply(
+      final ByteBuffer payload)
+      throws IOException
+    {
+      try {
+        while (payload.hasRemaining()) {
+          this.applyOne(payload);
+        }
+      } catch (final BufferUnderflowException
+                     | DateTimeException
+                     | IllegalArgumentException e) {
+        throw new IOException("Malformed checkpoint operation.", e);
+      }
+    }
+
+    private void applyOne(
+      final ByteBuffer payload)
+      throws IOException
+    {
+      final var op = payload.get();
+      switch (op) {
+        case TRCheckpointJournal.OP_CREATE -> {
+          if (!this.tasks.isEmpty()) {
+            throw new IOException("Duplicate root task.");
+          }
+          this.clock.pin(TRTaskSerialization.readInstant(payload));
+          this.addTask(
+            TRTaskRecorder.create(
+              this.logger,
+              this.clock,
+              TRTaskSerialization.readString(payload)
+            )
+          );
+        }
+        case TRCheckpointJournal.OP_SUBTASK -> {
+          final var parent = this.task(payload.getInt());
+          this.clock.pin(TRTaskSerialization.readInstant(payload));
+          this.addTask(
+            parent.beginSubtask(TRTaskSerialization.readString(payload))
+          );
+        }
+        case TRCheckpointJournal.OP_STEP -> {
+          final var task = payload.getInt();
+          final var recorder = this.task(task);
+          this.clock.pin(TRTaskSerialization.readInstant(payload));
+          this.steps.get(task).add(
+            recorder.beginStep(TRTaskSerialization.readString(payload))
+          );
+        }
+        case TRCheckpointJournal.OP_STEP_RESOLVED -> {
+          final var step = this.step(payload.getInt(), payload.getInt());
+          this.clock.pin(TRTaskSerialization.readInstant(payload));
+          final var kind = payload.get();
+          final var message = TRTaskSerialization.readString(payload);
+          switch (kind) {
+            case TRCheckpointJournal.RESOLUTION_SUCCEEDED -> {
+              step.setStepResolution(new TRStepSucceeded(message));
+            }
+            case TRCheckpointJournal.RESOLUTION_FAILED -> {
+              step.setStepResolution(
+                new TRStepFailed(
+                  message,
+                  TRTaskSerialization.readException(payload)
+                )
+              );
+            }
+            default -> throw unrecognizedResolution(kind);
+          }
+        }
+        case TRCheckpointJournal.OP_TASK_RESOLVED -> {
+          final var task = payload.getInt();
+          final var recorder = this.task(task);
+          this.clock.pin(TRTaskSerialization.readInstant(payload));
+          final var kind = payload.get();
+          final var message = TRTaskSerialization.readString(payload);
+          switch (kind) {
+            case TRCheckpointJournal.RESOLUTION_SUCCEEDED -> {
+              recorder.setTaskResolution(
+                new TRTaskSucceeded<>(message, TRNoResult.NO_RESULT)
+              );
+            }
+            case TRCheckpointJournal.RESOLUTION_SUCCEEDED_STRING -> {
+              recorder.setTaskResolution(
+                new TRTaskSucceeded<>(
+                  message,
+                  TRTaskSerialization.readString(payload)
+                )
+              );
+            }
+            case TRCheckpointJournal.RESOLUTION_FAILED -> {
+              recorder.setTaskResolution(
+                new TRTaskFailed<>(
+                  message,
+                  TRTaskSerialization.readException(payload)
+                )
+              );
+            }
+            default -> throw unrecognizedResolution(kind);
+          }
+          this.resolved.set(task);
+        }
+        case TRCheckpointJournal.OP_STEP_ATTRIBUTES -> {
+          final var step = this.step(payload.getInt(), payload.getInt());
+          setAttributes(step, TRTaskSerialization.readAttributes(payload));
+        }
+        case TRCheckpointJournal.OP_TASK_ATTRIBUTES -> {
+          final var recorder = this.task(payload.getInt());
+          setAttributes(recorder, TRTaskSerialization.readAttributes(payload));
+        }
+        case TRCheckpointJournal.OP_GRAFT -> {
+          final var recorder = this.task(payload.getInt());
+          final var length = payload.getInt();
+          if (length < 0 || length > payload.remaining()) {
+            throw new IOException(
+              "Graft length %d is out of range."
+                .formatted(Integer.valueOf(length))
+            );
+          }
+          final var grafted = payload.slice(payload.position(), length);
+          payload.position(payload.position() + length);
+          recorder.graft(TRTaskSerialization.deserialize(grafted));
+        }
+        default -> throw new IOException(
+          "Unrecognized checkpoint operation %d."
+            .formatted(Integer.valueOf(op))
+        );
+      }
+    }
+
+    private void addTask(
+      final TRTaskRecorderType<Object> recorder)
+    {
+      final var initial = new ArrayList<TRTaskStepRecorderType>();
+      initial.add(recorder.stepCurrent());
+      this.tasks.add(recorder);
+      this.steps.add(initial);
+    }
+
+    private TRTaskRecorderType<Object> task(
+      final int task)
+      throws IOException
+    {
+      if (task < 0 || task >= this.tasks.size()) {
+        throw new IOException(
+          "Unrecognized task %d.".formatted(Integer.valueOf(task))
+        );
+      }
+      return this.tasks.get(task);
+    }
+
+    private TRTaskStepRecorderType step(
+      final int task,
+      final int step)
+      throws IOException
+    {
+      this.task(task);
+
+      final var taskSteps = this.steps.get(task);
+      if (step < 0 || step >= taskSteps.size()) {
+        throw new IOException(
+          "Unrecognized step %d of task %d."
+            .formatted(Integer.valueOf(step), Integer.valueOf(task))
+        );
+      }
+      return taskSteps.get(step);
+    }
+
+    private static IOException unrecognizedResolution(
+      final byte kind)
+    {
+      return new IOException(
+        "Unrecognized resolution kind %d.".formatted(Integer.valueOf(kind))
+      );
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void setAttributes(
+      final TRAttributeRecorderType target,
+      final TRAttributes attributes)
+    {
+      for (int index = 0; index < attributes.size(); ++index) {
+        final var key = attributes.keyAt(index);
+        switch (key.type()) {
+          case LONG -> target.setAttribute(
+            (TRAttributeKey<Long>) key, attributes.longAt(index));
+          case DOUBLE -> target.setAttribute(
+            (TRAttributeKey<Double>) key, attributes.doubleAt(index));
+          case BOOLEAN -> target.setAttribute(
+            (TRAttributeKey<Boolean>) key, attributes.booleanAt(index));
+          case STRING -> target.setAttribute(
+            (TRAttributeKey<String>) key, attributes.stringAt(index));
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,1050 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.archive;
+
+import com.io7m.taskrecorder.core.TRAttributeKey;
+import com.io7m.taskrecorder.core.TRAttributeType;
+import com.io7m.taskrecorder.core.TRAttributes;
+import com.io7m.taskrecorder.core.TRNoResult;
+import com.io7m.taskrecorder.core.TRStep;
+import com.io7m.taskrecorder.core.TRStepFailed;
+import com.io7m.taskrecorder.core.TRStepResolutionType;
+import com.io7m.taskrecorder.core.TRStepSucceeded;
+import com.io7m.taskrecorder.core.TRTask;
+import com.io7m.taskrecorder.core.TRTaskFailed;
+import com.io7m.taskrecorder.core.TRTaskItemType;
+import com.io7m.taskrecorder.core.TRTaskResolutionType;
+import com.io7m.taskrecorder.core.TRTaskSucceeded;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A compact encoding for batches of tasks.
+ *
+ * <p>Every string in a batch is stored once in a dictionary ordered by
+ * frequency, and referenced by variable-length index. Times are stored as
+ * variable-length deltas from the preceding time in the batch, in the
+ * coarsest unit (seconds, milliseconds, microseconds, or nanoseconds) that
+ * represents every time in the batch exactly. Item kinds and resolution
+ * kinds are packed into the low bits of each item header, and a step with
+ * the same message as the preceding step stores no message at all.
+ * Attributes are stored in a section at the end of each task that lists only
+ * those items that have attributes.</p>
+ *
+ * <p>Task trees are encoded, decoded, and scanned for strings with explicit
+ * stacks rather than by recursion, so the depth of a task is not limited by
+ * the thread stack.</p>
+ *
+ * <p>As with {@link TRTaskSerialization}, task results are stored as
+ * strings (with {@link TRNoResult} preserved), and exceptions are decoded
+ * as {@link TRArchivedException} values.</p>
+ */
+
+public final class TRTaskBatchCodec
+{
+  private static final int MAGIC = 0x54524243;
+  private static final int VERSION = 1;
+
+  private static final int FLAG_TASK = 0b0001;
+  private static final int FLAG_FAILED = 0b0010;
+  private static final int FLAG_EXCEPTION = 0b0100;
+  private static final int FLAG_RESULT = 0b1000;
+  private static final int FLAG_REPEATED_MESSAGE = 0b1000;
+  private static final int FLAG_BITS = 4;
+  private static final int FLAG_MASK = (1 << FLAG_BITS) - 1;
+
+  private static final int ATTRIBUTE_TYPE_BITS = 2;
+  private static final int ATTRIBUTE_TYPE_MASK = (1 << ATTRIBUTE_TYPE_BITS) - 1;
+
+  private static final int MAXIMUM_CAUSE_DEPTH = 16;
+
+  private static final long[] UNITS = {
+    1_000_000_000L,
+    1_000_000L,
+    1_000L,
+    1L,
+  };
+
+  private TRTaskBatchCodec()
+  {
+
+  }
+
+  /**
+   * Encode a batch of tasks.
+   *
+   * @param tasks The tasks
+   *
+   * @return The encoded batch
+   */
+
+  public static byte[] encode(
+    final List<? extends TRTask<?>> tasks)
+  {
+    Objects.requireNonNull(tasks, "tasks");
+
+    final var dictionary = new TRDictionaryBuilder();
+    long unit = UNITS[0];
+    for (final var task : tasks) {
+      unit = dictionary.collectTask(task, unit);
+    }
+
+    final var output = new TROutput(64 + tasks.size() * 16);
+    output.writeInt(MAGIC);
+    output.writeVarInt(VERSION);
+    output.writeVarLong(unit);
+
+    final var strings = dictionary.finish();
+    output.writeVarInt(strings.length);
+    for (final var text : strings) {
+      final var bytes = text.getBytes(UTF_8);
+      output.writeVarInt(bytes.length);
+      output.writeBytes(bytes);
+    }
+
+    output.writeVarInt(tasks.size());
+    if (!tasks.isEmpty()) {
+      final var base = tasks.get(0).timeStarted();
+      output.writeVarLong(zigzag(base.getEpochSecond()));
+      output.writeVarInt(base.getNano());
+
+      final var encoder = new TREncoder(output, dictionary, unit);
+      Instant cursor = base;
+      for (final var task : tasks) {
+        cursor = encoder.writeTask(task, cursor);
+      }
+    }
+    return output.toByteArray();
+  }
+
+  /**
+   * Decode a batch of tasks from the remaining bytes of the given buffer.
+   * The buffer position is advanced past the batch.
+   *
+   * @param buffer The buffer
+   *
+   * @return The decoded tasks
+   *
+   * @throws IOException If the data is malformed
+   */
+
+  public static List<TRTask<?>> decode(
+    final ByteBuffer buffer)
+    throws IOException
+  {
+    Objects.requireNonNull(buffer, "buffer");
+
+    try {
+      final var magic = buffer.getInt();
+      if (magic != MAGIC) {
+        throw new IOException(
+          "Unrecognized batch magic number 0x%08x."
+            .formatted(Integer.valueOf(magic))
+        );
+      }
+      final var version = readVarInt(buffer);
+      if (version != VERSION) {
+        throw new IOException(
+          "Unsupported batch version %d.".formatted(Integer.valueOf(version))
+        );
+      }
+      final var unit = readVarLong(buffer);
+      if (Arrays.stream(UNITS).noneMatch(u -> u == unit)) {
+        throw new IOException(
+          "Unsupported time unit %d.".formatted(Long.valueOf(unit))
+        );
+      }
+
+      final var stringCount = readCount(buffer);
+      final var strings = new String[stringCount];
+      for (int index = 0; index < stringCount; ++index) {
+        final var bytes = new byte[readCount(buffer)];
+        buffer.get(bytes);
+        strings[index] = new String(bytes, UTF_8);
+      }
+
+      final var taskCount = readCount(buffer);
+      final var tasks = new ArrayList<TRTask<?>>(taskCount);
+      if (taskCount > 0) {
+        final var seconds = unzigzag(readVarLong(buffer));
+        var cursor = Instant.ofEpochSecond(seconds, readVarInt(buffer));
+
+        final var decoder = new TRDecoder(buffer, strings, unit);
+        for (int index = 0; index < taskCount; ++index) {
+          final var header = readVarInt(buffer);
+          if ((header & FLAG_TASK) == 0) {
+            throw new IOException("Expected a task at the top level.");
+          }
+          final var task = decoder.readTask(header, cursor);
+          tasks.add(task);
+          cursor = task.timeEnded();
+        }
+      }
+      return tasks;
+    } catch (final BufferUnderflowException
+                   | IndexOutOfBoundsException
+                   | IllegalArgumentException
+                   | ArithmeticException
+                   | DateTimeException e) {
+      throw new IOException("Malformed task batch.", e);
+    }
+  }
+
+  private static long zigzag(
+    final long value)
+  {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  private static long unzigzag(
+    final long value)
+  {
+    return (value >>> 1) ^ -(value & 1L);
+  }
+
+  private static long coarsestUnit(
+    final Instant time,
+    final long unit)
+  {
+    var current = unit;
+    while (time.getNano() % current != 0L) {
+      current /= 1000L;
+    }
+    return current;
+  }
+
+  private static int readCount(
+    final ByteBuffer buffer)
+    throws IOException
+  {
+    final var count = readVarInt(buffer);
+    if (count < 0 || count > buffer.remaining()) {
+      throw new IOException(
+        "Count %d is out of range.".formatted(Integer.valueOf(count))
+      );
+    }
+    return count;
+  }
+
+  private static int readVarInt(
+    final ByteBuffer buffer)
+    throws IOException
+  {
+    final var value = readVarLong(buffer);
+    if (value < 0L || value > Integer.MAX_VALUE) {
+      throw new IOException(
+        "Value %d is out of range.".formatted(Long.valueOf(value))
+      );
+    }
+    return (int) value;
+  }
+
+  private static long readVarLong(
+    final ByteBuffer buffer)
+    throws IOException
+  {
+    long result = 0L;
+    for (int shift = 0; shift < 64; shift += 7) {
+      final var b = buffer.get();
+      result |= (long) (b & 0x7f) << shift;
+      if (b >= 0) {
+        return result;
+      }
+    }
+    throw new IOException("Malformed variable-length integer.");
+  }
+
+  /**
+   * A growable output buffer.
+   */
+
+  private static final class TROutput
+  {
+    private byte[] data;
+    private int size;
+
+    TROutput(
+      final int capacity)
+    {
+      this.data = new byte[Math.max(16, capacity)];
+    }
+
+    private void reserve(
+      final int count)
+    {
+      if (this.size + count > this.data.length) {
+        this.data = Arrays.copyOf(
+          this.data,
+          Math.max(this.size + count, this.data.length * 2)
+        );
+      }
+    }
+
+    void writeInt(
+      final int value)
+    {
+      this.reserve(4);
+      this.data[this.size++] = (byte) (value >>> 24);
+      this.data[this.size++] = (byte) (value >>> 16);
+      this.data[this.size++] = (byte) (value >>> 8);
+      this.data[this.size++] = (byte) value;
+    }
+
+    void writeLong(
+      final long value)
+    {
+      this.writeInt((int) (value >>> 32));
+      this.writeInt((int) value);
+    }
+
+    void writeVarInt(
+      final int value)
+    {
+      this.writeVarLong(Integer.toUnsignedLong(value));
+    }
+
+    void writeVarLong(
+      final long value)
+    {
+      this.reserve(10);
+      long current = value;
+      while ((current & ~0x7fL) != 0L) {
+        this.data[this.size++] = (byte) ((current & 0x7fL) | 0x80L);
+        current >>>= 7;
+      }
+      this.data[this.size++] = (byte) current;
+    }
+
+    void writeBytes(
+      final byte[] bytes)
+    {
+      this.reserve(bytes.length);
+      System.arraycopy(bytes, 0, this.data, this.size, bytes.length);
+      this.size += bytes.length;
+    }
+
+    byte[] toByteArray()
+    {
+      return Arrays.copyOf(this.data, this.size);
+    }
+  }
+
+  /**
+   * Collects strings and their frequencies, and determines the time unit.
+   */
+
+  private static final class TRDictionaryBuilder
+  {
+    private final HashMap<String, int[]> counts;
+    private final HashMap<String, Integer> indices;
+
+    TRDictionaryBuilder()
+    {
+      this.counts = new HashMap<>();
+      this.indices = new HashMap<>();
+    }
+
+    private void add(
+      final String text)
+    {
+      if (text != null) {
+        this.counts.computeIfAbsent(text, k -> new int[1])[0]++;
+      }
+    }
+
+    long collectTask(
+      final TRTask<?> task,
+      final long unit)
+    {
+      var current = unit;
+      final var stack = new ArrayDeque<TRTaskItemType>();
+      stack.push(task);
+
+      while (!stack.isEmpty()) {
+        final var item = stack.pop();
+        if (item instanceof final TRTask<?> subtask) {
+          current = coarsestUnit(subtask.timeStarted(), current);
+          current = coarsestUnit(subtask.timeEnded(), current);
+          this.collectAttributes(subtask.attributes());
+
+          final TRTaskResolutionType<?> resolution = subtask.resolution();
+          if (resolution instanceof final TRTaskSucceeded<?> succeeded) {
+            this.add(succeeded.message());
+            if (!(succeeded.result() instanceof TRNoResult)) {
+              this.add(String.valueOf(succeeded.result()));
+            }
+          } else if (resolution instanceof final TRTaskFailed<?> failed) {
+            this.add(failed.message());
+            this.collectException(failed.exception().orElse(null), 0);
+          }
+
+          for (final var subitem : subtask.items()) {
+            stack.push(subitem);
+          }
+        } else if (item instanceof final TRStep step) {
+          current = coarsestUnit(step.timeStarted(), current);
+          current = coarsestUnit(step.timeEnded(), current);
+          this.add(step.description());
+          this.add(step.resolution().message());
+          this.collectAttributes(step.attributes());
+          if (step.resolution() instanceof final TRStepFailed failed) {
+            this.collectException(failed.exception().orElse(null), 0);
+          }
+        }
+      }
+      return current;
+    }
+
+    private void collectAttributes(
+      final TRAttributes attributes)
+    {
+      for (int index = 0; index < attributes.size(); ++index) {
+        final var key = attributes.keyAt(index);
+        this.add(key.name());
+        if (key.type() == TRAttributeType.STRING) {
+          this.add(attributes.stringAt(index));
+        }
+      }
+    }
+
+    private void collectException(
+      final Throwable exception,
+      final int depth)
+    {
+      if (exception == null || depth >= MAXIMUM_CAUSE_DEPTH) {
+        return;
+      }
+      this.add(exceptionClassName(exception));
+      this.add(exception.getMessage());
+      for (final var element : exception.getStackTrace()) {
+        this.add(element.getClassLoaderName());
+        this.add(element.getModuleName());
+        this.add(element.getModuleVersion());
+        this.add(element.getClassName());
+        this.add(element.getMethodName());
+        this.add(element.getFileName());
+      }
+      this.collectException(exception.getCause(), depth + 1);
+    }
+
+    String[] finish()
+    {
+      final var strings =
+        this.counts.entrySet()
+          .stream()
+          .sorted((x, y) -> Integer.compare(y.getValue()[0], x.getValue()[0]))
+          .map(e -> e.getKey())
+          .toArray(String[]::new);
+
+      for (int index = 0; index < strings.length; ++index) {
+        this.indices.put(strings[index], Integer.valueOf(index));
+      }
+      return strings;
+    }
+
+    int indexOf(
+      final String text)
+    {
+      return this.indices.get(text).intValue();
+    }
+
+    int optionalIndexOf(
+      final String text)
+    {
+      if (text == null) {
+        return 0;
+      }
+      return this.indexOf(text) + 1;
+    }
+  }
+
+  private static String exceptionClassName(
+    final Throwable exception)
+  {
+    if (exception instanceof final TRArchivedException archived) {
+      return archived.className();
+    }
+    return exception.getClass().getName();
+  }
+
+  /**
+   * The batch encoder.
+   */
+
+  private static final class TREncoder
+  {
+    private final TROutput output;
+    private final TRDictionaryBuilder dictionary;
+    private final long unit;
+    private String stepMessage;
+
+    TREncoder(
+      final TROutput inOutput,
+      final TRDictionaryBuilder inDictionary,
+      final long inUnit)
+    {
+      this.output = inOutput;
+      this.dictionary = inDictionary;
+      this.unit = inUnit;
+      this.stepMessage = "";
+    }
+
+    /**
+     * Write a time relative to a previous time. Deltas are written as
+     * zigzag-encoded multiples of the unit, shifted left by one bit. A set
+     * low bit indicates an absolute time follows instead.
+     */
+
+    private void writeTime(
+      final Instant time,
+      final Instant previous)
+    {
+      try {
+        final var nanos =
+          Math.addExact(
+            Math.multiplyExact(
+              time.getEpochSecond() - previous.getEpochSecond(),
+              1_000_000_000L
+            ),
+            (long) time.getNano() - previous.getNano()
+          );
+        final var delta = nanos / this.unit;
+        if (Math.abs(delta) < (1L << 61)) {
+          this.output.writeVarLong(zigzag(delta) << 1);
+          return;
+        }
+      } catch (final ArithmeticException e) {
+        // Fall through to the absolute form.
+      }
+
+      this.output.writeVarLong(1L);
+      this.output.writeVarLong(zigzag(time.getEpochSecond()));
+      this.output.writeVarInt(time.getNano());
+    }
+
+    Instant writeTask(
+      final TRTask<?> task,
+      final Instant cursor)
+    {
+      final var stack = new ArrayDeque<TREncoderFrame>();
+      stack.push(this.writeTaskHeader(task, cursor));
+
+      while (!stack.isEmpty()) {
+        final var frame = stack.peek();
+        final var items = frame.task.items();
+        if (frame.index < items.size()) {
+          final var item = items.get(frame.index);
+          ++frame.index;
+
+          if (item instanceof final TRTask<?> subtask) {
+            stack.push(this.writeTaskHeader(subtask, frame.itemCursor));
+            frame.itemCursor = subtask.timeEnded();
+          } else if (item instanceof final TRStep step) {
+            frame.itemCursor = this.writeStep(step, frame.itemCursor);
+            if (!step.attributes().isEmpty()) {
+              ++frame.attributed;
+            }
+          }
+          continue;
+        }
+
+        stack.pop();
+        this.writeTaskAttributes(frame);
+      }
+      return task.timeEnded();
+    }
+
+    private TREncoderFrame writeTaskHeader(
+      final TRTask<?> task,
+      final Instant cursor)
+    {
+      int flags = FLAG_TASK;
+      final String message;
+      int result = -1;
+      Throwable exception = null;
+
+      final TRTaskResolutionType<?> resolution = task.resolution();
+      if (resolution instanceof final TRTaskFailed<?> failed) {
+        flags |= FLAG_FAILED;
+        message = failed.message();
+        exception = failed.exception().orElse(null);
+        if (exception != null) {
+          flags |= FLAG_EXCEPTION;
+        }
+      } else {
+        final var succeeded = (TRTaskSucceeded<?>) resolution;
+        message = succeeded.message();
+        if (!(succeeded.result() instanceof TRNoResult)) {
+          flags |= FLAG_RESULT;
+          result = this.dictionary.indexOf(String.valueOf(succeeded.result()));
+        }
+      }
+
+      this.output.writeVarLong(
+        ((long) this.dictionary.indexOf(message) << FLAG_BITS) | flags
+      );
+      if (result >= 0) {
+        this.output.writeVarInt(result);
+      }
+      this.writeTime(task.timeStarted(), cursor);
+      this.writeTime(task.timeEnded(), task.timeStarted());
+      if (exception != null) {
+        this.writeException(exception, 0);
+      }
+
+      this.output.writeVarInt(task.items().size());
+      return new TREncoderFrame(task);
+    }
+
+    /*
+     * The attribute section lists the task itself at position zero, and
+     * steps at their item index plus one. Subtasks list their own
+     * attributes.
+     */
+
+    private void writeTaskAttributes(
+      final TREncoderFrame frame)
+    {
+      final var task = frame.task;
+      final var items = task.items();
+
+      this.output.writeVarInt(frame.attributed);
+      if (!task.attributes().isEmpty()) {
+        this.output.writeVarInt(0);
+        this.writeAttributes(task.attributes());
+      }
+      for (int index = 0; index < items.size(); ++index) {
+        if (items.get(index) instanceof final TRStep step
+            && !step.attributes().isEmpty()) {
+          this.output.writeVarInt(index + 1);
+          this.writeAttributes(step.attributes());
+        }
+      }
+    }
+
+    private void writeAttributes(
+      final TRAttributes attributes)
+    {
+      final var count = attributes.size();
+      this.output.writeVarInt(count);
+      for (int index = 0; index < count; ++index) {
+        final var key = attributes.keyAt(index);
+        this.output.writeVarLong(
+          ((long) this.dictionary.indexOf(key.name()) << ATTRIBUTE_TYPE_BITS)
+          | key.type().ordinal()
+        );
+        switch (key.type()) {
+          case LONG -> this.output.writeVarLong(zigzag(attributes.longAt(index)));
+          case DOUBLE -> this.output.writeLong(
+            Double.doubleToRawLongBits(attributes.doubleAt(index)));
+          case BOOLEAN -> this.output.writeVarInt(attributes.booleanAt(index) ? 1 : 0);
+          case STRING -> this.output.writeVarInt(
+            this.dictionary.indexOf(attributes.stringAt(index)));
+        }
+      }
+    }
+
+    private Instant writeStep(
+      final TRStep step,
+      final Instant cursor)
+    {
+      int flags = 0;
+      Throwable exception = null;
+      if (step.resolution() instanceof final TRStepFailed failed) {
+        flags |= FLAG_FAILED;
+        exception = failed.exception().orElse(null);
+        if (exception != null) {
+          flags |= FLAG_EXCEPTION;
+        }
+      }
+
+      final var message = step.resolution().message();
+      if (message.equals(this.stepMessage)) {
+        flags |= FLAG_REPEATED_MESSAGE;
+      }
+
+      this.output.writeVarLong(
+        ((long) this.dictionary.indexOf(step.description()) << FLAG_BITS)
+        | flags
+      );
+      if ((flags & FLAG_REPEATED_MESSAGE) == 0) {
+        this.output.writeVarInt(this.dictionary.indexOf(message));
+        this.stepMessage = message;
+      }
+      this.writeTime(step.timeStarted(), cursor);
+      this.writeTime(step.timeEnded(), step.timeStarted());
+      if (exception != null) {
+        this.writeException(exception, 0);
+      }
+      return step.timeEnded();
+    }
+
+    private void writeException(
+      final Throwable exception,
+      final int depth)
+    {
+      final var d = this.dictionary;
+      this.output.writeVarInt(d.indexOf(exceptionClassName(exception)));
+      this.output.writeVarInt(d.optionalIndexOf(exception.getMessage()));
+
+      final var trace = exception.getStackTrace();
+      this.output.writeVarInt(trace.length);
+      for (final var element : trace) {
+        this.output.writeVarInt(d.optionalIndexOf(element.getClassLoaderName()));
+        this.output.writeVarInt(d.optionalIndexOf(element.getModuleName()));
+        this.output.writeVarInt(d.optionalIndexOf(element.getModuleVersion()));
+        this.output.writeVarInt(d.indexOf(element.getClassName()));
+        this.output.writeVarInt(d.indexOf(element.getMethodName()));
+        this.output.writeVarInt(d.optionalIndexOf(element.getFileName()));
+        this.output.writeVarLong(zigzag(element.getLineNumber()));
+      }
+
+      final var cause = exception.getCause();
+      if (cause != null && depth + 1 < MAXIMUM_CAUSE_DEPTH) {
+        this.output.writeVarInt(1);
+        this.writeException(cause, depth + 1);
+      } else {
+        this.output.writeVarInt(0);
+      }
+    }
+  }
+
+  /**
+   * The batch decoder.
+   */
+
+  private static final class TRDecoder
+  {
+    private final ByteBuffer buffer;
+    private final String[] strings;
+    private final long unit;
+    private String stepMessage;
+
+    TRDecoder(
+      final ByteBuffer inBuffer,
+      final String[] inStrings,
+      final long inUnit)
+    {
+      this.buffer = inBuffer;
+      this.strings = inStrings;
+      this.unit = inUnit;
+      this.stepMessage = "";
+    }
+
+    private String string(
+      final int index)
+    {
+      return this.strings[index];
+    }
+
+    private String readString()
+      throws IOException
+    {
+      return this.strings[readVarInt(this.buffer)];
+    }
+
+    private String readOptionalString()
+      throws IOException
+    {
+      final var index = readVarInt(this.buffer);
+      if (index == 0) {
+        return null;
+      }
+      return this.strings[index - 1];
+    }
+
+    private Instant readTime(
+      final Instant previous)
+      throws IOException
+    {
+      final var value = readVarLong(this.buffer);
+      if ((value & 1L) == 0L) {
+        final var delta = unzigzag(value >>> 1);
+        return previous.plusNanos(Math.multiplyExact(delta, this.unit));
+      }
+      final var seconds = unzigzag(readVarLong(this.buffer));
+      return Instant.ofEpochSecond(seconds, readVarInt(this.buffer));
+    }
+
+    TRTask<?> readTask(
+      final int header,
+      final Instant cursor)
+      throws IOException
+    {
+      final var stack = new ArrayDeque<TRDecoderFrame>();
+      stack.push(this.readTaskHeader(header, cursor));
+
+      while (true) {
+        final var frame = stack.peek();
+        if (frame.items.size() < frame.count) {
+          final var itemHeader = readVarInt(this.buffer);
+          if ((itemHeader & FLAG_TASK) != 0) {
+            final var subtask = this.readTaskHeader(itemHeader, frame.itemCursor);
+            stack.push(subtask);
+            frame.itemCursor = subtask.timeEnded;
+          } else {
+            final var step = this.readStep(itemHeader, frame.itemCursor);
+            frame.items.add(step);
+            frame.itemCursor = step.timeEnded();
+          }
+          continue;
+        }
+
+        stack.pop();
+        final var task = this.readTaskAttributes(frame);
+        if (stack.isEmpty()) {
+          return task;
+        }
+        stack.peek().items.add(task);
+      }
+    }
+
+    private TRDecoderFrame readTaskHeader(
+      final int header,
+      final Instant cursor)
+      throws IOException
+    {
+      final var message = this.string(header >>> FLAG_BITS);
+      final String result;
+      if ((header & FLAG_RESULT) != 0) {
+        result = this.readString();
+      } else {
+        result = null;
+      }
+
+      final var timeStarted = this.readTime(cursor);
+      final var timeEnded = this.readTime(timeStarted);
+
+      final TRTaskResolutionType<Object> resolution;
+      if ((header & FLAG_FAILED) != 0) {
+        final Optional<Throwable> exception;
+        if ((header & FLAG_EXCEPTION) != 0) {
+          exception = Optional.of(this.readException(0));
+        } else {
+          exception = Optional.empty();
+        }
+        resolution = new TRTaskFailed<>(message, exception);
+      } else if (result != null) {
+        resolution = new TRTaskSucceeded<>(message, result);
+      } else {
+        resolution = new TRTaskSucceeded<>(message, TRNoResult.NO_RESULT);
+      }
+
+      final var count = readCount(this.buffer);
+      return new TRDecoderFrame(resolution, timeStarted, timeEnded, count);
+    }
+
+    private TRTask<?> readTaskAttributes(
+      final TRDecoderFrame frame)
+      throws IOException
+    {
+      final var items = frame.items;
+
+      var attributes = TRAttributes.EMPTY;
+      final var attributed = readCount(this.buffer);
+      for (int index = 0; index < attributed; ++index) {
+        final var position = readVarInt(this.buffer);
+        final var itemAttributes = this.readAttributes();
+        if (position == 0) {
+          attributes = itemAttributes;
+        } else if (items.get(position - 1) instanceof final TRStep step) {
+          items.set(position - 1, new TRStep(
+            step.description(),
+            step.resolution(),
+            step.timeStarted(),
+            step.timeEnded(),
+            itemAttributes
+          ));
+        } else {
+          throw new IOException(
+            "Attributes at position %d do not refer to a step."
+              .formatted(Integer.valueOf(position))
+          );
+        }
+      }
+      return new TRTask<>(
+        items,
+        frame.resolution,
+        frame.timeStarted,
+        frame.timeEnded,
+        attributes
+      );
+    }
+
+    @SuppressWarnings("unchecked")
+    private TRAttributes readAttributes()
+      throws IOException
+    {
+      final var count = readCount(this.buffer);
+      final var types = TRAttributeType.values();
+      final var attributes = TRAttributes.builder();
+      for (int index = 0; index < count; ++index) {
+        final var header = readVarLong(this.buffer);
+        final var typeIndex = (int) (header & ATTRIBUTE_TYPE_MASK);
+        final var name =
+          this.strings[Math.toIntExact(header >>> ATTRIBUTE_TYPE_BITS)];
+        final var key = TRAttributeKey.of(name, types[typeIndex]);
+
+        switch (key.type()) {
+          case LONG -> attributes.set(
+            (TRAttributeKey<Long>) key,
+            unzigzag(readVarLong(this.buffer)));
+          case DOUBLE -> attributes.set(
+            (TRAttributeKey<Double>) key,
+            Double.longBitsToDouble(this.buffer.getLong()));
+          case BOOLEAN -> attributes.set(
+            (TRAttributeKey<Boolean>) key,
+            readVarInt(this.buffer) != 0);
+          case STRING -> attributes.set(
+            (TRAttributeKey<String>) key,
+            this.readString());
+        }
+      }
+      return attributes.build();
+    }
+
+    private TRStep readStep(
+      final int header,
+      final Instant cursor)
+      throws IOException
+    {
+      final var description = this.string(header >>> FLAG_BITS);
+      final String message;
+      if ((header & FLAG_REPEATED_MESSAGE) != 0) {
+        message = this.stepMessage;
+      } else {
+        message = this.readString();
+        this.stepMessage = message;
+      }
+      final var timeStarted = this.readTime(cursor);
+      final var timeEnded = this.readTime(timeStarted);
+
+      final TRStepResolutionType resolution;
+      if ((header & FLAG_FAILED) != 0) {
+        final Optional<Throwable> exception;
+        if ((header & FLAG_EXCEPTION) != 0) {
+          exception = Optional.of(this.readException(0));
+        } else {
+          exception = Optional.empty();
+        }
+        resolution = new TRStepFailed(message, exception);
+      } else {
+        resolution = new TRStepSucceeded(message);
+      }
+      return new TRStep(description, resolution, timeStarted, timeEnded);
+    }
+
+    private TRArchivedException readException(
+      final int depth)
+      throws IOException
+    {
+      if (depth >= MAXIMUM_CAUSE_DEPTH) {
+        throw new IOException("Exception cause chain is too deep.");
+      }
+
+      final var className = this.readString();
+      final var message = this.readOptionalString();
+      final var exception = new TRArchivedException(className, message);
+
+      final var count = readCount(this.buffer);
+      final var trace = new StackTraceElement[count];
+      for (int index = 0; index < count; ++index) {
+        final var loader = this.readOptionalString();
+        final var module = this.readOptionalString();
+        final var version = this.readOptionalString();
+        final var elementClass = this.readString();
+        final var method = this.readString();
+        final var file = this.readOptionalString();
+        final var line = (int) unzigzag(readVarLong(this.buffer));
+        trace[index] = new StackTraceElement(
+          loader, module, version, elementClass, method, file, line
+        );
+      }
+      exception.setStackTrace(trace);
+
+      if (readVarInt(this.buffer) != 0) {
+        exception.initCause(this.readException(depth + 1));
+      }
+      return exception;
+    }
+  }
+
+  /**
+   * A task being encoded: the index of the next item to write, the cursor
+   * against which the next item's start time is written, and the number of
+   * items (including the task) with attributes.
+   */
+
+  private static final class TREncoderFrame
+  {
+    private final TRTask<?> task;
+    private int index;
+    private Instant itemCursor;
+    private int attributed;
+
+    TREncoderFrame(
+      final TRTask<?> inTask)
+    {
+      this.task = inTask;
+      this.index = 0;
+      this.itemCursor = inTask.timeStarted();
+      this.attributed = inTask.attributes().isEmpty() ? 0 : 1;
+    }
+  }
+
+  /**
+   * A task being decoded: its header, and the items decoded so far.
+   */
+
+  private static final class TRDecoderFrame
+  {
+    private final TRTaskResolutionType<Object> resolution;
+    private final Instant timeStarted;
+    private final Instant timeEnded;
+    private final int count;
+    private final ArrayList<TRTaskItemType> items;
+    private Instant itemCursor;
+
+    TRDecoderFrame(
+      final TRTaskResolutionType<Object> inResolution,
+      final Instant inTimeStarted,
+      final Instant inTimeEnded,
+      final int inCount)
+    {
+      this.resolution = inResolution;
+      this.timeStarted = inTimeStarted;
+      this.timeEnded = inTimeEnded;
+      this.count = inCount;
+      this.items = new ArrayList<>(inCount);
+      this.itemCursor = inTimeStarted;
+    }
+  }
+}
@@ -0,0 +1,686 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.archive;
+
+import com.io7m.taskrecorder.core.TRAttributeKey;
+import com.io7m.taskrecorder.core.TRAttributeType;
+import com.io7m.taskrecorder.core.TRAttributes;
+import com.io7m.taskrecorder.core.TRNoResult;
+import com.io7m.taskrecorder.core.TRStep;
+import com.io7m.taskrecorder.core.TRStepFailed;
+import com.io7m.taskrecorder.core.TRStepResolutionType;
+import com.io7m.taskrecorder.core.TRStepSucceeded;
+import com.io7m.taskrecorder.core.TRTask;
+import com.io7m.taskrecorder.core.TRTaskFailed;
+import com.io7m.taskrecorder.core.TRTaskItemType;
+import com.io7m.taskrecorder.core.TRTaskResolutionType;
+import com.io7m.taskrecorder.core.TRTaskSucceeded;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A straightforward binary serialization of tasks.
+ *
+ * <p>Task results are stored as strings (with {@link TRNoResult} preserved),
+ * and exceptions are read back as {@link TRArchivedException} values.</p>
+ *
+ * <p>Task trees are written and read with an explicit stack rather than by
+ * recursion, so the depth of a task is limited only by the size of its
+ * serialized form, and malformed or deeply nested input is reported as an
+ * {@link IOException} rather than exhausting the thread stack.</p>
+ */
+
+public final class TRTaskSerialization
+{
+  private static final int TAG_STEP = 0;
+  private static final int TAG_TASK = 1;
+
+  private static final int RESOLUTION_SUCCEEDED = 0;
+  private static final int RESOLUTION_FAILED = 1;
+
+  private static final int RESULT_NONE = 0;
+  private static final int RESULT_STRING = 1;
+
+  private static final int MAXIMUM_CAUSE_DEPTH = 16;
+  private static final int MAXIMUM_TASK_SIZE = 1 << 30;
+
+  private TRTaskSerialization()
+  {
+
+  }
+
+  /**
+   * Serialize a task.
+   *
+   * @param task The task
+   *
+   * @return The serialized task
+   */
+
+  public static byte[] serialize(
+    final TRTask<?> task)
+  {
+    Objects.requireNonNull(task, "task");
+
+    final var bytes = new ByteArrayOutputStream(256);
+    try (var output = new DataOutputStream(bytes)) {
+      writeTask(output, task);
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Deserialize a task from the remaining bytes of the given buffer. The
+   * buffer position is advanced past the task.
+   *
+   * @param buffer The buffer
+   *
+   * @return The task
+   *
+   * @throws IOException If the data is malformed
+   */
+
+  public static TRTask<?> deserialize(
+    final ByteBuffer buffer)
+    throws IOException
+  {
+    Objects.requireNonNull(buffer, "buffer");
+
+    try {
+      final var tag = buffer.get();
+      if (tag != TAG_TASK) {
+        throw new IOException(
+          "Expected a task tag (%d) but received %d."
+            .formatted(Integer.valueOf(TAG_TASK), Integer.valueOf(tag))
+        );
+      }
+      return readTask(buffer);
+    } catch (final BufferUnderflowException
+                   | IllegalArgumentException
+                   | DateTimeException e) {
+      throw new IOException("Malformed task data.", e);
+    }
+  }
+
+  /**
+   * Write a serialized task to the given stream, preceded by its length.
+   * This is suitable for passing tasks between processes over pipes or
+   * sockets; see {@link #read(InputStream)}.
+   *
+   * @param output The output stream
+   * @param task   The task
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public static void write(
+    final OutputStream output,
+    final TRTask<?> task)
+    throws IOException
+  {
+    Objects.requireNonNull(output, "output");
+
+    final var data = serialize(task);
+    final var length = new byte[4];
+    ByteBuffer.wrap(length).putInt(data.length);
+    output.write(length);
+    output.write(data);
+  }
+
+  /**
+   * Read a task written by {@link #write(OutputStream, TRTask)}. The
+   * resulting task can be grafted into a running recorder with
+   * {@link com.io7m.taskrecorder.core.TRTaskRecorderType#graft(TRTask)}.
+   *
+   * @param input The input stream
+   *
+   * @return The task
+   *
+   * @throws IOException If the data is malformed, or on I/O errors
+   */
+
+  public static TRTask<?> read(
+    final InputStream input)
+    throws IOException
+  {
+    Objects.requireNonNull(input, "input");
+
+    final var length = new DataInputStream(input).readInt();
+    if (length < 0 || length > MAXIMUM_TASK_SIZE) {
+      throw new IOException(
+        "Task size %d must be in the range [0, %d]."
+          .formatted(
+            Integer.valueOf(length),
+            Integer.valueOf(MAXIMUM_TASK_SIZE))
+      );
+    }
+
+    final var data = input.readNBytes(length);
+    if (data.length != length) {
+      throw new EOFException(
+        "Expected %d bytes but received %d."
+          .formatted(Integer.valueOf(length), Integer.valueOf(data.length))
+      );
+    }
+
+    final var buffer = ByteBuffer.wrap(data);
+    final var task = deserialize(buffer);
+    if (buffer.hasRemaining()) {
+      throw new IOException(
+        "%d unexpected trailing bytes after task."
+          .formatted(Integer.valueOf(buffer.remaining()))
+      );
+    }
+    return task;
+  }
+
+  /**
+   * Read all the tasks written to the given stream by
+   * {@link #write(OutputStream, TRTask)}. Tasks are read lazily as the
+   * returned stream is consumed, and the returned stream ends when the
+   * input stream ends cleanly between two tasks. I/O errors are raised as
+   * {@link UncheckedIOException} from the returned stream. Closing the
+   * returned stream closes the input stream.
+   *
+   * @param input The input stream
+   *
+   * @return The tasks
+   */
+
+  public static Stream<TRTask<?>> stream(
+    final InputStream input)
+  {
+    Objects.requireNonNull(input, "input");
+
+    final var buffered = new BufferedInputStream(input);
+    final var tasks =
+      new Spliterators.AbstractSpliterator<TRTask<?>>(
+        Long.MAX_VALUE,
+        Spliterator.ORDERED | Spliterator.NONNULL)
+      {
+        @Override
+        public boolean tryAdvance(
+          final Consumer<? super TRTask<?>> action)
+        {
+          try {
+            buffered.mark(1);
+            if (buffered.read() == -1) {
+              return false;
+            }
+            buffered.reset();
+            action.accept(read(buffered));
+            return true;
+          } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        }
+      };
+
+    return StreamSupport.stream(tasks, false)
+      .onClose(() -> {
+        try {
+          buffered.close();
+        } catch (final IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+  }
+
+  private static void writeTask(
+    final DataOutputStream output,
+    final TRTask<?> task)
+    throws IOException
+  {
+    final var stack = new ArrayDeque<Iterator<TRTaskItemType>>();
+    writeTaskHeader(output, task);
+    stack.push(task.items().iterator());
+
+    while (!stack.isEmpty()) {
+      final var items = stack.peek();
+      if (!items.hasNext()) {
+        stack.pop();
+        continue;
+      }
+
+      final var item = items.next();
+      if (item instanceof final TRTask<?> subtask) {
+        writeTaskHeader(output, subtask);
+        stack.push(subtask.items().iterator());
+      } else if (item instanceof final TRStep step) {
+        writeStep(output, step);
+      }
+    }
+  }
+
+  private static void writeTaskHeader(
+    final DataOutputStream output,
+    final TRTask<?> task)
+    throws IOException
+  {
+    output.writeByte(TAG_TASK);
+    writeInstant(output, task.timeStarted());
+    writeInstant(output, task.timeEnded());
+    writeAttributes(output, task.attributes());
+
+    final TRTaskResolutionType<?> resolution = task.resolution();
+    if (resolution instanceof final TRTaskSucceeded<?> succeeded) {
+      output.writeByte(RESOLUTION_SUCCEEDED);
+      writeString(output, succeeded.message());
+      if (succeeded.result() instanceof TRNoResult) {
+        output.writeByte(RESULT_NONE);
+      } else {
+        output.writeByte(RESULT_STRING);
+        writeString(output, String.valueOf(succeeded.result()));
+      }
+    } else if (resolution instanceof final TRTaskFailed<?> failed) {
+      output.writeByte(RESOLUTION_FAILED);
+      writeString(output, failed.message());
+      writeException(output, failed.exception().orElse(null), 0);
+    }
+
+    output.writeInt(task.items().size());
+  }
+
+  private static void writeStep(
+    final DataOutputStream output,
+    final TRStep step)
+    throws IOException
+  {
+    output.writeByte(TAG_STEP);
+    writeString(output, step.description());
+    writeInstant(output, step.timeStarted());
+    writeInstant(output, step.timeEnded());
+    writeAttributes(output, step.attributes());
+
+    final var resolution = step.resolution();
+    if (resolution instanceof final TRStepSucceeded succeeded) {
+      output.writeByte(RESOLUTION_SUCCEEDED);
+      writeString(output, succeeded.message());
+    } else if (resolution instanceof final TRStepFailed failed) {
+      output.writeByte(RESOLUTION_FAILED);
+      writeString(output, failed.message());
+      writeException(output, failed.exception().orElse(null), 0);
+    }
+  }
+
+  static void writeAttributes(
+    final DataOutputStream output,
+    final TRAttributes attributes)
+    throws IOException
+  {
+    final var count = attributes.size();
+    output.writeInt(count);
+    for (int index = 0; index < count; ++index) {
+      final var key = attributes.keyAt(index);
+      output.writeByte(key.type().ordinal());
+      writeString(output, key.name());
+      switch (key.type()) {
+        case LONG -> output.writeLong(attributes.longAt(index));
+        case DOUBLE -> output.writeLong(
+          Double.doubleToRawLongBits(attributes.doubleAt(index)));
+        case BOOLEAN -> output.writeBoolean(attributes.booleanAt(index));
+        case STRING -> writeString(output, attributes.stringAt(index));
+      }
+    }
+  }
+
+  static void writeException(
+    final DataOutputStream output,
+    final Throwable exception,
+    final int depth)
+    throws IOException
+  {
+    if (exception == null || depth >= MAXIMUM_CAUSE_DEPTH) {
+      output.writeBoolean(false);
+      return;
+    }
+
+    output.writeBoolean(true);
+    if (exception instanceof final TRArchivedException archived) {
+      writeString(output, archived.className());
+    } else {
+      writeString(output, exception.getClass().getName());
+    }
+
+    writeOptionalString(output, exception.getMessage());
+
+    final var trace = exception.getStackTrace();
+    output.writeInt(trace.length);
+    for (final var element : trace) {
+      writeOptionalString(output, element.getClassLoaderName());
+      writeOptionalString(output, element.getModuleName());
+      writeOptionalString(output, element.getModuleVersion());
+      writeString(output, element.getClassName());
+      writeString(output, element.getMethodName());
+      writeOptionalString(output, element.getFileName());
+      output.writeInt(element.getLineNumber());
+    }
+
+    writeException(output, exception.getCause(), depth + 1);
+  }
+
+  static void writeInstant(
+    final DataOutputStream output,
+    final Instant time)
+    throws IOException
+  {
+    output.writeLong(time.getEpochSecond());
+    output.writeInt(time.getNano());
+  }
+
+  private static void writeOptionalString(
+    final DataOutputStream output,
+    final String text)
+    throws IOException
+  {
+    output.writeBoolean(text != null);
+    if (text != null) {
+      writeString(output, text);
+    }
+  }
+
+  static void writeString(
+    final DataOutputStream output,
+    final String text)
+    throws IOException
+  {
+    final var bytes = text.getBytes(UTF_8);
+    output.writeInt(bytes.length);
+    output.write(bytes);
+  }
+
+  private static TRTask<?> readTask(
+    final ByteBuffer buffer)
+    throws IOException
+  {
+    final var stack = new ArrayDeque<TRPendingTask>();
+    stack.push(readTaskHeader(buffer));
+
+    while (true) {
+      final var pending = stack.peek();
+      if (pending.items.size() < pending.count) {
+        final var tag = buffer.get();
+        switch (tag) {
+          case TAG_TASK -> stack.push(readTaskHeader(buffer));
+          case TAG_STEP -> pending.items.add(readStep(buffer));
+          default -> throw new IOException(
+            "Unrecognized item tag %d.".formatted(Integer.valueOf(tag))
+          );
+        }
+        continue;
+      }
+
+      stack.pop();
+      final var task = pending.toTask();
+      if (stack.isEmpty()) {
+        return task;
+      }
+      stack.peek().items.add(task);
+    }
+  }
+
+  private static TRPendingTask readTaskHeader(
+    final ByteBuffer buffer)
+    throws IOException
+  {
+    final var timeStarted = readInstant(buffer);
+    final var timeEnded = readInstant(buffer);
+    final var attributes = readAttributes(buffer);
+
+    final TRTaskResolutionType<Object> resolution;
+    final var resolutionKind = buffer.get();
+    switch (resolutionKind) {
+      case RESOLUTION_SUCCEEDED -> {
+        final var message = readString(buffer);
+        final var resultKind = buffer.get();
+        resolution = switch (resultKind) {
+          case RESULT_NONE -> new TRTaskSucceeded<>(message, TRNoResult.NO_RESULT);
+          case RESULT_STRING -> new TRTaskSucceeded<>(message, readString(buffer));
+          default -> throw new IOException(
+            "Unrecognized result kind %d.".formatted(Integer.valueOf(resultKind))
+          );
+        };
+      }
+      case RESOLUTION_FAILED -> {
+        final var message = readString(buffer);
+        resolution = new TRTaskFailed<>(message, readException(buffer));
+      }
+      default -> throw new IOException(
+        "Unrecognized resolution kind %d."
+          .formatted(Integer.valueOf(resolutionKind))
+      );
+    }
+
+    final var count = readCount(buffer);
+    return new TRPendingTask(
+      resolution,
+      timeStarted,
+      timeEnded,
+      attributes,
+      count,
+      new ArrayList<>(count)
+    );
+  }
+
+  private record TRPendingTask(
+    TRTaskResolutionType<Object> resolution,
+    Instant timeStarted,
+    Instant timeEnded,
+    TRAttributes attributes,
+    int count,
+    List<TRTaskItemType> items)
+  {
+    TRTask<?> toTask()
+    {
+      return new TRTask<>(
+        this.items,
+        this.resolution,
+        this.timeStarted,
+        this.timeEnded,
+        this.attributes
+      );
+    }
+  }
+
+  private static TRStep readStep(
+    final ByteBuffer buffer)
+    throws IOException
+  {
+    final var description = readString(buffer);
+    final var timeStarted = readInstant(buffer);
+    final var timeEnded = readInstant(buffer);
+    final var attributes = readAttributes(buffer);
+
+    final TRStepResolutionType resolution;
+    final var resolutionKind = buffer.get();
+    switch (resolutionKind) {
+      case RESOLUTION_SUCCEEDED -> {
+        resolution = new TRStepSucceeded(readString(buffer));
+      }
+      case RESOLUTION_FAILED -> {
+        final var message = readString(buffer);
+        resolution = new TRStepFailed(message, readException(buffer));
+      }
+      default -> throw new IOException(
+        "Unrecognized resolution kind %d."
+          .formatted(Integer.valueOf(resolutionKind))
+      );
+    }
+
+    return new TRStep(
+      description,
+      resolution,
+      timeStarted,
+      timeEnded,
+      attributes
+    );
+  }
+
+  @SuppressWarnings("unchecked")
+  static TRAttributes readAttributes(
+    final ByteBuffer buffer)
+    throws IOException
+  {
+    final var count = readCount(buffer);
+    if (count == 0) {
+      return TRAttributes.EMPTY;
+    }
+
+    final var types = TRAttributeType.values();
+    final var attributes = TRAttributes.builder();
+    for (int index = 0; index < count; ++index) {
+      final var typeIndex = buffer.get();
+      if (typeIndex < 0 || typeIndex >= types.length) {
+        throw new IOException(
+          "Unrecognized attribute type %d."
+            .formatted(Integer.valueOf(typeIndex))
+        );
+      }
+
+      final var key = TRAttributeKey.of(readString(buffer), types[typeIndex]);
+      switch (key.type()) {
+        case LONG -> attributes.set(
+          (TRAttributeKey<Long>) key, buffer.getLong());
+        case DOUBLE -> attributes.set(
+          (TRAttributeKey<Double>) key, Double.longBitsToDouble(buffer.getLong()));
+        case BOOLEAN -> attributes.set(
+          (TRAttributeKey<Boolean>) key, buffer.get() != 0);
+        case STRING -> attributes.set(
+          (TRAttributeKey<String>) key, readString(buffer));
+      }
+    }
+    return attributes.build();
+  }
+
+  static Optional<Throwable> readException(
+    final ByteBuffer buffer)
+    throws IOException
+  {
+    return readException(buffer, 0);
+  }
+
+  private static Optional<Throwable> readException(
+    final ByteBuffer buffer,
+    final int depth)
+    throws IOException
+  {
+    if (buffer.get() == 0) {
+      return Optional.empty();
+    }
+    if (depth >= MAXIMUM_CAUSE_DEPTH) {
+      throw new IOException(
+        "Exception causes exceed the maximum depth %d."
+          .formatted(Integer.valueOf(MAXIMUM_CAUSE_DEPTH))
+      );
+    }
+
+    final var className = readString(buffer);
+    final var message = readOptionalString(buffer);
+
+    final var exception = new TRArchivedException(className, message);
+    final var count = readCount(buffer);
+    final var trace = new StackTraceElement[count];
+    for (int index = 0; index < count; ++index) {
+      final var elementLoader = readOptionalString(buffer);
+      final var elementModule = readOptionalString(buffer);
+      final var elementVersion = readOptionalString(buffer);
+      final var elementClass = readString(buffer);
+      final var elementMethod = readString(buffer);
+      final var elementFile = readOptionalString(buffer);
+      trace[index] = new StackTraceElement(
+        elementLoader,
+        elementModule,
+        elementVersion,
+        elementClass,
+        elementMethod,
+        elementFile,
+        buffer.getInt()
+      );
+    }
+    exception.setStackTrace(trace);
+    readException(buffer, depth + 1).ifPresent(exception::initCause);
+    return Optional.of(exception);
+  }
+
+  static Instant readInstant(
+    final ByteBuffer buffer)
+  {
+    final var seconds = buffer.getLong();
+    return Instant.ofEpochSecond(seconds, buffer.getInt());
+  }
+
+  private static int readCount(
+    final ByteBuffer buffer)
+    throws IOException
+  {
+    final var count = buffer.getInt();
+    if (count < 0 || count > buffer.remaining()) {
+      throw new IOException(
+        "Count %d is out of range.".formatted(Integer.valueOf(count))
+      );
+    }
+    return count;
+  }
+
+  private static String readOptionalString(
+    final ByteBuffer buffer)
+    throws IOException
+  {
+    if (buffer.get() == 0) {
+      return null;
+    }
+    return readString(buffer);
+  }
+
+  static String readString(
+    final ByteBuffer buffer)
+    throws IOException
+  {
+    final var length = readCount(buffer);
+    final var bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, UTF_8);
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.core;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>The resource accounting policy for task recorders.</p>
+ *
+ * <p>When a task is accounted, each step records the CPU time consumed and
+ * the number of bytes allocated by the recording thread between the step
+ * beginning and ending, as the {@link #CPU_TIME} and
+ * {@link #ALLOCATED_BYTES} attributes. Values are only recorded if the step
+ * ends on the thread that began it, and only if the JVM supports and has
+ * enabled the respective measurement. Accounting is decided once per root
+ * task and applies to all of its subtasks; sampling policies account only
+ * a fraction of tasks so that the cost stays bounded.</p>
+ */
+
+public final class TRAccounting
+{
+  /**
+   * The CPU time in nanoseconds consumed by the thread during the step.
+   */
+
+  public static final TRAttributeKey<Long> CPU_TIME =
+    TRAttributeKey.ofLong("taskrecorder.cpu_time_ns");
+
+  /**
+   * The number of bytes allocated by the thread during the step.
+   */
+
+  public static final TRAttributeKey<Long> ALLOCATED_BYTES =
+    TRAttributeKey.ofLong("taskrecorder.allocated_bytes");
+
+  private static final TRAccounting DISABLED =
+    new TRAccounting(0L);
+  private static final TRAccounting ENABLED =
+    new TRAccounting(1L);
+
+  private static final java.lang.management.ThreadMXBean THREADS =
+    ManagementFactory.getThreadMXBean();
+  private static final com.sun.management.ThreadMXBean THREADS_EXTENDED =
+    THREADS instanceof final com.sun.management.ThreadMXBean extended
+      ? extended
+      : null;
+
+  private final long interval;
+  private final AtomicLong counter;
+
+  private TRAccounting(
+    final long inInterval)
+  {
+    this.interval = inInterval;
+    this.counter = new AtomicLong();
+  }
+
+  /**
+   * @return A policy that accounts no tasks
+   */
+
+  public static TRAccounting disabled()
+  {
+    return DISABLED;
+  }
+
+  /**
+   * @return A policy that accounts every task
+   */
+
+  public static TRAccounting enabled()
+  {
+    return ENABLED;
+  }
+
+  /**
+   * A policy that accounts one in every {@code interval} root tasks.
+   *
+   * @param interval The sampling interval
+   *
+   * @return A sampling policy
+   */
+
+  public static TRAccounting sampled(
+    final long interval)
+  {
+    if (interval < 1L) {
+      throw new IllegalArgumentException(
+        "Sampling interval %d must be positive."
+          .formatted(Long.valueOf(interval))
+      );
+    }
+    return new TRAccounting(interval);
+  }
+
+  @Override
+  public String toString()
+  {
+    return "[TRAccounting 1/%d]".formatted(Long.valueOf(this.interval));
+  }
+
+  /**
+   * @return {@code true} if the next root task should be accounted
+   */
+
+  boolean sample()
+  {
+    if (this.interval <= 1L) {
+      return this.interval == 1L;
+    }
+    return this.counter.getAndIncrement() % this.interval == 0L;
+  }
+
+  /**
+   * @return The CPU time consumed by the current thread, or {@code -1} if
+   * it cannot be measured
+   */
+
+  static long cpuTime()
+  {
+    return THREADS.isCurrentThreadCpuTimeSupported()
+      ? THREADS.getCurrentThreadCpuTime()
+      : -1L;
+  }
+
+  /**
+   * @return The number of bytes allocated by the current thread, or
+   * {@code -1} if it cannot be measured
+   */
+
+  static long allocatedBytes()
+  {
+    return THREADS_EXTENDED != null
+      ? THREADS_EXTENDED.getCurrentThreadAllocatedBytes()
+      : -1L;
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.core;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * A task that was still being recorded when a registry was inspected.
+ *
+ * @param description The task description
+ * @param thread      The name of the thread that created the recorder
+ * @param age         The time elapsed since the recorder was created
+ * @param progress    The progress of the task
+ */
+
+public record TRActiveTask(
+  String description,
+  String thread,
+  Duration age,
+  TRTaskProgress progress)
+{
+  /**
+   * A task that was still being recorded when a registry was inspected.
+   *
+   * @param description The task description
+   * @param thread      The name of the thread that created the recorder
+   * @param age         The time elapsed since the recorder was created
+   * @param progress    The progress of the task
+   */
+
+  public TRActiveTask
+  {
+    Objects.requireNonNull(description, "description");
+    Objects.requireNonNull(thread, "thread");
+    Objects.requireNonNull(age, "age");
+    Objects.requireNonNull(progress, "progress");
+  }
+
+  /**
+   * @return A human-readable single-line rendering of the task
+   */
+
+  public String render()
+  {
+    return "\"%s\" on thread \"%s\" for %s: %s (steps %d, failed %d, subtasks %d, failed %d)"
+      .formatted(
+        this.description,
+        this.thread,
+        this.age,
+        String.join(" > ", this.progress.path()),
+        Long.valueOf(this.progress.steps()),
+        Long.valueOf(this.progress.stepsFailed()),
+        Long.valueOf(this.progress.subtasks()),
+        Long.valueOf(this.progress.subtasksFailed())
+      );
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.core;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The key of a typed attribute. Keys are interned: there is exactly one key
+ * for each name, and keys can therefore be compared by identity. A name
+ * cannot be used for keys of two different types.
+ *
+ * @param <T> The type of attribute values
+ */
+
+public final class TRAttributeKey<T>
+{
+  private static final ConcurrentHashMap<String, TRAttributeKey<?>> KEYS =
+    new ConcurrentHashMap<>();
+
+  private final String name;
+  private final TRAttributeType type;
+
+  private TRAttributeKey(
+    final String inName,
+    final TRAttributeType inType)
+  {
+    this.name = inName;
+    this.type = inType;
+  }
+
+  /**
+   * Obtain the key for attributes with the given name and type.
+   *
+   * @param name The name
+   * @param type The type
+   *
+   * @return The key
+   *
+   * @throws IllegalArgumentException If a key with the same name but a
+   *                                  different type exists
+   */
+
+  public static TRAttributeKey<?> of(
+    final String name,
+    final TRAttributeType type)
+    throws IllegalArgumentException
+  {
+    Objects.requireNonNull(name, "name");
+    Objects.requireNonNull(type, "type");
+
+    if (name.isEmpty()) {
+      throw new IllegalArgumentException("Attribute names cannot be empty.");
+    }
+
+    final var key =
+      KEYS.computeIfAbsent(name, n -> new TRAttributeKey<>(n, type));
+
+    if (key.type != type) {
+      throw new IllegalArgumentException(
+        "Attribute '%s' is already registered with type %s (requested %s)."
+          .formatted(name, key.type, type)
+      );
+    }
+    return key;
+  }
+
+  /**
+   * @param name The name
+   *
+   * @return The key for integer attributes with the given name
+   *
+   * @see #of(String, TRAttributeType)
+   */
+
+  @SuppressWarnings("unchecked")
+  public static TRAttributeKey<Long> ofLong(
+    final String name)
+  {
+    return (TRAttributeKey<Long>) of(name, TRAttributeType.LONG);
+  }
+
+  /**
+   * @param name The name
+   *
+   * @return The key for floating point attributes with the given name
+   *
+   * @see #of(String, TRAttributeType)
+   */
+
+  @SuppressWarnings("unchecked")
+  public static TRAttributeKey<Double> ofDouble(
+    final String name)
+  {
+    return (TRAttributeKey<Double>) of(name, TRAttributeType.DOUBLE);
+  }
+
+  /**
+   * @param name The name
+   *
+   * @return The key for boolean attributes with the given name
+   *
+   * @see #of(String, TRAttributeType)
+   */
+
+  @SuppressWarnings("unchecked")
+  public static TRAttributeKey<Boolean> ofBoolean(
+    final String name)
+  {
+    return (TRAttributeKey<Boolean>) of(name, TRAttributeType.BOOLEAN);
+  }
+
+  /**
+   * @param name The name
+   *
+   * @return The key for string attributes with the given name
+   *
+   * @see #of(String, TRAttributeType)
+   */
+
+  @SuppressWarnings("unchecked")
+  public static TRAttributeKey<String> ofString(
+    final String name)
+  {
+    return (TRAttributeKey<String>) of(name, TRAttributeType.STRING);
+  }
+
+  /**
+   * @return The attribute name
+   */
+
+  public String name()
+  {
+    return this.name;
+  }
+
+  /**
+   * @return The attribute type
+   */
+
+  public TRAttributeType type()
+  {
+    return this.type;
+  }
+
+  @Override
+  public String toString()
+  {
+    return "[TRAttributeKey %s %s]".formatted(this.name, this.type);
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.core;
+
+/**
+ * A recorder that accepts typed attributes. Recorders that predate
+ * attributes inherit implementations that reject them.
+ */
+
+public interface TRAttributeRecorderType
+{
+  /**
+   * Set an integer attribute, replacing any existing value.
+   *
+   * @param key   The key
+   * @param value The value
+   *
+   * @throws UnsupportedOperationException If the recorder does not support
+   *                                       attributes
+   */
+
+  default void setAttribute(
+    final TRAttributeKey<Long> key,
+    final long value)
+  {
+    throw unsupported(key);
+  }
+
+  /**
+   * Set a floating point attribute, replacing any existing value.
+   *
+   * @param key   The key
+   * @param value The value
+   *
+   * @throws UnsupportedOperationException If the recorder does not support
+   *                                       attributes
+   */
+
+  default void setAttribute(
+    final TRAttributeKey<Double> key,
+    final double value)
+  {
+    throw unsupported(key);
+  }
+
+  /**
+   * Set a boolean attribute, replacing any existing value.
+   *
+   * @param key   The key
+   * @param value The value
+   *
+   * @throws UnsupportedOperationException If the recorder does not support
+   *                                       attributes
+   */
+
+  default void setAttribute(
+    final TRAttributeKey<Boolean> key,
+    final boolean value)
+  {
+    throw unsupported(key);
+  }
+
+  /**
+   * Set a string attribute, replacing any existing value.
+   *
+   * @param key   The key
+   * @param value The value
+   *
+   * @throws UnsupportedOperationException If the recorder does not support
+   *                                       attributes
+   */
+
+  default void setAttribute(
+    final TRAttributeKey<String> key,
+    final String value)
+  {
+    throw unsupported(key);
+  }
+
+  private static UnsupportedOperationException unsupported(
+    final TRAttributeKey<?> key)
+  {
+    return new UnsupportedOperationException(
+      "This recorder does not support attributes (key %s)."
+        .formatted(key.name())
+    );
+  }
+}
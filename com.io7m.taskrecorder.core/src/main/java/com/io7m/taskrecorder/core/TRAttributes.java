@@ -0,0 +1,489 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.core;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.OptionalLong;
+
+/**
+ * An immutable set of typed attributes, in insertion order. Integer,
+ * floating point, and boolean values are held in a primitive array; string
+ * values are held in a separate array that is only allocated if there are
+ * string attributes.
+ */
+
+public final class TRAttributes
+{
+  /**
+   * The empty set of attributes.
+   */
+
+  public static final TRAttributes EMPTY =
+    new TRAttributes(new TRAttributeKey<?>[0], new long[0], null);
+
+  private final TRAttributeKey<?>[] keys;
+  private final long[] values;
+  private final String[] strings;
+
+  private TRAttributes(
+    final TRAttributeKey<?>[] inKeys,
+    final long[] inValues,
+    final String[] inStrings)
+  {
+    this.keys = inKeys;
+    this.values = inValues;
+    this.strings = inStrings;
+  }
+
+  /**
+   * @return A new mutable attribute builder
+   */
+
+  public static Builder builder()
+  {
+    return new Builder();
+  }
+
+  /**
+   * @return The number of attributes
+   */
+
+  public int size()
+  {
+    return this.keys.length;
+  }
+
+  /**
+   * @return {@code true} if there are no attributes
+   */
+
+  public boolean isEmpty()
+  {
+    return this.keys.length == 0;
+  }
+
+  /**
+   * @return The attribute keys, in insertion order
+   */
+
+  public List<TRAttributeKey<?>> keys()
+  {
+    return List.of(this.keys);
+  }
+
+  /**
+   * @param index The attribute index
+   *
+   * @return The key of the attribute at the given index
+   */
+
+  public TRAttributeKey<?> keyAt(
+    final int index)
+  {
+    return this.keys[index];
+  }
+
+  /**
+   * @param index The attribute index
+   *
+   * @return The value of the integer attribute at the given index
+   */
+
+  public long longAt(
+    final int index)
+  {
+    this.checkType(index, TRAttributeType.LONG);
+    return this.values[index];
+  }
+
+  /**
+   * @param index The attribute index
+   *
+   * @return The value of the floating point attribute at the given index
+   */
+
+  public double doubleAt(
+    final int index)
+  {
+    this.checkType(index, TRAttributeType.DOUBLE);
+    return Double.longBitsToDouble(this.values[index]);
+  }
+
+  /**
+   * @param index The attribute index
+   *
+   * @return The value of the boolean attribute at the given index
+   */
+
+  public boolean booleanAt(
+    final int index)
+  {
+    this.checkType(index, TRAttributeType.BOOLEAN);
+    return this.values[index] != 0L;
+  }
+
+  /**
+   * @param index The attribute index
+   *
+   * @return The value of the string attribute at the given index
+   */
+
+  public String stringAt(
+    final int index)
+  {
+    this.checkType(index, TRAttributeType.STRING);
+    return this.strings[index];
+  }
+
+  /**
+   * @param index The attribute index
+   *
+   * @return The boxed value of the attribute at the given index
+   */
+
+  public Object valueAt(
+    final int index)
+  {
+    return switch (this.keys[index].type()) {
+      case LONG -> Long.valueOf(this.longAt(index));
+      case DOUBLE -> Double.valueOf(this.doubleAt(index));
+      case BOOLEAN -> Boolean.valueOf(this.booleanAt(index));
+      case STRING -> this.stringAt(index);
+    };
+  }
+
+  private void checkType(
+    final int index,
+    final TRAttributeType type)
+  {
+    final var key = this.keys[index];
+    if (key.type() != type) {
+      throw new IllegalArgumentException(
+        "Attribute '%s' has type %s, not %s."
+          .formatted(key.name(), key.type(), type)
+      );
+    }
+  }
+
+  private int indexOf(
+    final TRAttributeKey<?> key)
+  {
+    Objects.requireNonNull(key, "key");
+    return indexOf(this.keys, this.keys.length, key);
+  }
+
+  private static int indexOf(
+    final TRAttributeKey<?>[] keys,
+    final int count,
+    final TRAttributeKey<?> key)
+  {
+    for (int index = 0; index < count; ++index) {
+      if (keys[index] == key) {
+        return index;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @param key The key
+   *
+   * @return {@code true} if an attribute with the given key is present
+   */
+
+  public boolean contains(
+    final TRAttributeKey<?> key)
+  {
+    return this.indexOf(key) >= 0;
+  }
+
+  /**
+   * @param key The key
+   *
+   * @return The value of the given integer attribute, if present
+   */
+
+  public OptionalLong getLong(
+    final TRAttributeKey<Long> key)
+  {
+    final var index = this.indexOf(key);
+    if (index < 0) {
+      return OptionalLong.empty();
+    }
+    return OptionalLong.of(this.longAt(index));
+  }
+
+  /**
+   * @param key The key
+   *
+   * @return The value of the given floating point attribute, if present
+   */
+
+  public OptionalDouble getDouble(
+    final TRAttributeKey<Double> key)
+  {
+    final var index = this.indexOf(key);
+    if (index < 0) {
+      return OptionalDouble.empty();
+    }
+    return OptionalDouble.of(this.doubleAt(index));
+  }
+
+  /**
+   * @param key The key
+   *
+   * @return The value of the given attribute, if present
+   */
+
+  public <T> Optional<T> get(
+    final TRAttributeKey<T> key)
+  {
+    final var index = this.indexOf(key);
+    if (index < 0) {
+      return Optional.empty();
+    }
+    @SuppressWarnings("unchecked") final var value = (T) this.valueAt(index);
+    return Optional.of(value);
+  }
+
+  @Override
+  public boolean equals(
+    final Object other)
+  {
+    if (this == other) {
+      return true;
+    }
+    if (!(other instanceof final TRAttributes that)) {
+      return false;
+    }
+    return Arrays.equals(this.keys, that.keys)
+           && Arrays.equals(this.values, that.values)
+           && Arrays.equals(this.strings, that.strings);
+  }
+
+  @Override
+  public int hashCode()
+  {
+    var result = Arrays.hashCode(this.keys);
+    result = 31 * result + Arrays.hashCode(this.values);
+    result = 31 * result + Arrays.hashCode(this.strings);
+    return result;
+  }
+
+  @Override
+  public String toString()
+  {
+    final var text = new StringBuilder(16 * this.keys.length + 2);
+    text.append('{');
+    for (int index = 0; index < this.keys.length; ++index) {
+      if (index > 0) {
+        text.append(", ");
+      }
+      text.append(this.keys[index].name());
+      text.append('=');
+      text.append(this.valueAt(index));
+    }
+    text.append('}');
+    return text.toString();
+  }
+
+  /**
+   * A mutable builder of attributes. Setting an attribute that is already
+   * present replaces its value in place.
+   */
+
+  public static final class Builder
+  {
+    private TRAttributeKey<?>[] keys;
+    private long[] values;
+    private String[] strings;
+    private int count;
+
+    private Builder()
+    {
+      this.keys = new TRAttributeKey<?>[4];
+      this.values = new long[4];
+    }
+
+    private int slot(
+      final TRAttributeKey<?> key,
+      final TRAttributeType type)
+    {
+      Objects.requireNonNull(key, "key");
+
+      if (key.type() != type) {
+        throw new IllegalArgumentException(
+          "Attribute '%s' has type %s, not %s."
+            .formatted(key.name(), key.type(), type)
+        );
+      }
+
+      final var existing = indexOf(this.keys, this.count, key);
+      if (existing >= 0) {
+        return existing;
+      }
+
+      if (this.count == this.keys.length) {
+        final var size = this.count * 2;
+        this.keys = Arrays.copyOf(this.keys, size);
+        this.values = Arrays.copyOf(this.values, size);
+        if (this.strings != null) {
+          this.strings = Arrays.copyOf(this.strings, size);
+        }
+      }
+
+      final var index = this.count;
+      this.keys[index] = key;
+      this.count = index + 1;
+      return index;
+    }
+
+    /**
+     * Set an integer attribute.
+     *
+     * @param key   The key
+     * @param value The value
+     *
+     * @return this
+     */
+
+    public Builder set(
+      final TRAttributeKey<Long> key,
+      final long value)
+    {
+      final var index = this.slot(key, TRAttributeType.LONG);
+      this.values[index] = value;
+      return this;
+    }
+
+    /**
+     * Set a floating point attribute.
+     *
+     * @param key   The key
+     * @param value The value
+     *
+     * @return this
+     */
+
+    public Builder set(
+      final TRAttributeKey<Double> key,
+      final double value)
+    {
+      final var index = this.slot(key, TRAttributeType.DOUBLE);
+      this.values[index] = Double.doubleToRawLongBits(value);
+      return this;
+    }
+
+    /**
+     * Set a boolean attribute.
+     *
+     * @param key   The key
+     * @param value The value
+     *
+     * @return this
+     */
+
+    public Builder set(
+      final TRAttributeKey<Boolean> key,
+      final boolean value)
+    {
+      final var index = this.slot(key, TRAttributeType.BOOLEAN);
+      this.values[index] = value ? 1L : 0L;
+      return this;
+    }
+
+    /**
+     * Set a string attribute.
+     *
+     * @param key   The key
+     * @param value The value
+     *
+     * @return this
+     */
+
+    public Builder set(
+      final TRAttributeKey<String> key,
+      final String value)
+    {
+      Objects.requireNonNull(value, "value");
+
+      final var index = this.slot(key, TRAttributeType.STRING);
+      if (this.strings == null) {
+        this.strings = new String[this.keys.length];
+      }
+      this.strings[index] = value;
+      return this;
+    }
+
+    /**
+     * Set all of the given attributes.
+     *
+     * @param attributes The attributes
+     *
+     * @return this
+     */
+
+    @SuppressWarnings("unchecked")
+    public Builder setAll(
+      final TRAttributes attributes)
+    {
+      for (int index = 0; index < attributes.size(); ++index) {
+        final var key = attributes.keyAt(index);
+        switch (key.type()) {
+          case LONG -> this.set(
+            (TRAttributeKey<Long>) key, attributes.longAt(index));
+          case DOUBLE -> this.set(
+            (TRAttributeKey<Double>) key, attributes.doubleAt(index));
+          case BOOLEAN -> this.set(
+            (TRAttributeKey<Boolean>) key, attributes.booleanAt(index));
+          case STRING -> this.set(
+            (TRAttributeKey<String>) key, attributes.stringAt(index));
+        }
+      }
+      return this;
+    }
+
+    /**
+     * @return An immutable copy of the attributes set so far
+     */
+
+    public TRAttributes build()
+    {
+      if (this.count == 0) {
+        return EMPTY;
+      }
+
+      final String[] stringsCopy;
+      if (this.strings == null) {
+        stringsCopy = null;
+      } else {
+        stringsCopy = Arrays.copyOf(this.strings, this.count);
+      }
+
+      return new TRAttributes(
+        Arrays.copyOf(this.keys, this.count),
+        Arrays.copyOf(this.values, this.count),
+        stringsCopy
+      );
+    }
+  }
+}
@@ -0,0 +1,465 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.core;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Objects;
+
+/**
+ * The storage used by off-heap task recorders. Items are stored as
+ * fixed-width records in direct memory, with all strings interned in a
+ * single table. The string table, results, exceptions, and attributes are
+ * held on the heap.
+ */
+
+final class TROffHeapStore
+{
+  static final int KIND_STEP = 0;
+  static final int KIND_TASK = 1;
+  static final int KIND_GRAFT = 2;
+
+  static final int RESOLUTION_NONE = 0;
+  static final int RESOLUTION_SUCCEEDED = 1;
+  static final int RESOLUTION_FAILED = 2;
+
+  static final int NONE = -1;
+
+  private static final int FIELD_TIME_STARTED_SECONDS = 0;
+  private static final int FIELD_TIME_ENDED_SECONDS = 8;
+  private static final int FIELD_TIME_STARTED_NANOS = 16;
+  private static final int FIELD_TIME_ENDED_NANOS = 20;
+  private static final int FIELD_KIND = 24;
+  private static final int FIELD_DESCRIPTION = 28;
+  private static final int FIELD_RESOLUTION = 32;
+  private static final int FIELD_MESSAGE = 36;
+  private static final int FIELD_EXCEPTION = 40;
+  private static final int FIELD_RESULT = 44;
+  private static final int FIELD_NEXT = 48;
+  private static final int FIELD_CHILD_FIRST = 52;
+  private static final int FIELD_CHILD_LAST = 56;
+  private static final int FIELD_ATTRIBUTES = 60;
+  private static final int RECORD_SIZE = 64;
+
+  private static final int CHUNK_SHIFT = 10;
+  private static final int CHUNK_RECORDS = 1 << CHUNK_SHIFT;
+  private static final int CHUNK_MASK = CHUNK_RECORDS - 1;
+
+  private final ArrayList<ByteBuffer> chunks;
+  private final ArrayList<String> strings;
+  private final HashMap<String, Integer> stringIndices;
+  private final ArrayList<Throwable> exceptions;
+  private final ArrayList<Object> results;
+  private final ArrayList<TRAttributes.Builder> attributes;
+  private int recordCount;
+  private boolean closed;
+
+  TROffHeapStore()
+  {
+    this.chunks = new ArrayList<>();
+    this.strings = new ArrayList<>();
+    this.stringIndices = new HashMap<>();
+    this.exceptions = new ArrayList<>();
+    this.results = new ArrayList<>();
+    this.attributes = new ArrayList<>();
+    this.recordCount = 0;
+  }
+
+  /**
+   * Allocate a new record.
+   *
+   * @param kind        The record kind
+   * @param description The description
+   * @param timeStarted The time the item started
+   *
+   * @return The index of the new record
+   */
+
+  int allocate(
+    final int kind,
+    final String description,
+    final Instant timeStarted)
+  {
+    this.checkNotClosed();
+
+    final var index = this.recordCount;
+    if ((index & CHUNK_MASK) == 0) {
+      this.chunks.add(
+        ByteBuffer.allocateDirect(CHUNK_RECORDS * RECORD_SIZE)
+          .order(ByteOrder.nativeOrder())
+      );
+    }
+    this.recordCount = index + 1;
+
+    this.putInt(index, FIELD_KIND, kind);
+    this.putInt(index, FIELD_DESCRIPTION, this.intern(description));
+    this.putInt(index, FIELD_RESOLUTION, RESOLUTION_NONE);
+    this.putInt(index, FIELD_MESSAGE, NONE);
+    this.putInt(index, FIELD_EXCEPTION, NONE);
+    this.putInt(index, FIELD_RESULT, NONE);
+    this.putInt(index, FIELD_NEXT, NONE);
+    this.putInt(index, FIELD_CHILD_FIRST, NONE);
+    this.putInt(index, FIELD_CHILD_LAST, NONE);
+    this.putInt(index, FIELD_ATTRIBUTES, NONE);
+    this.putLong(index, FIELD_TIME_STARTED_SECONDS, timeStarted.getEpochSecond());
+    this.putInt(index, FIELD_TIME_STARTED_NANOS, timeStarted.getNano());
+    this.putLong(index, FIELD_TIME_ENDED_SECONDS, 0L);
+    this.putInt(index, FIELD_TIME_ENDED_NANOS, NONE);
+    return index;
+  }
+
+  /**
+   * Allocate a new record holding a completed task. The task is retained
+   * as-is, and is not decomposed into records.
+   *
+   * @param task The task
+   *
+   * @return The index of the new record
+   */
+
+  int allocateGraft(
+    final TRTask<?> task)
+  {
+    final var index =
+      this.allocate(KIND_GRAFT, task.description(), task.timeStarted());
+    this.putInt(index, FIELD_RESULT, store(this.results, NONE, task));
+    return index;
+  }
+
+  /**
+   * Set the end time of the given record.
+   *
+   * @param index The record
+   * @param time  The end time
+   */
+
+  void setTimeEnded(
+    final int index,
+    final Instant time)
+  {
+    this.checkNotClosed();
+
+    this.putLong(index, FIELD_TIME_ENDED_SECONDS, time.getEpochSecond());
+    this.putInt(index, FIELD_TIME_ENDED_NANOS, time.getNano());
+  }
+
+  /**
+   * Set the end time of the given record if it has not already been set.
+   *
+   * @param index The record
+   * @param time  The end time
+   */
+
+  void endIfOpen(
+    final int index,
+    final Instant time)
+  {
+    if (this.getInt(index, FIELD_TIME_ENDED_NANOS) == NONE) {
+      this.setTimeEnded(index, time);
+    }
+  }
+
+  Instant timeStarted(
+    final int index)
+  {
+    return Instant.ofEpochSecond(
+      this.getLong(index, FIELD_TIME_STARTED_SECONDS),
+      this.getInt(index, FIELD_TIME_STARTED_NANOS)
+    );
+  }
+
+  /**
+   * @param index The record
+   *
+   * @return The end time of the record, clamped to the start time, or the
+   * start time if no end time has been set
+   */
+
+  Instant timeEnded(
+    final int index)
+  {
+    final var started = this.timeStarted(index);
+    final var nanos = this.getInt(index, FIELD_TIME_ENDED_NANOS);
+    if (nanos == NONE) {
+      return started;
+    }
+
+    final var ended = Instant.ofEpochSecond(
+      this.getLong(index, FIELD_TIME_ENDED_SECONDS),
+      nanos
+    );
+    return ended.isBefore(started) ? started : ended;
+  }
+
+  /**
+   * Append a record to the list of children of the given task record.
+   *
+   * @param task  The task record
+   * @param child The child record
+   */
+
+  void appendChild(
+    final int task,
+    final int child)
+  {
+    this.checkNotClosed();
+
+    final var last = this.getInt(task, FIELD_CHILD_LAST);
+    if (last == NONE) {
+      this.putInt(task, FIELD_CHILD_FIRST, child);
+    } else {
+      this.putInt(last, FIELD_NEXT, child);
+    }
+    this.putInt(task, FIELD_CHILD_LAST, child);
+  }
+
+  /**
+   * Set the resolution of the given record.
+   *
+   * @param index      The record
+   * @param resolution The resolution kind
+   * @param message    The resolution message
+   * @param exception  The exception, if any
+   * @param result     The result value, if any
+   */
+
+  void setResolution(
+    final int index,
+    final int resolution,
+    final String message,
+    final Throwable exception,
+    final Object result)
+  {
+    this.checkNotClosed();
+
+    this.putInt(index, FIELD_RESOLUTION, resolution);
+    this.putInt(index, FIELD_MESSAGE, this.intern(message));
+    this.putInt(
+      index,
+      FIELD_EXCEPTION,
+      store(this.exceptions, this.getInt(index, FIELD_EXCEPTION), exception)
+    );
+    this.putInt(
+      index,
+      FIELD_RESULT,
+      store(this.results, this.getInt(index, FIELD_RESULT), result)
+    );
+  }
+
+  private static <A> int store(
+    final ArrayList<A> values,
+    final int existing,
+    final A value)
+  {
+    if (value == null) {
+      return NONE;
+    }
+    if (existing != NONE) {
+      values.set(existing, value);
+      return existing;
+    }
+    values.add(value);
+    return values.size() - 1;
+  }
+
+  int kind(
+    final int index)
+  {
+    return this.getInt(index, FIELD_KIND);
+  }
+
+  String description(
+    final int index)
+  {
+    return this.strings.get(this.getInt(index, FIELD_DESCRIPTION));
+  }
+
+  int resolution(
+    final int index)
+  {
+    return this.getInt(index, FIELD_RESOLUTION);
+  }
+
+  String message(
+    final int index)
+  {
+    final var id = this.getInt(index, FIELD_MESSAGE);
+    return id == NONE ? "" : this.strings.get(id);
+  }
+
+  Throwable exception(
+    final int index)
+  {
+    final var id = this.getInt(index, FIELD_EXCEPTION);
+    return id == NONE ? null : this.exceptions.get(id);
+  }
+
+  Object result(
+    final int index)
+  {
+    final var id = this.getInt(index, FIELD_RESULT);
+    return id == NONE ? null : this.results.get(id);
+  }
+
+  /**
+   * @param index The record
+   *
+   * @return The mutable attributes of the given record
+   */
+
+  TRAttributes.Builder attributesFor(
+    final int index)
+  {
+    final var id = this.getInt(index, FIELD_ATTRIBUTES);
+    if (id != NONE) {
+      return this.attributes.get(id);
+    }
+
+    final var builder = TRAttributes.builder();
+    this.attributes.add(builder);
+    this.putInt(index, FIELD_ATTRIBUTES, this.attributes.size() - 1);
+    return builder;
+  }
+
+  TRAttributes attributes(
+    final int index)
+  {
+    final var id = this.getInt(index, FIELD_ATTRIBUTES);
+    return id == NONE ? TRAttributes.EMPTY : this.attributes.get(id).build();
+  }
+
+  int childFirst(
+    final int index)
+  {
+    return this.getInt(index, FIELD_CHILD_FIRST);
+  }
+
+  int next(
+    final int index)
+  {
+    return this.getInt(index, FIELD_NEXT);
+  }
+
+  /**
+   * @return The number of records allocated
+   */
+
+  int recordCount()
+  {
+    return this.recordCount;
+  }
+
+  /**
+   * @return The number of unique strings interned
+   */
+
+  int stringCount()
+  {
+    return this.strings.size();
+  }
+
+  /**
+   * @return {@code true} if the store has been closed
+   */
+
+  boolean isClosed()
+  {
+    return this.closed;
+  }
+
+  /**
+   * Drop all references to the storage. Any subsequent access to the store
+   * will fail. The direct buffers are freed by the garbage collector, not
+   * by this method.
+   */
+
+  void close()
+  {
+    this.closed = true;
+    this.chunks.clear();
+    this.chunks.trimToSize();
+    this.strings.clear();
+    this.stringIndices.clear();
+    this.exceptions.clear();
+    this.results.clear();
+    this.attributes.clear();
+    this.recordCount = 0;
+  }
+
+  private int intern(
+    final String text)
+  {
+    Objects.requireNonNull(text, "text");
+
+    final var existing = this.stringIndices.get(text);
+    if (existing != null) {
+      return existing.intValue();
+    }
+
+    final var index = this.strings.size();
+    this.strings.add(text);
+    this.stringIndices.put(text, Integer.valueOf(index));
+    return index;
+  }
+
+  private void checkNotClosed()
+  {
+    if (this.closed) {
+      throw new IllegalStateException("The recorder storage has been closed.");
+    }
+  }
+
+  private int getInt(
+    final int index,
+    final int field)
+  {
+    this.checkNotClosed();
+    return this.chunks.get(index >>> CHUNK_SHIFT)
+      .getInt(((index & CHUNK_MASK) * RECORD_SIZE) + field);
+  }
+
+  private long getLong(
+    final int index,
+    final int field)
+  {
+    this.checkNotClosed();
+    return this.chunks.get(index >>> CHUNK_SHIFT)
+      .getLong(((index & CHUNK_MASK) * RECORD_SIZE) + field);
+  }
+
+  private void putLong(
+    final int index,
+    final int field,
+    final long value)
+  {
+    this.chunks.get(index >>> CHUNK_SHIFT)
+      .putLong(((index & CHUNK_MASK) * RECORD_SIZE) + field, value);
+  }
+
+  private void putInt(
+    final int index,
+    final int field,
+    final int value)
+  {
+    this.chunks.get(index >>> CHUNK_SHIFT)
+      .putInt(((index & CHUNK_MASK) * RECORD_SIZE) + field, value);
+  }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.core;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>A registry of open task recorders, used to produce diagnostic dumps of
+ * all tasks that are currently being recorded.</p>
+ *
+ * <p>The global registry is disabled by default. Whilst it is enabled,
+ * every root recorder created by {@link TRTaskRecorder} or
+ * {@link TRTaskRecorderOffHeap} registers itself on creation and
+ * deregisters itself on closing. Recorders are held through weak
+ * references, so recorders that are abandoned without being closed do not
+ * leak. Registrations are spread across several independent stripes chosen
+ * by thread, so that recorders created on different threads rarely contend.
+ * Inspecting the registry reads the progress views of the recorders, and
+ * so never blocks the threads recording tasks.</p>
+ */
+
+public final class TRRegistry
+{
+  private static final TRRegistry GLOBAL = new TRRegistry();
+
+  private final List<Set<TREntry>> stripes;
+  private final ReferenceQueue<TRTaskRecorderType<?>> cleared;
+  private volatile boolean enabled;
+
+  private TRRegistry()
+  {
+    final var count =
+      Integer.highestOneBit(
+        Math.max(1, Runtime.getRuntime().availableProcessors()) * 4 - 1);
+
+    final var stripeList = new ArrayList<Set<TREntry>>(count);
+    for (int index = 0; index < count; ++index) {
+      stripeList.add(ConcurrentHashMap.newKeySet());
+    }
+    this.stripes = List.copyOf(stripeList);
+    this.cleared = new ReferenceQueue<>();
+  }
+
+  /**
+   * @return The global registry
+   */
+
+  public static TRRegistry global()
+  {
+    return GLOBAL;
+  }
+
+  /**
+   * @return {@code true} if recorders are registered as they are created
+   */
+
+  public boolean isEnabled()
+  {
+    return this.enabled;
+  }
+
+  /**
+   * Enable or disable the registry. Disabling the registry does not remove
+   * recorders that are already registered.
+   *
+   * @param inEnabled {@code true} if recorders should be registered
+   */
+
+  public void setEnabled(
+    final boolean inEnabled)
+  {
+    this.enabled = inEnabled;
+  }
+
+  /**
+   * @return The number of registered recorders
+   */
+
+  public int size()
+  {
+    this.expunge();
+
+    var size = 0;
+    for (final var stripe : this.stripes) {
+      size += stripe.size();
+    }
+    return size;
+  }
+
+  /**
+   * @return The tasks of all registered recorders, oldest first
+   */
+
+  public List<TRActiveTask> activeTasks()
+  {
+    this.expunge();
+
+    final var now = System.nanoTime();
+    final var tasks = new ArrayList<TRActiveTask>();
+    for (final var stripe : this.stripes) {
+      for (final var entry : stripe) {
+        final var recorder = entry.get();
+        if (recorder == null) {
+          continue;
+        }
+
+        final var progress = recorder.progress();
+        tasks.add(new TRActiveTask(
+          progress.description(),
+          entry.thread,
+          Duration.ofNanos(now - entry.timeCreated),
+          progress.snapshot()
+        ));
+      }
+    }
+
+    tasks.sort(Comparator.comparing(TRActiveTask::age).reversed());
+    return List.copyOf(tasks);
+  }
+
+  /**
+   * @return A human-readable rendering of all registered recorders, one per
+   * line, oldest first
+   */
+
+  public String dump()
+  {
+    final var text = new StringBuilder(256);
+    for (final var task : this.activeTasks()) {
+      text.append(task.render());
+      text.append(System.lineSeparator());
+    }
+    return text.toString();
+  }
+
+  @Override
+  public String toString()
+  {
+    return "[TRRegistry (%s)]".formatted(this.enabled ? "enabled" : "disabled");
+  }
+
+  /**
+   * Register the given recorder if the registry is enabled.
+   *
+   * @param recorder The recorder
+   *
+   * @return The registration, or {@code null} if the registry is disabled
+   */
+
+  TREntry register(
+    final TRTaskRecorderType<?> recorder)
+  {
+    if (!this.enabled) {
+      return null;
+    }
+
+    this.expunge();
+
+    final var thread = Thread.currentThread();
+    final var stripe =
+      (int) (thread.threadId() & (this.stripes.size() - 1));
+    final var entry =
+      new TREntry(recorder, this.cleared, stripe, thread.getName());
+    this.stripes.get(stripe).add(entry);
+    return entry;
+  }
+
+  /**
+   * Remove the given registration.
+   *
+   * @param entry The registration, or {@code null}
+   */
+
+  void deregister(
+    final TREntry entry)
+  {
+    if (entry != null) {
+      this.stripes.get(entry.stripe).remove(entry);
+      entry.clear();
+    }
+  }
+
+  private void expunge()
+  {
+    while (true) {
+      final var reference = this.cleared.poll();
+      if (reference == null) {
+        return;
+      }
+      final var entry = (TREntry) reference;
+      this.stripes.get(entry.stripe).remove(entry);
+    }
+  }
+
+  static final class TREntry extends WeakReference<TRTaskRecorderType<?>>
+  {
+    private final int stripe;
+    private final String thread;
+    private final long timeCreated;
+
+    TREntry(
+      final TRTaskRecorderType<?> recorder,
+      final ReferenceQueue<TRTaskRecorderType<?>> queue,
+      final int inStripe,
+      final String inThread)
+    {
+      super(recorder, queue);
+      this.stripe = inStripe;
+      this.thread = inThread;
+      this.timeCreated = System.nanoTime();
+    }
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.core;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * A step that has been running for longer than its threshold.
+ *
+ * @param task        The description of the task containing the step
+ * @param description The step description
+ * @param thread      The thread that began the step
+ * @param threshold   The threshold that the step exceeded
+ */
+
+public record TRStalledStep(
+  String task,
+  String description,
+  Thread thread,
+  Duration threshold)
+{
+  /**
+   * A step that has been running for longer than its threshold.
+   *
+   * @param task        The description of the task containing the step
+   * @param description The step description
+   * @param thread      The thread that began the step
+   * @param threshold   The threshold that the step exceeded
+   */
+
+  public TRStalledStep
+  {
+    Objects.requireNonNull(task, "task");
+    Objects.requireNonNull(description, "description");
+    Objects.requireNonNull(thread, "thread");
+    Objects.requireNonNull(threshold, "threshold");
+  }
+}
@@ -16,6 +16,7 @@
 
 package com.io7m.taskrecorder.core;
 
+import java.time.Instant;
 import java.util.Objects;
 
 /**
@@ -23,11 +24,17 @@ import java.util.Objects;
  *
  * @param description The step description
  * @param resolution  The step resolution
+ * @param timeStarted The time the step started
+ * @param timeEnded   The time the step ended
+ * @param attributes  The step attributes
  */
 
 public record TRStep(
   String description,
-  TRStepResolutionType resolution)
+  TRStepResolutionType resolution,
+  Instant timeStarted,
+  Instant timeEnded,
+  TRAttributes attributes)
   implements TRTaskItemType
 {
   /**
@@ -35,11 +42,57 @@ public record TRStep(
    *
    * @param description The step description
    * @param resolution  The step resolution
+   * @param timeStarted The time the step started
+   * @param timeEnded   The time the step ended
+   * @param attributes  The step attributes
    */
 
   public TRStep
   {
     Objects.requireNonNull(description, "description");
     Objects.requireNonNull(resolution, "resolution");
+    Objects.requireNonNull(timeStarted, "timeStarted");
+    Objects.requireNonNull(timeEnded, "timeEnded");
+    Objects.requireNonNull(attributes, "attributes");
+
+    if (timeEnded.isBefore(timeStarted)) {
+      throw new IllegalArgumentException(
+        "Step end time %s precedes start time %s."
+          .formatted(timeEnded, timeStarted)
+      );
+    }
+  }
+
+  /**
+   * An immutable record of a step without attributes.
+   *
+   * @param description The step description
+   * @param resolution  The step resolution
+   * @param timeStarted The time the step started
+   * @param timeEnded   The time the step ended
+   */
+
+  public TRStep(
+    final String description,
+    final TRStepResolutionType resolution,
+    final Instant timeStarted,
+    final Instant timeEnded)
+  {
+    this(description, resolution, timeStarted, timeEnded, TRAttributes.EMPTY);
+  }
+
+  /**
+   * An immutable record of a step without timing information. The step is
+   * considered to have started and ended at the epoch.
+   *
+   * @param description The step description
+   * @param resolution  The step resolution
+   */
+
+  public TRStep(
+    final String description,
+    final TRStepResolutionType resolution)
+  {
+    this(description, resolution, Instant.EPOCH, Instant.EPOCH);
   }
 }
@@ -0,0 +1,163 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.taskrecorder.core;
+
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * <p>A step that is resolved when the scope is closed, intended for use
+ * with {@code try}-with-resources.</p>
+ *
+ * <p>Unlike a plain step, which is considered to have succeeded unless
+ * told otherwise, a scope that is closed without being resolved resolves
+ * its step as failed. Resolutions set on the scope take effect when the
+ * scope is closed, so the step's end time is the time the scope was
+ * closed. The step should be resolved through the scope rather than
+ * through the task recorder.</p>
+ *
+ * <pre>{@code
+ * try (var scope = recorder.beginStepScope("Load configuration")) {
+ *   try {
+ *     load();
+ *     scope.setStepSucceeded("Loaded");
+ *   } catch (final IOException e) {
+ *     throw scope.failed(e);
+ *   }
+ * }
+ * }</pre>
+ *
+ * <p>A scope holds no state other than its step and pending resolution,
+ * and so typically does not escape the method that creates it.</p>
+ *
+ * @see TRTaskRecorderType#beginStepScope(String)
+ */
+
+public final class TRStepScope
+  implements AutoCloseable,
+  TRTaskStepResolutionRecorderType,
+  TRAttributeRecorderType
+{
+  private static final TRStepFailed UNRESOLVED =
+    new TRStepFailed("The step was not resolved.", Optional.empty());
+  private static final TRStepFailed CLOSED =
+    new TRStepFailed("The step scope is closed.", Optional.empty());
+
+  private final TRTaskStepRecorderType step;
+  private TRStepResolutionType resolution;
+
+  TRStepScope(
+    final TRTaskStepRecorderType inStep)
+  {
+    this.step = Objects.requireNonNull(inStep, "step");
+    this.resolution = UNRESOLVED;
+  }
+
+  /**
+   * @return The underlying step
+   */
+
+  public TRTaskStepRecorderType step()
+  {
+    return this.step;
+  }
+
+  /**
+   * Set the step as having failed with the given exception, and return the
+   * exception so that it can be rethrown. The failure message is the
+   * message of the exception, or the name of its class if it has no
+   * message.
+   *
+   * @param exception The exception
+   * @param <X>       The type of exception
+   *
+   * @return {@code exception}
+   */
+
+  public <X extends Throwable> X failed(
+    final X exception)
+  {
+    Objects.requireNonNull(exception, "exception");
+
+    final var message = exception.getMessage();
+    this.setStepFailed(
+      message != null ? message : exception.getClass().getName(),
+      exception
+    );
+    return exception;
+  }
+
+  @Override
+  public void setStepResolution(
+    final TRStepResolutionType inResolution)
+  {
+    Objects.requireNonNull(inResolution, "resolution");
+
+    if (this.resolution == CLOSED) {
+      throw new IllegalStateException(CLOSED.message());
+    }
+    this.resolution = inResolution;
+  }
+
+  @Override
+  public void setAttribute(
+    final TRAttributeKey<Long> key,
+    final long value)
+  {
+    this.step.setAttribute(key, value);
+  }
+
+  @Override
+  public void setAttribute(
+    final TRAttributeKey<Double> key,
+    final double value)
+  {
+    this.step.setAttribute(key, value);
+  }
+
+  @Override
+  public void setAttribute(
+    final TRAttributeKey<Boolean> key,
+    final boolean value)
+  {
+    this.step.setAttribute(key, value);
+  }
+
+  @Override
+  public void setAttribute(
+    final TRAttributeKey<String> key,
+    final String value)
+  {
+    this.step.setAttribute(key, value);
+  }
+
+  /**
+   * Resolve the step with the resolution set on the scope, or as failed if
+   * no resolution was set. Closing a scope more than once has no effect.
+   */
+
+  @Override
+  public void close()
+  {
+    final var pending = this.resolution;
+    if (pending != CLOSED) {
+      this.resolution = CLOSED;
+      this.step.setStepResolution(pending);
+    }
+  }
+
+}
@@ -16,6 +16,7 @@
 
 package com.io7m.taskrecorder.core;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Objects;
 
@@ -23,32 +24,114 @@ import java.util.Objects;
  * An immutable record of a task.
  *
  * @param items      The task items (steps, subtasks)
- * @param resolution The task resolution
- * @param <T>        The type of values returned by succcessful tasks
+ * @param resolution  The task resolution
+ * @param timeStarted The time the task started
+ * @param timeEnded   The time the task ended
+ * @param attributes  The task attributes
+ * @param <T>         The type of values returned by succcessful tasks
  */
 
 public record TRTask<T>(
   List<TRTaskItemType> items,
-  TRTaskResolutionType<T> resolution)
+  TRTaskResolutionType<T> resolution,
+  Instant timeStarted,
+  Instant timeEnded,
+  TRAttributes attributes)
   implements TRTaskItemType
 {
   /**
    * An immutable record of a task.
    *
-   * @param items      The task items (steps, subtasks)
-   * @param resolution The task resolution
+   * @param items       The task items (steps, subtasks)
+   * @param resolution  The task resolution
+   * @param timeStarted The time the task started
+   * @param timeEnded   The time the task ended
+   * @param attributes  The task attributes
    */
 
   public TRTask
   {
     Objects.requireNonNull(items, "items");
     Objects.requireNonNull(resolution, "resolution");
+    Objects.requireNonNull(timeStarted, "timeStarted");
+    Objects.requireNonNull(timeEnded, "timeEnded");
+    Objects.requireNonNull(attributes, "attributes");
+
+    checkNotEmpty(items);
+
+    if (timeEnded.isBefore(timeStarted)) {
+      throw new IllegalArgumentException(
+        "Task end time %s precedes start time %s."
+          .formatted(timeEnded, timeStarted)
+      );
+    }
+  }
+
+  /**
+   * An immutable record of a task without attributes.
+   *
+   * @param items       The task items (steps, subtasks)
+   * @param resolution  The task resolution
+   * @param timeStarted The time the task started
+   * @param timeEnded   The time the task ended
+   */
+
+  public TRTask(
+    final List<TRTaskItemType> items,
+    final TRTaskResolutionType<T> resolution,
+    final Instant timeStarted,
+    final Instant timeEnded)
+  {
+    this(items, resolution, timeStarted, timeEnded, TRAttributes.EMPTY);
+  }
+
+  /**
+   * An immutable record of a task. The task is considered to have started
+   * when the first item started, and ended when the last of its items ended.
+   *
+   * @param items      The task items (steps, subtasks)
+   * @param resolution The task resolution
+   */
+
+  public TRTask(
+    final List<TRTaskItemType> items,
+    final TRTaskResolutionType<T> resolution)
+  {
+    this(items, resolution, timeStartedOf(items), timeEndedOf(items));
+  }
+
+  private static void checkNotEmpty(
+    final List<TRTaskItemType> items)
+  {
+    Objects.requireNonNull(items, "items");
 
     if (items.isEmpty()) {
       throw new IllegalArgumentException("Task item lists cannot be empty.");
     }
   }
 
+  private static Instant timeStartedOf(
+    final List<TRTaskItemType> items)
+  {
+    checkNotEmpty(items);
+    return items.get(0).timeStarted();
+  }
+
+  private static Instant timeEndedOf(
+    final List<TRTaskItemType> items)
+  {
+    checkNotEmpty(items);
+
+    var time = items.get(0).timeEnded();
+    for (final var item : items) {
+      final var itemTime = item.timeEnded();
+      if (itemTime.isAfter(time)) {
+        time = itemTime;
+      }
+    }
+    return time;
+  }
+
   @Override
   public String description()
   {
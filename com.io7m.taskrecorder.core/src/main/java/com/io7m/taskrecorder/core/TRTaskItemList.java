@@ -0,0 +1,67 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.taskrecorder.core;
+
+import java.util.AbstractList;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * An immutable list of task items consisting of a prefix of an array that
+ * may be shared with other lists, followed by a single final item. The
+ * owner of the array only ever writes to slots beyond the prefixes of the
+ * lists that share it.
+ */
+
+final class TRTaskItemList
+  extends AbstractList<TRTaskItemType>
+  implements RandomAccess
+{
+  private final TRTaskItemType[] shared;
+  private final int sharedCount;
+  private final TRTaskItemType last;
+
+  TRTaskItemList(
+    final TRTaskItemType[] inShared,
+    final int inSharedCount,
+    final TRTaskItemType inLast)
+  {
+    this.shared =
+      Objects.requireNonNull(inShared, "shared");
+    this.sharedCount =
+      Objects.checkIndex(inSharedCount, inShared.length + 1);
+    this.last =
+      Objects.requireNonNull(inLast, "last");
+  }
+
+  @Override
+  public TRTaskItemType get(
+    final int index)
+  {
+    Objects.checkIndex(index, this.sharedCount + 1);
+    if (index == this.sharedCount) {
+      return this.last;
+    }
+    return this.shared[index];
+  }
+
+  @Override
+  public int size()
+  {
+    return this.sharedCount + 1;
+  }
+}
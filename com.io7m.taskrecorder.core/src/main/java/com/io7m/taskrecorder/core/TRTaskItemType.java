@@ -17,6 +17,9 @@
 
 package com.io7m.taskrecorder.core;
 
+import java.time.Duration;
+import java.time.Instant;
+
 /**
  * The type of task items (steps, subtasks).
  */
@@ -29,4 +32,31 @@ public sealed interface TRTaskItemType
    */
 
   String description();
+
+  /**
+   * @return The time the item started
+   */
+
+  Instant timeStarted();
+
+  /**
+   * @return The time the item ended
+   */
+
+  Instant timeEnded();
+
+  /**
+   * @return The attributes of the item
+   */
+
+  TRAttributes attributes();
+
+  /**
+   * @return The duration of the item
+   */
+
+  default Duration duration()
+  {
+    return Duration.between(this.timeStarted(), this.timeEnded());
+  }
 }
@@ -0,0 +1,80 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.core;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A consistent snapshot of the progress of a running task.
+ *
+ * @param path           The descriptions of the task and each active subtask,
+ *                       from the outermost task inwards, followed by the
+ *                       description of the current step of the innermost
+ *                       active task
+ * @param steps          The number of steps begun in the task
+ * @param stepsFailed    The number of steps in the task that have failed
+ * @param subtasks       The number of subtasks begun in the task
+ * @param subtasksFailed The number of subtasks of the task that have failed
+ * @param status         The status of the task
+ */
+
+public record TRTaskProgress(
+  List<String> path,
+  long steps,
+  long stepsFailed,
+  long subtasks,
+  long subtasksFailed,
+  TRTaskProgressStatus status)
+{
+  /**
+   * A consistent snapshot of the progress of a running task.
+   *
+   * @param path           The descriptions of the task and each active
+   *                       subtask, followed by the current step
+   * @param steps          The number of steps begun in the task
+   * @param stepsFailed    The number of steps in the task that have failed
+   * @param subtasks       The number of subtasks begun in the task
+   * @param subtasksFailed The number of subtasks of the task that have failed
+   * @param status         The status of the task
+   */
+
+  public TRTaskProgress
+  {
+    path = List.copyOf(path);
+    Objects.requireNonNull(status, "status");
+  }
+
+  /**
+   * @return The total number of steps and subtasks begun in the task
+   */
+
+  public long items()
+  {
+    return this.steps + this.subtasks;
+  }
+
+  /**
+   * @return The description of the current step of the innermost active task
+   */
+
+  public String stepCurrent()
+  {
+    return this.path.getLast();
+  }
+}
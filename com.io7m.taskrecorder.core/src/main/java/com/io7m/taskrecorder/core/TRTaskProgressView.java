@@ -0,0 +1,268 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.core;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Objects;
+
+/**
+ * <p>A view of the progress of a running task that can be read from any
+ * thread.</p>
+ *
+ * <p>The view is updated by the thread recording the task and published
+ * using a sequence lock: the writer makes the version odd whilst it updates
+ * the view and even again afterwards, and readers retry if they observe an
+ * odd version or a version that changed during the read. Writers never
+ * block or allocate, and readers never block writers, so a monitoring
+ * thread can poll large numbers of running tasks cheaply.</p>
+ */
+
+public final class TRTaskProgressView
+{
+  private static final VarHandle VERSION;
+
+  static {
+    try {
+      VERSION = MethodHandles.lookup()
+        .findVarHandle(TRTaskProgressView.class, "version", long.class);
+    } catch (final ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  private static final int MAX_DEPTH = 64;
+
+  private final TRTaskProgressView parent;
+  private final String description;
+  private long version;
+  private String stepCurrent;
+  private long steps;
+  private long stepsFailed;
+  private long subtasks;
+  private long subtasksFailed;
+  private TRTaskProgressStatus status;
+  private TRTaskProgressView active;
+
+  TRTaskProgressView(
+    final TRTaskProgressView inParent,
+    final String inDescription)
+  {
+    this.parent =
+      inParent;
+    this.description =
+      Objects.requireNonNull(inDescription, "inDescription");
+    this.stepCurrent =
+      inDescription;
+    this.steps =
+      1L;
+    this.status =
+      TRTaskProgressStatus.RUNNING;
+  }
+
+  @Override
+  public String toString()
+  {
+    final var progress = this.snapshot();
+    return "[TRTaskProgressView %s %d/%d %s]".formatted(
+      progress.status(),
+      Long.valueOf(progress.stepsFailed()),
+      Long.valueOf(progress.steps()),
+      progress.stepCurrent()
+    );
+  }
+
+  /**
+   * @return The description of the task
+   */
+
+  public String description()
+  {
+    return this.description;
+  }
+
+  /**
+   * The version of the view. The version changes every time the task is
+   * updated, so a monitor can skip taking snapshots of tasks that have not
+   * changed since they were last observed.
+   *
+   * @return The current version
+   */
+
+  public long version()
+  {
+    return (long) VERSION.getAcquire(this) & ~1L;
+  }
+
+  /**
+   * Take a consistent snapshot of the progress of the task and its active
+   * subtasks. This method may be called from any thread.
+   *
+   * @return The progress of the task
+   */
+
+  public TRTaskProgress snapshot()
+  {
+    final var root = this.read();
+    final var path = new ArrayList<String>();
+    path.add(this.description);
+
+    var current = root;
+    for (int depth = 0; depth < MAX_DEPTH && current.active != null; ++depth) {
+      path.add(current.active.description);
+      current = current.active.read();
+    }
+    path.add(current.stepCurrent);
+
+    return new TRTaskProgress(
+      path,
+      root.steps,
+      root.stepsFailed,
+      root.subtasks,
+      root.subtasksFailed,
+      root.status
+    );
+  }
+
+  private TRRead read()
+  {
+    while (true) {
+      final var start = (long) VERSION.getAcquire(this);
+      if ((start & 1L) == 0L) {
+        final var read = new TRRead(
+          this.stepCurrent,
+          this.steps,
+          this.stepsFailed,
+          this.subtasks,
+          this.subtasksFailed,
+          this.status,
+          this.active
+        );
+        VarHandle.loadLoadFence();
+        if ((long) VERSION.getOpaque(this) == start) {
+          return read;
+        }
+      }
+      Thread.onSpinWait();
+    }
+  }
+
+  private long writeBegin()
+  {
+    final var start = this.version;
+    VERSION.setOpaque(this, start + 1L);
+    VarHandle.storeStoreFence();
+    return start;
+  }
+
+  private void writeEnd(
+    final long start)
+  {
+    VERSION.setRelease(this, start + 2L);
+  }
+
+  void stepBegan(
+    final String inDescription)
+  {
+    final var start = this.writeBegin();
+    this.stepCurrent = inDescription;
+    ++this.steps;
+    this.writeEnd(start);
+  }
+
+  void stepResolved(
+    final boolean failedBefore,
+    final boolean failedAfter)
+  {
+    if (failedBefore == failedAfter) {
+      return;
+    }
+
+    final var start = this.writeBegin();
+    this.stepsFailed += failedAfter ? 1L : -1L;
+    this.writeEnd(start);
+  }
+
+  void subtaskBegan(
+    final TRTaskProgressView subtask)
+  {
+    final var start = this.writeBegin();
+    ++this.subtasks;
+    this.active = subtask;
+    this.writeEnd(start);
+  }
+
+  void subtaskGrafted(
+    final boolean failed)
+  {
+    final var start = this.writeBegin();
+    ++this.subtasks;
+    if (failed) {
+      ++this.subtasksFailed;
+    }
+    this.writeEnd(start);
+  }
+
+  void resolved(
+    final boolean failed)
+  {
+    final var before = this.status;
+    final var after =
+      failed ? TRTaskProgressStatus.FAILED : TRTaskProgressStatus.SUCCEEDED;
+
+    final var start = this.writeBegin();
+    this.status = after;
+    this.writeEnd(start);
+
+    if (this.parent != null) {
+      this.parent.subtaskResolved(
+        this,
+        before == TRTaskProgressStatus.FAILED,
+        failed
+      );
+    }
+  }
+
+  private void subtaskResolved(
+    final TRTaskProgressView subtask,
+    final boolean failedBefore,
+    final boolean failedAfter)
+  {
+    final var start = this.writeBegin();
+    if (failedBefore != failedAfter) {
+      this.subtasksFailed += failedAfter ? 1L : -1L;
+    }
+    if (this.active == subtask) {
+      this.active = null;
+    }
+    this.writeEnd(start);
+  }
+
+  private record TRRead(
+    String stepCurrent,
+    long steps,
+    long stepsFailed,
+    long subtasks,
+    long subtasksFailed,
+    TRTaskProgressStatus status,
+    TRTaskProgressView active)
+  {
+
+  }
+}
@@ -19,31 +19,97 @@ package com.io7m.taskrecorder.core;
 
 import org.slf4j.Logger;
 
-import java.util.LinkedList;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * The default task recorder implementation.
  *
+ * <p>Snapshots taken with {@link #toTask()} share storage for the items
+ * that have not changed since the previous snapshot. Only appending is
+ * cheap: if an item that an earlier snapshot already exposed changes (for
+ * example, a long-running subtask in the middle of a task gains a step),
+ * the next snapshot of the enclosing task copies its entire item array, and
+ * so takes time proportional to the number of items in the task.</p>
+ *
  * @param <T> The type of returned values
  */
 
 public final class TRTaskRecorder<T> implements TRTaskRecorderType<T>
 {
-  private final LinkedList<TRRecorderType> recorders;
+  /**
+   * The items of the task: step recorders, subtask recorders, and grafted
+   * tasks, which are already immutable.
+   */
+
+  private final ArrayList<Object> recorders;
   private final Logger logger;
+  private final Clock clock;
+  private final Instant timeStarted;
+  private final TRTaskProgressView progress;
+  private final boolean accounting;
+  private Instant timeEnded;
   private TRTaskResolutionType<T> resolution;
   private TRStepRecorder stepCurrent;
+  private TRAttributes.Builder attributes;
+  private TRRegistry.TREntry registration;
+
+  /**
+   * The state used to produce snapshots. Snapshots share the append-only
+   * {@code snapshotItems} array: the first {@code snapshotShared} slots have
+   * been exposed by a snapshot and are never written again, so a slot that
+   * changes after being exposed is marked in {@code snapshotStale} and
+   * causes the next snapshot to copy the array. The final item is held
+   * outside the array by each snapshot because it is usually the current
+   * step, which is expected to change.
+   */
+
+  private TRTaskItemType[] snapshotItems;
+  private int snapshotShared;
+  private BitSet snapshotStale;
+  private TRTask<T> snapshot;
+  private boolean snapshotNotified;
+  private TRTaskRecorder<?> parent;
+  private int parentIndex;
 
   private TRTaskRecorder(
     final Logger inLogger,
-    final String inDescription)
+    final Clock inClock,
+    final TRTaskProgressView inParent,
+    final String inDescription,
+    final boolean inAccounting)
   {
     this.logger =
       Objects.requireNonNull(inLogger, "inLogger");
+    this.clock =
+      Objects.requireNonNull(inClock, "inClock");
+    this.timeStarted =
+      this.clock.instant();
+    this.progress =
+      new TRTaskProgressView(inParent, inDescription);
+    this.accounting =
+      inAccounting;
     this.recorders =
-      new LinkedList<>();
-    this.recorders.add(new TRStepRecorder(inDescription));
+      new ArrayList<>();
+    this.recorders.add(
+      new TRStepRecorder(
+        this,
+        0,
+        inDescription,
+        this.timeStarted,
+        inAccounting
+      )
+    );
+    this.snapshotItems =
+      new TRTaskItemType[8];
     this.stepCurrent =
       (TRStepRecorder) this.recorders.getFirst();
   }
@@ -62,12 +128,70 @@ public final class TRTaskRecorder<T> implements TRTaskRecorderType<T>
     final Logger logger,
     final String description)
   {
-    return new TRTaskRecorder<>(logger, description);
+    return create(logger, Clock.systemUTC(), description);
+  }
+
+  /**
+   * Create a new task recorder.
+   *
+   * @param logger      The logger used for debug messages
+   * @param clock       The clock used to timestamp steps and tasks
+   * @param description The description of the first step
+   * @param <T>         The type of returned values
+   *
+   * @return A new task recorder
+   */
+
+  public static <T> TRTaskRecorderType<T> create(
+    final Logger logger,
+    final Clock clock,
+    final String description)
+  {
+    return create(logger, clock, description, TRAccounting.disabled());
+  }
+
+  /**
+   * Create a new task recorder that records the CPU time and allocations
+   * of each step if the given accounting policy selects the task.
+   *
+   * @param logger      The logger used for debug messages
+   * @param clock       The clock used to timestamp steps and tasks
+   * @param description The description of the first step
+   * @param accounting  The accounting policy
+   * @param <T>         The type of returned values
+   *
+   * @return A new task recorder
+   *
+   * @see TRAccounting
+   */
+
+  public static <T> TRTaskRecorderType<T> create(
+    final Logger logger,
+    final Clock clock,
+    final String description,
+    final TRAccounting accounting)
+  {
+    Objects.requireNonNull(accounting, "accounting");
+
+    final var recorder =
+      new TRTaskRecorder<T>(
+        logger,
+        clock,
+        null,
+        description,
+        accounting.sample()
+      );
+    recorder.registration = TRRegistry.global().register(recorder);
+    return recorder;
   }
 
   private static TRTaskItemType toTaskItem(
-    final TRRecorderType r)
+    final Object r)
   {
+    if (r instanceof final TRTask<?> grafted) {
+      return grafted;
+    }
+
     if (r instanceof TRTaskStepRecorderType step) {
       return step.toStep();
     }
@@ -81,6 +205,21 @@ public final class TRTaskRecorder<T> implements TRTaskRecorderType<T>
     );
   }
 
+  /**
+   * Clocks are not guaranteed to be monotonic, so end times are clamped to
+   * start times.
+   */
+
+  private static Instant notBefore(
+    final Instant time,
+    final Instant timeStarted)
+  {
+    if (time == null || time.isBefore(timeStarted)) {
+      return timeStarted;
+    }
+    return time;
+  }
+
   @Override
   public String toString()
   {
@@ -95,8 +234,19 @@ public final class TRTaskRecorder<T> implements TRTaskRecorderType<T>
       this.logger.trace("beginSubtask: {}", inDescription);
     }
 
-    final var task = new TRTaskRecorder<U>(this.logger, inDescription);
+    final var task =
+      new TRTaskRecorder<U>(
+        this.logger,
+        this.clock,
+        this.progress,
+        inDescription,
+        this.accounting
+      );
+    task.parent = this;
+    task.parentIndex = this.recorders.size();
     this.recorders.add(task);
+    this.changed();
+    this.progress.subtaskBegan(task.progress);
     return task;
   }
 
@@ -108,9 +258,21 @@ public final class TRTaskRecorder<T> implements TRTaskRecorderType<T>
       this.logger.trace("beginStep: {}", inDescription);
     }
 
-    final var step = new TRStepRecorder(inDescription);
+    final var time = this.clock.instant();
+    this.stepCurrent.endIfOpen(time);
+
+    final var step =
+      new TRStepRecorder(
+        this,
+        this.recorders.size(),
+        inDescription,
+        time,
+        this.accounting
+      );
     this.recorders.add(step);
+    this.changed();
     this.stepCurrent = step;
+    this.progress.stepBegan(inDescription);
     return step;
   }
 
@@ -120,32 +282,343 @@ public final class TRTaskRecorder<T> implements TRTaskRecorderType<T>
     return this.stepCurrent;
   }
 
+  @Override
+  public void graft(
+    final TRTask<?> task)
+  {
+    Objects.requireNonNull(task, "task");
+
+    if (this.logger.isTraceEnabled()) {
+      this.logger.trace("graft: {}", task.description());
+    }
+
+    this.recorders.add(task);
+    this.changed();
+    this.progress.subtaskGrafted(task.resolution() instanceof TRTaskFailed<?>);
+  }
+
   @Override
   public void setTaskResolution(
     final TRTaskResolutionType<T> inResolution)
   {
     this.resolution =
       Objects.requireNonNull(inResolution, "resolution");
+    this.timeEnded =
+      this.clock.instant();
+    this.stepCurrent.endIfOpen(this.timeEnded);
+    this.changed();
+    this.progress.resolved(inResolution instanceof TRTaskFailed<T>);
+  }
+
+  @Override
+  public TRTaskProgressView progress()
+  {
+    return this.progress;
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Snapshots share storage with the recorder and with each other, so
+   * taking a snapshot of a task that has not changed since the previous
+   * snapshot takes constant time. If items were only appended since the
+   * previous snapshot, taking a snapshot takes time proportional to the
+   * number of items appended along the path to each changed item; if an
+   * item exposed by an earlier snapshot changed, the enclosing task's items
+   * are copied in full. Modifying the recorder afterwards does not affect
+   * snapshots that have already been taken.</p>
+   */
+
   @Override
   public TRTask<T> toTask()
   {
     this.checkResolution();
 
+    final var existing = this.snapshot;
+    if (existing != null) {
+      return existing;
+    }
+
+    /*
+     * Materializing a subtask may fail (if it has no resolution), so the
+     * stale slots are only forgotten once the snapshot has been produced.
+     * Exposed slots are only ever written in a fresh copy of the array.
+     */
+
+    final var count = this.recorders.size();
+    final var stale = this.snapshotStale;
+    var items = this.snapshotItems;
+    if (stale != null && !stale.isEmpty()) {
+      items = Arrays.copyOf(items, Math.max(items.length, count));
+      for (int i = stale.nextSetBit(0); i >= 0; i = stale.nextSetBit(i + 1)) {
+        items[i] = toTaskItem(this.recorders.get(i));
+      }
+    } else if (items.length < count) {
+      items = Arrays.copyOf(items, Math.max(count, items.length << 1));
+    }
+
+    final var shared = count - 1;
+    for (int index = this.snapshotShared; index < shared; ++index) {
+      items[index] = toTaskItem(this.recorders.get(index));
+    }
+
+    final var task =
+      new TRTask<>(
+        new TRTaskItemList(items, shared, toTaskItem(this.recorders.get(shared))),
+        this.resolution,
+        this.timeStarted,
+        notBefore(this.timeEnded, this.timeStarted),
+        build(this.attributes)
+      );
+
+    if (stale != null) {
+      stale.clear();
+    }
+    this.snapshotItems = items;
+    this.snapshotShared = shared;
+    this.snapshot = task;
+    this.snapshotNotified = false;
+    return task;
+  }
+
+  /**
+   * Discard the current snapshot of this task because the item at the
+   * given index changed.
+   */
+
+  private void changed(
+    final int index)
+  {
+    if (index < this.snapshotShared) {
+      if (this.snapshotStale == null) {
+        this.snapshotStale = new BitSet();
+      }
+      this.snapshotStale.set(index);
+    }
+    this.changed();
+  }
+
+  /**
+   * Discard the current snapshot of this task, and tell the parent task
+   * (once per snapshot) that this task changed.
+   */
+
+  private void changed()
+  {
+    this.snapshot = null;
+    if (!this.snapshotNotified && this.parent != null) {
+      this.snapshotNotified = true;
+      this.parent.changed(this.parentIndex);
+    }
+  }
+
+  @Override
+  public TRTask<T> toTaskParallel(
+    final ForkJoinPool pool,
+    final int threshold)
+  {
+    Objects.requireNonNull(pool, "pool");
+
+    if (threshold < 1) {
+      throw new IllegalArgumentException(
+        "Threshold %d must be positive.".formatted(Integer.valueOf(threshold))
+      );
+    }
+
+    this.checkResolution();
+    if (ForkJoinTask.inForkJoinPool()) {
+      return this.toTaskForked(threshold);
+    }
+    return pool.invoke(ForkJoinTask.adapt(() -> this.toTaskForked(threshold)));
+  }
+
+  /**
+   * Materialize this task, dividing the items between fork/join workers
+   * if there are enough of them. Each subtask is weighted by its number of
+   * direct items, which is a cheap estimate of the cost of materializing it.
+   */
+
+  private TRTask<T> toTaskForked(
+    final int threshold)
+  {
+    this.checkResolution();
+
+    final var sources =
+      this.recorders.toArray();
+    final var weights =
+      new long[sources.length + 1];
+
+    for (int index = 0; index < sources.length; ++index) {
+      var weight = 1L;
+      if (sources[index] instanceof final TRTaskRecorder<?> task) {
+        weight += task.recorders.size();
+      }
+      weights[index + 1] = weights[index] + weight;
+    }
+
+    final var items = new TRTaskItemType[sources.length];
+    if (weights[sources.length] <= threshold) {
+      materialize(sources, items, 0, sources.length, threshold);
+    } else {
+      new TRSnapshotAction(sources, weights, items, 0, sources.length, threshold)
+        .invoke();
+    }
+
     return new TRTask<>(
-      this.recorders.stream()
-        .map(TRTaskRecorder::toTaskItem)
-        .toList(),
-      this.resolution
+      List.of(items),
+      this.resolution,
+      this.timeStarted,
+      notBefore(this.timeEnded, this.timeStarted),
+      build(this.attributes)
     );
   }
 
+  private static void materialize(
+    final Object[] sources,
+    final TRTaskItemType[] items,
+    final int lower,
+    final int upper,
+    final int threshold)
+  {
+    for (int index = lower; index < upper; ++index) {
+      final var source = sources[index];
+      if (source instanceof final TRTaskRecorder<?> task) {
+        items[index] = task.toTaskForked(threshold);
+      } else {
+        items[index] = toTaskItem(source);
+      }
+    }
+  }
+
+  private static final class TRSnapshotAction extends RecursiveAction
+  {
+    private static final long serialVersionUID = 1L;
+
+    private final transient Object[] sources;
+    private final long[] weights;
+    private final transient TRTaskItemType[] items;
+    private final int lower;
+    private final int upper;
+    private final int threshold;
+
+    TRSnapshotAction(
+      final Object[] inSources,
+      final long[] inWeights,
+      final TRTaskItemType[] inItems,
+      final int inLower,
+      final int inUpper,
+      final int inThreshold)
+    {
+      this.sources = inSources;
+      this.weights = inWeights;
+      this.items = inItems;
+      this.lower = inLower;
+      this.upper = inUpper;
+      this.threshold = inThreshold;
+    }
+
+    @Override
+    protected void compute()
+    {
+      final var weight =
+        this.weights[this.upper] - this.weights[this.lower];
+
+      if (this.upper - this.lower <= 1 || weight <= this.threshold) {
+        materialize(
+          this.sources,
+          this.items,
+          this.lower,
+          this.upper,
+          this.threshold
+        );
+        return;
+      }
+
+      final var middle = (this.lower + this.upper) >>> 1;
+      invokeAll(
+        new TRSnapshotAction(
+          this.sources,
+          this.weights,
+          this.items,
+          this.lower,
+          middle,
+          this.threshold
+        ),
+        new TRSnapshotAction(
+          this.sources,
+          this.weights,
+          this.items,
+          middle,
+          this.upper,
+          this.threshold
+        )
+      );
+    }
+  }
+
+  private static TRAttributes build(
+    final TRAttributes.Builder attributes)
+  {
+    if (attributes == null) {
+      return TRAttributes.EMPTY;
+    }
+    return attributes.build();
+  }
+
+  private TRAttributes.Builder attributes()
+  {
+    if (this.attributes == null) {
+      this.attributes = TRAttributes.builder();
+    }
+    return this.attributes;
+  }
+
+  @Override
+  public void setAttribute(
+    final TRAttributeKey<Long> key,
+    final long value)
+  {
+    this.attributes().set(key, value);
+    this.changed();
+  }
+
+  @Override
+  public void setAttribute(
+    final TRAttributeKey<Double> key,
+    final double value)
+  {
+    this.attributes().set(key, value);
+    this.changed();
+  }
+
+  @Override
+  public void setAttribute(
+    final TRAttributeKey<Boolean> key,
+    final boolean value)
+  {
+    this.attributes().set(key, value);
+    this.changed();
+  }
+
+  @Override
+  public void setAttribute(
+    final TRAttributeKey<String> key,
+    final String value)
+  {
+    this.attributes().set(key, value);
+    this.changed();
+  }
+
   @Override
   public void close()
     throws IllegalStateException
   {
-    this.checkResolution();
+    try {
+      this.checkResolution();
+    } finally {
+      TRRegistry.global().deregister(this.registration);
+      this.registration = null;
+    }
   }
 
   private void checkResolution()
@@ -161,30 +634,160 @@ public final class TRTaskRecorder<T> implements TRTaskRecorderType<T>
   private static final class TRStepRecorder
     implements TRTaskStepRecorderType
   {
+    private final TRTaskRecorder<?> owner;
+    private final int index;
+    private final Clock clock;
+    private final TRTaskProgressView progress;
     private final String description;
+    private final Instant timeStarted;
+    private final Thread thread;
+    private final long cpuTimeStarted;
+    private final long allocatedStarted;
+    private Instant timeEnded;
     private TRStepResolutionType resolution;
+    private TRAttributes.Builder attributes;
 
     TRStepRecorder(
-      final String inDescription)
+      final TRTaskRecorder<?> inOwner,
+      final int inIndex,
+      final String inDescription,
+      final Instant inTimeStarted,
+      final boolean inAccounting)
     {
+      this.owner =
+        Objects.requireNonNull(inOwner, "inOwner");
+      this.index =
+        inIndex;
+      this.clock =
+        inOwner.clock;
+      this.progress =
+        inOwner.progress;
       this.description =
         Objects.requireNonNull(inDescription, "inDescription");
+      this.timeStarted =
+        Objects.requireNonNull(inTimeStarted, "inTimeStarted");
       this.resolution =
         new TRStepSucceeded("");
+
+      if (inAccounting) {
+        this.thread = Thread.currentThread();
+        this.cpuTimeStarted = TRAccounting.cpuTime();
+        this.allocatedStarted = TRAccounting.allocatedBytes();
+      } else {
+        this.thread = null;
+        this.cpuTimeStarted = -1L;
+        this.allocatedStarted = -1L;
+      }
+    }
+
+    void endIfOpen(
+      final Instant time)
+    {
+      if (this.timeEnded == null) {
+        this.timeEnded = time;
+        this.account();
+        this.owner.changed(this.index);
+      }
+    }
+
+    private void account()
+    {
+      if (this.thread != Thread.currentThread()) {
+        return;
+      }
+
+      if (this.cpuTimeStarted >= 0L) {
+        final var time = TRAccounting.cpuTime();
+        if (time >= 0L) {
+          this.attributes().set(
+            TRAccounting.CPU_TIME,
+            Math.max(0L, time - this.cpuTimeStarted)
+          );
+        }
+      }
+      if (this.allocatedStarted >= 0L) {
+        final var bytes = TRAccounting.allocatedBytes();
+        if (bytes >= 0L) {
+          this.attributes().set(
+            TRAccounting.ALLOCATED_BYTES,
+            Math.max(0L, bytes - this.allocatedStarted)
+          );
+        }
+      }
     }
 
     @Override
     public TRStep toStep()
     {
-      return new TRStep(this.description, this.resolution);
+      return new TRStep(
+        this.description,
+        this.resolution,
+        this.timeStarted,
+        notBefore(this.timeEnded, this.timeStarted),
+        build(this.attributes)
+      );
+    }
+
+    private TRAttributes.Builder attributes()
+    {
+      if (this.attributes == null) {
+        this.attributes = TRAttributes.builder();
+      }
+      return this.attributes;
+    }
+
+    @Override
+    public void setAttribute(
+      final TRAttributeKey<Long> key,
+      final long value)
+    {
+      this.attributes().set(key, value);
+      this.owner.changed(this.index);
+    }
+
+    @Override
+    public void setAttribute(
+      final TRAttributeKey<Double> key,
+      final double value)
+    {
+      this.attributes().set(key, value);
+      this.owner.changed(this.index);
+    }
+
+    @Override
+    public void setAttribute(
+      final TRAttributeKey<Boolean> key,
+      final boolean value)
+    {
+      this.attributes().set(key, value);
+      this.owner.changed(this.index);
+    }
+
+    @Override
+    public void setAttribute(
+      final TRAttributeKey<String> key,
+      final String value)
+    {
+      this.attributes().set(key, value);
+      this.owner.changed(this.index);
     }
 
     @Override
     public void setStepResolution(
       final TRStepResolutionType inResolution)
     {
+      Objects.requireNonNull(inResolution, "resolution");
+
+      this.progress.stepResolved(
+        this.resolution instanceof TRStepFailed,
+        inResolution instanceof TRStepFailed
+      );
       this.resolution =
-        Objects.requireNonNull(inResolution, "resolution");
+        inResolution;
+      this.timeEnded =
+        this.clock.instant();
+      this.account();
+      this.owner.changed(this.index);
     }
   }
 }
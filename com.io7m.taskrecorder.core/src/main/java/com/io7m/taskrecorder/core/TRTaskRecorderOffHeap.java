@@ -0,0 +1,549 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.core;
+
+import org.slf4j.Logger;
+
+import java.time.Clock;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Objects;
+import java.util.Optional;
+
+import static com.io7m.taskrecorder.core.TROffHeapStore.KIND_GRAFT;
+import static com.io7m.taskrecorder.core.TROffHeapStore.KIND_STEP;
+import static com.io7m.taskrecorder.core.TROffHeapStore.KIND_TASK;
+import static com.io7m.taskrecorder.core.TROffHeapStore.NONE;
+import static com.io7m.taskrecorder.core.TROffHeapStore.RESOLUTION_FAILED;
+import static com.io7m.taskrecorder.core.TROffHeapStore.RESOLUTION_NONE;
+import static com.io7m.taskrecorder.core.TROffHeapStore.RESOLUTION_SUCCEEDED;
+
+/**
+ * A task recorder implementation that stores steps and subtasks outside
+ * of the Java heap. The recorder and all of its subtask recorders share a
+ * single store; immutable tasks are only materialized when
+ * {@link #toTask()} is called, by walking the store with an explicit stack
+ * so that the depth of the tree is not limited by the thread stack. Closing
+ * the root recorder drops the store's references, after which none of the
+ * recorders in the tree may be used.
+ *
+ * <p>Only the structural records of steps and tasks (times, kinds,
+ * resolutions, and links between items) are held off-heap, in direct
+ * {@link java.nio.ByteBuffer} chunks. Strings, results, exceptions,
+ * attributes, and grafted tasks remain on the heap. Closing the recorder
+ * drops the store's references to the direct buffers, but the memory is
+ * not freed on close: it is returned when the garbage collector reclaims
+ * the buffers, as with any direct buffer.</p>
+ *
+ * @param <T> The type of returned values
+ */
+
+public final class TRTaskRecorderOffHeap<T> implements TRTaskRecorderType<T>
+{
+  private final Logger logger;
+  private final Clock clock;
+  private final TROffHeapStore store;
+  private final int task;
+  private final boolean root;
+  private final TRTaskProgressView progress;
+  private int stepCurrent;
+  private TRRegistry.TREntry registration;
+
+  private TRTaskRecorderOffHeap(
+    final Logger inLogger,
+    final Clock inClock,
+    final TROffHeapStore inStore,
+    final TRTaskProgressView inParent,
+    final String inDescription,
+    final boolean inRoot)
+  {
+    this.logger =
+      Objects.requireNonNull(inLogger, "inLogger");
+    this.clock =
+      Objects.requireNonNull(inClock, "inClock");
+    this.store =
+      Objects.requireNonNull(inStore, "inStore");
+    this.root =
+      inRoot;
+    this.progress =
+      new TRTaskProgressView(inParent, inDescription);
+
+    final var time = this.clock.instant();
+    this.task =
+      this.store.allocate(KIND_TASK, inDescription, time);
+    this.stepCurrent =
+      this.store.allocate(KIND_STEP, inDescription, time);
+    this.store.appendChild(this.task, this.stepCurrent);
+  }
+
+  /**
+   * Create a new off-heap task recorder.
+   *
+   * @param logger      The logger used for debug messages
+   * @param description The description of the first step
+   * @param <T>         The type of returned values
+   *
+   * @return A new task recorder
+   */
+
+  public static <T> TRTaskRecorderType<T> create(
+    final Logger logger,
+    final String description)
+  {
+    return create(logger, Clock.systemUTC(), description);
+  }
+
+  /**
+   * Create a new off-heap task recorder.
+   *
+   * @param logger      The logger used for debug messages
+   * @param clock       The clock used to timestamp steps and tasks
+   * @param description The description of the first step
+   * @param <T>         The type of returned values
+   *
+   * @return A new task recorder
+   */
+
+  public static <T> TRTaskRecorderType<T> create(
+    final Logger logger,
+    final Clock clock,
+    final String description)
+  {
+    final var recorder =
+      new TRTaskRecorderOffHeap<T>(
+        logger,
+        clock,
+        new TROffHeapStore(),
+        null,
+        description,
+        true
+      );
+    recorder.registration = TRRegistry.global().register(recorder);
+    return recorder;
+  }
+
+  @Override
+  public String toString()
+  {
+    if (this.store.isClosed()) {
+      return "[TRTaskRecorderOffHeap (closed)]";
+    }
+    return "[TRTaskRecorderOffHeap (%s)]"
+      .formatted(this.store.description(this.stepCurrent));
+  }
+
+  @Override
+  public <U> TRTaskRecorderType<U> beginSubtask(
+    final String inDescription)
+  {
+    if (this.logger.isTraceEnabled()) {
+      this.logger.trace("beginSubtask: {}", inDescription);
+    }
+
+    final var subtask =
+      new TRTaskRecorderOffHeap<U>(
+        this.logger,
+        this.clock,
+        this.store,
+        this.progress,
+        inDescription,
+        false
+      );
+    this.store.appendChild(this.task, subtask.task);
+    this.progress.subtaskBegan(subtask.progress);
+    return subtask;
+  }
+
+  @Override
+  public TRTaskStepRecorderType beginStep(
+    final String inDescription)
+  {
+    if (this.logger.isTraceEnabled()) {
+      this.logger.trace("beginStep: {}", inDescription);
+    }
+
+    final var time = this.clock.instant();
+    this.store.endIfOpen(this.stepCurrent, time);
+
+    final var step = this.store.allocate(KIND_STEP, inDescription, time);
+    this.store.appendChild(this.task, step);
+    this.stepCurrent = step;
+    this.progress.stepBegan(inDescription);
+    return new TRStepHandle(this.clock, this.store, this.progress, step);
+  }
+
+  @Override
+  public void graft(
+    final TRTask<?> inTask)
+  {
+    Objects.requireNonNull(inTask, "task");
+
+    if (this.logger.isTraceEnabled()) {
+      this.logger.trace("graft: {}", inTask.description());
+    }
+
+    this.store.appendChild(this.task, this.store.allocateGraft(inTask));
+    this.progress.subtaskGrafted(
+      inTask.resolution() instanceof TRTaskFailed<?>
+    );
+  }
+
+  @Override
+  public TRTaskStepRecorderType stepCurrent()
+  {
+    return new TRStepHandle(
+      this.clock,
+      this.store,
+      this.progress,
+      this.stepCurrent
+    );
+  }
+
+  @Override
+  public void setTaskResolution(
+    final TRTaskResolutionType<T> inResolution)
+  {
+    Objects.requireNonNull(inResolution, "resolution");
+
+    final var time = this.clock.instant();
+    this.store.setTimeEnded(this.task, time);
+    this.store.endIfOpen(this.stepCurrent, time);
+    this.progress.resolved(inResolution instanceof TRTaskFailed<T>);
+
+    if (inResolution instanceof final TRTaskSucceeded<T> succeeded) {
+      this.store.setResolution(
+        this.task,
+        RESOLUTION_SUCCEEDED,
+        succeeded.message(),
+        null,
+        succeeded.result()
+      );
+      return;
+    }
+
+    if (inResolution instanceof final TRTaskFailed<T> failed) {
+      this.store.setResolution(
+        this.task,
+        RESOLUTION_FAILED,
+        failed.message(),
+        failed.exception().orElse(null),
+        null
+      );
+    }
+  }
+
+  @Override
+  public TRTaskProgressView progress()
+  {
+    return this.progress;
+  }
+
+  @Override
+  public void setAttribute(
+    final TRAttributeKey<Long> key,
+    final long value)
+  {
+    this.store.attributesFor(this.task).set(key, value);
+  }
+
+  @Override
+  public void setAttribute(
+    final TRAttributeKey<Double> key,
+    final double value)
+  {
+    this.store.attributesFor(this.task).set(key, value);
+  }
+
+  @Override
+  public void setAttribute(
+    final TRAttributeKey<Boolean> key,
+    final boolean value)
+  {
+    this.store.attributesFor(this.task).set(key, value);
+  }
+
+  @Override
+  public void setAttribute(
+    final TRAttributeKey<String> key,
+    final String value)
+  {
+    this.store.attributesFor(this.task).set(key, value);
+  }
+
+  @Override
+  public TRTask<T> toTask()
+  {
+    this.checkResolution();
+    return toTaskAt(this.store, this.task);
+  }
+
+  @Override
+  public void close()
+    throws IllegalStateException
+  {
+    try {
+      this.checkResolution();
+    } finally {
+      if (this.root) {
+        this.store.close();
+        TRRegistry.global().deregister(this.registration);
+        this.registration = null;
+      }
+    }
+  }
+
+  private void checkResolution()
+  {
+    if (this.store.resolution(this.task) == RESOLUTION_NONE) {
+      throw unresolved(this.store.description(this.stepCurrent));
+    }
+  }
+
+  private static IllegalStateException unresolved(
+    final String stepCurrent)
+  {
+    return new IllegalStateException(
+      "No resolution was set for task '%s'".formatted(stepCurrent)
+    );
+  }
+
+  /**
+   * Check that a subtask has been resolved, reporting the same error that
+   * {@link #toTask()} on its own recorder would. The current step of a
+   * subtask is its last step, so it is only searched for when the check
+   * fails.
+   */
+
+  private static void checkResolvedAt(
+    final TROffHeapStore store,
+    final int task)
+  {
+    if (store.resolution(task) != RESOLUTION_NONE) {
+      return;
+    }
+
+    int stepCurrent = NONE;
+    for (int child = store.childFirst(task);
+         child != NONE;
+         child = store.next(child)) {
+      if (store.kind(child) == KIND_STEP) {
+        stepCurrent = child;
+      }
+    }
+    throw unresolved(store.description(stepCurrent));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> TRTask<T> toTaskAt(
+    final TROffHeapStore store,
+    final int task)
+  {
+    final var stack = new ArrayDeque<TRTaskFrame>();
+    stack.push(new TRTaskFrame(store, task));
+
+    while (true) {
+      final var frame = stack.peek();
+      final var child = frame.child;
+      if (child != NONE) {
+        frame.child = store.next(child);
+
+        final var kind = store.kind(child);
+        if (kind == KIND_TASK) {
+          checkResolvedAt(store, child);
+          stack.push(new TRTaskFrame(store, child));
+        } else if (kind == KIND_GRAFT) {
+          frame.items.add((TRTask<?>) store.result(child));
+        } else {
+          frame.items.add(toStepAt(store, child));
+        }
+        continue;
+      }
+
+      stack.pop();
+      final var result = taskOf(store, frame.task, frame.items);
+      if (stack.isEmpty()) {
+        return (TRTask<T>) result;
+      }
+      stack.peek().items.add(result);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> TRTask<T> taskOf(
+    final TROffHeapStore store,
+    final int task,
+    final ArrayList<TRTaskItemType> items)
+  {
+    final TRTaskResolutionType<T> resolution;
+    if (store.resolution(task) == RESOLUTION_SUCCEEDED) {
+      resolution = new TRTaskSucceeded<>(
+        store.message(task),
+        (T) store.result(task)
+      );
+    } else {
+      resolution = new TRTaskFailed<>(
+        store.message(task),
+        Optional.ofNullable(store.exception(task))
+      );
+    }
+
+    return new TRTask<>(
+      items,
+      resolution,
+      store.timeStarted(task),
+      store.timeEnded(task),
+      store.attributes(task)
+    );
+  }
+
+  /**
+   * A task record being materialized: the items built so far, and the next
+   * child record to visit.
+   */
+
+  private static final class TRTaskFrame
+  {
+    private final int task;
+    private final ArrayList<TRTaskItemType> items;
+    private int child;
+
+    TRTaskFrame(
+      final TROffHeapStore store,
+      final int inTask)
+    {
+      this.task = inTask;
+      this.items = new ArrayList<>();
+      this.child = store.childFirst(inTask);
+    }
+  }
+
+  private static TRStep toStepAt(
+    final TROffHeapStore store,
+    final int step)
+  {
+    final TRStepResolutionType resolution;
+    if (store.resolution(step) == RESOLUTION_FAILED) {
+      resolution = new TRStepFailed(
+        store.message(step),
+        Optional.ofNullable(store.exception(step))
+      );
+    } else {
+      resolution = new TRStepSucceeded(store.message(step));
+    }
+    return new TRStep(
+      store.description(step),
+      resolution,
+      store.timeStarted(step),
+      store.timeEnded(step),
+      store.attributes(step)
+    );
+  }
+
+  private static final class TRStepHandle
+    implements TRTaskStepRecorderType
+  {
+    private final Clock clock;
+    private final TROffHeapStore store;
+    private final TRTaskProgressView progress;
+    private final int step;
+
+    TRStepHandle(
+      final Clock inClock,
+      final TROffHeapStore inStore,
+      final TRTaskProgressView inProgress,
+      final int inStep)
+    {
+      this.clock = inClock;
+      this.store = inStore;
+      this.progress = inProgress;
+      this.step = inStep;
+    }
+
+    @Override
+    public TRStep toStep()
+    {
+      return toStepAt(this.store, this.step);
+    }
+
+    @Override
+    public void setAttribute(
+      final TRAttributeKey<Long> key,
+      final long value)
+    {
+      this.store.attributesFor(this.step).set(key, value);
+    }
+
+    @Override
+    public void setAttribute(
+      final TRAttributeKey<Double> key,
+      final double value)
+    {
+      this.store.attributesFor(this.step).set(key, value);
+    }
+
+    @Override
+    public void setAttribute(
+      final TRAttributeKey<Boolean> key,
+      final boolean value)
+    {
+      this.store.attributesFor(this.step).set(key, value);
+    }
+
+    @Override
+    public void setAttribute(
+      final TRAttributeKey<String> key,
+      final String value)
+    {
+      this.store.attributesFor(this.step).set(key, value);
+    }
+
+    @Override
+    public void setStepResolution(
+      final TRStepResolutionType inResolution)
+    {
+      Objects.requireNonNull(inResolution, "resolution");
+
+      this.store.setTimeEnded(this.step, this.clock.instant());
+      this.progress.stepResolved(
+        this.store.resolution(this.step) == RESOLUTION_FAILED,
+        inResolution instanceof TRStepFailed
+      );
+
+      if (inResolution instanceof final TRStepSucceeded succeeded) {
+        this.store.setResolution(
+          this.step,
+          RESOLUTION_SUCCEEDED,
+          succeeded.message(),
+          null,
+          null
+        );
+        return;
+      }
+
+      if (inResolution instanceof final TRStepFailed failed) {
+        this.store.setResolution(
+          this.step,
+          RESOLUTION_FAILED,
+          failed.message(),
+          failed.exception().orElse(null),
+          null
+        );
+      }
+    }
+  }
+}
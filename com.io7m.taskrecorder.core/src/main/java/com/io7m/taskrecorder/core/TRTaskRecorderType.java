@@ -16,16 +16,23 @@
 
 package com.io7m.taskrecorder.core;
 
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 
 /**
- * The type of task recorders.
+ * The type of task recorders. Attributes set on a task recorder are attached
+ * to the task; attributes can be attached to steps using the recorders
+ * returned by {@link #beginStep(String)} and {@link #stepCurrent()}.
  *
  * @param <T> The type of values returned by successful tasks
  */
 
 public non-sealed interface TRTaskRecorderType<T>
-  extends AutoCloseable, TRRecorderType, TRTaskStepResolutionRecorderType
+  extends AutoCloseable,
+  TRRecorderType,
+  TRTaskStepResolutionRecorderType,
+  TRAttributeRecorderType
 {
   /**
    * Begin recording a new subtask.
@@ -65,12 +72,49 @@ public non-sealed interface TRTaskRecorderType<T>
   TRTaskStepRecorderType beginStep(
     String description);
 
+  /**
+   * Begin a new step in a scope. The step is resolved when the scope is
+   * closed, and is resolved as failed if the scope was not resolved first.
+   *
+   * @param description The description
+   *
+   * @return A new step scope
+   *
+   * @see TRStepScope
+   */
+
+  default TRStepScope beginStepScope(
+    final String description)
+  {
+    return new TRStepScope(this.beginStep(description));
+  }
+
   /**
    * @return The current step
    */
 
   TRTaskStepRecorderType stepCurrent();
 
+  /**
+   * Insert a completed task as a subtask at the current position. The task
+   * is shared rather than copied, so grafting takes constant time regardless
+   * of the size of the task. This allows tasks recorded on other threads or
+   * in other processes to be attached to this task.
+   *
+   * @param task The completed task
+   *
+   * @throws UnsupportedOperationException If the recorder does not support
+   *                                       grafting
+   */
+
+  default void graft(
+    final TRTask<?> task)
+  {
+    throw new UnsupportedOperationException(
+      "This recorder does not support grafting."
+    );
+  }
+
   /**
    * Set the resolution of the current task.
    *
@@ -139,6 +183,71 @@ public non-sealed interface TRTaskRecorderType<T>
 
   TRTask<T> toTask();
 
+  /**
+   * Obtain a view of the progress of the task. Unlike the recorder itself,
+   * the view may be read from any thread whilst the task is being recorded,
+   * and reading it does not require the task to have been resolved.
+   *
+   * @return The progress view of the task
+   *
+   * @throws UnsupportedOperationException If the recorder does not track
+   *                                       progress
+   */
+
+  default TRTaskProgressView progress()
+  {
+    throw new UnsupportedOperationException(
+      "This recorder does not track progress."
+    );
+  }
+
+  /**
+   * The default number of items below which parallel snapshots are taken
+   * sequentially.
+   */
+
+  int PARALLEL_THRESHOLD_DEFAULT = 1024;
+
+  /**
+   * Produce the same task as {@link #toTask()}, materializing sibling
+   * subtasks concurrently using the common fork/join pool.
+   *
+   * @return The current recorded task (and all subtasks) as an immutable task
+   *
+   * @see #toTaskParallel(ForkJoinPool, int)
+   */
+
+  default TRTask<T> toTaskParallel()
+  {
+    return this.toTaskParallel(
+      ForkJoinPool.commonPool(),
+      PARALLEL_THRESHOLD_DEFAULT
+    );
+  }
+
+  /**
+   * Produce the same task as {@link #toTask()}, materializing sibling
+   * subtasks concurrently using the given fork/join pool. Runs of sibling
+   * items are divided between workers until each run contains roughly
+   * {@code threshold} items or fewer. The recorder must not be modified
+   * whilst the snapshot is being taken. Implementations that cannot be
+   * read from multiple threads produce the task sequentially.
+   *
+   * @param pool      The fork/join pool
+   * @param threshold The approximate number of items below which work is
+   *                  not divided further
+   *
+   * @return The current recorded task (and all subtasks) as an immutable task
+   */
+
+  default TRTask<T> toTaskParallel(
+    final ForkJoinPool pool,
+    final int threshold)
+  {
+    Objects.requireNonNull(pool, "pool");
+    return this.toTask();
+  }
+
   @Override
   void close()
     throws IllegalStateException;
@@ -18,11 +18,14 @@
 package com.io7m.taskrecorder.core;
 
 /**
- * A recorder for a step.
+ * A recorder for a step. Attributes set on a step recorder are attached to
+ * the step.
  */
 
 public non-sealed interface TRTaskStepRecorderType
-  extends TRRecorderType, TRTaskStepResolutionRecorderType
+  extends TRRecorderType,
+  TRTaskStepResolutionRecorderType,
+  TRAttributeRecorderType
 {
   /**
    * @return The recorded step as an immutable step
@@ -0,0 +1,237 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.core;
+
+import java.util.function.Consumer;
+
+/**
+ * <p>A hierarchical timing wheel. Each level has 64 slots, and each slot of
+ * a level spans 64 times as many ticks as a slot of the level below. Timers
+ * are kept in intrusive doubly-linked lists, so scheduling and cancelling
+ * a timer take constant time regardless of how many timers are scheduled.
+ * Timers in higher levels are moved down a level each time the wheel
+ * reaches their slot.</p>
+ *
+ * <p>The wheel is not thread-safe.</p>
+ */
+
+final class TRTimerWheel
+{
+  private static final int SLOT_BITS = 6;
+  private static final int SLOTS = 1 << SLOT_BITS;
+  private static final int SLOT_MASK = SLOTS - 1;
+
+  private final int levels;
+  private final TRTimer[] slots;
+  private long current;
+  private int size;
+
+  /**
+   * A timer that can be scheduled on a wheel.
+   */
+
+  static class TRTimer
+  {
+    private TRTimer prev;
+    private TRTimer next;
+    private int slot;
+    private long deadline;
+
+    TRTimer()
+    {
+      this.slot = -1;
+    }
+
+    /**
+     * @return The tick at which the timer expires
+     */
+
+    final long deadline()
+    {
+      return this.deadline;
+    }
+  }
+
+  TRTimerWheel(
+    final int inLevels)
+  {
+    if (inLevels < 1 || inLevels > 10) {
+      throw new IllegalArgumentException(
+        "Level count %d must be in the range [1, 10]."
+          .formatted(Integer.valueOf(inLevels))
+      );
+    }
+
+    this.levels = inLevels;
+    this.slots = new TRTimer[inLevels * SLOTS];
+  }
+
+  /**
+   * @return The current tick
+   */
+
+  long current()
+  {
+    return this.current;
+  }
+
+  /**
+   * @return The number of scheduled timers
+   */
+
+  int size()
+  {
+    return this.size;
+  }
+
+  /**
+   * Schedule a timer. Timers with deadlines that are not after the current
+   * tick expire on the next tick.
+   *
+   * @param timer    The timer
+   * @param deadline The tick at which the timer expires
+   */
+
+  void schedule(
+    final TRTimer timer,
+    final long deadline)
+  {
+    if (timer.slot != -1) {
+      throw new IllegalStateException("Timer is already scheduled.");
+    }
+
+    timer.deadline = deadline;
+    this.insert(timer, Math.max(deadline, this.current + 1L));
+    ++this.size;
+  }
+
+  /**
+   * Cancel a timer. Cancelling a timer that is not scheduled has no effect.
+   *
+   * @param timer The timer
+   */
+
+  void cancel(
+    final TRTimer timer)
+  {
+    if (timer.slot != -1) {
+      this.unlink(timer);
+      --this.size;
+    }
+  }
+
+  /**
+   * Advance the wheel by one tick, passing each timer that expires to the
+   * given consumer.
+   *
+   * @param expired The consumer of expired timers
+   */
+
+  void advance(
+    final Consumer<TRTimer> expired)
+  {
+    final var now = ++this.current;
+
+    for (int level = this.levels - 1; level >= 1; --level) {
+      final var shift = SLOT_BITS * level;
+      if ((now & ((1L << shift) - 1L)) == 0L) {
+        var timer = this.detach(slotOf(level, now >>> shift));
+        while (timer != null) {
+          final var next = timer.next;
+          timer.next = null;
+          this.insert(timer, Math.max(timer.deadline, now));
+          timer = next;
+        }
+      }
+    }
+
+    var timer = this.detach(slotOf(0, now));
+    while (timer != null) {
+      final var next = timer.next;
+      timer.next = null;
+      if (timer.deadline <= now) {
+        --this.size;
+        expired.accept(timer);
+      } else {
+        this.insert(timer, timer.deadline);
+      }
+      timer = next;
+    }
+  }
+
+  private static int slotOf(
+    final int level,
+    final long index)
+  {
+    return (level << SLOT_BITS) | (int) (index & SLOT_MASK);
+  }
+
+  private void insert(
+    final TRTimer timer,
+    final long at)
+  {
+    final var delta = at - this.current;
+    final var top = this.levels - 1;
+
+    var level = 0;
+    while (level < top && delta >= (1L << (SLOT_BITS * (level + 1)))) {
+      ++level;
+    }
+
+    final var limit = top == 0 ? SLOTS : 1L << (SLOT_BITS * this.levels);
+    final var clamped = delta >= limit ? this.current + limit - 1L : at;
+    final var slot = slotOf(level, clamped >>> (SLOT_BITS * level));
+
+    final var head = this.slots[slot];
+    timer.prev = null;
+    timer.next = head;
+    timer.slot = slot;
+    if (head != null) {
+      head.prev = timer;
+    }
+    this.slots[slot] = timer;
+  }
+
+  private void unlink(
+    final TRTimer timer)
+  {
+    if (timer.prev == null) {
+      this.slots[timer.slot] = timer.next;
+    } else {
+      timer.prev.next = timer.next;
+    }
+    if (timer.next != null) {
+      timer.next.prev = timer.prev;
+    }
+    timer.prev = null;
+    timer.next = null;
+    timer.slot = -1;
+  }
+
+  private TRTimer detach(
+    final int slot)
+  {
+    final var head = this.slots[slot];
+    this.slots[slot] = null;
+    for (var timer = head; timer != null; timer = timer.next) {
+      timer.prev = null;
+      timer.slot = -1;
+    }
+    return head;
+  }
+}
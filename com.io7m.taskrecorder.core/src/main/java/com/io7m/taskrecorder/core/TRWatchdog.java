@@ -0,0 +1,390 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.core;
+
+import org.slf4j.Logger;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>A watchdog that reports steps that have been running for longer than
+ * a threshold.</p>
+ *
+ * <p>Recorders returned by {@link #watch(TRTaskRecorderType)} register each
+ * step with the watchdog when the step begins, and deregister it when the
+ * step is resolved, when the next step begins, or when the task is
+ * resolved. All watched steps, from any number of recorders, share a single
+ * hierarchical timing wheel driven by one background thread. Registering
+ * and deregistering a step are constant-time, lock-free operations on the
+ * recording thread; the wheel itself is only ever touched by the watchdog
+ * thread.</p>
+ *
+ * <p>Steps that exceed their threshold are passed to the listener and are
+ * marked as stalled until they are deregistered; see {@link #stalled()}.</p>
+ */
+
+public final class TRWatchdog implements AutoCloseable
+{
+  private static final int LEVELS = 4;
+
+  private static final int STATE_ACTIVE = 0;
+  private static final int STATE_STALLED = 1;
+  private static final int STATE_ENDED = 2;
+
+  private final Logger logger;
+  private final TRWatchdogConfiguration configuration;
+  private final TRWatchdogListenerType listener;
+  private final ConcurrentLinkedQueue<TRWatch> pending;
+  private final ConcurrentLinkedQueue<TRWatch> cancelled;
+  private final Set<TRWatch> stalled;
+  private final LongAdder stalledCount;
+  private final TRTimerWheel wheel;
+  private final long tickNanos;
+  private final long timeBase;
+  private final Thread ticker;
+  private volatile boolean closed;
+
+  private TRWatchdog(
+    final Logger inLogger,
+    final TRWatchdogConfiguration inConfiguration,
+    final TRWatchdogListenerType inListener,
+    final ThreadFactory threadFactory)
+  {
+    this.logger =
+      Objects.requireNonNull(inLogger, "logger");
+    this.configuration =
+      Objects.requireNonNull(inConfiguration, "configuration");
+    this.listener =
+      Objects.requireNonNull(inListener, "listener");
+
+    this.pending =
+      new ConcurrentLinkedQueue<>();
+    this.cancelled =
+      new ConcurrentLinkedQueue<>();
+    this.stalled =
+      ConcurrentHashMap.newKeySet();
+    this.stalledCount =
+      new LongAdder();
+    this.wheel =
+      new TRTimerWheel(LEVELS);
+    this.tickNanos =
+      inConfiguration.tickDuration().toNanos();
+    this.timeBase =
+      System.nanoTime();
+    this.ticker =
+      Objects.requireNonNull(
+        threadFactory.newThread(this::run),
+        "threadFactory.newThread"
+      );
+  }
+
+  /**
+   * Create and start a new watchdog. The watchdog uses a daemon platform
+   * thread to drive its timer.
+   *
+   * @param logger        The logger used to report listener failures
+   * @param configuration The configuration
+   * @param listener      The listener notified of stalled steps
+   *
+   * @return A new watchdog
+   */
+
+  public static TRWatchdog create(
+    final Logger logger,
+    final TRWatchdogConfiguration configuration,
+    final TRWatchdogListenerType listener)
+  {
+    return create(
+      logger,
+      configuration,
+      listener,
+      Thread.ofPlatform()
+        .daemon()
+        .name("com.io7m.taskrecorder.core.watchdog-", 0L)
+        .factory()
+    );
+  }
+
+  /**
+   * Create and start a new watchdog.
+   *
+   * @param logger        The logger used to report listener failures
+   * @param configuration The configuration
+   * @param listener      The listener notified of stalled steps
+   * @param threadFactory The factory used to create the timer thread
+   *
+   * @return A new watchdog
+   */
+
+  public static TRWatchdog create(
+    final Logger logger,
+    final TRWatchdogConfiguration configuration,
+    final TRWatchdogListenerType listener,
+    final ThreadFactory threadFactory)
+  {
+    Objects.requireNonNull(threadFactory, "threadFactory");
+
+    final var watchdog =
+      new TRWatchdog(logger, configuration, listener, threadFactory);
+    watchdog.ticker.start();
+    return watchdog;
+  }
+
+  /**
+   * @return The configuration
+   */
+
+  public TRWatchdogConfiguration configuration()
+  {
+    return this.configuration;
+  }
+
+  /**
+   * Watch the steps of the given task recorder and all of its subtasks. The
+   * returned recorder must be used in place of the given recorder.
+   *
+   * @param recorder The recorder
+   * @param <T>      The type of returned values
+   *
+   * @return A recorder that registers its steps with this watchdog
+   */
+
+  public <T> TRTaskRecorderType<T> watch(
+    final TRTaskRecorderType<T> recorder)
+  {
+    return new TRWatchedTaskRecorder<>(this, recorder);
+  }
+
+  /**
+   * @return The steps that are currently stalled
+   */
+
+  public List<TRStalledStep> stalled()
+  {
+    return this.stalled.stream()
+      .map(TRWatch::toStalledStep)
+      .toList();
+  }
+
+  /**
+   * @return The total number of times a step has stalled
+   */
+
+  public long stalledCount()
+  {
+    return this.stalledCount.sum();
+  }
+
+  TRWatch begin(
+    final String task,
+    final String description)
+  {
+    final var threshold =
+      this.configuration.thresholdFor(description);
+    final var watch =
+      new TRWatch(
+        this,
+        task,
+        description,
+        threshold,
+        System.nanoTime() + threshold.toNanos()
+      );
+
+    if (this.closed) {
+      watch.state.set(STATE_ENDED);
+    } else {
+      this.pending.offer(watch);
+    }
+    return watch;
+  }
+
+  private void end(
+    final TRWatch watch)
+  {
+    final var previous = watch.state.getAndSet(STATE_ENDED);
+    if (previous == STATE_ENDED) {
+      return;
+    }
+    if (previous == STATE_STALLED) {
+      this.stalled.remove(watch);
+    }
+    if (!this.closed) {
+      this.cancelled.offer(watch);
+    }
+  }
+
+  private void run()
+  {
+    while (!this.closed) {
+      this.drainPending();
+      this.drainCancelled();
+
+      final var target =
+        (System.nanoTime() - this.timeBase) / this.tickNanos;
+      while (this.wheel.current() < target) {
+        this.wheel.advance(timer -> this.expire((TRWatch) timer));
+      }
+
+      final var wake =
+        this.timeBase + ((this.wheel.current() + 1L) * this.tickNanos);
+      LockSupport.parkNanos(this, Math.max(1L, wake - System.nanoTime()));
+    }
+
+    this.pending.clear();
+    this.cancelled.clear();
+  }
+
+  private void drainPending()
+  {
+    while (true) {
+      final var watch = this.pending.poll();
+      if (watch == null) {
+        return;
+      }
+      if (watch.state.get() != STATE_ACTIVE) {
+        continue;
+      }
+
+      final var deadline =
+        Math.ceilDiv(watch.deadlineNanos - this.timeBase, this.tickNanos);
+      if (deadline <= this.wheel.current()) {
+        this.expire(watch);
+      } else {
+        this.wheel.schedule(watch, deadline);
+      }
+    }
+  }
+
+  private void drainCancelled()
+  {
+    while (true) {
+      final var watch = this.cancelled.poll();
+      if (watch == null) {
+        return;
+      }
+      this.wheel.cancel(watch);
+    }
+  }
+
+  private void expire(
+    final TRWatch watch)
+  {
+    this.stalled.add(watch);
+    if (!watch.state.compareAndSet(STATE_ACTIVE, STATE_STALLED)) {
+      this.stalled.remove(watch);
+      return;
+    }
+
+    this.stalledCount.increment();
+    try {
+      this.listener.onStepStalled(watch.toStalledStep());
+    } catch (final Exception e) {
+      this.logger.error("Watchdog listener failed: ", e);
+    }
+  }
+
+  /**
+   * Close the watchdog. No further steps are registered, and no further
+   * notifications are delivered after this method returns. If the calling
+   * thread is interrupted whilst waiting, the wait continues and the
+   * interrupt status is restored afterwards.
+   */
+
+  @Override
+  public void close()
+  {
+    if (this.closed) {
+      return;
+    }
+
+    this.closed = true;
+    LockSupport.unpark(this.ticker);
+
+    boolean interrupted = false;
+    while (true) {
+      try {
+        this.ticker.join();
+        break;
+      } catch (final InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    this.stalled.clear();
+  }
+
+  @Override
+  public String toString()
+  {
+    return "[TRWatchdog (stalled %d)]"
+      .formatted(Long.valueOf(this.stalledCount()));
+  }
+
+  static final class TRWatch extends TRTimerWheel.TRTimer
+  {
+    private final TRWatchdog watchdog;
+    private final String task;
+    private final String description;
+    private final Duration threshold;
+    private final long deadlineNanos;
+    private final Thread thread;
+    private final AtomicInteger state;
+
+    TRWatch(
+      final TRWatchdog inWatchdog,
+      final String inTask,
+      final String inDescription,
+      final Duration inThreshold,
+      final long inDeadlineNanos)
+    {
+      this.watchdog = inWatchdog;
+      this.task = inTask;
+      this.description = inDescription;
+      this.threshold = inThreshold;
+      this.deadlineNanos = inDeadlineNanos;
+      this.thread = Thread.currentThread();
+      this.state = new AtomicInteger(STATE_ACTIVE);
+    }
+
+    TRStalledStep toStalledStep()
+    {
+      return new TRStalledStep(
+        this.task,
+        this.description,
+        this.thread,
+        this.threshold
+      );
+    }
+
+    void end()
+    {
+      this.watchdog.end(this);
+    }
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.core;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The configuration for watchdogs.
+ *
+ * @param tickDuration     The resolution of the watchdog timer; steps are
+ *                         reported at most one tick after they exceed their
+ *                         threshold
+ * @param thresholdDefault The time after which steps are considered stalled,
+ *                         if no specific threshold is given for the step
+ *                         description
+ * @param thresholds       The thresholds for specific step descriptions
+ */
+
+public record TRWatchdogConfiguration(
+  Duration tickDuration,
+  Duration thresholdDefault,
+  Map<String, Duration> thresholds)
+{
+  /**
+   * The configuration for watchdogs.
+   *
+   * @param tickDuration     The resolution of the watchdog timer
+   * @param thresholdDefault The time after which steps are considered
+   *                         stalled, if no specific threshold is given
+   * @param thresholds       The thresholds for specific step descriptions
+   */
+
+  public TRWatchdogConfiguration
+  {
+    Objects.requireNonNull(tickDuration, "tickDuration");
+    Objects.requireNonNull(thresholdDefault, "thresholdDefault");
+    thresholds = Map.copyOf(thresholds);
+
+    checkPositive("Tick duration", tickDuration);
+    checkPositive("Default threshold", thresholdDefault);
+    for (final var entry : thresholds.entrySet()) {
+      checkPositive(
+        "Threshold for '%s'".formatted(entry.getKey()),
+        entry.getValue()
+      );
+    }
+  }
+
+  private static void checkPositive(
+    final String name,
+    final Duration duration)
+  {
+    if (duration.isNegative() || duration.isZero()) {
+      throw new IllegalArgumentException(
+        "%s %s must be positive.".formatted(name, duration)
+      );
+    }
+  }
+
+  /**
+   * A configuration with a tick of 100 milliseconds that applies the given
+   * threshold to all steps.
+   *
+   * @param threshold The threshold
+   *
+   * @return A configuration
+   */
+
+  public static TRWatchdogConfiguration defaults(
+    final Duration threshold)
+  {
+    return new TRWatchdogConfiguration(
+      Duration.ofMillis(100L),
+      threshold,
+      Map.of()
+    );
+  }
+
+  /**
+   * @param description The step description
+   *
+   * @return The threshold for steps with the given description
+   */
+
+  public Duration thresholdFor(
+    final String description)
+  {
+    return this.thresholds.getOrDefault(description, this.thresholdDefault);
+  }
+
+  /**
+   * @param description The step description
+   * @param threshold   The threshold
+   *
+   * @return This configuration with a specific threshold for the given step
+   * description
+   */
+
+  public TRWatchdogConfiguration withThreshold(
+    final String description,
+    final Duration threshold)
+  {
+    Objects.requireNonNull(description, "description");
+    Objects.requireNonNull(threshold, "threshold");
+
+    final var map = new HashMap<>(this.thresholds);
+    map.put(description, threshold);
+    return new TRWatchdogConfiguration(
+      this.tickDuration,
+      this.thresholdDefault,
+      map
+    );
+  }
+}
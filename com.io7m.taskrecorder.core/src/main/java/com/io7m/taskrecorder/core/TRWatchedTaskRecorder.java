@@ -0,0 +1,221 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.core;
+
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A task recorder that registers the steps of another recorder with a
+ * watchdog.
+ *
+ * @param <T> The type of returned values
+ */
+
+final class TRWatchedTaskRecorder<T> implements TRTaskRecorderType<T>
+{
+  private final TRWatchdog watchdog;
+  private final TRTaskRecorderType<T> delegate;
+  private final String task;
+  private TRWatchdog.TRWatch watch;
+
+  TRWatchedTaskRecorder(
+    final TRWatchdog inWatchdog,
+    final TRTaskRecorderType<T> inDelegate)
+  {
+    this.watchdog =
+      Objects.requireNonNull(inWatchdog, "watchdog");
+    this.delegate =
+      Objects.requireNonNull(inDelegate, "delegate");
+    this.task =
+      inDelegate.progress().description();
+    this.watch =
+      inWatchdog.begin(this.task, inDelegate.progress().snapshot().stepCurrent());
+  }
+
+  @Override
+  public String toString()
+  {
+    return this.delegate.toString();
+  }
+
+  @Override
+  public <U> TRTaskRecorderType<U> beginSubtask(
+    final String description)
+  {
+    return new TRWatchedTaskRecorder<>(
+      this.watchdog,
+      this.delegate.beginSubtask(description)
+    );
+  }
+
+  @Override
+  public TRTaskStepRecorderType beginStep(
+    final String description)
+  {
+    this.watch.end();
+    final var step = this.delegate.beginStep(description);
+    this.watch = this.watchdog.begin(this.task, description);
+    return new TRWatchedStepRecorder(step, this.watch);
+  }
+
+  @Override
+  public void graft(
+    final TRTask<?> grafted)
+  {
+    this.delegate.graft(grafted);
+  }
+
+  @Override
+  public TRTaskStepRecorderType stepCurrent()
+  {
+    return new TRWatchedStepRecorder(this.delegate.stepCurrent(), this.watch);
+  }
+
+  @Override
+  public void setTaskResolution(
+    final TRTaskResolutionType<T> resolution)
+  {
+    this.delegate.setTaskResolution(resolution);
+    this.watch.end();
+  }
+
+  @Override
+  public TRTask<T> toTask()
+  {
+    return this.delegate.toTask();
+  }
+
+  @Override
+  public TRTask<T> toTaskParallel(
+    final ForkJoinPool pool,
+    final int threshold)
+  {
+    return this.delegate.toTaskParallel(pool, threshold);
+  }
+
+  @Override
+  public TRTaskProgressView progress()
+  {
+    return this.delegate.progress();
+  }
+
+  @Override
+  public void setAttribute(
+    final TRAttributeKey<Long> key,
+    final long value)
+  {
+    this.delegate.setAttribute(key, value);
+  }
+
+  @Override
+  public void setAttribute(
+    final TRAttributeKey<Double> key,
+    final double value)
+  {
+    this.delegate.setAttribute(key, value);
+  }
+
+  @Override
+  public void setAttribute(
+    final TRAttributeKey<Boolean> key,
+    final boolean value)
+  {
+    this.delegate.setAttribute(key, value);
+  }
+
+  @Override
+  public void setAttribute(
+    final TRAttributeKey<String> key,
+    final String value)
+  {
+    this.delegate.setAttribute(key, value);
+  }
+
+  @Override
+  public void close()
+    throws IllegalStateException
+  {
+    try {
+      this.delegate.close();
+    } finally {
+      this.watch.end();
+    }
+  }
+
+  private static final class TRWatchedStepRecorder
+    implements TRTaskStepRecorderType
+  {
+    private final TRTaskStepRecorderType delegate;
+    private final TRWatchdog.TRWatch watch;
+
+    TRWatchedStepRecorder(
+      final TRTaskStepRecorderType inDelegate,
+      final TRWatchdog.TRWatch inWatch)
+    {
+      this.delegate = inDelegate;
+      this.watch = inWatch;
+    }
+
+    @Override
+    public TRStep toStep()
+    {
+      return this.delegate.toStep();
+    }
+
+    @Override
+    public void setStepResolution(
+      final TRStepResolutionType resolution)
+    {
+      this.delegate.setStepResolution(resolution);
+      this.watch.end();
+    }
+
+    @Override
+    public void setAttribute(
+      final TRAttributeKey<Long> key,
+      final long value)
+    {
+      this.delegate.setAttribute(key, value);
+    }
+
+    @Override
+    public void setAttribute(
+      final TRAttributeKey<Double> key,
+      final double value)
+    {
+      this.delegate.setAttribute(key, value);
+    }
+
+    @Override
+    public void setAttribute(
+      final TRAttributeKey<Boolean> key,
+      final boolean value)
+    {
+      this.delegate.setAttribute(key, value);
+    }
+
+    @Override
+    public void setAttribute(
+      final TRAttributeKey<String> key,
+      final String value)
+    {
+      this.delegate.setAttribute(key, value);
+    }
+  }
+}
@@ -23,6 +23,8 @@ module com.io7m.taskrecorder.core
   requires static org.osgi.annotation.bundle;
   requires static org.osgi.annotation.versioning;
 
+  requires java.management;
+  requires jdk.management;
   requires org.slf4j;
 
   exports com.io7m.taskrecorder.core;
@@ -0,0 +1,394 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.export;
+
+import com.io7m.taskrecorder.core.TRTask;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An exporter that passes completed tasks through a bounded, lock-free queue
+ * to a background thread, which writes them to a sink in batches. The
+ * behaviour of {@link #submit(TRTask)} when the queue is full is determined
+ * by the configured {@link TRExporterOverflowPolicy}; under
+ * {@link TRExporterOverflowPolicy#DROP} and
+ * {@link TRExporterOverflowPolicy#SAMPLE}, submitting a task never blocks.
+ */
+
+public final class TRAsyncExporter implements AutoCloseable
+{
+  private static final long BLOCK_PARK_NANOS = 50_000L;
+
+  private final Logger logger;
+  private final TRAsyncExporterConfiguration configuration;
+  private final TRTaskSinkType sink;
+  private final TRBoundedQueue<TRTask<?>> queue;
+  private final LongAdder submitted;
+  private final LongAdder dropped;
+  private final LongAdder exported;
+  private final LongAdder failed;
+  private final AtomicLong sampleCounter;
+  private final AtomicInteger submitting;
+  private final Thread drainer;
+  private final long lingerNanos;
+  private final int sampleThreshold;
+  private volatile boolean drainerWaiting;
+  private volatile boolean closed;
+
+  private TRAsyncExporter(
+    final Logger inLogger,
+    final TRAsyncExporterConfiguration inConfiguration,
+    final TRTaskSinkType inSink,
+    final ThreadFactory threadFactory)
+  {
+    this.logger =
+      Objects.requireNonNull(inLogger, "logger");
+    this.configuration =
+      Objects.requireNonNull(inConfiguration, "configuration");
+    this.sink =
+      Objects.requireNonNull(inSink, "sink");
+
+    this.queue =
+      new TRBoundedQueue<>(inConfiguration.queueCapacity());
+    this.submitted =
+      new LongAdder();
+    this.dropped =
+      new LongAdder();
+    this.exported =
+      new LongAdder();
+    this.failed =
+      new LongAdder();
+    this.sampleCounter =
+      new AtomicLong(0L);
+    this.submitting =
+      new AtomicInteger(0);
+    this.lingerNanos =
+      inConfiguration.lingerTime().toNanos();
+    this.sampleThreshold =
+      this.queue.capacity() / 2;
+    this.drainer =
+      Objects.requireNonNull(
+        threadFactory.newThread(this::drain),
+        "threadFactory.newThread"
+      );
+  }
+
+  /**
+   * Create and start a new exporter. The exporter uses a daemon platform
+   * thread to write batches.
+   *
+   * @param logger        The logger used to report sink failures
+   * @param configuration The configuration
+   * @param sink          The sink
+   *
+   * @return A new exporter
+   */
+
+  public static TRAsyncExporter create(
+    final Logger logger,
+    final TRAsyncExporterConfiguration configuration,
+    final TRTaskSinkType sink)
+  {
+    return create(
+      logger,
+      configuration,
+      sink,
+      Thread.ofPlatform()
+        .daemon()
+        .name("com.io7m.taskrecorder.export.drainer-", 0L)
+        .factory()
+    );
+  }
+
+  /**
+   * Create and start a new exporter.
+   *
+   * @param logger        The logger used to report sink failures
+   * @param configuration The configuration
+   * @param sink          The sink
+   * @param threadFactory The factory used to create the drainer thread
+   *
+   * @return A new exporter
+   */
+
+  public static TRAsyncExporter create(
+    final Logger logger,
+    final TRAsyncExporterConfiguration configuration,
+    final TRTaskSinkType sink,
+    final ThreadFactory threadFactory)
+  {
+    Objects.requireNonNull(threadFactory, "threadFactory");
+
+    final var exporter =
+      new TRAsyncExporter(logger, configuration, sink, threadFactory);
+    exporter.drainer.start();
+    return exporter;
+  }
+
+  /**
+   * @return The configuration
+   */
+
+  public TRAsyncExporterConfiguration configuration()
+  {
+    return this.configuration;
+  }
+
+  /**
+   * Submit a task for export.
+   *
+   * @param task The task
+   *
+   * @return {@code true} if the task was accepted, {@code false} if it was
+   * dropped or the exporter is closed
+   */
+
+  public boolean submit(
+    final TRTask<?> task)
+  {
+    Objects.requireNonNull(task, "task");
+
+    /*
+     * The drainer does not exit whilst any submitter is between checking
+     * the closed flag and completing its offer, so a task that is accepted
+     * is never stranded in the queue after the drainer has finished.
+     */
+
+    this.submitting.incrementAndGet();
+    final boolean accepted;
+    try {
+      if (this.closed) {
+        this.dropped.increment();
+        return false;
+      }
+
+      this.submitted.increment();
+      accepted = switch (this.configuration.overflowPolicy()) {
+        case DROP -> this.queue.offer(task);
+        case BLOCK -> this.offerBlocking(task);
+        case SAMPLE -> this.offerSampled(task);
+      };
+    } finally {
+      this.submitting.decrementAndGet();
+    }
+
+    if (accepted) {
+      if (this.drainerWaiting
+          && this.queue.size() >= this.configuration.batchSize()) {
+        LockSupport.unpark(this.drainer);
+      }
+    } else {
+      this.dropped.increment();
+    }
+    return accepted;
+  }
+
+  private boolean offerSampled(
+    final TRTask<?> task)
+  {
+    if (this.queue.size() >= this.sampleThreshold) {
+      final var count = this.sampleCounter.incrementAndGet();
+      if (count % this.configuration.sampleInterval() != 0L) {
+        return false;
+      }
+    }
+    return this.queue.offer(task);
+  }
+
+  private boolean offerBlocking(
+    final TRTask<?> task)
+  {
+    while (!this.queue.offer(task)) {
+      if (this.closed) {
+        return false;
+      }
+      LockSupport.unpark(this.drainer);
+      LockSupport.parkNanos(this, BLOCK_PARK_NANOS);
+    }
+    return true;
+  }
+
+  /**
+   * @return The approximate number of tasks waiting in the queue
+   */
+
+  public int queueDepth()
+  {
+    return this.queue.size();
+  }
+
+  /**
+   * @return The number of tasks submitted while the exporter was open
+   */
+
+  public long submittedCount()
+  {
+    return this.submitted.sum();
+  }
+
+  /**
+   * @return The number of tasks dropped due to overflow, sampling, or
+   * closing
+   */
+
+  public long droppedCount()
+  {
+    return this.dropped.sum();
+  }
+
+  /**
+   * @return The number of tasks successfully written to the sink
+   */
+
+  public long exportedCount()
+  {
+    return this.exported.sum();
+  }
+
+  /**
+   * @return The number of tasks lost because the sink raised an exception
+   */
+
+  public long failedCount()
+  {
+    return this.failed.sum();
+  }
+
+  private void drain()
+  {
+    final var batchSize =
+      this.configuration.batchSize();
+    final var batch =
+      new ArrayList<TRTask<?>>(batchSize);
+
+    long deadline = 0L;
+    while (true) {
+      final var task = this.queue.poll();
+      if (task != null) {
+        if (batch.isEmpty()) {
+          deadline = System.nanoTime() + this.lingerNanos;
+        }
+        batch.add(task);
+        if (batch.size() >= batchSize) {
+          this.writeBatch(batch);
+        }
+        continue;
+      }
+
+      final var isClosed = this.closed;
+      if (!batch.isEmpty()) {
+        final var remaining = deadline - System.nanoTime();
+        if (isClosed || remaining <= 0L) {
+          this.writeBatch(batch);
+          continue;
+        }
+        this.await(remaining);
+        continue;
+      }
+
+      if (isClosed) {
+        if (this.submitting.get() == 0 && this.queue.isEmpty()) {
+          return;
+        }
+        Thread.yield();
+        continue;
+      }
+      this.await(this.lingerNanos);
+    }
+  }
+
+  private void await(
+    final long nanos)
+  {
+    this.drainerWaiting = true;
+    try {
+      if (this.queue.isEmpty() && !this.closed) {
+        LockSupport.parkNanos(this, Math.max(1L, nanos));
+      }
+    } finally {
+      this.drainerWaiting = false;
+    }
+  }
+
+  private void writeBatch(
+    final ArrayList<TRTask<?>> batch)
+  {
+    final var size = batch.size();
+    try {
+      this.sink.write(Collections.unmodifiableList(batch));
+      this.exported.add(size);
+    } catch (final Exception e) {
+      this.failed.add(size);
+      this.logger.error("Failed to export {} tasks: ", Integer.valueOf(size), e);
+    } finally {
+      batch.clear();
+    }
+  }
+
+  /**
+   * Close the exporter. No further tasks are accepted, and all tasks that
+   * were accepted before the exporter was closed are written to the sink
+   * before this method returns. A task submitted concurrently with a call
+   * to this method is either rejected and counted as dropped, or accepted
+   * and written to the sink before this method returns. If the calling thread is interrupted whilst
+   * waiting, the wait continues and the interrupt status is restored
+   * afterwards.
+   */
+
+  @Override
+  public void close()
+  {
+    if (this.closed) {
+      return;
+    }
+
+    this.closed = true;
+    LockSupport.unpark(this.drainer);
+
+    boolean interrupted = false;
+    while (true) {
+      try {
+        this.drainer.join();
+        break;
+      } catch (final InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public String toString()
+  {
+    return "[TRAsyncExporter %s (depth %d, dropped %d)]".formatted(
+      this.configuration.overflowPolicy(),
+      Integer.valueOf(this.queueDepth()),
+      Long.valueOf(this.droppedCount())
+    );
+  }
+}
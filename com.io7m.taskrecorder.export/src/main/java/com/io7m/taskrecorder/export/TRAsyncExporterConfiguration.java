@@ -0,0 +1,103 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.export;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * The configuration for asynchronous exporters.
+ *
+ * @param queueCapacity  The minimum capacity of the queue (rounded up to a
+ *                       power of two)
+ * @param batchSize      The maximum number of tasks passed to the sink at
+ *                       once
+ * @param lingerTime     The maximum time a task waits for a batch to fill
+ *                       before the batch is written anyway
+ * @param overflowPolicy The behaviour when the queue is full
+ * @param sampleInterval The interval used by
+ *                       {@link TRExporterOverflowPolicy#SAMPLE}
+ */
+
+public record TRAsyncExporterConfiguration(
+  int queueCapacity,
+  int batchSize,
+  Duration lingerTime,
+  TRExporterOverflowPolicy overflowPolicy,
+  int sampleInterval)
+{
+  /**
+   * The configuration for asynchronous exporters.
+   *
+   * @param queueCapacity  The minimum capacity of the queue (rounded up to a
+   *                       power of two)
+   * @param batchSize      The maximum number of tasks passed to the sink at
+   *                       once
+   * @param lingerTime     The maximum time a task waits for a batch to fill
+   *                       before the batch is written anyway
+   * @param overflowPolicy The behaviour when the queue is full
+   * @param sampleInterval The interval used by
+   *                       {@link TRExporterOverflowPolicy#SAMPLE}
+   */
+
+  public TRAsyncExporterConfiguration
+  {
+    Objects.requireNonNull(lingerTime, "lingerTime");
+    Objects.requireNonNull(overflowPolicy, "overflowPolicy");
+
+    if (queueCapacity < 1 || queueCapacity > (1 << 30)) {
+      throw new IllegalArgumentException(
+        "Queue capacity %d must be in the range [1, 2^30]."
+          .formatted(Integer.valueOf(queueCapacity))
+      );
+    }
+    if (batchSize < 1) {
+      throw new IllegalArgumentException(
+        "Batch size %d must be positive.".formatted(Integer.valueOf(batchSize))
+      );
+    }
+    if (lingerTime.isNegative()) {
+      throw new IllegalArgumentException(
+        "Linger time %s must be non-negative.".formatted(lingerTime)
+      );
+    }
+    if (sampleInterval < 1) {
+      throw new IllegalArgumentException(
+        "Sample interval %d must be positive."
+          .formatted(Integer.valueOf(sampleInterval))
+      );
+    }
+  }
+
+  /**
+   * A configuration with reasonable defaults that drops tasks on overflow.
+   *
+   * @return A configuration
+   */
+
+  public static TRAsyncExporterConfiguration defaults()
+  {
+    return new TRAsyncExporterConfiguration(
+      8192,
+      256,
+      Duration.ofMillis(100L),
+      TRExporterOverflowPolicy.DROP,
+      8
+    );
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.export;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free, multi-producer queue based on a ring buffer with
+ * per-slot sequence numbers. Neither {@link #offer(Object)} nor
+ * {@link #poll()} ever block; {@link #offer(Object)} fails immediately
+ * if the queue is full.
+ *
+ * @param <E> The type of elements
+ */
+
+final class TRBoundedQueue<E>
+{
+  private final AtomicReferenceArray<E> elements;
+  private final AtomicLongArray sequences;
+  private final AtomicLong enqueuePosition;
+  private final AtomicLong dequeuePosition;
+  private final int mask;
+
+  /**
+   * Create a queue.
+   *
+   * @param requestedCapacity The minimum capacity; the actual capacity is the
+   *                          next power of two
+   */
+
+  TRBoundedQueue(
+    final int requestedCapacity)
+  {
+    final var capacity =
+      Math.max(2, Integer.highestOneBit(Math.max(1, requestedCapacity - 1)) << 1);
+
+    this.mask = capacity - 1;
+    this.elements = new AtomicReferenceArray<>(capacity);
+    this.sequences = new AtomicLongArray(capacity);
+    for (int index = 0; index < capacity; ++index) {
+      this.sequences.set(index, index);
+    }
+    this.enqueuePosition = new AtomicLong(0L);
+    this.dequeuePosition = new AtomicLong(0L);
+  }
+
+  /**
+   * @return The capacity of the queue
+   */
+
+  int capacity()
+  {
+    return this.mask + 1;
+  }
+
+  /**
+   * @return The approximate number of elements in the queue
+   */
+
+  int size()
+  {
+    final var size =
+      this.enqueuePosition.get() - this.dequeuePosition.get();
+    return (int) Math.max(0L, Math.min(size, this.capacity()));
+  }
+
+  /**
+   * @return {@code true} if the queue appears empty
+   */
+
+  boolean isEmpty()
+  {
+    return this.size() == 0;
+  }
+
+  /**
+   * Add an element to the queue, if there is space.
+   *
+   * @param element The element
+   *
+   * @return {@code true} if the element was added
+   */
+
+  boolean offer(
+    final E element)
+  {
+    long position = this.enqueuePosition.get();
+    while (true) {
+      final var index = (int) (position & this.mask);
+      final var difference = this.sequences.get(index) - position;
+      if (difference == 0L) {
+        if (this.enqueuePosition.compareAndSet(position, position + 1L)) {
+          this.elements.set(index, element);
+          this.sequences.lazySet(index, position + 1L);
+          return true;
+        }
+        position = this.enqueuePosition.get();
+      } else if (difference < 0L) {
+        return false;
+      } else {
+        position = this.enqueuePosition.get();
+      }
+    }
+  }
+
+  /**
+   * Remove an element from the queue.
+   *
+   * @return The element, or {@code null} if the queue is empty
+   */
+
+  E poll()
+  {
+    long position = this.dequeuePosition.get();
+    while (true) {
+      final var index = (int) (position & this.mask);
+      final var difference = this.sequences.get(index) - (position + 1L);
+      if (difference == 0L) {
+        if (this.dequeuePosition.compareAndSet(position, position + 1L)) {
+          final var element = this.elements.get(index);
+          this.elements.set(index, null);
+          this.sequences.lazySet(index, position + this.mask + 1L);
+          return element;
+        }
+        position = this.dequeuePosition.get();
+      } else if (difference < 0L) {
+        return null;
+      } else {
+        position = this.dequeuePosition.get();
+      }
+    }
+  }
+}
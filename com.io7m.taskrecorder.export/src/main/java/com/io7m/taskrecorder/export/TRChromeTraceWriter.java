@@ -0,0 +1,338 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.export;
+
+import com.io7m.taskrecorder.core.TRAttributes;
+import com.io7m.taskrecorder.core.TRStep;
+import com.io7m.taskrecorder.core.TRStepFailed;
+import com.io7m.taskrecorder.core.TRTask;
+import com.io7m.taskrecorder.core.TRTaskFailed;
+import com.io7m.taskrecorder.core.TRTaskItemType;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.Optional;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * <p>A writer that produces files in the Chrome
+ * <a href="https://docs.google.com/document/d/1CvAClvFfyA5R-PhYUmn5OOQtYMH4h6I0nSsKchNAySU">Trace Event Format</a>,
+ * suitable for loading into {@code chrome://tracing} or Perfetto.</p>
+ *
+ * <p>Each task passed to {@link #write(TRTask)} is written as a tree of
+ * nested complete ({@code "X"}) events on its own thread track. Events are
+ * streamed to the output as the tree is traversed, so the size of the
+ * output is not limited by available memory.</p>
+ *
+ * <p>Trace events are positioned by time, so every item must carry real
+ * timing information. Items constructed without start and end times (and
+ * therefore placed at {@link Instant#EPOCH}) are rejected rather than being
+ * exported as zero-length events at the origin of the trace.</p>
+ */
+
+public final class TRChromeTraceWriter implements Closeable
+{
+  private static final long PROCESS_ID = 1L;
+
+  private final TRJsonWriter json;
+  private final OutputStream stream;
+  private long threadId;
+  private boolean closed;
+
+  private TRChromeTraceWriter(
+    final OutputStream inStream)
+    throws IOException
+  {
+    this.stream =
+      Objects.requireNonNull(inStream, "stream");
+    this.json =
+      new TRJsonWriter(
+        new BufferedWriter(new OutputStreamWriter(inStream, UTF_8))
+      );
+    this.threadId = 0L;
+
+    this.json.beginObject();
+    this.json.field("displayTimeUnit", "ms");
+    this.json.name("traceEvents");
+    this.json.beginArray();
+  }
+
+  /**
+   * Create a writer that writes to the given stream. The stream is closed
+   * when the writer is closed.
+   *
+   * @param stream The output stream
+   *
+   * @return A new writer
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public static TRChromeTraceWriter create(
+    final OutputStream stream)
+    throws IOException
+  {
+    return new TRChromeTraceWriter(stream);
+  }
+
+  /**
+   * Create a writer that writes to the given file, replacing it if it
+   * already exists.
+   *
+   * @param file The output file
+   *
+   * @return A new writer
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public static TRChromeTraceWriter open(
+    final Path file)
+    throws IOException
+  {
+    return create(Files.newOutputStream(file));
+  }
+
+  /**
+   * Write the given task, and all of its subtasks and steps, as a set of
+   * trace events on a new thread track.
+   *
+   * @param task The task
+   *
+   * @throws IOException              On I/O errors
+   * @throws IllegalArgumentException If any item in the task has no timing
+   *                                  information; nothing is written
+   */
+
+  public void write(
+    final TRTask<?> task)
+    throws IOException
+  {
+    Objects.requireNonNull(task, "task");
+
+    if (this.closed) {
+      throw new IllegalStateException("Writer is closed.");
+    }
+
+    TRTimedItems.checkTimed(task, "Chrome traces");
+
+    ++this.threadId;
+
+    this.json.newline();
+    this.json.beginObject();
+    this.json.field("name", "thread_name");
+    this.json.field("ph", "M");
+    this.json.field("pid", PROCESS_ID);
+    this.json.field("tid", this.threadId);
+    this.json.name("args");
+    this.json.beginObject();
+    this.json.field("name", task.description());
+    this.json.endObject();
+    this.json.endObject();
+
+    final var stack = new ArrayDeque<TRTaskItemType>();
+    stack.push(task);
+    while (!stack.isEmpty()) {
+      final var item = stack.pop();
+      if (item instanceof final TRTask<?> subtask) {
+        this.writeTask(subtask);
+        pushItems(stack, subtask);
+      } else {
+        this.writeStep((TRStep) item);
+      }
+    }
+  }
+
+  private static void pushItems(
+    final ArrayDeque<TRTaskItemType> stack,
+    final TRTask<?> task)
+  {
+    final var items = task.items();
+    for (int index = items.size() - 1; index >= 0; --index) {
+      stack.push(items.get(index));
+    }
+  }
+
+  private void writeTask(
+    final TRTask<?> task)
+    throws IOException
+  {
+    final Optional<Throwable> exception;
+    final boolean failed;
+    if (task.resolution() instanceof final TRTaskFailed<?> f) {
+      failed = true;
+      exception = f.exception();
+    } else {
+      failed = false;
+      exception = Optional.empty();
+    }
+
+    this.writeEvent(
+      task,
+      "task",
+      failed,
+      task.resolution().message(),
+      exception
+    );
+  }
+
+  private void writeStep(
+    final TRStep step)
+    throws IOException
+  {
+    final Optional<Throwable> exception;
+    final boolean failed;
+    if (step.resolution() instanceof final TRStepFailed f) {
+      failed = true;
+      exception = f.exception();
+    } else {
+      failed = false;
+      exception = Optional.empty();
+    }
+
+    this.writeEvent(
+      step,
+      "step",
+      failed,
+      step.resolution().message(),
+      exception
+    );
+  }
+
+  private void writeEvent(
+    final TRTaskItemType item,
+    final String category,
+    final boolean failed,
+    final String message,
+    final Optional<Throwable> exception)
+    throws IOException
+  {
+    final var duration = item.duration();
+
+    this.json.newline();
+    this.json.beginObject();
+    this.json.field("name", item.description());
+    this.json.field("cat", category);
+    this.json.field("ph", "X");
+    this.json.name("ts");
+    this.json.valueNumber(microseconds(item.timeStarted()));
+    this.json.name("dur");
+    this.json.valueNumber(
+      microseconds(duration.getSeconds(), duration.getNano()));
+    this.json.field("pid", PROCESS_ID);
+    this.json.field("tid", this.threadId);
+    if (failed) {
+      this.json.field("cname", "terrible");
+    }
+
+    this.json.name("args");
+    this.json.beginObject();
+    this.json.field("resolution", failed ? "failed" : "succeeded");
+    this.json.field("message", message);
+    if (exception.isPresent()) {
+      this.json.field("exception", exception.get().toString());
+    }
+    this.writeAttributes(item.attributes());
+    this.json.endObject();
+    this.json.endObject();
+  }
+
+  private void writeAttributes(
+    final TRAttributes attributes)
+    throws IOException
+  {
+    if (attributes.isEmpty()) {
+      return;
+    }
+
+    this.json.name("attributes");
+    this.json.beginObject();
+    for (int index = 0; index < attributes.size(); ++index) {
+      this.json.name(attributes.keyAt(index).name());
+      switch (attributes.keyAt(index).type()) {
+        case LONG -> this.json.value(attributes.longAt(index));
+        case DOUBLE -> this.json.value(attributes.doubleAt(index));
+        case BOOLEAN -> this.json.value(attributes.booleanAt(index));
+        case STRING -> this.json.value(attributes.stringAt(index));
+      }
+    }
+    this.json.endObject();
+  }
+
+  private static CharSequence microseconds(
+    final Instant time)
+  {
+    return microseconds(time.getEpochSecond(), time.getNano());
+  }
+
+  private static CharSequence microseconds(
+    final long seconds,
+    final int nanos)
+  {
+    final var text = new StringBuilder(24);
+    text.append((seconds * 1_000_000L) + (nanos / 1_000));
+
+    final var fraction = nanos % 1_000;
+    if (fraction != 0) {
+      text.append('.');
+      if (fraction < 100) {
+        text.append('0');
+      }
+      if (fraction < 10) {
+        text.append('0');
+      }
+      text.append(fraction);
+    }
+    return text;
+  }
+
+  /**
+   * Finish the trace and close the underlying stream.
+   *
+   * @throws IOException On I/O errors
+   */
+
+  @Override
+  public void close()
+    throws IOException
+  {
+    if (this.closed) {
+      return;
+    }
+
+    this.closed = true;
+    try {
+      this.json.newline();
+      this.json.endArray();
+      this.json.endObject();
+      this.json.newline();
+      this.json.flush();
+    } finally {
+      this.stream.close();
+    }
+  }
+}
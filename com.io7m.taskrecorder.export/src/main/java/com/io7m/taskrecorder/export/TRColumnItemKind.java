@@ -0,0 +1,98 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.taskrecorder.export;
+
+/**
+ * The kind and resolution of an item in {@link TRTaskColumns}.
+ */
+
+public enum TRColumnItemKind
+{
+  /**
+   * A task that succeeded.
+   */
+
+  TASK_SUCCEEDED,
+
+  /**
+   * A task that failed.
+   */
+
+  TASK_FAILED,
+
+  /**
+   * A step that succeeded.
+   */
+
+  STEP_SUCCEEDED,
+
+  /**
+   * A step that failed.
+   */
+
+  STEP_FAILED;
+
+  private static final TRColumnItemKind[] VALUES = values();
+
+  /**
+   * @param code The code
+   *
+   * @return The kind with the given code
+   *
+   * @throws IllegalArgumentException If the code is not valid
+   *
+   * @see #code()
+   */
+
+  public static TRColumnItemKind ofCode(
+    final int code)
+  {
+    if (code < 0 || code >= VALUES.length) {
+      throw new IllegalArgumentException(
+        "Unrecognized item kind code %d.".formatted(Integer.valueOf(code))
+      );
+    }
+    return VALUES[code];
+  }
+
+  /**
+   * @return The code used to store the kind in a column
+   */
+
+  public int code()
+  {
+    return this.ordinal();
+  }
+
+  /**
+   * @return {@code true} if the item is a task
+   */
+
+  public boolean isTask()
+  {
+    return this == TASK_SUCCEEDED || this == TASK_FAILED;
+  }
+
+  /**
+   * @return {@code true} if the item failed
+   */
+
+  public boolean isFailed()
+  {
+    return this == TASK_FAILED || this == STEP_FAILED;
+  }
+}
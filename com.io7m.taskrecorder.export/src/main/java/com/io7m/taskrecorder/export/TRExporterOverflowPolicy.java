@@ -0,0 +1,47 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.export;
+
+/**
+ * The behaviour of an asynchronous exporter when its queue is full.
+ */
+
+public enum TRExporterOverflowPolicy
+{
+  /**
+   * Tasks submitted while the queue is full are dropped. Submitting never
+   * blocks.
+   */
+
+  DROP,
+
+  /**
+   * Submitting a task blocks until there is space in the queue.
+   */
+
+  BLOCK,
+
+  /**
+   * Once the queue is more than half full, only one in every
+   * {@link TRAsyncExporterConfiguration#sampleInterval()} submitted tasks is
+   * accepted; tasks submitted while the queue is full are dropped.
+   * Submitting never blocks.
+   */
+
+  SAMPLE
+}
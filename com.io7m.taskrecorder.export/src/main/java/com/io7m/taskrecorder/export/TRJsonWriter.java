@@ -0,0 +1,253 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.export;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A minimal streaming JSON writer. Values are written directly to the
+ * underlying writer; nothing is buffered beyond the nesting state.
+ */
+
+final class TRJsonWriter
+{
+  private final Writer writer;
+  private boolean[] first;
+  private int depth;
+  private boolean afterName;
+  private boolean newlinePending;
+
+  TRJsonWriter(
+    final Writer inWriter)
+  {
+    this.writer = Objects.requireNonNull(inWriter, "writer");
+    this.first = new boolean[16];
+    this.depth = 0;
+  }
+
+  void beginObject()
+    throws IOException
+  {
+    this.separate();
+    this.writer.write('{');
+    this.push();
+  }
+
+  void endObject()
+    throws IOException
+  {
+    this.writePendingNewline();
+    --this.depth;
+    this.writer.write('}');
+  }
+
+  void beginArray()
+    throws IOException
+  {
+    this.separate();
+    this.writer.write('[');
+    this.push();
+  }
+
+  void endArray()
+    throws IOException
+  {
+    this.writePendingNewline();
+    --this.depth;
+    this.writer.write(']');
+  }
+
+  void name(
+    final String name)
+    throws IOException
+  {
+    this.separate();
+    this.string(name);
+    this.writer.write(':');
+    this.afterName = true;
+  }
+
+  void value(
+    final String value)
+    throws IOException
+  {
+    this.separate();
+    this.string(value);
+  }
+
+  void value(
+    final long value)
+    throws IOException
+  {
+    this.separate();
+    this.writer.write(Long.toString(value));
+  }
+
+  void value(
+    final boolean value)
+    throws IOException
+  {
+    this.separate();
+    this.writer.write(value ? "true" : "false");
+  }
+
+  /**
+   * Write a floating point number. JSON cannot represent infinities or NaN,
+   * so these are written as the strings {@code "Infinity"},
+   * {@code "-Infinity"}, and {@code "NaN"}.
+   *
+   * @param value The number
+   *
+   * @throws IOException On I/O errors
+   */
+
+  void value(
+    final double value)
+    throws IOException
+  {
+    if (Double.isFinite(value)) {
+      this.separate();
+      this.writer.write(Double.toString(value));
+    } else {
+      this.value(Double.toString(value));
+    }
+  }
+
+  /**
+   * Write a number that has already been formatted.
+   *
+   * @param value The formatted number
+   *
+   * @throws IOException On I/O errors
+   */
+
+  void valueNumber(
+    final CharSequence value)
+    throws IOException
+  {
+    this.separate();
+    this.writer.append(value);
+  }
+
+  void field(
+    final String name,
+    final String value)
+    throws IOException
+  {
+    this.name(name);
+    this.value(value);
+  }
+
+  void field(
+    final String name,
+    final long value)
+    throws IOException
+  {
+    this.name(name);
+    this.value(value);
+  }
+
+  /**
+   * Request a line break before the next value (after any separator).
+   */
+
+  void newline()
+  {
+    this.newlinePending = true;
+  }
+
+  void flush()
+    throws IOException
+  {
+    this.writePendingNewline();
+    this.writer.flush();
+  }
+
+  private void writePendingNewline()
+    throws IOException
+  {
+    if (this.newlinePending) {
+      this.newlinePending = false;
+      this.writer.write('\n');
+    }
+  }
+
+  private void push()
+  {
+    if (this.depth == this.first.length) {
+      this.first = Arrays.copyOf(this.first, this.depth * 2);
+    }
+    this.first[this.depth] = true;
+    ++this.depth;
+  }
+
+  private void separate()
+    throws IOException
+  {
+    if (this.afterName) {
+      this.afterName = false;
+      return;
+    }
+    if (this.depth > 0) {
+      if (this.first[this.depth - 1]) {
+        this.first[this.depth - 1] = false;
+      } else {
+        this.writer.write(',');
+      }
+    }
+    this.writePendingNewline();
+  }
+
+  private void string(
+    final String text)
+    throws IOException
+  {
+    final var w = this.writer;
+    w.write('"');
+
+    final var length = text.length();
+    int start = 0;
+    for (int index = 0; index < length; ++index) {
+      final var c = text.charAt(index);
+      final String escape;
+      if (c == '"') {
+        escape = "\\\"";
+      } else if (c == '\\') {
+        escape = "\\\\";
+      } else if (c == '\n') {
+        escape = "\\n";
+      } else if (c == '\r') {
+        escape = "\\r";
+      } else if (c == '\t') {
+        escape = "\\t";
+      } else if (c < 0x20 || c == 0x2028 || c == 0x2029) {
+        escape = "\\u%04x".formatted(Integer.valueOf(c));
+      } else {
+        continue;
+      }
+      w.write(text, start, index - start);
+      w.write(escape);
+      start = index + 1;
+    }
+    w.write(text, start, length - start);
+    w.write('"');
+  }
+}
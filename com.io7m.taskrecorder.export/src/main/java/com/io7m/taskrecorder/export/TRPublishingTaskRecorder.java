@@ -0,0 +1,269 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.taskrecorder.export;
+
+import com.io7m.taskrecorder.core.TRAttributeKey;
+import com.io7m.taskrecorder.core.TRStep;
+import com.io7m.taskrecorder.core.TRStepResolutionType;
+import com.io7m.taskrecorder.core.TRTask;
+import com.io7m.taskrecorder.core.TRTaskProgressView;
+import com.io7m.taskrecorder.core.TRTaskRecorderType;
+import com.io7m.taskrecorder.core.TRTaskResolutionType;
+import com.io7m.taskrecorder.core.TRTaskStepRecorderType;
+
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A task recorder that publishes events for the steps and subtasks of
+ * another recorder.
+ *
+ * @param <T> The type of returned values
+ */
+
+final class TRPublishingTaskRecorder<T> implements TRTaskRecorderType<T>
+{
+  private final TRRecordingPublisher publisher;
+  private final TRTaskRecorderType<T> delegate;
+  private final long task;
+  private String stepDescription;
+
+  TRPublishingTaskRecorder(
+    final TRRecordingPublisher inPublisher,
+    final TRTaskRecorderType<T> inDelegate,
+    final long parent)
+  {
+    this.publisher =
+      Objects.requireNonNull(inPublisher, "publisher");
+    this.delegate =
+      Objects.requireNonNull(inDelegate, "delegate");
+    this.task =
+      inPublisher.nextTaskId();
+
+    final var description = inDelegate.progress().description();
+    this.stepDescription = description;
+
+    if (inPublisher.isActive()) {
+      final var time = inPublisher.clock().instant();
+      inPublisher.publish(new TRRecordingTaskBegan(
+        inPublisher.nextSequence(), this.task, parent, description, time));
+      inPublisher.publish(new TRRecordingStepBegan(
+        inPublisher.nextSequence(), this.task, description, time));
+    }
+  }
+
+  @Override
+  public String toString()
+  {
+    return this.delegate.toString();
+  }
+
+  @Override
+  public <U> TRTaskRecorderType<U> beginSubtask(
+    final String description)
+  {
+    return new TRPublishingTaskRecorder<>(
+      this.publisher,
+      this.delegate.beginSubtask(description),
+      this.task
+    );
+  }
+
+  @Override
+  public TRTaskStepRecorderType beginStep(
+    final String description)
+  {
+    final var recorder = this.delegate.beginStep(description);
+    this.stepDescription = description;
+
+    final var p = this.publisher;
+    if (p.isActive()) {
+      p.publish(new TRRecordingStepBegan(
+        p.nextSequence(), this.task, description, p.clock().instant()));
+    }
+    return new TRPublishingStepRecorder(this, recorder, description);
+  }
+
+  @Override
+  public void graft(
+    final TRTask<?> grafted)
+  {
+    this.delegate.graft(grafted);
+
+    final var p = this.publisher;
+    if (p.isActive()) {
+      p.publish(new TRRecordingTaskGrafted(
+        p.nextSequence(), this.task, grafted, p.clock().instant()));
+    }
+  }
+
+  @Override
+  public TRTaskStepRecorderType stepCurrent()
+  {
+    return new TRPublishingStepRecorder(
+      this,
+      this.delegate.stepCurrent(),
+      this.stepDescription
+    );
+  }
+
+  @Override
+  public void setTaskResolution(
+    final TRTaskResolutionType<T> resolution)
+  {
+    this.delegate.setTaskResolution(resolution);
+
+    final var p = this.publisher;
+    if (p.isActive()) {
+      p.publish(new TRRecordingTaskResolved(
+        p.nextSequence(), this.task, resolution, p.clock().instant()));
+    }
+  }
+
+  @Override
+  public TRTask<T> toTask()
+  {
+    return this.delegate.toTask();
+  }
+
+  @Override
+  public TRTask<T> toTaskParallel(
+    final ForkJoinPool pool,
+    final int threshold)
+  {
+    return this.delegate.toTaskParallel(pool, threshold);
+  }
+
+  @Override
+  public TRTaskProgressView progress()
+  {
+    return this.delegate.progress();
+  }
+
+  @Override
+  public void setAttribute(
+    final TRAttributeKey<Long> key,
+    final long value)
+  {
+    this.delegate.setAttribute(key, value);
+  }
+
+  @Override
+  public void setAttribute(
+    final TRAttributeKey<Double> key,
+    final double value)
+  {
+    this.delegate.setAttribute(key, value);
+  }
+
+  @Override
+  public void setAttribute(
+    final TRAttributeKey<Boolean> key,
+    final boolean value)
+  {
+    this.delegate.setAttribute(key, value);
+  }
+
+  @Override
+  public void setAttribute(
+    final TRAttributeKey<String> key,
+    final String value)
+  {
+    this.delegate.setAttribute(key, value);
+  }
+
+  @Override
+  public void close()
+    throws IllegalStateException
+  {
+    this.delegate.close();
+  }
+
+  private static final class TRPublishingStepRecorder
+    implements TRTaskStepRecorderType
+  {
+    private final TRPublishingTaskRecorder<?> owner;
+    private final TRTaskStepRecorderType delegate;
+    private final String description;
+
+    TRPublishingStepRecorder(
+      final TRPublishingTaskRecorder<?> inOwner,
+      final TRTaskStepRecorderType inDelegate,
+      final String inDescription)
+    {
+      this.owner = inOwner;
+      this.delegate = inDelegate;
+      this.description = inDescription;
+    }
+
+    @Override
+    public TRStep toStep()
+    {
+      return this.delegate.toStep();
+    }
+
+    @Override
+    public void setStepResolution(
+      final TRStepResolutionType resolution)
+    {
+      this.delegate.setStepResolution(resolution);
+
+      final var p = this.owner.publisher;
+      if (p.isActive()) {
+        p.publish(new TRRecordingStepResolved(
+          p.nextSequence(),
+          this.owner.task,
+          this.description,
+          resolution,
+          p.clock().instant()
+        ));
+      }
+    }
+
+    @Override
+    public void setAttribute(
+      final TRAttributeKey<Long> key,
+      final long value)
+    {
+      this.delegate.setAttribute(key, value);
+    }
+
+    @Override
+    public void setAttribute(
+      final TRAttributeKey<Double> key,
+      final double value)
+    {
+      this.delegate.setAttribute(key, value);
+    }
+
+    @Override
+    public void setAttribute(
+      final TRAttributeKey<Boolean> key,
+      final boolean value)
+    {
+      this.delegate.setAttribute(key, value);
+    }
+
+    @Override
+    public void setAttribute(
+      final TRAttributeKey<String> key,
+      final String value)
+    {
+      this.delegate.setAttribute(key, value);
+    }
+  }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.taskrecorder.export;
+
+/**
+ * The behaviour of a {@link TRRecordingPublisher} when the buffer of a
+ * subscriber is full. Publishing never blocks under any policy.
+ */
+
+public enum TRRecordingOverflowPolicy
+{
+  /**
+   * Events published while the buffer is full are dropped.
+   */
+
+  DROP_NEWEST,
+
+  /**
+   * The oldest buffered event is dropped to make room for each event
+   * published while the buffer is full.
+   */
+
+  DROP_OLDEST,
+
+  /**
+   * The subscription is cancelled, and the subscriber receives an
+   * {@link IllegalStateException}.
+   */
+
+  CANCEL
+}
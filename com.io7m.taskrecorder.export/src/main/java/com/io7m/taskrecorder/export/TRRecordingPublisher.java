@@ -0,0 +1,502 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.taskrecorder.export;
+
+import com.io7m.taskrecorder.core.TRTaskRecorderType;
+import org.slf4j.Logger;
+
+import java.time.Clock;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>A publisher of the events of recorder trees.</p>
+ *
+ * <p>Recorders returned by {@link #record(TRTaskRecorderType)} publish an
+ * event each time a task or step begins or is resolved, and each time a
+ * task is grafted. Each subscriber has its own bounded, lock-free buffer,
+ * and events are delivered from the buffer on the publisher's executor as
+ * the subscriber signals demand with
+ * {@link Flow.Subscription#request(long)}. Publishing an event never
+ * blocks the recording thread: when a buffer is full, the configured
+ * {@link TRRecordingOverflowPolicy} decides which event is lost. When there
+ * are no subscribers, recorders do not construct events at all.</p>
+ *
+ * <p>Publishers are safe to use from multiple threads, and any number of
+ * recorder trees on any number of threads may publish to one publisher.</p>
+ */
+
+public final class TRRecordingPublisher
+  implements Flow.Publisher<TRRecordingEventType>, AutoCloseable
+{
+  private final Logger logger;
+  private final TRRecordingPublisherConfiguration configuration;
+  private final Clock clock;
+  private final Executor executor;
+  private final CopyOnWriteArrayList<TRSubscription> subscriptions;
+  private final AtomicLong sequence;
+  private final AtomicLong taskIds;
+  private final LongAdder published;
+  private final LongAdder dropped;
+  private volatile boolean closed;
+
+  private TRRecordingPublisher(
+    final Logger inLogger,
+    final TRRecordingPublisherConfiguration inConfiguration,
+    final Clock inClock,
+    final Executor inExecutor)
+  {
+    this.logger =
+      Objects.requireNonNull(inLogger, "logger");
+    this.configuration =
+      Objects.requireNonNull(inConfiguration, "configuration");
+    this.clock =
+      Objects.requireNonNull(inClock, "clock");
+    this.executor =
+      Objects.requireNonNull(inExecutor, "executor");
+
+    this.subscriptions =
+      new CopyOnWriteArrayList<>();
+    this.sequence =
+      new AtomicLong(0L);
+    this.taskIds =
+      new AtomicLong(0L);
+    this.published =
+      new LongAdder();
+    this.dropped =
+      new LongAdder();
+  }
+
+  /**
+   * Create a new publisher. Events are delivered on the common fork/join
+   * pool.
+   *
+   * @param logger        The logger used to report subscriber failures
+   * @param configuration The configuration
+   *
+   * @return A new publisher
+   */
+
+  public static TRRecordingPublisher create(
+    final Logger logger,
+    final TRRecordingPublisherConfiguration configuration)
+  {
+    return create(
+      logger,
+      configuration,
+      Clock.systemUTC(),
+      ForkJoinPool.commonPool()
+    );
+  }
+
+  /**
+   * Create a new publisher.
+   *
+   * @param logger        The logger used to report subscriber failures
+   * @param configuration The configuration
+   * @param clock         The clock used to timestamp events
+   * @param executor      The executor on which events are delivered
+   *
+   * @return A new publisher
+   */
+
+  public static TRRecordingPublisher create(
+    final Logger logger,
+    final TRRecordingPublisherConfiguration configuration,
+    final Clock clock,
+    final Executor executor)
+  {
+    return new TRRecordingPublisher(logger, configuration, clock, executor);
+  }
+
+  /**
+   * @return The configuration
+   */
+
+  public TRRecordingPublisherConfiguration configuration()
+  {
+    return this.configuration;
+  }
+
+  /**
+   * Publish events for the given task recorder and all of its subtasks. The
+   * returned recorder must be used in place of the given recorder.
+   *
+   * @param recorder The recorder
+   * @param <T>      The type of returned values
+   *
+   * @return A recorder that publishes events
+   */
+
+  public <T> TRTaskRecorderType<T> record(
+    final TRTaskRecorderType<T> recorder)
+  {
+    Objects.requireNonNull(recorder, "recorder");
+    return new TRPublishingTaskRecorder<>(this, recorder, 0L);
+  }
+
+  @Override
+  public void subscribe(
+    final Flow.Subscriber<? super TRRecordingEventType> subscriber)
+  {
+    Objects.requireNonNull(subscriber, "subscriber");
+
+    final var subscription = new TRSubscription(subscriber);
+    this.subscriptions.add(subscription);
+    if (this.closed) {
+      subscription.complete();
+    }
+    subscription.start();
+  }
+
+  /**
+   * @return The number of current subscribers
+   */
+
+  public int subscriberCount()
+  {
+    return this.subscriptions.size();
+  }
+
+  /**
+   * @return The number of events published while there was at least one
+   * subscriber
+   */
+
+  public long publishedCount()
+  {
+    return this.published.sum();
+  }
+
+  /**
+   * @return The number of events lost across all subscribers due to
+   * overflow
+   */
+
+  public long droppedCount()
+  {
+    return this.dropped.sum();
+  }
+
+  /**
+   * Close the publisher. Events published after this method is called are
+   * discarded, and each subscriber receives
+   * {@link Flow.Subscriber#onComplete()} once it has consumed all of the
+   * events in its buffer.
+   */
+
+  @Override
+  public void close()
+  {
+    if (this.closed) {
+      return;
+    }
+
+    this.closed = true;
+    for (final var subscription : this.subscriptions) {
+      subscription.complete();
+    }
+  }
+
+  @Override
+  public String toString()
+  {
+    return "[TRRecordingPublisher %s (subscribers %d, dropped %d)]".formatted(
+      this.configuration.overflowPolicy(),
+      Integer.valueOf(this.subscriberCount()),
+      Long.valueOf(this.droppedCount())
+    );
+  }
+
+  boolean isActive()
+  {
+    return !this.closed && !this.subscriptions.isEmpty();
+  }
+
+  long nextTaskId()
+  {
+    return this.taskIds.incrementAndGet();
+  }
+
+  long nextSequence()
+  {
+    return this.sequence.incrementAndGet();
+  }
+
+  Clock clock()
+  {
+    return this.clock;
+  }
+
+  void publish(
+    final TRRecordingEventType event)
+  {
+    if (this.closed) {
+      return;
+    }
+
+    this.published.increment();
+    for (final var subscription : this.subscriptions) {
+      subscription.offer(event);
+    }
+  }
+
+  /**
+   * A subscription. Signals to the subscriber are only made by a drain task
+   * on the executor, and a drain task is only scheduled by the thread that
+   * moves the work counter away from zero, so signals are serialized. A
+   * terminated subscription never returns its work counter to zero, and so
+   * is never drained again.
+   */
+
+  private final class TRSubscription implements Flow.Subscription
+  {
+    private final Flow.Subscriber<? super TRRecordingEventType> subscriber;
+    private final TRBoundedQueue<TRRecordingEventType> buffer;
+    private final AtomicLong requested;
+    private final AtomicInteger work;
+    private volatile boolean cancelled;
+    private volatile boolean completed;
+    private volatile Throwable error;
+
+    TRSubscription(
+      final Flow.Subscriber<? super TRRecordingEventType> inSubscriber)
+    {
+      this.subscriber =
+        inSubscriber;
+      this.buffer =
+        new TRBoundedQueue<>(
+          TRRecordingPublisher.this.configuration.bufferCapacity());
+      this.requested =
+        new AtomicLong(0L);
+      this.work =
+        new AtomicInteger(1);
+    }
+
+    void start()
+    {
+      this.execute(() -> {
+        try {
+          this.subscriber.onSubscribe(this);
+        } catch (final Throwable e) {
+          this.failed(e);
+          return;
+        }
+        this.drain(1);
+      });
+    }
+
+    void offer(
+      final TRRecordingEventType event)
+    {
+      if (this.cancelled) {
+        return;
+      }
+
+      if (!this.buffer.offer(event)) {
+        final var publisher = TRRecordingPublisher.this;
+        switch (publisher.configuration.overflowPolicy()) {
+          case DROP_NEWEST -> {
+            publisher.dropped.increment();
+            return;
+          }
+          case DROP_OLDEST -> {
+            while (!this.buffer.offer(event)) {
+              if (this.buffer.poll() != null) {
+                publisher.dropped.increment();
+              }
+            }
+          }
+          case CANCEL -> {
+            publisher.dropped.increment();
+            this.error = new IllegalStateException(
+              "The subscriber buffer (capacity %d) overflowed."
+                .formatted(Integer.valueOf(this.buffer.capacity()))
+            );
+            this.cancelled = true;
+          }
+        }
+      }
+
+      if (this.cancelled || this.requested.get() != 0L) {
+        this.schedule();
+      }
+    }
+
+    void complete()
+    {
+      this.completed = true;
+      this.schedule();
+    }
+
+    @Override
+    public void request(
+      final long n)
+    {
+      if (n <= 0L) {
+        this.error = new IllegalArgumentException(
+          "Requested count %d must be positive.".formatted(Long.valueOf(n))
+        );
+        this.cancelled = true;
+      } else {
+        this.requested.getAndAccumulate(n, (current, added) -> {
+          final var sum = current + added;
+          return sum < 0L ? Long.MAX_VALUE : sum;
+        });
+      }
+      this.schedule();
+    }
+
+    @Override
+    public void cancel()
+    {
+      this.cancelled = true;
+      this.schedule();
+    }
+
+    private void schedule()
+    {
+      if (this.work.getAndIncrement() == 0) {
+        this.execute(() -> this.drain(1));
+      }
+    }
+
+    private void execute(
+      final Runnable runnable)
+    {
+      try {
+        TRRecordingPublisher.this.executor.execute(runnable);
+      } catch (final RejectedExecutionException e) {
+        TRRecordingPublisher.this.logger.error(
+          "Executor rejected delivery; cancelling subscription: ", e);
+        this.cancelled = true;
+        this.remove();
+      }
+    }
+
+    private void drain(
+      final int initialMissed)
+    {
+      int missed = initialMissed;
+      while (true) {
+        if (this.terminateIfCancelled()) {
+          return;
+        }
+
+        final var demand = this.requested.get();
+        long emitted = 0L;
+        while (emitted != demand) {
+          if (this.terminateIfCancelled()) {
+            return;
+          }
+
+          final var done = this.completed;
+          final var event = this.buffer.poll();
+          if (event == null) {
+            if (done) {
+              this.terminate(null);
+              return;
+            }
+            break;
+          }
+
+          try {
+            this.subscriber.onNext(event);
+          } catch (final Throwable e) {
+            this.failed(e);
+            return;
+          }
+          ++emitted;
+        }
+
+        if (emitted == demand && this.completed && this.buffer.isEmpty()) {
+          if (!this.terminateIfCancelled()) {
+            this.terminate(null);
+          }
+          return;
+        }
+
+        if (emitted != 0L && demand != Long.MAX_VALUE) {
+          this.requested.addAndGet(-emitted);
+        }
+
+        missed = this.work.addAndGet(-missed);
+        if (missed == 0) {
+          return;
+        }
+      }
+    }
+
+    private boolean terminateIfCancelled()
+    {
+      if (!this.cancelled) {
+        return false;
+      }
+
+      final var failure = this.error;
+      if (failure != null) {
+        this.terminate(failure);
+      } else {
+        this.remove();
+      }
+      return true;
+    }
+
+    private void terminate(
+      final Throwable failure)
+    {
+      this.cancelled = true;
+      this.remove();
+      try {
+        if (failure == null) {
+          this.subscriber.onComplete();
+        } else {
+          this.subscriber.onError(failure);
+        }
+      } catch (final Throwable e) {
+        this.failed(e);
+      }
+    }
+
+    private void failed(
+      final Throwable e)
+    {
+      TRRecordingPublisher.this.logger.error(
+        "Subscriber {} raised an exception; cancelling subscription: ",
+        this.subscriber,
+        e
+      );
+      this.cancelled = true;
+      this.remove();
+    }
+
+    private void remove()
+    {
+      TRRecordingPublisher.this.subscriptions.remove(this);
+      while (this.buffer.poll() != null) {
+        // Discard buffered events.
+      }
+    }
+  }
+}
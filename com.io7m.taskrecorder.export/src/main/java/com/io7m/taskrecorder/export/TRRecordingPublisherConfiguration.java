@@ -0,0 +1,69 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.taskrecorder.export;
+
+import java.util.Objects;
+
+/**
+ * The configuration for recording publishers.
+ *
+ * @param bufferCapacity The minimum capacity of the buffer of each
+ *                       subscriber (rounded up to a power of two)
+ * @param overflowPolicy The behaviour when the buffer of a subscriber is
+ *                       full
+ */
+
+public record TRRecordingPublisherConfiguration(
+  int bufferCapacity,
+  TRRecordingOverflowPolicy overflowPolicy)
+{
+  /**
+   * The configuration for recording publishers.
+   *
+   * @param bufferCapacity The minimum capacity of the buffer of each
+   *                       subscriber (rounded up to a power of two)
+   * @param overflowPolicy The behaviour when the buffer of a subscriber is
+   *                       full
+   */
+
+  public TRRecordingPublisherConfiguration
+  {
+    Objects.requireNonNull(overflowPolicy, "overflowPolicy");
+
+    if (bufferCapacity < 1 || bufferCapacity > (1 << 30)) {
+      throw new IllegalArgumentException(
+        "Buffer capacity %d must be in the range [1, 2^30]."
+          .formatted(Integer.valueOf(bufferCapacity))
+      );
+    }
+  }
+
+  /**
+   * A configuration with reasonable defaults that drops the newest events
+   * on overflow.
+   *
+   * @return A configuration
+   */
+
+  public static TRRecordingPublisherConfiguration defaults()
+  {
+    return new TRRecordingPublisherConfiguration(
+      1024,
+      TRRecordingOverflowPolicy.DROP_NEWEST
+    );
+  }
+}
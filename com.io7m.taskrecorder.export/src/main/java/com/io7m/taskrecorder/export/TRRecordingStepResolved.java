@@ -0,0 +1,58 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.taskrecorder.export;
+
+import com.io7m.taskrecorder.core.TRStepResolutionType;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * A step was resolved.
+ *
+ * @param sequence    The sequence number
+ * @param task        The identifier of the task containing the step
+ * @param description The step description
+ * @param resolution  The resolution
+ * @param time        The time of the event
+ */
+
+public record TRRecordingStepResolved(
+  long sequence,
+  long task,
+  String description,
+  TRStepResolutionType resolution,
+  Instant time)
+  implements TRRecordingEventType
+{
+  /**
+   * A step was resolved.
+   *
+   * @param sequence    The sequence number
+   * @param task        The identifier of the task containing the step
+   * @param description The step description
+   * @param resolution  The resolution
+   * @param time        The time of the event
+   */
+
+  public TRRecordingStepResolved
+  {
+    Objects.requireNonNull(description, "description");
+    Objects.requireNonNull(resolution, "resolution");
+    Objects.requireNonNull(time, "time");
+  }
+}
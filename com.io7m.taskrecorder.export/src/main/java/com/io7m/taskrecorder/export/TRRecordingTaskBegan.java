@@ -0,0 +1,57 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.taskrecorder.export;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * A task began.
+ *
+ * @param sequence    The sequence number
+ * @param task        The task identifier
+ * @param parent      The identifier of the parent task, or {@code 0} for
+ *                    a root task
+ * @param description The task description
+ * @param time        The time of the event
+ */
+
+public record TRRecordingTaskBegan(
+  long sequence,
+  long task,
+  long parent,
+  String description,
+  Instant time)
+  implements TRRecordingEventType
+{
+  /**
+   * A task began.
+   *
+   * @param sequence    The sequence number
+   * @param task        The task identifier
+   * @param parent      The identifier of the parent task, or {@code 0} for
+   *                    a root task
+   * @param description The task description
+   * @param time        The time of the event
+   */
+
+  public TRRecordingTaskBegan
+  {
+    Objects.requireNonNull(description, "description");
+    Objects.requireNonNull(time, "time");
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.taskrecorder.export;
+
+import com.io7m.taskrecorder.core.TRTask;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * A completed task was grafted into a task as a subtask.
+ *
+ * @param sequence The sequence number
+ * @param task     The identifier of the task into which the task was
+ *                 grafted
+ * @param grafted  The grafted task
+ * @param time     The time of the event
+ */
+
+public record TRRecordingTaskGrafted(
+  long sequence,
+  long task,
+  TRTask<?> grafted,
+  Instant time)
+  implements TRRecordingEventType
+{
+  /**
+   * A completed task was grafted into a task as a subtask.
+   *
+   * @param sequence The sequence number
+   * @param task     The identifier of the task into which the task was
+   *                 grafted
+   * @param grafted  The grafted task
+   * @param time     The time of the event
+   */
+
+  public TRRecordingTaskGrafted
+  {
+    Objects.requireNonNull(grafted, "grafted");
+    Objects.requireNonNull(time, "time");
+  }
+}
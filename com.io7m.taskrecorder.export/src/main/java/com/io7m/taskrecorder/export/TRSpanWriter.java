@@ -0,0 +1,515 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.export;
+
+import com.io7m.taskrecorder.core.TRAttributes;
+import com.io7m.taskrecorder.core.TRStep;
+import com.io7m.taskrecorder.core.TRStepFailed;
+import com.io7m.taskrecorder.core.TRTask;
+import com.io7m.taskrecorder.core.TRTaskFailed;
+import com.io7m.taskrecorder.core.TRTaskItemType;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.HexFormat;
+import java.util.Objects;
+import java.util.Optional;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * <p>A writer that produces OpenTelemetry spans in the OTLP JSON encoding,
+ * one {@code ExportTraceServiceRequest} per line.</p>
+ *
+ * <p>Each task passed to {@link #write(TRTask)} becomes a new trace. Tasks,
+ * subtasks, and steps become spans whose parent is the span of the
+ * enclosing task. Failed items are given an error status, and exceptions
+ * are recorded as {@code exception} span events.</p>
+ *
+ * <p>Spans are streamed directly to the output and are grouped into lines
+ * of at most {@link TRSpanWriterConfiguration#batchSize()} spans. The size
+ * of each encoded span is bounded by truncating strings and stack traces
+ * to the configured limits, and by writing at most
+ * {@value #MAXIMUM_ATTRIBUTES} attributes per span (the OpenTelemetry SDK
+ * default). Attributes beyond the limit are counted in the span's
+ * {@code droppedAttributesCount}.</p>
+ *
+ * <p>Spans are positioned by time, so every item must carry real timing
+ * information. Items constructed without start and end times (and
+ * therefore placed at {@link Instant#EPOCH}) are rejected rather than being
+ * exported as spans at Unix time zero.</p>
+ */
+
+public final class TRSpanWriter implements Closeable
+{
+  private static final int STATUS_OK = 1;
+  private static final int STATUS_ERROR = 2;
+  private static final int SPAN_KIND_INTERNAL = 1;
+
+  /**
+   * The maximum number of attributes written for a span, including the
+   * attributes the writer adds itself.
+   */
+
+  public static final int MAXIMUM_ATTRIBUTES = 128;
+
+  private static final int WRITER_ATTRIBUTES = 2;
+  private static final HexFormat HEX = HexFormat.of();
+
+  private final TRSpanWriterConfiguration configuration;
+  private final OutputStream stream;
+  private final TRJsonWriter json;
+  private final byte[] traceId;
+  private final byte[] spanId;
+  private int batchCount;
+  private boolean closed;
+
+  private TRSpanWriter(
+    final TRSpanWriterConfiguration inConfiguration,
+    final OutputStream inStream)
+  {
+    this.configuration =
+      Objects.requireNonNull(inConfiguration, "configuration");
+    this.stream =
+      Objects.requireNonNull(inStream, "stream");
+    this.json =
+      new TRJsonWriter(
+        new BufferedWriter(new OutputStreamWriter(inStream, UTF_8))
+      );
+    this.traceId = new byte[16];
+    this.spanId = new byte[8];
+  }
+
+  /**
+   * Create a writer that writes to the given stream. The stream is closed
+   * when the writer is closed.
+   *
+   * @param configuration The writer configuration
+   * @param stream        The output stream
+   *
+   * @return A new writer
+   */
+
+  public static TRSpanWriter create(
+    final TRSpanWriterConfiguration configuration,
+    final OutputStream stream)
+  {
+    return new TRSpanWriter(configuration, stream);
+  }
+
+  /**
+   * Create a writer that writes to the given file, replacing it if it
+   * already exists.
+   *
+   * @param configuration The writer configuration
+   * @param file          The output file
+   *
+   * @return A new writer
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public static TRSpanWriter open(
+    final TRSpanWriterConfiguration configuration,
+    final Path file)
+    throws IOException
+  {
+    return create(configuration, Files.newOutputStream(file));
+  }
+
+  /**
+   * Write the given task, and all of its subtasks and steps, as spans of a
+   * new trace.
+   *
+   * @param task The task
+   *
+   * @throws IOException              On I/O errors
+   * @throws IllegalArgumentException If any item in the task has no timing
+   *                                  information; nothing is written
+   */
+
+  public void write(
+    final TRTask<?> task)
+    throws IOException
+  {
+    Objects.requireNonNull(task, "task");
+
+    if (this.closed) {
+      throw new IllegalStateException("Writer is closed.");
+    }
+
+    TRTimedItems.checkTimed(task, "OpenTelemetry spans");
+
+    this.configuration.random().nextBytes(this.traceId);
+
+    final var stack = new ArrayDeque<TRPendingSpan>();
+    stack.push(new TRPendingSpan(task, ""));
+    while (!stack.isEmpty()) {
+      final var pending = stack.pop();
+      if (pending.item() instanceof final TRTask<?> subtask) {
+        final var id = this.writeTask(subtask, pending.parentId());
+        final var items = subtask.items();
+        for (int index = items.size() - 1; index >= 0; --index) {
+          stack.push(new TRPendingSpan(items.get(index), id));
+        }
+      } else {
+        this.writeStep((TRStep) pending.item(), pending.parentId());
+      }
+    }
+  }
+
+  private record TRPendingSpan(
+    TRTaskItemType item,
+    String parentId)
+  {
+
+  }
+
+  private String writeTask(
+    final TRTask<?> task,
+    final String parentId)
+    throws IOException
+  {
+    final var id = this.newSpanId();
+    final var resolution = task.resolution();
+    final Optional<Throwable> exception;
+    if (resolution instanceof final TRTaskFailed<?> failed) {
+      exception = failed.exception();
+    } else {
+      exception = Optional.empty();
+    }
+
+    this.writeSpan(
+      task,
+      id,
+      parentId,
+      "task",
+      resolution instanceof TRTaskFailed<?>,
+      resolution.message(),
+      exception
+    );
+    return id;
+  }
+
+  private void writeStep(
+    final TRStep step,
+    final String parentId)
+    throws IOException
+  {
+    final var resolution = step.resolution();
+    final Optional<Throwable> exception;
+    if (resolution instanceof final TRStepFailed failed) {
+      exception = failed.exception();
+    } else {
+      exception = Optional.empty();
+    }
+
+    this.writeSpan(
+      step,
+      this.newSpanId(),
+      parentId,
+      "step",
+      resolution instanceof TRStepFailed,
+      resolution.message(),
+      exception
+    );
+  }
+
+  private String newSpanId()
+  {
+    final var random = this.configuration.random();
+    do {
+      random.nextBytes(this.spanId);
+    } while (isZero(this.spanId));
+    return HEX.formatHex(this.spanId);
+  }
+
+  private static boolean isZero(
+    final byte[] bytes)
+  {
+    for (final var b : bytes) {
+      if (b != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void writeSpan(
+    final TRTaskItemType item,
+    final String id,
+    final String parentId,
+    final String kind,
+    final boolean failed,
+    final String message,
+    final Optional<Throwable> exception)
+    throws IOException
+  {
+    this.beginSpan();
+
+    final var j = this.json;
+    j.beginObject();
+    j.field("traceId", HEX.formatHex(this.traceId));
+    j.field("spanId", id);
+    if (!parentId.isEmpty()) {
+      j.field("parentSpanId", parentId);
+    }
+    j.field("name", this.truncate(item.description()));
+    j.field("kind", SPAN_KIND_INTERNAL);
+    j.field("startTimeUnixNano", unixNanos(item.timeStarted()));
+    j.field("endTimeUnixNano", unixNanos(item.timeEnded()));
+
+    j.name("attributes");
+    j.beginArray();
+    this.attribute("taskrecorder.kind", kind);
+    this.attribute("taskrecorder.message", this.truncate(message));
+    final var dropped = this.attributes(item.attributes());
+    j.endArray();
+    if (dropped > 0) {
+      j.field("droppedAttributesCount", dropped);
+    }
+
+    if (exception.isPresent()) {
+      final var ex = exception.get();
+      j.name("events");
+      j.beginArray();
+      j.beginObject();
+      j.field("timeUnixNano", unixNanos(item.timeEnded()));
+      j.field("name", "exception");
+      j.name("attributes");
+      j.beginArray();
+      this.attribute("exception.type", this.truncate(ex.getClass().getName()));
+      this.attribute(
+        "exception.message",
+        this.truncate(Objects.requireNonNullElse(ex.getMessage(), "")));
+      this.attribute("exception.stacktrace", this.stackTrace(ex));
+      j.endArray();
+      j.endObject();
+      j.endArray();
+    }
+
+    j.name("status");
+    j.beginObject();
+    if (failed) {
+      j.field("code", STATUS_ERROR);
+      j.field("message", this.truncate(message));
+    } else {
+      j.field("code", STATUS_OK);
+    }
+    j.endObject();
+    j.endObject();
+
+    this.endSpan();
+  }
+
+  private int attributes(
+    final TRAttributes attributes)
+    throws IOException
+  {
+    final var j = this.json;
+    final var count =
+      Math.min(attributes.size(), MAXIMUM_ATTRIBUTES - WRITER_ATTRIBUTES);
+    for (int index = 0; index < count; ++index) {
+      final var key = attributes.keyAt(index);
+      j.beginObject();
+      j.field("key", this.truncate(key.name()));
+      j.name("value");
+      j.beginObject();
+      switch (key.type()) {
+        case LONG -> {
+          j.field("intValue", Long.toString(attributes.longAt(index)));
+        }
+        case DOUBLE -> {
+          j.name("doubleValue");
+          j.value(attributes.doubleAt(index));
+        }
+        case BOOLEAN -> {
+          j.name("boolValue");
+          j.value(attributes.booleanAt(index));
+        }
+        case STRING -> {
+          j.field("stringValue", this.truncate(attributes.stringAt(index)));
+        }
+      }
+      j.endObject();
+      j.endObject();
+    }
+    return attributes.size() - count;
+  }
+
+  private void attribute(
+    final String key,
+    final String value)
+    throws IOException
+  {
+    final var j = this.json;
+    j.beginObject();
+    j.field("key", key);
+    j.name("value");
+    j.beginObject();
+    j.field("stringValue", value);
+    j.endObject();
+    j.endObject();
+  }
+
+  private String stackTrace(
+    final Throwable exception)
+  {
+    final var text = new StringBuilder(256);
+    text.append(exception);
+
+    final var frames = exception.getStackTrace();
+    final var count =
+      Math.min(frames.length, this.configuration.maxStackFrames());
+    for (int index = 0; index < count; ++index) {
+      text.append("\n\tat ");
+      text.append(frames[index]);
+    }
+    if (count < frames.length) {
+      text.append("\n\t... ");
+      text.append(frames.length - count);
+      text.append(" more");
+    }
+    return this.truncate(text.toString());
+  }
+
+  private String truncate(
+    final String text)
+  {
+    final var max = this.configuration.maxStringLength();
+    if (text.length() <= max) {
+      return text;
+    }
+    var end = max;
+    if (Character.isHighSurrogate(text.charAt(end - 1))) {
+      --end;
+    }
+    return text.substring(0, end);
+  }
+
+  private static String unixNanos(
+    final Instant time)
+  {
+    return Long.toString(
+      Math.addExact(
+        Math.multiplyExact(time.getEpochSecond(), 1_000_000_000L),
+        time.getNano()
+      )
+    );
+  }
+
+  private void beginSpan()
+    throws IOException
+  {
+    if (this.batchCount > 0) {
+      return;
+    }
+
+    final var j = this.json;
+    j.beginObject();
+    j.name("resourceSpans");
+    j.beginArray();
+    j.beginObject();
+    j.name("resource");
+    j.beginObject();
+    j.name("attributes");
+    j.beginArray();
+    this.attribute("service.name", this.configuration.serviceName());
+    j.endArray();
+    j.endObject();
+    j.name("scopeSpans");
+    j.beginArray();
+    j.beginObject();
+    j.name("scope");
+    j.beginObject();
+    j.field("name", "com.io7m.taskrecorder");
+    j.endObject();
+    j.name("spans");
+    j.beginArray();
+  }
+
+  private void endSpan()
+    throws IOException
+  {
+    ++this.batchCount;
+    if (this.batchCount == this.configuration.batchSize()) {
+      this.endBatch();
+    }
+  }
+
+  private void endBatch()
+    throws IOException
+  {
+    if (this.batchCount == 0) {
+      return;
+    }
+
+    final var j = this.json;
+    j.endArray();
+    j.endObject();
+    j.endArray();
+    j.endObject();
+    j.endArray();
+    j.endObject();
+    j.newline();
+    j.flush();
+    this.batchCount = 0;
+  }
+
+  /**
+   * Finish the current batch of spans, if any, and flush the output.
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public void flush()
+    throws IOException
+  {
+    this.endBatch();
+    this.json.flush();
+  }
+
+  /**
+   * Finish the current batch of spans and close the underlying stream.
+   *
+   * @throws IOException On I/O errors
+   */
+
+  @Override
+  public void close()
+    throws IOException
+  {
+    if (this.closed) {
+      return;
+    }
+
+    this.closed = true;
+    try {
+      this.flush();
+    } finally {
+      this.stream.close();
+    }
+  }
+}
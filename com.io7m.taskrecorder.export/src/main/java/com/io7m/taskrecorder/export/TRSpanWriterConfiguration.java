@@ -0,0 +1,103 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.export;
+
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * The configuration for span writers.
+ *
+ * @param serviceName     The value of the {@code service.name} resource
+ *                        attribute
+ * @param batchSize       The maximum number of spans written per line
+ * @param maxStringLength The maximum length of any string written for a span;
+ *                        longer strings are truncated
+ * @param maxStackFrames  The maximum number of stack frames written for an
+ *                        exception
+ * @param random          The random generator used to produce trace and span
+ *                        IDs
+ */
+
+public record TRSpanWriterConfiguration(
+  String serviceName,
+  int batchSize,
+  int maxStringLength,
+  int maxStackFrames,
+  RandomGenerator random)
+{
+  /**
+   * The configuration for span writers.
+   *
+   * @param serviceName     The value of the {@code service.name} resource
+   *                        attribute
+   * @param batchSize       The maximum number of spans written per line
+   * @param maxStringLength The maximum length of any string written for a
+   *                        span; longer strings are truncated
+   * @param maxStackFrames  The maximum number of stack frames written for an
+   *                        exception
+   * @param random          The random generator used to produce trace and
+   *                        span IDs
+   */
+
+  public TRSpanWriterConfiguration
+  {
+    Objects.requireNonNull(serviceName, "serviceName");
+    Objects.requireNonNull(random, "random");
+
+    if (batchSize < 1) {
+      throw new IllegalArgumentException(
+        "Batch size %d must be positive.".formatted(Integer.valueOf(batchSize))
+      );
+    }
+    if (maxStringLength < 1) {
+      throw new IllegalArgumentException(
+        "Maximum string length %d must be positive."
+          .formatted(Integer.valueOf(maxStringLength))
+      );
+    }
+    if (maxStackFrames < 0) {
+      throw new IllegalArgumentException(
+        "Maximum stack frames %d must be non-negative."
+          .formatted(Integer.valueOf(maxStackFrames))
+      );
+    }
+  }
+
+  /**
+   * A configuration with reasonable defaults.
+   *
+   * @param serviceName The value of the {@code service.name} resource
+   *                    attribute
+   *
+   * @return A configuration
+   */
+
+  public static TRSpanWriterConfiguration defaults(
+    final String serviceName)
+  {
+    return new TRSpanWriterConfiguration(
+      serviceName,
+      512,
+      4096,
+      64,
+      new SplittableRandom()
+    );
+  }
+}
@@ -0,0 +1,373 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.taskrecorder.export;
+
+import com.io7m.taskrecorder.core.TRStep;
+import com.io7m.taskrecorder.core.TRStepFailed;
+import com.io7m.taskrecorder.core.TRTask;
+import com.io7m.taskrecorder.core.TRTaskFailed;
+import com.io7m.taskrecorder.core.TRTaskItemType;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * <p>A batch of task trees flattened into parallel primitive arrays, one
+ * element per item (task or step).</p>
+ *
+ * <p>Items are stored in depth-first order, each task before its items, so
+ * the items of each task tree are contiguous and every item appears after
+ * its parent. Root tasks have the parent {@code -1} and depth {@code 0}.
+ * Descriptions are stored once in a dictionary and referred to by index,
+ * and times are stored as nanoseconds since the epoch.</p>
+ *
+ * @see TRTaskColumnsFormat
+ */
+
+public final class TRTaskColumns
+{
+  private final int[] parents;
+  private final int[] depths;
+  private final int[] descriptionIds;
+  private final byte[] kinds;
+  private final long[] timesStarted;
+  private final long[] timesEnded;
+  private final List<String> descriptions;
+
+  TRTaskColumns(
+    final int[] inParents,
+    final int[] inDepths,
+    final int[] inDescriptionIds,
+    final byte[] inKinds,
+    final long[] inTimesStarted,
+    final long[] inTimesEnded,
+    final List<String> inDescriptions)
+  {
+    this.parents = inParents;
+    this.depths = inDepths;
+    this.descriptionIds = inDescriptionIds;
+    this.kinds = inKinds;
+    this.timesStarted = inTimesStarted;
+    this.timesEnded = inTimesEnded;
+    this.descriptions = List.copyOf(inDescriptions);
+  }
+
+  /**
+   * Flatten a batch of tasks.
+   *
+   * @param tasks The tasks
+   *
+   * @return The flattened tasks
+   */
+
+  public static TRTaskColumns flatten(
+    final List<? extends TRTask<?>> tasks)
+  {
+    Objects.requireNonNull(tasks, "tasks");
+
+    final var builder = new TRBuilder();
+    final var stack = new ArrayDeque<TRPending>();
+    for (final var task : tasks) {
+      stack.push(new TRPending(Objects.requireNonNull(task, "task"), -1, 0));
+      while (!stack.isEmpty()) {
+        final var pending = stack.pop();
+        final var index =
+          builder.add(pending.item(), pending.parent(), pending.depth());
+
+        if (pending.item() instanceof final TRTask<?> subtask) {
+          final var items = subtask.items();
+          for (int item = items.size() - 1; item >= 0; --item) {
+            stack.push(
+              new TRPending(items.get(item), index, pending.depth() + 1)
+            );
+          }
+        }
+      }
+    }
+    return builder.build();
+  }
+
+  /**
+   * @return The number of items
+   */
+
+  public int size()
+  {
+    return this.parents.length;
+  }
+
+  /**
+   * @param index The item index
+   *
+   * @return The index of the parent of the item, or {@code -1} for a root
+   * task
+   */
+
+  public int parent(
+    final int index)
+  {
+    return this.parents[index];
+  }
+
+  /**
+   * @param index The item index
+   *
+   * @return The depth of the item
+   */
+
+  public int depth(
+    final int index)
+  {
+    return this.depths[index];
+  }
+
+  /**
+   * @param index The item index
+   *
+   * @return The index of the description of the item in
+   * {@link #descriptions()}
+   */
+
+  public int descriptionId(
+    final int index)
+  {
+    return this.descriptionIds[index];
+  }
+
+  /**
+   * @param index The item index
+   *
+   * @return The description of the item
+   */
+
+  public String description(
+    final int index)
+  {
+    return this.descriptions.get(this.descriptionId(index));
+  }
+
+  /**
+   * @param index The item index
+   *
+   * @return The kind and resolution of the item
+   */
+
+  public TRColumnItemKind kind(
+    final int index)
+  {
+    return TRColumnItemKind.ofCode(this.kinds[index]);
+  }
+
+  /**
+   * @param index The item index
+   *
+   * @return The time the item started, in nanoseconds since the epoch
+   */
+
+  public long timeStarted(
+    final int index)
+  {
+    return this.timesStarted[index];
+  }
+
+  /**
+   * @param index The item index
+   *
+   * @return The time the item ended, in nanoseconds since the epoch
+   */
+
+  public long timeEnded(
+    final int index)
+  {
+    return this.timesEnded[index];
+  }
+
+  /**
+   * @return The distinct descriptions, indexed by description identifier
+   */
+
+  public List<String> descriptions()
+  {
+    return this.descriptions;
+  }
+
+  @Override
+  public boolean equals(
+    final Object other)
+  {
+    if (this == other) {
+      return true;
+    }
+    if (!(other instanceof final TRTaskColumns that)) {
+      return false;
+    }
+    return Arrays.equals(this.parents, that.parents)
+           && Arrays.equals(this.depths, that.depths)
+           && Arrays.equals(this.descriptionIds, that.descriptionIds)
+           && Arrays.equals(this.kinds, that.kinds)
+           && Arrays.equals(this.timesStarted, that.timesStarted)
+           && Arrays.equals(this.timesEnded, that.timesEnded)
+           && this.descriptions.equals(that.descriptions);
+  }
+
+  @Override
+  public int hashCode()
+  {
+    return 31 * this.parents.length + this.descriptions.hashCode();
+  }
+
+  @Override
+  public String toString()
+  {
+    return "[TRTaskColumns %d items, %d descriptions]".formatted(
+      Integer.valueOf(this.parents.length),
+      Integer.valueOf(this.descriptions.size())
+    );
+  }
+
+  int[] parents()
+  {
+    return this.parents;
+  }
+
+  int[] depths()
+  {
+    return this.depths;
+  }
+
+  int[] descriptionIds()
+  {
+    return this.descriptionIds;
+  }
+
+  byte[] kinds()
+  {
+    return this.kinds;
+  }
+
+  long[] timesStarted()
+  {
+    return this.timesStarted;
+  }
+
+  long[] timesEnded()
+  {
+    return this.timesEnded;
+  }
+
+  static long epochNanos(
+    final Instant time)
+  {
+    return Math.addExact(
+      Math.multiplyExact(time.getEpochSecond(), 1_000_000_000L),
+      (long) time.getNano()
+    );
+  }
+
+  private record TRPending(
+    TRTaskItemType item,
+    int parent,
+    int depth)
+  {
+
+  }
+
+  private static final class TRBuilder
+  {
+    private final HashMap<String, Integer> descriptionIds;
+    private final ArrayList<String> descriptions;
+    private int size;
+    private int[] parents;
+    private int[] depths;
+    private int[] descriptionIndices;
+    private byte[] kinds;
+    private long[] timesStarted;
+    private long[] timesEnded;
+
+    TRBuilder()
+    {
+      this.descriptionIds = new HashMap<>();
+      this.descriptions = new ArrayList<>();
+      this.parents = new int[64];
+      this.depths = new int[64];
+      this.descriptionIndices = new int[64];
+      this.kinds = new byte[64];
+      this.timesStarted = new long[64];
+      this.timesEnded = new long[64];
+    }
+
+    int add(
+      final TRTaskItemType item,
+      final int parent,
+      final int depth)
+    {
+      if (this.size == this.parents.length) {
+        final var capacity = Math.multiplyExact(this.size, 2);
+        this.parents = Arrays.copyOf(this.parents, capacity);
+        this.depths = Arrays.copyOf(this.depths, capacity);
+        this.descriptionIndices =
+          Arrays.copyOf(this.descriptionIndices, capacity);
+        this.kinds = Arrays.copyOf(this.kinds, capacity);
+        this.timesStarted = Arrays.copyOf(this.timesStarted, capacity);
+        this.timesEnded = Arrays.copyOf(this.timesEnded, capacity);
+      }
+
+      final var kind = switch (item) {
+        case final TRTask<?> task ->
+          task.resolution() instanceof TRTaskFailed<?>
+            ? TRColumnItemKind.TASK_FAILED
+            : TRColumnItemKind.TASK_SUCCEEDED;
+        case final TRStep step ->
+          step.resolution() instanceof TRStepFailed
+            ? TRColumnItemKind.STEP_FAILED
+            : TRColumnItemKind.STEP_SUCCEEDED;
+      };
+
+      final var index = this.size;
+      this.parents[index] = parent;
+      this.depths[index] = depth;
+      this.descriptionIndices[index] =
+        this.descriptionIds.computeIfAbsent(item.description(), d -> {
+          this.descriptions.add(d);
+          return Integer.valueOf(this.descriptions.size() - 1);
+        }).intValue();
+      this.kinds[index] = (byte) kind.code();
+      this.timesStarted[index] = epochNanos(item.timeStarted());
+      this.timesEnded[index] = epochNanos(item.timeEnded());
+      ++this.size;
+      return index;
+    }
+
+    TRTaskColumns build()
+    {
+      return new TRTaskColumns(
+        Arrays.copyOf(this.parents, this.size),
+        Arrays.copyOf(this.depths, this.size),
+        Arrays.copyOf(this.descriptionIndices, this.size),
+        Arrays.copyOf(this.kinds, this.size),
+        Arrays.copyOf(this.timesStarted, this.size),
+        Arrays.copyOf(this.timesEnded, this.size),
+        this.descriptions
+      );
+    }
+  }
+}
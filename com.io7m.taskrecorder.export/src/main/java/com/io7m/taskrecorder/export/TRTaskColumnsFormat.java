@@ -0,0 +1,395 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.taskrecorder.export;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * <p>Functions to write {@link TRTaskColumns} to files.</p>
+ *
+ * <p>The columnar format stores each column contiguously so that it can be
+ * read with bulk primitive transfers. All values are big-endian. The file
+ * consists of the magic number {@code 0x5452434C} ("TRCL"), the version
+ * {@code 1}, the item count, the description count, each description as a
+ * length-prefixed UTF-8 string, the parent, depth, and description
+ * columns as 32-bit integers, the kind column as bytes (see
+ * {@link TRColumnItemKind#code()}), the start and end time columns as
+ * 64-bit integers, and finally the CRC32C of everything that precedes
+ * it.</p>
+ *
+ * <p>The counts in the header are not trusted when reading: columns are
+ * allocated in chunks as their data actually arrives, so a corrupt or
+ * truncated file is reported as an {@link IOException} after at most a
+ * small multiple of its own size has been allocated, rather than failing
+ * with an {@link OutOfMemoryError}.</p>
+ *
+ * <p>The CSV format writes one row per item, with descriptions and kinds
+ * written out in full, for tools that cannot read the columnar format.</p>
+ */
+
+public final class TRTaskColumnsFormat
+{
+  private static final int MAGIC = 0x5452434C;
+  private static final int VERSION = 1;
+  private static final int CHUNK_BYTES = 65536;
+
+  /**
+   * The largest item count whose 64-bit columns still fit in a Java array
+   * of bytes.
+   */
+
+  private static final int MAXIMUM_ITEMS = Integer.MAX_VALUE / Long.BYTES;
+
+  private TRTaskColumnsFormat()
+  {
+
+  }
+
+  /**
+   * Write columns in the columnar format. The stream is not closed.
+   *
+   * @param columns The columns
+   * @param stream  The output stream
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public static void write(
+    final TRTaskColumns columns,
+    final OutputStream stream)
+    throws IOException
+  {
+    Objects.requireNonNull(columns, "columns");
+    Objects.requireNonNull(stream, "stream");
+
+    final var checksum = new CRC32C();
+    final var output =
+      new DataOutputStream(
+        new BufferedOutputStream(new CheckedOutputStream(stream, checksum))
+      );
+    final var descriptions = columns.descriptions();
+
+    output.writeInt(MAGIC);
+    output.writeInt(VERSION);
+    output.writeInt(columns.size());
+    output.writeInt(descriptions.size());
+    for (final var description : descriptions) {
+      final var bytes = description.getBytes(UTF_8);
+      output.writeInt(bytes.length);
+      output.write(bytes);
+    }
+
+    final var buffer = ByteBuffer.allocate(CHUNK_BYTES);
+    writeInts(output, buffer, columns.parents());
+    writeInts(output, buffer, columns.depths());
+    writeInts(output, buffer, columns.descriptionIds());
+    output.write(columns.kinds());
+    writeLongs(output, buffer, columns.timesStarted());
+    writeLongs(output, buffer, columns.timesEnded());
+    output.flush();
+
+    output.writeInt((int) checksum.getValue());
+    output.flush();
+  }
+
+  /**
+   * Read columns in the columnar format. The stream is not closed, but may
+   * have been read beyond the end of the columnar data.
+   *
+   * @param stream The input stream
+   *
+   * @return The columns
+   *
+   * @throws IOException On I/O errors, or if the data is not valid
+   */
+
+  public static TRTaskColumns read(
+    final InputStream stream)
+    throws IOException
+  {
+    Objects.requireNonNull(stream, "stream");
+
+    final var checksum = new CRC32C();
+    final var input =
+      new DataInputStream(
+        new CheckedInputStream(new BufferedInputStream(stream), checksum)
+      );
+
+    try {
+      final var magic = input.readInt();
+      if (magic != MAGIC) {
+        throw new IOException(
+          "Unrecognized magic number 0x%08x.".formatted(Integer.valueOf(magic))
+        );
+      }
+      final var version = input.readInt();
+      if (version != VERSION) {
+        throw new IOException(
+          "Unsupported version %d.".formatted(Integer.valueOf(version))
+        );
+      }
+
+      final var size = readCount(input, "item", MAXIMUM_ITEMS);
+      final var descriptionCount = readCount(input, "description", size);
+      final var descriptions = new ArrayList<String>();
+      for (int index = 0; index < descriptionCount; ++index) {
+        final var bytes =
+          readBytes(input, readCount(input, "description byte", MAXIMUM_ITEMS));
+        descriptions.add(new String(bytes, UTF_8));
+      }
+
+      final var buffer = ByteBuffer.allocate(CHUNK_BYTES);
+      final var parents = readInts(input, buffer, size);
+      final var depths = readInts(input, buffer, size);
+      final var descriptionIds = readInts(input, buffer, size);
+      final var kinds = readBytes(input, size);
+      final var timesStarted = readLongs(input, buffer, size);
+      final var timesEnded = readLongs(input, buffer, size);
+
+      final var expected = (int) checksum.getValue();
+      final var received = input.readInt();
+      if (expected != received) {
+        throw new IOException(
+          "Checksum mismatch (expected 0x%08x, received 0x%08x).".formatted(
+            Integer.valueOf(expected),
+            Integer.valueOf(received))
+        );
+      }
+
+      for (int index = 0; index < size; ++index) {
+        if (parents[index] < -1 || parents[index] >= index) {
+          throw new IOException(
+            "Item %d has invalid parent %d.".formatted(
+              Integer.valueOf(index),
+              Integer.valueOf(parents[index]))
+          );
+        }
+        final var depthExpected =
+          parents[index] == -1 ? 0 : depths[parents[index]] + 1;
+        if (depths[index] != depthExpected) {
+          throw new IOException(
+            "Item %d has depth %d but its parent requires depth %d.".formatted(
+              Integer.valueOf(index),
+              Integer.valueOf(depths[index]),
+              Integer.valueOf(depthExpected))
+          );
+        }
+        if (descriptionIds[index] < 0
+            || descriptionIds[index] >= descriptionCount) {
+          throw new IOException(
+            "Item %d has invalid description %d.".formatted(
+              Integer.valueOf(index),
+              Integer.valueOf(descriptionIds[index]))
+          );
+        }
+        try {
+          TRColumnItemKind.ofCode(kinds[index]);
+        } catch (final IllegalArgumentException e) {
+          throw new IOException(e.getMessage(), e);
+        }
+      }
+
+      return new TRTaskColumns(
+        parents,
+        depths,
+        descriptionIds,
+        kinds,
+        timesStarted,
+        timesEnded,
+        descriptions
+      );
+    } catch (final EOFException e) {
+      throw new IOException("Unexpected end of columnar data.", e);
+    }
+  }
+
+  /**
+   * Write columns as CSV, one row per item. The writer is not closed.
+   *
+   * @param columns The columns
+   * @param writer  The writer
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public static void writeCSV(
+    final TRTaskColumns columns,
+    final Writer writer)
+    throws IOException
+  {
+    Objects.requireNonNull(columns, "columns");
+    Objects.requireNonNull(writer, "writer");
+
+    writer.write(
+      "index,parent,depth,kind,description,time_started,time_ended\r\n");
+
+    final var row = new StringBuilder(128);
+    for (int index = 0; index < columns.size(); ++index) {
+      row.setLength(0);
+      row.append(index);
+      row.append(',');
+      row.append(columns.parent(index));
+      row.append(',');
+      row.append(columns.depth(index));
+      row.append(',');
+      row.append(columns.kind(index).name());
+      row.append(",\"");
+      row.append(columns.description(index).replace("\"", "\"\""));
+      row.append("\",");
+      row.append(columns.timeStarted(index));
+      row.append(',');
+      row.append(columns.timeEnded(index));
+      row.append("\r\n");
+      writer.append(row);
+    }
+    writer.flush();
+  }
+
+  private static int readCount(
+    final DataInputStream input,
+    final String name,
+    final int maximum)
+    throws IOException
+  {
+    final var count = input.readInt();
+    if (count < 0 || count > maximum) {
+      throw new IOException(
+        "Invalid %s count %d (must be in the range [0, %d]).".formatted(
+          name,
+          Integer.valueOf(count),
+          Integer.valueOf(maximum))
+      );
+    }
+    return count;
+  }
+
+  private static byte[] readBytes(
+    final DataInputStream input,
+    final int size)
+    throws IOException
+  {
+    final var bytes = input.readNBytes(size);
+    if (bytes.length != size) {
+      throw new EOFException(
+        "Expected %d bytes but received %d.".formatted(
+          Integer.valueOf(size),
+          Integer.valueOf(bytes.length))
+      );
+    }
+    return bytes;
+  }
+
+  /*
+   * Columns start at one chunk and double as data arrives, so that the
+   * memory allocated for a column never exceeds twice the data actually
+   * read for it.
+   */
+
+  private static int grow(
+    final int capacity,
+    final int size)
+  {
+    return (int) Math.min(size, 2L * capacity);
+  }
+
+  private static void writeInts(
+    final DataOutputStream output,
+    final ByteBuffer buffer,
+    final int[] values)
+    throws IOException
+  {
+    final var perChunk = buffer.capacity() / Integer.BYTES;
+    for (int offset = 0; offset < values.length; offset += perChunk) {
+      final var count = Math.min(perChunk, values.length - offset);
+      buffer.clear();
+      buffer.asIntBuffer().put(values, offset, count);
+      output.write(buffer.array(), 0, count * Integer.BYTES);
+    }
+  }
+
+  private static void writeLongs(
+    final DataOutputStream output,
+    final ByteBuffer buffer,
+    final long[] values)
+    throws IOException
+  {
+    final var perChunk = buffer.capacity() / Long.BYTES;
+    for (int offset = 0; offset < values.length; offset += perChunk) {
+      final var count = Math.min(perChunk, values.length - offset);
+      buffer.clear();
+      buffer.asLongBuffer().put(values, offset, count);
+      output.write(buffer.array(), 0, count * Long.BYTES);
+    }
+  }
+
+  private static int[] readInts(
+    final DataInputStream input,
+    final ByteBuffer buffer,
+    final int size)
+    throws IOException
+  {
+    final var perChunk = buffer.capacity() / Integer.BYTES;
+    var values = new int[Math.min(size, perChunk)];
+    for (int offset = 0; offset < size; offset += perChunk) {
+      final var count = Math.min(perChunk, size - offset);
+      input.readFully(buffer.array(), 0, count * Integer.BYTES);
+      if (values.length < offset + count) {
+        values = Arrays.copyOf(values, grow(values.length, size));
+      }
+      buffer.clear();
+      buffer.asIntBuffer().get(values, offset, count);
+    }
+    return values;
+  }
+
+  private static long[] readLongs(
+    final DataInputStream input,
+    final ByteBuffer buffer,
+    final int size)
+    throws IOException
+  {
+    final var perChunk = buffer.capacity() / Long.BYTES;
+    var values = new long[Math.min(size, perChunk)];
+    for (int offset = 0; offset < size; offset += perChunk) {
+      final var count = Math.min(perChunk, size - offset);
+      input.readFully(buffer.array(), 0, count * Long.BYTES);
+      if (values.length < offset + count) {
+        values = Arrays.copyOf(values, grow(values.length, size));
+      }
+      buffer.clear();
+      buffer.asLongBuffer().get(values, offset, count);
+    }
+    return values;
+  }
+}
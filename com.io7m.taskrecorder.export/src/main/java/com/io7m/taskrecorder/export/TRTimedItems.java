@@ -0,0 +1,71 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.export;
+
+import com.io7m.taskrecorder.core.TRTask;
+import com.io7m.taskrecorder.core.TRTaskItemType;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+
+/**
+ * Checks shared by the exporters that position items by time.
+ */
+
+final class TRTimedItems
+{
+  private TRTimedItems()
+  {
+
+  }
+
+  /**
+   * Check that every item in the given task carries timing information.
+   * Items constructed without start and end times are placed at
+   * {@link Instant#EPOCH}, and would otherwise be exported as zero-length
+   * items at the epoch.
+   *
+   * @param task   The task
+   * @param format The name of the export format, for error messages
+   *
+   * @throws IllegalArgumentException If any item has no timing information
+   */
+
+  static void checkTimed(
+    final TRTask<?> task,
+    final String format)
+  {
+    final var stack = new ArrayDeque<TRTaskItemType>();
+    stack.push(task);
+    while (!stack.isEmpty()) {
+      final var item = stack.pop();
+      if (Instant.EPOCH.equals(item.timeStarted())
+          && Instant.EPOCH.equals(item.timeEnded())) {
+        throw new IllegalArgumentException(
+          "Item '%s' has no timing information; %s require timed items."
+            .formatted(item.description(), format)
+        );
+      }
+      if (item instanceof final TRTask<?> subtask) {
+        for (final var subitem : subtask.items()) {
+          stack.push(subitem);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,340 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.jfr;
+
+import com.io7m.taskrecorder.core.TRAttributeKey;
+import com.io7m.taskrecorder.core.TRStep;
+import com.io7m.taskrecorder.core.TRStepFailed;
+import com.io7m.taskrecorder.core.TRStepResolutionType;
+import com.io7m.taskrecorder.core.TRTask;
+import com.io7m.taskrecorder.core.TRTaskFailed;
+import com.io7m.taskrecorder.core.TRTaskProgressView;
+import com.io7m.taskrecorder.core.TRTaskRecorderType;
+import com.io7m.taskrecorder.core.TRTaskResolutionType;
+import com.io7m.taskrecorder.core.TRTaskStepRecorderType;
+
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A task recorder that emits flight recorder events for the steps and
+ * subtasks of another recorder.
+ *
+ * @param <T> The type of returned values
+ */
+
+final class TRFlightRecordedTaskRecorder<T> implements TRTaskRecorderType<T>
+{
+  private final TRTaskRecorderType<T> delegate;
+  private final String description;
+  private final int depth;
+  private TRTaskEvent taskEvent;
+  private TRStepSpan step;
+
+  TRFlightRecordedTaskRecorder(
+    final TRTaskRecorderType<T> inDelegate,
+    final int inDepth)
+  {
+    this.delegate =
+      Objects.requireNonNull(inDelegate, "delegate");
+    this.depth =
+      inDepth;
+    this.description =
+      inDelegate.progress().description();
+
+    final var event = new TRTaskEvent();
+    if (event.isEnabled()) {
+      event.begin();
+      this.taskEvent = event;
+    }
+    this.step = TRStepSpan.begin(this.description, this.description, inDepth);
+  }
+
+  @Override
+  public String toString()
+  {
+    return this.delegate.toString();
+  }
+
+  @Override
+  public <U> TRTaskRecorderType<U> beginSubtask(
+    final String inDescription)
+  {
+    return new TRFlightRecordedTaskRecorder<>(
+      this.delegate.beginSubtask(inDescription),
+      this.depth + 1
+    );
+  }
+
+  @Override
+  public TRTaskStepRecorderType beginStep(
+    final String inDescription)
+  {
+    this.endStep();
+
+    final var recorder = this.delegate.beginStep(inDescription);
+    this.step = TRStepSpan.begin(this.description, inDescription, this.depth);
+    if (this.step == null) {
+      return recorder;
+    }
+    return new TRFlightRecordedStepRecorder(recorder, this.step);
+  }
+
+  @Override
+  public void graft(
+    final TRTask<?> grafted)
+  {
+    this.delegate.graft(grafted);
+  }
+
+  @Override
+  public TRTaskStepRecorderType stepCurrent()
+  {
+    final var recorder = this.delegate.stepCurrent();
+    if (this.step == null) {
+      return recorder;
+    }
+    return new TRFlightRecordedStepRecorder(recorder, this.step);
+  }
+
+  private void endStep()
+  {
+    if (this.step != null) {
+      if (!this.step.ended) {
+        this.step.end(this.delegate.stepCurrent().toStep().resolution());
+      }
+      this.step = null;
+    }
+  }
+
+  @Override
+  public void setTaskResolution(
+    final TRTaskResolutionType<T> resolution)
+  {
+    this.delegate.setTaskResolution(resolution);
+    this.endStep();
+    this.endTask(
+      resolution instanceof TRTaskFailed<T> ? "failed" : "succeeded",
+      resolution.message()
+    );
+  }
+
+  private void endTask(
+    final String resolution,
+    final String message)
+  {
+    final var event = this.taskEvent;
+    if (event == null) {
+      return;
+    }
+
+    this.taskEvent = null;
+    event.end();
+    if (event.shouldCommit()) {
+      event.description = this.description;
+      event.resolution = resolution;
+      event.message = message;
+      event.depth = this.depth;
+      event.commit();
+    }
+  }
+
+  @Override
+  public TRTask<T> toTask()
+  {
+    return this.delegate.toTask();
+  }
+
+  @Override
+  public TRTask<T> toTaskParallel(
+    final ForkJoinPool pool,
+    final int threshold)
+  {
+    return this.delegate.toTaskParallel(pool, threshold);
+  }
+
+  @Override
+  public TRTaskProgressView progress()
+  {
+    return this.delegate.progress();
+  }
+
+  @Override
+  public void setAttribute(
+    final TRAttributeKey<Long> key,
+    final long value)
+  {
+    this.delegate.setAttribute(key, value);
+  }
+
+  @Override
+  public void setAttribute(
+    final TRAttributeKey<Double> key,
+    final double value)
+  {
+    this.delegate.setAttribute(key, value);
+  }
+
+  @Override
+  public void setAttribute(
+    final TRAttributeKey<Boolean> key,
+    final boolean value)
+  {
+    this.delegate.setAttribute(key, value);
+  }
+
+  @Override
+  public void setAttribute(
+    final TRAttributeKey<String> key,
+    final String value)
+  {
+    this.delegate.setAttribute(key, value);
+  }
+
+  @Override
+  public void close()
+    throws IllegalStateException
+  {
+    if (this.step != null) {
+      this.step.end(null);
+      this.step = null;
+    }
+    this.endTask("unresolved", "");
+    this.delegate.close();
+  }
+
+  private static final class TRStepSpan
+  {
+    private final TRStepEvent event;
+    private final String task;
+    private final String description;
+    private final int depth;
+    private boolean ended;
+
+    private TRStepSpan(
+      final TRStepEvent inEvent,
+      final String inTask,
+      final String inDescription,
+      final int inDepth)
+    {
+      this.event = inEvent;
+      this.task = inTask;
+      this.description = inDescription;
+      this.depth = inDepth;
+    }
+
+    static TRStepSpan begin(
+      final String task,
+      final String description,
+      final int depth)
+    {
+      final var event = new TRStepEvent();
+      if (!event.isEnabled()) {
+        return null;
+      }
+      event.begin();
+      return new TRStepSpan(event, task, description, depth);
+    }
+
+    void end(
+      final TRStepResolutionType resolution)
+    {
+      if (this.ended) {
+        return;
+      }
+
+      this.ended = true;
+      this.event.end();
+      if (this.event.shouldCommit()) {
+        this.event.task = this.task;
+        this.event.description = this.description;
+        this.event.depth = this.depth;
+        if (resolution == null) {
+          this.event.resolution = "unresolved";
+          this.event.message = "";
+        } else {
+          this.event.resolution =
+            resolution instanceof TRStepFailed ? "failed" : "succeeded";
+          this.event.message = resolution.message();
+        }
+        this.event.commit();
+      }
+    }
+  }
+
+  private static final class TRFlightRecordedStepRecorder
+    implements TRTaskStepRecorderType
+  {
+    private final TRTaskStepRecorderType delegate;
+    private final TRStepSpan span;
+
+    TRFlightRecordedStepRecorder(
+      final TRTaskStepRecorderType inDelegate,
+      final TRStepSpan inSpan)
+    {
+      this.delegate = inDelegate;
+      this.span = inSpan;
+    }
+
+    @Override
+    public TRStep toStep()
+    {
+      return this.delegate.toStep();
+    }
+
+    @Override
+    public void setStepResolution(
+      final TRStepResolutionType resolution)
+    {
+      this.delegate.setStepResolution(resolution);
+      this.span.end(resolution);
+    }
+
+    @Override
+    public void setAttribute(
+      final TRAttributeKey<Long> key,
+      final long value)
+    {
+      this.delegate.setAttribute(key, value);
+    }
+
+    @Override
+    public void setAttribute(
+      final TRAttributeKey<Double> key,
+      final double value)
+    {
+      this.delegate.setAttribute(key, value);
+    }
+
+    @Override
+    public void setAttribute(
+      final TRAttributeKey<Boolean> key,
+      final boolean value)
+    {
+      this.delegate.setAttribute(key, value);
+    }
+
+    @Override
+    public void setAttribute(
+      final TRAttributeKey<String> key,
+      final String value)
+    {
+      this.delegate.setAttribute(key, value);
+    }
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.jfr;
+
+import com.io7m.taskrecorder.core.TRTaskRecorderType;
+
+import java.util.Objects;
+
+/**
+ * <p>Functions to emit Java Flight Recorder events for recorded tasks.</p>
+ *
+ * <p>A {@link TRTaskEvent} spans each task and subtask from the moment it
+ * is begun until it is resolved, and a {@link TRStepEvent} spans each step
+ * from the moment it is begun until it is resolved or the next step
+ * begins. Events carry the description, resolution, and nesting depth.
+ * When the events are disabled in the running recording, no event state is
+ * retained and recorders behave as if they were not wrapped.</p>
+ */
+
+public final class TRFlightRecorder
+{
+  private TRFlightRecorder()
+  {
+
+  }
+
+  /**
+   * Emit flight recorder events for the given task recorder and all of its
+   * subtasks. The returned recorder must be used in place of the given
+   * recorder.
+   *
+   * @param recorder The recorder
+   * @param <T>      The type of returned values
+   *
+   * @return A recorder that emits flight recorder events
+   */
+
+  public static <T> TRTaskRecorderType<T> record(
+    final TRTaskRecorderType<T> recorder)
+  {
+    Objects.requireNonNull(recorder, "recorder");
+    return new TRFlightRecordedTaskRecorder<>(recorder, 0);
+  }
+}
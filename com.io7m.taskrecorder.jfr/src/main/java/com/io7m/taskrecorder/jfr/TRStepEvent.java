@@ -0,0 +1,66 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A flight recorder event spanning a single task step.
+ */
+
+@Name("com.io7m.taskrecorder.Step")
+@Label("Task Step")
+@Category({"Task Recorder"})
+@Description("A step of a recorded task")
+@StackTrace(false)
+public final class TRStepEvent extends Event
+{
+  @Label("Task")
+  @Description("The description of the task containing the step")
+  String task;
+
+  @Label("Description")
+  @Description("The step description")
+  String description;
+
+  @Label("Resolution")
+  @Description("The step resolution: succeeded or failed")
+  String resolution;
+
+  @Label("Message")
+  @Description("The step resolution message")
+  String message;
+
+  @Label("Depth")
+  @Description("The nesting depth of the task containing the step")
+  int depth;
+
+  /**
+   * A flight recorder event spanning a single task step.
+   */
+
+  public TRStepEvent()
+  {
+
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A flight recorder event spanning a task or subtask.
+ */
+
+@Name("com.io7m.taskrecorder.Task")
+@Label("Task")
+@Category({"Task Recorder"})
+@Description("A recorded task or subtask")
+@StackTrace(false)
+public final class TRTaskEvent extends Event
+{
+  @Label("Description")
+  @Description("The task description")
+  String description;
+
+  @Label("Resolution")
+  @Description("The task resolution: succeeded, failed, or unresolved")
+  String resolution;
+
+  @Label("Message")
+  @Description("The task resolution message")
+  String message;
+
+  @Label("Depth")
+  @Description("The nesting depth of the task; root tasks have depth 0")
+  int depth;
+
+  /**
+   * A flight recorder event spanning a task or subtask.
+   */
+
+  public TRTaskEvent()
+  {
+
+  }
+}
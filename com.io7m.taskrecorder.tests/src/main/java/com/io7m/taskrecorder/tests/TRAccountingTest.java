@@ -0,0 +1,118 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.tests;
+
+import com.io7m.taskrecorder.core.TRAccounting;
+import com.io7m.taskrecorder.core.TRNoResult;
+import com.io7m.taskrecorder.core.TRTask;
+import com.io7m.taskrecorder.core.TRTaskRecorder;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.time.Clock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Resource accounting tests.
+ */
+
+public final class TRAccountingTest
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(TRAccountingTest.class);
+
+  private static volatile Object SINK;
+
+  private static TRTask<TRNoResult> record(
+    final TRAccounting accounting)
+  {
+    try (var taskRec = TRTaskRecorder.<TRNoResult>create(
+      LOG, Clock.systemUTC(), "Task", accounting)) {
+      taskRec.beginStep("Allocate");
+      for (int index = 0; index < 1024; ++index) {
+        SINK = new byte[1024];
+      }
+
+      try (var sub = taskRec.beginSubtaskWithoutResult("Sub")) {
+        sub.beginStep("Compute");
+        long x = 1L;
+        for (int index = 0; index < 10_000_000; ++index) {
+          x = x * 31L + index;
+        }
+        SINK = Long.valueOf(x);
+        sub.setStepSucceeded("Computed");
+        sub.setTaskSucceeded("OK", TRNoResult.NO_RESULT);
+      }
+
+      taskRec.setTaskSucceeded("OK", TRNoResult.NO_RESULT);
+      return taskRec.toTask();
+    }
+  }
+
+  /**
+   * Accounted tasks record CPU time and allocations on each step.
+   */
+
+  @Test
+  public void testEnabled()
+  {
+    final var task = record(TRAccounting.enabled());
+
+    final var allocate = task.items().get(1).attributes();
+    assertTrue(
+      allocate.getLong(TRAccounting.ALLOCATED_BYTES).orElseThrow() >= 1024L * 1024L,
+      allocate.toString());
+
+    final var sub = (TRTask<?>) task.items().get(2);
+    final var compute = sub.items().get(1).attributes();
+    if (ManagementFactory.getThreadMXBean().isCurrentThreadCpuTimeSupported()) {
+      assertTrue(
+        compute.getLong(TRAccounting.CPU_TIME).orElseThrow() > 0L,
+        compute.toString());
+    }
+    assertTrue(task.attributes().isEmpty());
+  }
+
+  /**
+   * Unaccounted tasks record nothing, and sampled policies account a
+   * fraction of tasks.
+   */
+
+  @Test
+  public void testSampled()
+  {
+    assertTrue(record(TRAccounting.disabled()).items().get(1).attributes().isEmpty());
+
+    final var sampled = TRAccounting.sampled(3L);
+    var accounted = 0;
+    for (int index = 0; index < 9; ++index) {
+      final var step = record(sampled).items().get(1);
+      if (step.attributes().contains(TRAccounting.ALLOCATED_BYTES)) {
+        ++accounted;
+      }
+    }
+    assertEquals(3, accounted);
+
+    assertThrows(IllegalArgumentException.class, () -> TRAccounting.sampled(0L));
+  }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.taskrecorder.tests;
+
+import com.io7m.taskrecorder.core.TRAccounting;
+import com.io7m.taskrecorder.core.TRNoResult;
+import com.io7m.taskrecorder.core.TRTaskRecorder;
+import com.io7m.taskrecorder.core.TRTaskRecorderOffHeap;
+import com.io7m.taskrecorder.core.TRTaskRecorderType;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.time.Clock;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Allocation regression tests. Each test measures the number of bytes
+ * allocated by the current thread per operation, and fails if the number
+ * exceeds the budget committed here. Budgets include some headroom above
+ * the measured values so that they are not sensitive to JIT decisions, but
+ * a change that substantially increases allocation will fail. If a change
+ * legitimately needs more memory, raise the budget in the same commit and
+ * say why.
+ */
+
+public final class TRAllocationTest
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(TRAllocationTest.class);
+
+  private static final com.sun.management.ThreadMXBean THREADS =
+    (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  private static final double BUDGET_STEP_HEAP = 256.0;
+  private static final double BUDGET_STEP_HEAP_ACCOUNTED = 384.0;
+  private static final double BUDGET_STEP_SCOPE_HEAP = 256.0;
+  private static final double BUDGET_STEP_OFF_HEAP = 160.0;
+  private static final double BUDGET_STEP_SNAPSHOT_HEAP = 448.0;
+  private static final double BUDGET_SNAPSHOT_UNCHANGED_HEAP = 16.0;
+  private static final double BUDGET_SNAPSHOT_OFF_HEAP = 160.0 * 1000.0;
+
+  private static final int WARMUP = 20_000;
+  private static final int OPERATIONS = 100_000;
+
+  private static volatile Object SINK;
+
+  private static long allocatedBytes()
+  {
+    return THREADS.getCurrentThreadAllocatedBytes();
+  }
+
+  private interface TROperation
+  {
+    void run(
+      TRTaskRecorderType<TRNoResult> recorder,
+      int index);
+  }
+
+  /**
+   * Run an operation a number of times against a fresh recorder after
+   * warming up, and return the number of bytes allocated per operation.
+   */
+
+  private static double bytesPerOperation(
+    final Supplier<TRTaskRecorderType<TRNoResult>> recorders,
+    final TROperation operation)
+  {
+    assertTrue(THREADS.isThreadAllocatedMemorySupported());
+    THREADS.setThreadAllocatedMemoryEnabled(true);
+
+    try (var warm = recorders.get()) {
+      warm.setTaskSucceeded("OK", TRNoResult.NO_RESULT);
+      for (int index = 0; index < WARMUP; ++index) {
+        operation.run(warm, index);
+      }
+    }
+
+    try (var recorder = recorders.get()) {
+      recorder.setTaskSucceeded("OK", TRNoResult.NO_RESULT);
+      final var before = allocatedBytes();
+      for (int index = 0; index < OPERATIONS; ++index) {
+        operation.run(recorder, index);
+      }
+      final var after = allocatedBytes();
+      return (double) (after - before) / (double) OPERATIONS;
+    }
+  }
+
+  private static void checkBudget(
+    final String name,
+    final double measured,
+    final double budget)
+  {
+    LOG.debug("{}: {} bytes/op (budget {})", name, measured, budget);
+    assertTrue(
+      measured <= budget,
+      "%s allocated %.1f bytes per operation, exceeding the budget of %.1f"
+        .formatted(name, Double.valueOf(measured), Double.valueOf(budget))
+    );
+  }
+
+  private static TRTaskRecorderType<TRNoResult> heap()
+  {
+    return TRTaskRecorder.create(LOG, "Task");
+  }
+
+  private static TRTaskRecorderType<TRNoResult> heapAccounted()
+  {
+    return TRTaskRecorder.create(
+      LOG, Clock.systemUTC(), "Task", TRAccounting.enabled());
+  }
+
+  private static TRTaskRecorderType<TRNoResult> offHeap()
+  {
+    return TRTaskRecorderOffHeap.create(LOG, "Task");
+  }
+
+  private static void step(
+    final TRTaskRecorderType<TRNoResult> recorder,
+    final int index)
+  {
+    recorder.beginStep("Step");
+    recorder.setStepSucceeded();
+  }
+
+  private static void stepScope(
+    final TRTaskRecorderType<TRNoResult> recorder,
+    final int index)
+  {
+    try (var scope = recorder.beginStepScope("Step")) {
+      scope.setStepSucceeded();
+    }
+  }
+
+  private static void stepSnapshot(
+    final TRTaskRecorderType<TRNoResult> recorder,
+    final int index)
+  {
+    recorder.beginStep("Step");
+    recorder.setStepSucceeded();
+    SINK = recorder.toTask();
+  }
+
+  private static void snapshotUnchanged(
+    final TRTaskRecorderType<TRNoResult> recorder,
+    final int index)
+  {
+    if (index == 0) {
+      for (int step = 0; step < 1000; ++step) {
+        step(recorder, step);
+      }
+    }
+    SINK = recorder.toTask();
+  }
+
+  /**
+   * Recording a step with the default recorder.
+   */
+
+  @Test
+  public void testStepHeap()
+  {
+    checkBudget(
+      "Step (heap)",
+      bytesPerOperation(TRAllocationTest::heap, TRAllocationTest::step),
+      BUDGET_STEP_HEAP
+    );
+  }
+
+  /**
+   * Recording a step in a scope with the default recorder; the scope adds a
+   * single small object to the cost of a plain step.
+   */
+
+  @Test
+  public void testStepScopeHeap()
+  {
+    checkBudget(
+      "Step scope (heap)",
+      bytesPerOperation(TRAllocationTest::heap, TRAllocationTest::stepScope),
+      BUDGET_STEP_SCOPE_HEAP
+    );
+  }
+
+  /**
+   * Recording a step with the default recorder and accounting enabled.
+   */
+
+  @Test
+  public void testStepHeapAccounted()
+  {
+    checkBudget(
+      "Step (heap, accounted)",
+      bytesPerOperation(TRAllocationTest::heapAccounted, TRAllocationTest::step),
+      BUDGET_STEP_HEAP_ACCOUNTED
+    );
+  }
+
+  /**
+   * Recording a step with the off-heap recorder.
+   */
+
+  @Test
+  public void testStepOffHeap()
+  {
+    checkBudget(
+      "Step (off-heap)",
+      bytesPerOperation(TRAllocationTest::offHeap, TRAllocationTest::step),
+      BUDGET_STEP_OFF_HEAP
+    );
+  }
+
+  /**
+   * Recording a step and taking a snapshot with the default recorder.
+   */
+
+  @Test
+  public void testStepSnapshotHeap()
+  {
+    checkBudget(
+      "Step and snapshot (heap)",
+      bytesPerOperation(TRAllocationTest::heap, TRAllocationTest::stepSnapshot),
+      BUDGET_STEP_SNAPSHOT_HEAP
+    );
+  }
+
+  /**
+   * Taking a snapshot of an unchanged task with the default recorder.
+   */
+
+  @Test
+  public void testSnapshotUnchangedHeap()
+  {
+    checkBudget(
+      "Unchanged snapshot (heap)",
+      bytesPerOperation(TRAllocationTest::heap, TRAllocationTest::snapshotUnchanged),
+      BUDGET_SNAPSHOT_UNCHANGED_HEAP
+    );
+  }
+
+  /**
+   * Taking a snapshot of a task with the off-heap recorder, which
+   * materializes the entire task each time.
+   */
+
+  @Test
+  public void testSnapshotOffHeap()
+  {
+    checkBudget(
+      "Snapshot of 1000 steps (off-heap)",
+      bytesPerOperation(TRAllocationTest::offHeap, TRAllocationTest::snapshotUnchanged),
+      BUDGET_SNAPSHOT_OFF_HEAP
+    );
+  }
+}
@@ -0,0 +1,514 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.tests;
+
+import com.io7m.taskrecorder.archive.TRArchive;
+import com.io7m.taskrecorder.archive.TRArchiveConfiguration;
+import com.io7m.taskrecorder.archive.TRArchiveQuery;
+import com.io7m.taskrecorder.archive.TRArchiveStatus;
+import com.io7m.taskrecorder.archive.TRArchivedException;
+import com.io7m.taskrecorder.core.TRNoResult;
+import com.io7m.taskrecorder.core.TRStep;
+import com.io7m.taskrecorder.core.TRStepFailed;
+import com.io7m.taskrecorder.core.TRStepSucceeded;
+import com.io7m.taskrecorder.core.TRTask;
+import com.io7m.taskrecorder.core.TRTaskRecorder;
+import com.io7m.taskrecorder.core.TRTaskSucceeded;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Archive tests.
+ */
+
+public final class TRArchiveTest
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(TRArchiveTest.class);
+
+  private static List<TRTask<?>> recordTasks(
+    final int count)
+  {
+    final var clock = new TRSteppingClock();
+    final var tasks = new ArrayList<TRTask<?>>(count);
+    for (int index = 0; index < count; ++index) {
+      final var description = "Task " + (index % 3);
+      try (var taskRec = TRTaskRecorder.<String>create(LOG, clock, description)) {
+        taskRec.beginStep("Step");
+        taskRec.setStepSucceeded("OK");
+        if (index % 2 == 0) {
+          taskRec.setTaskSucceeded("Done", "Result " + index);
+        } else {
+          taskRec.setTaskFailed("Failed");
+        }
+        tasks.add(taskRec.toTask());
+      }
+    }
+    return tasks;
+  }
+
+  private static TRArchiveConfiguration configuration(
+    final Path directory,
+    final long segmentSize,
+    final Clock clock)
+  {
+    return new TRArchiveConfiguration(
+      directory,
+      segmentSize,
+      Duration.ofSeconds(100L),
+      Duration.ZERO,
+      clock
+    );
+  }
+
+  private static List<TRTask<?>> queryAll(
+    final TRArchive archive)
+    throws IOException
+  {
+    try (var stream = archive.query(TRArchiveQuery.all())) {
+      return stream.toList();
+    }
+  }
+
+  /**
+   * Appended tasks are returned unchanged, across segments and reopening.
+   *
+   * @param directory The temporary directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testAppendReopen(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var tasks = recordTasks(100);
+    final var config = configuration(directory, 2048L, Clock.systemUTC());
+
+    try (var archive = TRArchive.open(config)) {
+      for (final var task : tasks) {
+        archive.append(task);
+      }
+      assertEquals(tasks, queryAll(archive));
+      assertTrue(archive.segmentCount() > 1);
+    }
+
+    try (var archive = TRArchive.open(config)) {
+      assertEquals(100L, archive.size());
+      assertEquals(tasks, queryAll(archive));
+
+      archive.append(tasks.get(0));
+      assertEquals(101L, archive.size());
+    }
+  }
+
+  /**
+   * Queries filter by time, status, and description.
+   *
+   * @param directory The temporary directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testQueryFilters(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var tasks = recordTasks(90);
+    final var config = configuration(directory, 4096L, Clock.systemUTC());
+
+    try (var archive = TRArchive.open(config)) {
+      for (final var task : tasks) {
+        archive.append(task);
+      }
+
+      final var lower = tasks.get(10).timeStarted();
+      final var upper = tasks.get(20).timeStarted();
+      final var query =
+        TRArchiveQuery.all()
+          .withTimeRange(lower, upper)
+          .withStatus(TRArchiveStatus.FAILED)
+          .withDescription("Task 1");
+
+      final var expected =
+        tasks.subList(10, 20)
+          .stream()
+          .filter(t -> TRArchiveStatus.of(t) == TRArchiveStatus.FAILED)
+          .filter(t -> "Task 1".equals(t.description()))
+          .toList();
+
+      try (var stream = archive.query(query)) {
+        assertEquals(expected, stream.toList());
+      }
+      assertEquals(2, expected.size());
+
+      try (var stream = archive.query(
+        TRArchiveQuery.all().withDescription("Nonexistent"))) {
+        assertEquals(0L, stream.count());
+      }
+    }
+  }
+
+  /**
+   * Results and exceptions are archived in string form.
+   *
+   * @param directory The temporary directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testResultsAndExceptions(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var cause = new IllegalStateException("Cause");
+    final var exception = new IOException("Disk", cause);
+
+    final TRTask<Integer> task;
+    try (var taskRec = TRTaskRecorder.<Integer>create(LOG, "Task")) {
+      taskRec.beginStep("Step");
+      taskRec.setStepFailed("Broken", exception);
+      taskRec.setTaskSucceeded("Done", Integer.valueOf(23));
+      task = taskRec.toTask();
+    }
+
+    final TRTask<TRNoResult> noResult;
+    try (var taskRec = TRTaskRecorder.<TRNoResult>create(LOG, "Task")) {
+      taskRec.setTaskSucceeded("Done", TRNoResult.NO_RESULT);
+      noResult = taskRec.toTask();
+    }
+
+    final var config = configuration(directory, 4096L, Clock.systemUTC());
+    try (var archive = TRArchive.open(config)) {
+      archive.append(task);
+      archive.append(noResult);
+
+      final var received = queryAll(archive);
+      final var first = received.get(0);
+      assertEquals(
+        "23",
+        ((TRTaskSucceeded<?>) first.resolution()).result()
+      );
+      assertEquals(noResult, received.get(1));
+
+      final var step = (TRStep) first.items().get(1);
+      final var failed = (TRStepFailed) step.resolution();
+      final var archived =
+        assertInstanceOf(TRArchivedException.class, failed.exception().orElseThrow());
+
+      assertEquals(IOException.class.getName(), archived.className());
+      assertEquals("Disk", archived.getMessage());
+      assertArrayEquals(exception.getStackTrace(), archived.getStackTrace());
+
+      final var archivedCause =
+        assertInstanceOf(TRArchivedException.class, archived.getCause());
+      assertEquals(IllegalStateException.class.getName(), archivedCause.className());
+      assertEquals("java.lang.IllegalStateException: Cause", archivedCause.toString());
+    }
+  }
+
+  /**
+   * Damaged segment tails are discarded and missing indexes are rebuilt.
+   *
+   * @param directory The temporary directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testRecovery(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var tasks = recordTasks(10);
+    final var config = configuration(directory, 1L << 20, Clock.systemUTC());
+
+    try (var archive = TRArchive.open(config)) {
+      for (final var task : tasks) {
+        archive.append(task);
+      }
+    }
+
+    final var data = directory.resolve("0000000000000000.trd");
+    final var index = directory.resolve("0000000000000000.tri");
+    try (var channel = FileChannel.open(data, StandardOpenOption.WRITE)) {
+      channel.truncate(channel.size() - 3L);
+    }
+    Files.delete(index);
+
+    try (var archive = TRArchive.open(config)) {
+      assertEquals(tasks.subList(0, 9), queryAll(archive));
+      archive.append(tasks.get(9));
+    }
+
+    try (var archive = TRArchive.open(config)) {
+      assertEquals(tasks, queryAll(archive));
+    }
+  }
+
+  /**
+   * Maintenance deletes expired segments and compacts partially expired
+   * segments.
+   *
+   * @param directory The temporary directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testExpiry(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var tasks = recordTasks(60);
+    final var cutoff = tasks.get(30).timeEnded();
+    final var clock =
+      Clock.fixed(cutoff.plus(Duration.ofSeconds(100L)), ZoneOffset.UTC);
+    final var config = configuration(directory, 2048L, clock);
+
+    try (var archive = TRArchive.open(config)) {
+      for (final var task : tasks) {
+        archive.append(task);
+      }
+
+      final var segments = archive.segmentCount();
+      archive.maintain();
+      assertTrue(archive.segmentCount() < segments);
+
+      final var remaining = queryAll(archive);
+      assertEquals(tasks.subList(30, 60), remaining);
+    }
+
+    try (var archive = TRArchive.open(config)) {
+      assertEquals(tasks.subList(30, 60), queryAll(archive));
+    }
+  }
+
+  /**
+   * Maintenance leaves segments that are being read by open query results
+   * alone, and deletes or compacts them once the results are consumed or
+   * closed.
+   *
+   * @param directory The temporary directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testExpiryDeferredWhileQueried(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var tasks = recordTasks(60);
+    final var cutoff = tasks.get(30).timeEnded();
+    final var clock =
+      Clock.fixed(cutoff.plus(Duration.ofSeconds(100L)), ZoneOffset.UTC);
+    final var config = configuration(directory, 2048L, clock);
+
+    try (var archive = TRArchive.open(config)) {
+      for (final var task : tasks) {
+        archive.append(task);
+      }
+
+      final var segments = archive.segmentCount();
+      final List<Path> files;
+      try (var listing = Files.list(directory)) {
+        files = listing.sorted().toList();
+      }
+
+      final var received = new ArrayList<TRTask<?>>();
+      final var stream = archive.query(TRArchiveQuery.all());
+      final var iterator = stream.iterator();
+      received.add(iterator.next());
+
+      archive.maintain();
+      assertEquals(segments, archive.segmentCount());
+      try (var listing = Files.list(directory)) {
+        assertEquals(files, listing.sorted().toList());
+      }
+
+      iterator.forEachRemaining(received::add);
+      assertEquals(tasks, received);
+
+      try (var unconsumed = archive.query(TRArchiveQuery.all())) {
+        archive.maintain();
+        assertEquals(segments, archive.segmentCount());
+        assertEquals(tasks.getFirst(), unconsumed.findFirst().orElseThrow());
+      }
+
+      archive.maintain();
+      assertTrue(archive.segmentCount() < segments);
+      assertEquals(tasks.subList(30, 60), queryAll(archive));
+    }
+  }
+
+  /**
+   * Queries do not hold segments whose tasks all started outside the
+   * query's time range, so those segments can be deleted while the query
+   * results are still open.
+   *
+   * @param directory The temporary directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testQuerySkipsSegmentsOutsideTimeRange(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var tasks = recordTasks(60);
+    final var cutoff = tasks.get(30).timeEnded();
+    final var clock =
+      Clock.fixed(cutoff.plus(Duration.ofSeconds(100L)), ZoneOffset.UTC);
+    final var config = configuration(directory, 2048L, clock);
+
+    try (var archive = TRArchive.open(config)) {
+      for (final var task : tasks) {
+        archive.append(task);
+      }
+
+      try (var stream = archive.query(
+        TRArchiveQuery.all()
+          .withTimeRange(Instant.MIN, tasks.getFirst().timeStarted()))) {
+        assertEquals(0L, stream.count());
+      }
+
+      final var segments = archive.segmentCount();
+      try (var stream = archive.query(
+        TRArchiveQuery.all()
+          .withTimeRange(tasks.get(50).timeStarted(), Instant.MAX))) {
+        archive.maintain();
+        assertTrue(archive.segmentCount() < segments);
+        assertEquals(tasks.subList(50, 60), stream.toList());
+      }
+    }
+  }
+
+  /**
+   * Deeply nested tasks can be appended, queried, and recovered when the
+   * index is lost.
+   *
+   * @param directory The temporary directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testDeep(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var depth = 20_000;
+    final var step =
+      new TRStep("Step", new TRStepSucceeded("OK"));
+
+    TRTask<TRNoResult> task =
+      new TRTask<>(
+        List.of(step),
+        new TRTaskSucceeded<>("Bottom", TRNoResult.NO_RESULT));
+    for (int index = 0; index < depth; ++index) {
+      task = new TRTask<>(
+        List.of(step, task),
+        new TRTaskSucceeded<>("Done", TRNoResult.NO_RESULT));
+    }
+
+    final var config =
+      configuration(directory, 1L << 24, Clock.systemUTC());
+
+    try (var archive = TRArchive.open(config)) {
+      archive.append(task);
+      assertEquals(depth, depthOf(queryAll(archive).get(0)));
+    }
+
+    Files.delete(directory.resolve("0000000000000000.tri"));
+
+    try (var archive = TRArchive.open(config)) {
+      assertEquals(1L, archive.size());
+      assertEquals(depth, depthOf(queryAll(archive).get(0)));
+    }
+  }
+
+  private static int depthOf(
+    final TRTask<?> task)
+  {
+    var current = task;
+    var depth = 0;
+    while (current.items().size() == 2) {
+      current = assertInstanceOf(TRTask.class, current.items().get(1));
+      ++depth;
+    }
+    assertEquals("Bottom", current.resolution().message());
+    return depth;
+  }
+
+  /**
+   * Closed archives cannot be used.
+   *
+   * @param directory The temporary directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testClosed(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var config =
+      TRArchiveConfiguration.defaults(directory);
+    final var archive =
+      TRArchive.open(config);
+
+    archive.close();
+    archive.close();
+
+    final var task = recordTasks(1).get(0);
+    assertThrows(IllegalStateException.class, () -> archive.append(task));
+    assertThrows(IllegalStateException.class, () -> {
+      archive.query(TRArchiveQuery.all());
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      configuration(directory, 0L, Clock.systemUTC());
+    });
+    assertEquals(Instant.MIN, TRArchiveQuery.all().timeLower());
+  }
+}
@@ -0,0 +1,345 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.tests;
+
+import com.io7m.taskrecorder.core.TRTask;
+import com.io7m.taskrecorder.core.TRTaskRecorder;
+import com.io7m.taskrecorder.core.TRTaskSucceeded;
+import com.io7m.taskrecorder.export.TRAsyncExporter;
+import com.io7m.taskrecorder.export.TRAsyncExporterConfiguration;
+import com.io7m.taskrecorder.export.TRExporterOverflowPolicy;
+import com.io7m.taskrecorder.export.TRTaskSinkType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Asynchronous exporter tests.
+ */
+
+public final class TRAsyncExporterTest
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(TRAsyncExporterTest.class);
+
+  private static TRTask<Integer> recordTask(
+    final int index)
+  {
+    try (var taskRec = TRTaskRecorder.<Integer>create(LOG, "Task")) {
+      taskRec.beginStep("Step");
+      taskRec.setTaskSucceeded("Done", Integer.valueOf(index));
+      return taskRec.toTask();
+    }
+  }
+
+  private static TRAsyncExporterConfiguration configuration(
+    final int capacity,
+    final int batchSize,
+    final TRExporterOverflowPolicy policy)
+  {
+    return new TRAsyncExporterConfiguration(
+      capacity,
+      batchSize,
+      Duration.ofMillis(10L),
+      policy,
+      4
+    );
+  }
+
+  /**
+   * A sink that collects tasks, optionally waiting for a latch first.
+   */
+
+  private static final class CollectingSink implements TRTaskSinkType
+  {
+    private final List<TRTask<?>> tasks;
+    private final List<Integer> batchSizes;
+    private final CountDownLatch gate;
+
+    CollectingSink(
+      final CountDownLatch inGate)
+    {
+      this.tasks = Collections.synchronizedList(new ArrayList<>());
+      this.batchSizes = Collections.synchronizedList(new ArrayList<>());
+      this.gate = inGate;
+    }
+
+    @Override
+    public void write(
+      final List<TRTask<?>> batch)
+      throws Exception
+    {
+      this.gate.await();
+      this.batchSizes.add(Integer.valueOf(batch.size()));
+      this.tasks.addAll(batch);
+    }
+  }
+
+  /**
+   * Under the blocking policy, every task submitted from multiple threads is
+   * exported, in batches no larger than the configured size.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  @Timeout(30L)
+  public void testBlockingExportsEverything()
+    throws Exception
+  {
+    final var sink =
+      new CollectingSink(new CountDownLatch(0));
+    final var exporter =
+      TRAsyncExporter.create(
+        LOG,
+        configuration(4, 3, TRExporterOverflowPolicy.BLOCK),
+        sink
+      );
+
+    try (var executor = Executors.newFixedThreadPool(4)) {
+      for (int thread = 0; thread < 4; ++thread) {
+        final var base = thread * 250;
+        executor.execute(() -> {
+          for (int index = 0; index < 250; ++index) {
+            assertTrue(exporter.submit(recordTask(base + index)));
+          }
+        });
+      }
+    }
+
+    exporter.close();
+
+    assertEquals(1000L, exporter.submittedCount());
+    assertEquals(1000L, exporter.exportedCount());
+    assertEquals(0L, exporter.droppedCount());
+    assertEquals(0, exporter.queueDepth());
+    assertEquals(1000, sink.tasks.size());
+    assertTrue(sink.batchSizes.stream().allMatch(s -> s.intValue() <= 3));
+
+    final var results =
+      sink.tasks.stream()
+        .map(t -> (Integer) ((TRTaskSucceeded<?>) t.resolution()).result())
+        .sorted()
+        .toList();
+    for (int index = 0; index < 1000; ++index) {
+      assertEquals(index, results.get(index).intValue());
+    }
+  }
+
+  /**
+   * Under the drop policy, submitting to a full queue never blocks, and
+   * the dropped tasks are counted.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  @Timeout(30L)
+  public void testDropNeverBlocks()
+    throws Exception
+  {
+    final var gate =
+      new CountDownLatch(1);
+    final var sink =
+      new CollectingSink(gate);
+    final var exporter =
+      TRAsyncExporter.create(
+        LOG,
+        configuration(4, 1, TRExporterOverflowPolicy.DROP),
+        sink
+      );
+
+    final var task = recordTask(0);
+    int accepted = 0;
+    for (int index = 0; index < 100; ++index) {
+      if (exporter.submit(task)) {
+        ++accepted;
+      }
+    }
+
+    assertTrue(exporter.droppedCount() > 0L);
+    assertEquals(100L, accepted + exporter.droppedCount());
+    assertTrue(exporter.queueDepth() <= 4);
+
+    gate.countDown();
+    exporter.close();
+
+    assertEquals(accepted, exporter.exportedCount());
+    assertEquals(accepted, sink.tasks.size());
+    assertFalse(exporter.submit(task));
+  }
+
+  /**
+   * Under the sampling policy, a fraction of tasks is still accepted once
+   * the queue passes the threshold.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  @Timeout(30L)
+  public void testSample()
+    throws Exception
+  {
+    final var gate =
+      new CountDownLatch(1);
+    final var sink =
+      new CollectingSink(gate);
+    final var exporter =
+      TRAsyncExporter.create(
+        LOG,
+        configuration(64, 1, TRExporterOverflowPolicy.SAMPLE),
+        sink
+      );
+
+    final var task = recordTask(0);
+    int accepted = 0;
+    for (int index = 0; index < 96; ++index) {
+      if (exporter.submit(task)) {
+        ++accepted;
+      }
+    }
+
+    assertTrue(accepted >= 32 + 16, "Accepted %d".formatted(accepted));
+    assertTrue(accepted < 96, "Accepted %d".formatted(accepted));
+    assertEquals(96L, accepted + exporter.droppedCount());
+
+    gate.countDown();
+    exporter.close();
+    assertEquals(accepted, exporter.exportedCount());
+  }
+
+  /**
+   * Every task submitted concurrently with closing the exporter is either
+   * rejected and counted as dropped, or exported.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  @Timeout(60L)
+  public void testCloseRacingSubmit()
+    throws Exception
+  {
+    final var task = recordTask(0);
+    final var threads = 4;
+    final var attempts = 1_000;
+
+    for (int round = 0; round < 20; ++round) {
+      final var sink =
+        new CollectingSink(new CountDownLatch(0));
+      final var exporter =
+        TRAsyncExporter.create(
+          LOG,
+          configuration(threads * attempts, 8, TRExporterOverflowPolicy.DROP),
+          sink
+        );
+
+      final var accepted = new LongAdder();
+      final var started = new CountDownLatch(threads);
+      try (var executor = Executors.newFixedThreadPool(threads)) {
+        for (int thread = 0; thread < threads; ++thread) {
+          executor.execute(() -> {
+            started.countDown();
+            for (int index = 0; index < attempts; ++index) {
+              if (exporter.submit(task)) {
+                accepted.increment();
+              }
+            }
+          });
+        }
+        started.await();
+        exporter.close();
+      }
+
+      assertEquals(
+        (long) threads * attempts,
+        accepted.sum() + exporter.droppedCount()
+      );
+      assertEquals(accepted.sum(), exporter.exportedCount());
+      assertEquals(accepted.sum(), sink.tasks.size());
+    }
+  }
+
+  /**
+   * Tasks in batches that the sink fails to write are counted.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  @Timeout(30L)
+  public void testSinkFailure()
+    throws Exception
+  {
+    final var exporter =
+      TRAsyncExporter.create(
+        LOG,
+        configuration(16, 2, TRExporterOverflowPolicy.BLOCK),
+        batch -> {
+          throw new IOException("Broken sink.");
+        }
+      );
+
+    for (int index = 0; index < 10; ++index) {
+      exporter.submit(recordTask(index));
+    }
+    exporter.close();
+
+    assertEquals(10L, exporter.failedCount());
+    assertEquals(0L, exporter.exportedCount());
+  }
+
+  /**
+   * Invalid configurations are rejected.
+   */
+
+  @Test
+  public void testConfigurationInvalid()
+  {
+    assertThrows(IllegalArgumentException.class, () -> {
+      configuration(0, 1, TRExporterOverflowPolicy.DROP);
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      configuration(1, 0, TRExporterOverflowPolicy.DROP);
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      new TRAsyncExporterConfiguration(
+        1, 1, Duration.ofSeconds(-1L), TRExporterOverflowPolicy.DROP, 1);
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      new TRAsyncExporterConfiguration(
+        1, 1, Duration.ZERO, TRExporterOverflowPolicy.SAMPLE, 0);
+    });
+  }
+}
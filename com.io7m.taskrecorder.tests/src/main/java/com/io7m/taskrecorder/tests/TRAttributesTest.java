@@ -0,0 +1,329 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.tests;
+
+import com.io7m.taskrecorder.archive.TRTaskBatchCodec;
+import com.io7m.taskrecorder.archive.TRTaskSerialization;
+import com.io7m.taskrecorder.core.TRAttributeKey;
+import com.io7m.taskrecorder.core.TRAttributeType;
+import com.io7m.taskrecorder.core.TRAttributes;
+import com.io7m.taskrecorder.core.TRNoResult;
+import com.io7m.taskrecorder.core.TRStep;
+import com.io7m.taskrecorder.core.TRStepResolutionType;
+import com.io7m.taskrecorder.core.TRStepSucceeded;
+import com.io7m.taskrecorder.core.TRTask;
+import com.io7m.taskrecorder.core.TRTaskRecorder;
+import com.io7m.taskrecorder.core.TRTaskRecorderOffHeap;
+import com.io7m.taskrecorder.core.TRTaskRecorderType;
+import com.io7m.taskrecorder.core.TRTaskStepRecorderType;
+import com.io7m.taskrecorder.export.TRChromeTraceWriter;
+import com.io7m.taskrecorder.export.TRSpanWriter;
+import com.io7m.taskrecorder.export.TRSpanWriterConfiguration;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.OptionalLong;
+import java.util.SplittableRandom;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Typed attribute tests.
+ */
+
+public final class TRAttributesTest
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(TRAttributesTest.class);
+
+  private static final Clock CLOCK =
+    Clock.fixed(Instant.parse("2026-01-01T00:00:00Z"), ZoneOffset.UTC);
+
+  private static final TRAttributeKey<Long> ROWS =
+    TRAttributeKey.ofLong("test.rows");
+  private static final TRAttributeKey<Double> RATIO =
+    TRAttributeKey.ofDouble("test.ratio");
+  private static final TRAttributeKey<Boolean> CACHED =
+    TRAttributeKey.ofBoolean("test.cached");
+  private static final TRAttributeKey<String> HOST =
+    TRAttributeKey.ofString("test.host");
+
+  private static void record(
+    final TRTaskRecorderType<Integer> taskRec)
+  {
+    taskRec.setAttribute(HOST, "db0");
+    final var step = taskRec.beginStep("Query");
+    step.setAttribute(ROWS, 23L);
+    step.setAttribute(RATIO, 0.5);
+    step.setStepSucceeded("OK");
+    step.setAttribute(CACHED, true);
+
+    try (var sub = taskRec.beginSubtaskWithoutResult("Sub")) {
+      sub.beginStep("Inner");
+      sub.stepCurrent().setAttribute(ROWS, -1L);
+      sub.setAttribute(CACHED, false);
+      sub.setTaskSucceeded("Done", TRNoResult.NO_RESULT);
+    }
+
+    taskRec.beginStep("Plain");
+    taskRec.setTaskSucceeded("OK", Integer.valueOf(1));
+  }
+
+  private static TRTask<Integer> recordDefault()
+  {
+    try (var taskRec =
+           TRTaskRecorder.<Integer>create(LOG, CLOCK, "Task")) {
+      record(taskRec);
+      return taskRec.toTask();
+    }
+  }
+
+  /**
+   * Keys are interned by name, and names cannot be reused with other types.
+   */
+
+  @Test
+  public void testKeys()
+  {
+    assertSame(ROWS, TRAttributeKey.ofLong("test.rows"));
+    assertSame(ROWS, TRAttributeKey.of("test.rows", TRAttributeType.LONG));
+    assertEquals(TRAttributeType.DOUBLE, RATIO.type());
+    assertEquals("test.host", HOST.name());
+
+    assertThrows(
+      IllegalArgumentException.class,
+      () -> TRAttributeKey.ofString("test.rows"));
+    assertThrows(
+      IllegalArgumentException.class,
+      () -> TRAttributeKey.ofLong(""));
+  }
+
+  /**
+   * Attribute sets are immutable and setting a key replaces its value.
+   */
+
+  @Test
+  public void testBuilder()
+  {
+    final var builder =
+      TRAttributes.builder()
+        .set(ROWS, 1L)
+        .set(HOST, "a")
+        .set(ROWS, 2L);
+
+    final var attributes = builder.build();
+    builder.set(RATIO, 1.0);
+
+    assertEquals(2, attributes.size());
+    assertEquals(List.of(ROWS, HOST), attributes.keys());
+    assertEquals(OptionalLong.of(2L), attributes.getLong(ROWS));
+    assertEquals(OptionalDouble.empty(), attributes.getDouble(RATIO));
+    assertEquals(Optional.of("a"), attributes.get(HOST));
+    assertFalse(attributes.contains(CACHED));
+    assertEquals("{test.rows=2, test.host=a}", attributes.toString());
+    assertEquals(3, builder.build().size());
+    assertThrows(IllegalArgumentException.class, () -> attributes.stringAt(0));
+    assertTrue(TRAttributes.builder().build().isEmpty());
+  }
+
+  /**
+   * Builders grow to hold any number of attributes of every type.
+   */
+
+  @Test
+  public void testBuilderGrows()
+  {
+    final var builder = TRAttributes.builder();
+    for (int index = 0; index < 100; ++index) {
+      builder.set(TRAttributeKey.ofLong("test.long" + index), (long) index);
+      builder.set(TRAttributeKey.ofDouble("test.double" + index), index / 2.0);
+      builder.set(TRAttributeKey.ofBoolean("test.bool" + index), index % 2 == 0);
+      builder.set(TRAttributeKey.ofString("test.string" + index), "s" + index);
+    }
+
+    final var attributes = builder.build();
+    assertEquals(400, attributes.size());
+    for (int index = 0; index < 100; ++index) {
+      assertEquals(
+        OptionalLong.of(index),
+        attributes.getLong(TRAttributeKey.ofLong("test.long" + index)));
+      assertEquals(
+        OptionalDouble.of(index / 2.0),
+        attributes.getDouble(TRAttributeKey.ofDouble("test.double" + index)));
+      assertEquals(
+        index % 2 == 0,
+        attributes.booleanAt(4 * index + 2));
+      assertEquals(
+        Optional.of("s" + index),
+        attributes.get(TRAttributeKey.ofString("test.string" + index)));
+    }
+  }
+
+  /**
+   * Attributes set on recorders appear on the steps and tasks they produce,
+   * and the off-heap recorder agrees with the default recorder.
+   */
+
+  @Test
+  public void testRecorders()
+  {
+    final var task = recordDefault();
+
+    assertEquals(Optional.of("db0"), task.attributes().get(HOST));
+    final var query = (TRStep) task.items().get(1);
+    assertEquals(OptionalLong.of(23L), query.attributes().getLong(ROWS));
+    assertEquals(OptionalDouble.of(0.5), query.attributes().getDouble(RATIO));
+    assertEquals(Optional.of(Boolean.TRUE), query.attributes().get(CACHED));
+
+    final var sub = (TRTask<?>) task.items().get(2);
+    assertEquals(Optional.of(Boolean.FALSE), sub.attributes().get(CACHED));
+    assertEquals(
+      OptionalLong.of(-1L),
+      sub.items().get(1).attributes().getLong(ROWS));
+    assertTrue(task.items().get(3).attributes().isEmpty());
+
+    final TRTask<Integer> offHeap;
+    try (var taskRec =
+           TRTaskRecorderOffHeap.<Integer>create(LOG, CLOCK, "Task")) {
+      record(taskRec);
+      offHeap = taskRec.toTask();
+    }
+    assertEquals(task, offHeap);
+  }
+
+  /**
+   * Attributes survive serialization and the batch codec.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testRoundTrip()
+    throws Exception
+  {
+    final var task = recordDefault();
+    final var expected = TRTaskSerialization.deserialize(
+      ByteBuffer.wrap(TRTaskSerialization.serialize(task)));
+
+    assertEquals(
+      task.attributes(),
+      expected.attributes());
+    assertEquals(
+      task.items().get(1).attributes(),
+      expected.items().get(1).attributes());
+
+    final var decoded =
+      TRTaskBatchCodec.decode(
+        ByteBuffer.wrap(TRTaskBatchCodec.encode(List.of(expected, expected))));
+    assertEquals(List.of(expected, expected), decoded);
+  }
+
+  /**
+   * Attributes are written by the exporters with their types intact.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testExport()
+    throws Exception
+  {
+    final var task = recordDefault();
+
+    final var chrome = new ByteArrayOutputStream();
+    try (var writer = TRChromeTraceWriter.create(chrome)) {
+      writer.write(task);
+    }
+    final var chromeText = chrome.toString(UTF_8);
+    assertTrue(chromeText.contains(
+      "\"attributes\":{\"test.rows\":23,\"test.ratio\":0.5,\"test.cached\":true}"),
+      chromeText);
+    assertTrue(chromeText.contains(
+      "\"attributes\":{\"test.host\":\"db0\"}"),
+      chromeText);
+
+    final var spans = new ByteArrayOutputStream();
+    try (var writer = TRSpanWriter.create(
+      new TRSpanWriterConfiguration("test", 16, 4096, 2, new SplittableRandom(0L)),
+      spans)) {
+      writer.write(task);
+    }
+    final var spanText = spans.toString(UTF_8);
+    assertTrue(spanText.contains(
+      "{\"key\":\"test.rows\",\"value\":{\"intValue\":\"23\"}}"),
+      spanText);
+    assertTrue(spanText.contains(
+      "{\"key\":\"test.ratio\",\"value\":{\"doubleValue\":0.5}}"),
+      spanText);
+    assertTrue(spanText.contains(
+      "{\"key\":\"test.cached\",\"value\":{\"boolValue\":false}}"),
+      spanText);
+    assertTrue(spanText.contains(
+      "{\"key\":\"test.host\",\"value\":{\"stringValue\":\"db0\"}}"),
+      spanText);
+  }
+
+  /**
+   * A step recorder written against the API before attributes existed
+   * still compiles, and rejects attributes.
+   */
+
+  @Test
+  public void testLegacyRecorderRejectsAttributes()
+  {
+    final TRTaskStepRecorderType legacy = new TRTaskStepRecorderType()
+    {
+      @Override
+      public TRStep toStep()
+      {
+        return new TRStep("legacy", new TRStepSucceeded(""));
+      }
+
+      @Override
+      public void setStepResolution(
+        final TRStepResolutionType resolution)
+      {
+
+      }
+    };
+
+    final var ex = assertThrows(
+      UnsupportedOperationException.class,
+      () -> legacy.setAttribute(HOST, "db0")
+    );
+    assertTrue(ex.getMessage().contains("test.host"), ex.getMessage());
+    assertThrows(
+      UnsupportedOperationException.class,
+      () -> legacy.setAttribute(ROWS, 1L)
+    );
+  }
+}
@@ -0,0 +1,366 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.taskrecorder.tests;
+
+import com.io7m.taskrecorder.archive.TRArchivedException;
+import com.io7m.taskrecorder.archive.TRCheckpointRecorderType;
+import com.io7m.taskrecorder.archive.TRCheckpoints;
+import com.io7m.taskrecorder.core.TRAttributeKey;
+import com.io7m.taskrecorder.core.TRNoResult;
+import com.io7m.taskrecorder.core.TRStep;
+import com.io7m.taskrecorder.core.TRStepFailed;
+import com.io7m.taskrecorder.core.TRTask;
+import com.io7m.taskrecorder.core.TRTaskRecorder;
+import com.io7m.taskrecorder.core.TRTaskSucceeded;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checkpoint and resume tests.
+ */
+
+public final class TRCheckpointTest
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(TRCheckpointTest.class);
+
+  private static final TRAttributeKey<Long> ROWS =
+    TRAttributeKey.ofLong("com.io7m.taskrecorder.tests.checkpoint.rows");
+  private static final TRAttributeKey<String> TABLE =
+    TRAttributeKey.ofString("com.io7m.taskrecorder.tests.checkpoint.table");
+
+  private static void crash(
+    final TRCheckpointRecorderType<?> recorder)
+  {
+    assertThrows(IllegalStateException.class, recorder::close);
+  }
+
+  /**
+   * Each checkpoint appends only the operations performed since the
+   * previous checkpoint.
+   *
+   * @param directory The directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testCheckpointIncremental(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var file = directory.resolve("task.trc");
+    final var recorder =
+      TRCheckpoints.<TRNoResult>create(
+        LOG, new TRSteppingClock(), file, "Migrate");
+
+    final var sizes = new ArrayList<Long>();
+    sizes.add(Long.valueOf(Files.size(file)));
+    for (int index = 0; index < 10; ++index) {
+      recorder.beginStep("Table %d".formatted(Integer.valueOf(index)));
+      recorder.setAttribute(ROWS, 1000L);
+      recorder.setStepSucceeded("Migrated");
+      recorder.checkpoint();
+      sizes.add(Long.valueOf(Files.size(file)));
+
+      recorder.checkpoint();
+      assertEquals(sizes.getLast(), Long.valueOf(Files.size(file)));
+    }
+
+    final var growth = sizes.get(1) - sizes.get(0);
+    assertTrue(growth > 0L);
+    for (int index = 1; index < sizes.size(); ++index) {
+      assertEquals(
+        Long.valueOf(growth),
+        Long.valueOf(sizes.get(index) - sizes.get(index - 1))
+      );
+    }
+
+    recorder.setTaskSucceeded("Done", TRNoResult.NO_RESULT);
+    recorder.close();
+  }
+
+  /**
+   * Resuming a recording reproduces the recorded history exactly, and the
+   * resumed recorder continues the same task.
+   *
+   * @param directory The directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testResumeContinues(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var file = directory.resolve("task.trc");
+
+    final TRTask<Integer> remote;
+    try (var remoteRec = TRTaskRecorder.<Integer>create(LOG, "Remote")) {
+      remoteRec.setTaskSucceeded("Remote done", Integer.valueOf(23));
+      remote = remoteRec.toTask();
+    }
+
+    final var recorder =
+      TRCheckpoints.<Integer>create(
+        LOG, new TRSteppingClock(), file, "Migrate");
+    recorder.setAttribute(TABLE, "users");
+
+    final var before = new ArrayList<TRStep>();
+    recorder.setStepSucceeded("Started");
+    before.add(recorder.stepCurrent().toStep());
+
+    final var step = recorder.beginStep("Copy rows");
+    step.setAttribute(ROWS, 100L);
+    step.setStepFailed("Interrupted", new IOException("Disk"));
+    before.add(step.toStep());
+
+    recorder.graft(remote);
+
+    try (var sub = recorder.<TRNoResult>beginSubtask("Index")) {
+      sub.beginStep("Build");
+      sub.setStepSucceeded();
+      sub.setTaskSucceeded("Indexed", TRNoResult.NO_RESULT);
+    }
+
+    recorder.checkpoint();
+    crash(recorder);
+
+    final var later = Instant.parse("2026-01-01T00:00:00Z");
+    final var restored =
+      TRCheckpoints.resume(
+        LOG, new TRSteppingClock(later, Duration.ofSeconds(1L)), file);
+
+    assertEquals(List.of(), restored.unresolvedSubtasks());
+
+    try (var resumed = restored.recorder()) {
+      final var progress = resumed.progress().snapshot();
+      assertEquals(2L, progress.steps());
+      assertEquals(1L, progress.stepsFailed());
+      assertEquals(2L, progress.subtasks());
+
+      resumed.beginStep("Copy rows (resumed)");
+      resumed.setStepSucceeded("Copied");
+      resumed.setTaskSucceeded("Done", "42");
+
+      final var task = resumed.toTask();
+      final var items = task.items();
+      assertEquals(5, items.size());
+      assertEquals(before.get(0), items.get(0));
+      assertEquals(TABLE, task.attributes().keyAt(0));
+      assertEquals("users", task.attributes().stringAt(0));
+      assertEquals(Instant.EPOCH, task.timeStarted());
+      assertEquals(
+        new TRTaskSucceeded<>("Done", "42"),
+        task.resolution()
+      );
+
+      final var copy = (TRStep) items.get(1);
+      assertEquals(before.get(1).description(), copy.description());
+      assertEquals(before.get(1).timeStarted(), copy.timeStarted());
+      assertEquals(before.get(1).timeEnded(), copy.timeEnded());
+      assertEquals(before.get(1).attributes(), copy.attributes());
+      final var failed = assertInstanceOf(TRStepFailed.class, copy.resolution());
+      final var exception =
+        assertInstanceOf(TRArchivedException.class, failed.exception().get());
+      assertEquals(IOException.class.getName(), exception.className());
+
+      final var grafted = (TRTask<?>) items.get(2);
+      assertEquals(new TRTaskSucceeded<>("Remote done", "23"), grafted.resolution());
+      assertEquals(remote.timeStarted(), grafted.timeStarted());
+
+      final var index = (TRTask<?>) items.get(3);
+      assertEquals("Build", ((TRStep) index.items().get(1)).description());
+
+      final var resumedStep = (TRStep) items.get(4);
+      assertEquals("Copy rows (resumed)", resumedStep.description());
+      assertEquals(later, resumedStep.timeStarted());
+    }
+
+    final var again = TRCheckpoints.resume(LOG, file);
+    try (var resumed = again.recorder()) {
+      assertEquals(5, resumed.toTask().items().size());
+    }
+  }
+
+  /**
+   * Subtasks that were unresolved at the time of the checkpoint are
+   * returned so that they can be continued.
+   *
+   * @param directory The directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testResumeUnresolvedSubtasks(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var file = directory.resolve("task.trc");
+    final var recorder =
+      TRCheckpoints.<TRNoResult>create(LOG, file, "Migrate");
+
+    final var done = recorder.<TRNoResult>beginSubtask("Schema");
+    done.setTaskSucceeded("Migrated", TRNoResult.NO_RESULT);
+    final var pending = recorder.<TRNoResult>beginSubtask("Data");
+    pending.beginStep("Copy");
+    final var nested = pending.<TRNoResult>beginSubtask("Batch 0");
+    nested.setTaskFailed("Timed out");
+
+    recorder.checkpoint();
+    crash(recorder);
+
+    final var restored = TRCheckpoints.resume(LOG, file);
+    assertEquals(1, restored.unresolvedSubtasks().size());
+
+    final var data = restored.unresolvedSubtasks().getFirst();
+    assertEquals("Data", data.progress().description());
+    assertEquals(1L, data.progress().snapshot().subtasksFailed());
+    data.setStepSucceeded("Copied");
+    data.beginStep("Verify");
+    data.setTaskSucceeded("Migrated", TRNoResult.NO_RESULT);
+    data.close();
+
+    try (var resumed = restored.recorder()) {
+      resumed.setTaskSucceeded("Done", TRNoResult.NO_RESULT);
+
+      final var task = resumed.toTask();
+      final var dataTask = (TRTask<?>) task.items().get(2);
+      assertEquals(4, dataTask.items().size());
+      assertEquals("Verify", ((TRStep) dataTask.items().get(3)).description());
+    }
+  }
+
+  /**
+   * A partially written checkpoint is discarded on resumption.
+   *
+   * @param directory The directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testResumeTornCheckpoint(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var file = directory.resolve("task.trc");
+    final var recorder =
+      TRCheckpoints.<TRNoResult>create(LOG, file, "Migrate");
+
+    recorder.beginStep("Kept");
+    recorder.checkpoint();
+    final var kept = Files.size(file);
+
+    recorder.beginStep("Lost");
+    recorder.checkpoint();
+    crash(recorder);
+
+    final var full = Files.size(file);
+    try (var channel = FileChannel.open(file, WRITE)) {
+      channel.truncate(full - 3L);
+    }
+
+    final var restored = TRCheckpoints.resume(LOG, file);
+    assertEquals(kept, Files.size(file));
+
+    try (var resumed = restored.recorder()) {
+      assertEquals("Kept", resumed.progress().snapshot().stepCurrent());
+      resumed.setTaskSucceeded("Done", TRNoResult.NO_RESULT);
+      assertEquals(2, resumed.toTask().items().size());
+    }
+  }
+
+  /**
+   * A checkpoint with a corrupted checksum is discarded on resumption.
+   *
+   * @param directory The directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testResumeCorruptCheckpoint(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var file = directory.resolve("task.trc");
+    final var recorder =
+      TRCheckpoints.<TRNoResult>create(LOG, file, "Migrate");
+    recorder.beginStep("Lost");
+    recorder.checkpoint();
+    crash(recorder);
+
+    final var bytes = Files.readAllBytes(file);
+    bytes[bytes.length - 1] ^= 0x7f;
+    Files.write(file, bytes);
+
+    final var restored = TRCheckpoints.resume(LOG, file);
+    try (var resumed = restored.recorder()) {
+      resumed.setTaskSucceeded("Done", TRNoResult.NO_RESULT);
+      assertEquals(1, resumed.toTask().items().size());
+    }
+  }
+
+  /**
+   * Files that are not checkpoints are rejected, and existing files are not
+   * overwritten.
+   *
+   * @param directory The directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testNotCheckpoint(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var file = directory.resolve("task.trc");
+    Files.writeString(file, "Not a checkpoint");
+
+    assertThrows(IOException.class, () -> TRCheckpoints.resume(LOG, file));
+    assertThrows(
+      FileAlreadyExistsException.class,
+      () -> TRCheckpoints.create(LOG, file, "Migrate")
+    );
+
+    final var empty = directory.resolve("empty.trc");
+    Files.write(empty, new byte[]{0x54, 0x52, 0x43, 0x4b, 0, 0, 0, 1});
+    assertThrows(IOException.class, () -> TRCheckpoints.resume(LOG, empty));
+  }
+}
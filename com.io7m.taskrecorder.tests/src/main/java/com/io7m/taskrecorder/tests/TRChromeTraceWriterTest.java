@@ -0,0 +1,223 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.tests;
+
+import com.io7m.taskrecorder.core.TRNoResult;
+import com.io7m.taskrecorder.core.TRStep;
+import com.io7m.taskrecorder.core.TRStepSucceeded;
+import com.io7m.taskrecorder.core.TRTask;
+import com.io7m.taskrecorder.core.TRTaskItemType;
+import com.io7m.taskrecorder.core.TRTaskRecorder;
+import com.io7m.taskrecorder.core.TRTaskSucceeded;
+import com.io7m.taskrecorder.export.TRChromeTraceWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Chrome trace export tests.
+ */
+
+public final class TRChromeTraceWriterTest
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(TRChromeTraceWriterTest.class);
+
+  private static TRTask<Integer> recordTask()
+  {
+    final var clock =
+      new TRSteppingClock(Instant.ofEpochSecond(1L), Duration.ofMillis(1L));
+
+    try (var taskRec =
+           TRTaskRecorder.<Integer>create(LOG, clock, "Task \"A\"")) {
+      taskRec.beginStep("Step 0");
+      taskRec.setStepSucceeded("OK");
+      try (var sub = taskRec.beginSubtaskWithoutResult("Sub")) {
+        sub.beginStep("Step 1");
+        sub.setStepFailed("Broken", new IOException("Disk"));
+        sub.setTaskFailed("Failed");
+      }
+      taskRec.setTaskSucceeded("Done", Integer.valueOf(23));
+      return taskRec.toTask();
+    }
+  }
+
+  /**
+   * Tasks are written as nested complete events.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testWrite()
+    throws Exception
+  {
+    final var output = new ByteArrayOutputStream();
+    try (var writer = TRChromeTraceWriter.create(output)) {
+      writer.write(recordTask());
+    }
+
+    final var text = output.toString(UTF_8);
+    assertEquals(
+      String.join(
+        "\n",
+        "{\"displayTimeUnit\":\"ms\",\"traceEvents\":[",
+        "{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":1,\"args\":{\"name\":\"Task \\\"A\\\"\"}},",
+        "{\"name\":\"Task \\\"A\\\"\",\"cat\":\"task\",\"ph\":\"X\",\"ts\":1000000,\"dur\":7000,\"pid\":1,\"tid\":1,\"args\":{\"resolution\":\"succeeded\",\"message\":\"Done\"}},",
+        "{\"name\":\"Task \\\"A\\\"\",\"cat\":\"step\",\"ph\":\"X\",\"ts\":1000000,\"dur\":1000,\"pid\":1,\"tid\":1,\"args\":{\"resolution\":\"succeeded\",\"message\":\"\"}},",
+        "{\"name\":\"Step 0\",\"cat\":\"step\",\"ph\":\"X\",\"ts\":1001000,\"dur\":1000,\"pid\":1,\"tid\":1,\"args\":{\"resolution\":\"succeeded\",\"message\":\"OK\"}},",
+        "{\"name\":\"Sub\",\"cat\":\"task\",\"ph\":\"X\",\"ts\":1003000,\"dur\":3000,\"pid\":1,\"tid\":1,\"cname\":\"terrible\",\"args\":{\"resolution\":\"failed\",\"message\":\"Failed\"}},",
+        "{\"name\":\"Sub\",\"cat\":\"step\",\"ph\":\"X\",\"ts\":1003000,\"dur\":1000,\"pid\":1,\"tid\":1,\"args\":{\"resolution\":\"succeeded\",\"message\":\"\"}},",
+        "{\"name\":\"Step 1\",\"cat\":\"step\",\"ph\":\"X\",\"ts\":1004000,\"dur\":1000,\"pid\":1,\"tid\":1,\"cname\":\"terrible\",\"args\":{\"resolution\":\"failed\",\"message\":\"Broken\",\"exception\":\"java.io.IOException: Disk\"}}",
+        "]}",
+        ""
+      ),
+      text
+    );
+  }
+
+  /**
+   * Multiple tasks can be streamed to a file.
+   *
+   * @param directory A temporary directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testWriteFile(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var file = directory.resolve("trace.json");
+    final var task = recordTask();
+
+    final var writer = TRChromeTraceWriter.open(file);
+    for (int index = 0; index < 100; ++index) {
+      writer.write(task);
+    }
+    writer.close();
+    writer.close();
+
+    assertThrows(IllegalStateException.class, () -> writer.write(task));
+
+    final var text = Files.readString(file, UTF_8);
+    assertTrue(text.startsWith("{\"displayTimeUnit\":\"ms\",\"traceEvents\":["));
+    assertTrue(text.endsWith("]}\n"));
+    assertTrue(text.contains("\"tid\":100,"));
+    assertEquals(600L, text.lines().filter(l -> l.contains("\"ph\":\"X\"")).count());
+  }
+
+  private static TRTask<TRNoResult> task(
+    final TRTaskItemType... items)
+  {
+    return new TRTask<>(
+      List.of(items),
+      new TRTaskSucceeded<>("", TRNoResult.NO_RESULT)
+    );
+  }
+
+  /**
+   * Items without timing information are rejected, and nothing is written
+   * for the task.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testUntimedRejected()
+    throws Exception
+  {
+    final var timed =
+      new TRStep(
+        "Timed",
+        new TRStepSucceeded(""),
+        Instant.ofEpochSecond(1L),
+        Instant.ofEpochSecond(2L)
+      );
+    final var untimed =
+      new TRStep("Untimed", new TRStepSucceeded(""));
+
+    final var output = new ByteArrayOutputStream();
+    try (var writer = TRChromeTraceWriter.create(output)) {
+      final var ex =
+        assertThrows(
+          IllegalArgumentException.class,
+          () -> writer.write(task(timed, task(untimed))));
+      assertTrue(ex.getMessage().contains("'Untimed'"), ex.getMessage());
+    }
+
+    assertEquals(
+      "{\"displayTimeUnit\":\"ms\",\"traceEvents\":[\n]}\n",
+      output.toString(UTF_8)
+    );
+  }
+
+  /**
+   * Very deep trees are written without exhausting the stack.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testDeep()
+    throws Exception
+  {
+    final var depth = 20_000;
+    final var step =
+      new TRStep(
+        "Step",
+        new TRStepSucceeded(""),
+        Instant.ofEpochSecond(1L),
+        Instant.ofEpochSecond(2L)
+      );
+
+    var current = task(step);
+    for (int index = 0; index < depth; ++index) {
+      current = task(step, current);
+    }
+
+    final var output = new ByteArrayOutputStream();
+    try (var writer = TRChromeTraceWriter.create(output)) {
+      writer.write(current);
+    }
+
+    final var lines = output.toString(UTF_8).lines().toList();
+    assertEquals(
+      2L * (depth + 1),
+      lines.stream().filter(l -> l.contains("\"ph\":\"X\"")).count()
+    );
+    assertTrue(lines.get(2).contains("\"cat\":\"task\""));
+    assertTrue(lines.get(3).contains("\"cat\":\"step\""));
+    assertTrue(lines.get(4).contains("\"cat\":\"task\""));
+  }
+}
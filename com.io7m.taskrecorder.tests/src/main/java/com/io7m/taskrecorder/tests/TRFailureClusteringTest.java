@@ -0,0 +1,300 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.taskrecorder.tests;
+
+import com.io7m.taskrecorder.analysis.TRFailureCluster;
+import com.io7m.taskrecorder.analysis.TRFailureClustering;
+import com.io7m.taskrecorder.analysis.TRFailureClusteringConfiguration;
+import com.io7m.taskrecorder.analysis.TRFailureSignature;
+import com.io7m.taskrecorder.archive.TRArchivedException;
+import com.io7m.taskrecorder.archive.TRTaskSerialization;
+import com.io7m.taskrecorder.core.TRNoResult;
+import com.io7m.taskrecorder.core.TRTask;
+import com.io7m.taskrecorder.core.TRTaskRecorder;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Failure clustering tests.
+ */
+
+public final class TRFailureClusteringTest
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(TRFailureClusteringTest.class);
+
+  /**
+   * Record a task that fails in one of three ways, with a varying number of
+   * unrelated steps before the failure.
+   */
+
+  private static TRTask<TRNoResult> record(
+    final int run)
+  {
+    try (var taskRec = TRTaskRecorder.<TRNoResult>create(LOG, "Deploy")) {
+      for (int index = 0; index < run % 5; ++index) {
+        taskRec.beginStep("Warm cache %d".formatted(Integer.valueOf(index)));
+      }
+
+      switch (run % 4) {
+        case 0 -> {
+          taskRec.setTaskSucceeded("Deployed", TRNoResult.NO_RESULT);
+          return taskRec.toTask();
+        }
+        case 1 -> {
+          try (var sub = taskRec.<TRNoResult>beginSubtask("Migrate")) {
+            sub.beginStep("Alter table");
+            sub.setStepFailed(
+              "Run %d".formatted(Integer.valueOf(run)),
+              new IOException("Connection reset")
+            );
+            sub.beginStep("Cleanup");
+            sub.setStepFailed("Cleanup failed");
+            sub.setTaskFailed("Migration failed");
+          }
+        }
+        case 2 -> {
+          try (var sub = taskRec.<TRNoResult>beginSubtask("Migrate")) {
+            sub.beginStep("Alter table");
+            sub.setStepFailed(
+              "Run %d".formatted(Integer.valueOf(run)),
+              new TimeoutException()
+            );
+            sub.setTaskFailed("Migration failed");
+          }
+        }
+        default -> {
+          taskRec.beginStep("Restart");
+          taskRec.setStepFailed("Restart failed");
+        }
+      }
+
+      taskRec.setTaskFailed("Deploy failed");
+      return taskRec.toTask();
+    }
+  }
+
+  private static Iterator<TRTask<?>> tasks(
+    final int count)
+  {
+    return IntStream.range(0, count)
+      .<TRTask<?>>mapToObj(TRFailureClusteringTest::record)
+      .iterator();
+  }
+
+  /**
+   * Signatures follow the first failure.
+   */
+
+  @Test
+  public void testSignature()
+  {
+    final var config = TRFailureClusteringConfiguration.defaults();
+
+    assertEquals(
+      Optional.empty(),
+      TRFailureClustering.signatureOf(record(0), config.exceptionTypes())
+    );
+    assertEquals(
+      Optional.of(
+        new TRFailureSignature(
+          List.of("Deploy", "Migrate", "Alter table"),
+          Optional.of(IOException.class.getName())
+        )
+      ),
+      TRFailureClustering.signatureOf(record(1), config.exceptionTypes())
+    );
+    assertEquals(
+      Optional.of(
+        new TRFailureSignature(List.of("Deploy", "Restart"), Optional.empty())
+      ),
+      TRFailureClustering.signatureOf(record(7), config.exceptionTypes())
+    );
+
+    try (var taskRec = TRTaskRecorder.<TRNoResult>create(LOG, "Deploy")) {
+      taskRec.setStepFailed("Failed", new IllegalStateException());
+      taskRec.setTaskFailed("Failed", Optional.of(new IOException()));
+      assertEquals(
+        List.of("Deploy"),
+        TRFailureClustering.signatureOf(
+          taskRec.toTask(), config.exceptionTypes()).orElseThrow().path()
+      );
+    }
+
+    try (var taskRec = TRTaskRecorder.<TRNoResult>create(LOG, "Deploy")) {
+      taskRec.beginStep("Fetch");
+      taskRec.setTaskFailed("Failed", Optional.of(new IOException()));
+      final var signature =
+        TRFailureClustering.signatureOf(
+          taskRec.toTask(), config.exceptionTypes()).orElseThrow();
+      assertEquals(List.of("Deploy"), signature.path());
+      assertEquals("Deploy (java.io.IOException)", signature.render());
+    }
+  }
+
+  /**
+   * Large numbers of tasks are clustered using several threads.
+   */
+
+  @Test
+  public void testClusterMany()
+  {
+    final var threads = ConcurrentHashMap.<Thread>newKeySet();
+    final var config =
+      TRFailureClusteringConfiguration.defaults()
+        .withExceptionTypes(e -> {
+          threads.add(Thread.currentThread());
+          return e.getClass().getName();
+        });
+
+    final var report = TRFailureClustering.cluster(tasks(200_000), config);
+    assertEquals(200_000L, report.tasks());
+    assertEquals(150_000L, report.failures());
+    assertEquals(0L, report.unclustered());
+
+    final var clusters = report.clusters();
+    assertEquals(3, clusters.size());
+    for (final var cluster : clusters) {
+      assertEquals(50_000L, cluster.count());
+    }
+    assertEquals(
+      "Deploy / Migrate / Alter table (java.io.IOException)",
+      clusters.get(0).signature().render()
+    );
+    assertTrue(clusters.get(0).message().startsWith("Run "));
+
+    if (Runtime.getRuntime().availableProcessors() > 1) {
+      assertTrue(threads.size() > 1, "Expected work on several threads");
+    }
+  }
+
+  /**
+   * Archived tasks read from files cluster with live tasks.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testClusterFromFile()
+    throws Exception
+  {
+    final var bytes = new ByteArrayOutputStream();
+    final var source = tasks(1000);
+    while (source.hasNext()) {
+      TRTaskSerialization.write(bytes, source.next());
+    }
+
+    final var config =
+      TRFailureClusteringConfiguration.defaults()
+        .withExceptionTypes(TRArchivedException::classNameOf);
+
+    final var archived =
+      TRFailureClustering.cluster(
+        TRTaskSerialization.stream(new ByteArrayInputStream(bytes.toByteArray())),
+        config
+      );
+    final var live =
+      TRFailureClustering.cluster(tasks(1000), config);
+
+    assertEquals(live.failures(), archived.failures());
+    assertEquals(
+      live.clusters().stream().map(TRFailureCluster::signature).toList(),
+      archived.clusters().stream().map(TRFailureCluster::signature).toList()
+    );
+    assertEquals(
+      Set.of(Long.valueOf(250L)),
+      Set.copyOf(archived.clusters().stream().map(TRFailureCluster::count).toList())
+    );
+
+    final var data = bytes.toByteArray();
+    final var truncated = new byte[data.length - 1];
+    System.arraycopy(data, 0, truncated, 0, truncated.length);
+    assertThrows(
+      UncheckedIOException.class,
+      () -> TRFailureClustering.cluster(
+        TRTaskSerialization.stream(new ByteArrayInputStream(truncated)),
+        config
+      )
+    );
+  }
+
+  /**
+   * The number of clusters is bounded.
+   */
+
+  @Test
+  public void testClusterBounded()
+  {
+    final var config =
+      new TRFailureClusteringConfiguration(
+        e -> e.getClass().getName(),
+        16,
+        2
+      );
+
+    final var report = TRFailureClustering.cluster(tasks(4000), config);
+    assertEquals(2, report.clusters().size());
+    assertEquals(1000L, report.unclustered());
+    assertEquals(3000L, report.failures());
+  }
+
+  /**
+   * The bounded cluster counts do not depend on how tasks are interleaved
+   * across threads.
+   */
+
+  @Test
+  public void testClusterBoundedExact()
+  {
+    final var config =
+      new TRFailureClusteringConfiguration(
+        e -> e.getClass().getName(),
+        1,
+        2
+      );
+
+    for (int run = 0; run < 20; ++run) {
+      final var report = TRFailureClustering.cluster(tasks(4000), config);
+      assertEquals(2, report.clusters().size());
+      assertEquals(1000L, report.unclustered());
+      assertEquals(
+        2000L,
+        report.clusters()
+          .stream()
+          .mapToLong(TRFailureCluster::count)
+          .sum()
+      );
+    }
+  }
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.taskrecorder.tests;
+
+import com.io7m.taskrecorder.analysis.TRFingerprint;
+import com.io7m.taskrecorder.analysis.TRFingerprints;
+import com.io7m.taskrecorder.analysis.TRTaskDeduplicator;
+import com.io7m.taskrecorder.core.TRAttributeKey;
+import com.io7m.taskrecorder.core.TRNoResult;
+import com.io7m.taskrecorder.core.TRStep;
+import com.io7m.taskrecorder.core.TRStepFailed;
+import com.io7m.taskrecorder.core.TRStepSucceeded;
+import com.io7m.taskrecorder.core.TRTask;
+import com.io7m.taskrecorder.core.TRTaskFailed;
+import com.io7m.taskrecorder.core.TRTaskRecorder;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Fingerprint and deduplication tests.
+ */
+
+public final class TRFingerprintTest
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(TRFingerprintTest.class);
+
+  private static final TRAttributeKey<Long> ATTEMPT =
+    TRAttributeKey.ofLong("com.io7m.taskrecorder.tests.fingerprint.attempt");
+
+  private static TRTask<TRNoResult> failure(
+    final int run,
+    final String failedStep)
+  {
+    final var clock =
+      Clock.fixed(Instant.EPOCH.plusSeconds(run), ZoneOffset.UTC);
+
+    try (var taskRec = TRTaskRecorder.<TRNoResult>create(LOG, clock, "Deploy")) {
+      taskRec.setAttribute(ATTEMPT, run);
+      taskRec.beginStep("Fetch");
+      taskRec.setStepSucceeded("Fetched %d bytes".formatted(run));
+
+      try (var sub = taskRec.<TRNoResult>beginSubtask("Migrate")) {
+        sub.beginStep(failedStep);
+        sub.setStepFailed(
+          "Run %d failed".formatted(run),
+          new IOException("Connection %d reset".formatted(run))
+        );
+        sub.setTaskFailed("Migration failed in run %d".formatted(run));
+      }
+
+      taskRec.setTaskFailed("Run %d failed".formatted(run));
+      return taskRec.toTask();
+    }
+  }
+
+  /**
+   * Fingerprints ignore messages, exceptions, times, and attributes.
+   */
+
+  @Test
+  public void testFingerprintIgnoresVolatileParts()
+  {
+    final var first = failure(1, "Alter table");
+    final var second = failure(2, "Alter table");
+    final var other = failure(3, "Create index");
+
+    assertNotEquals(first, second);
+    assertEquals(TRFingerprints.of(first), TRFingerprints.of(second));
+    assertNotEquals(TRFingerprints.of(first), TRFingerprints.of(other));
+    assertEquals(TRFingerprints.of(first), TRFingerprints.of(first));
+    assertEquals(
+      TRFingerprints.of(first.items().get(2)),
+      TRFingerprints.of(second.items().get(2))
+    );
+  }
+
+  /**
+   * Fingerprints distinguish resolutions, nesting, and item kinds.
+   */
+
+  @Test
+  public void testFingerprintStructure()
+  {
+    final var fingerprints = new HashSet<TRFingerprint>();
+    final var descriptions = new String[]{"A", "B", "AB", "ABCD", "ABCDE"};
+
+    for (final var description : descriptions) {
+      for (int shape = 0; shape < 4; ++shape) {
+        try (var taskRec = TRTaskRecorder.<TRNoResult>create(LOG, "Root")) {
+          if ((shape & 1) == 0) {
+            taskRec.beginStep(description);
+          } else {
+            try (var sub = taskRec.<TRNoResult>beginSubtask(description)) {
+              sub.setTaskSucceeded("", TRNoResult.NO_RESULT);
+            }
+          }
+          if ((shape & 2) == 0) {
+            taskRec.setStepFailed("");
+          }
+          taskRec.setTaskSucceeded("", TRNoResult.NO_RESULT);
+          fingerprints.add(TRFingerprints.of(taskRec.toTask()));
+        }
+      }
+    }
+
+    assertEquals(descriptions.length * 4, fingerprints.size());
+  }
+
+  /**
+   * Fingerprints survive a round trip through text.
+   */
+
+  @Test
+  public void testFingerprintText()
+  {
+    final var fingerprint = TRFingerprints.of(failure(1, "Alter table"));
+    final var text = fingerprint.toString();
+    assertEquals(32, text.length());
+    assertEquals(fingerprint, TRFingerprint.parse(text));
+    assertThrows(IllegalArgumentException.class, () -> TRFingerprint.parse("0"));
+  }
+
+  /**
+   * Identical failures from many threads are counted together.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testDeduplicator()
+    throws Exception
+  {
+    final var dedup = TRTaskDeduplicator.create();
+
+    try (var executor = Executors.newFixedThreadPool(4)) {
+      final var futures = new ArrayList<Future<?>>();
+      for (int thread = 0; thread < 4; ++thread) {
+        final var base = thread * 1078;
+        futures.add(executor.submit(() -> {
+          for (int run = 0; run < 1078; ++run) {
+            dedup.add(failure(base + run, "Alter table"));
+          }
+        }));
+      }
+      for (final var future : futures) {
+        future.get();
+      }
+    }
+
+    assertEquals(1L, dedup.add(failure(0, "Create index")));
+    assertEquals(2L, dedup.add(failure(1, "Create index")));
+
+    final var occurrences = dedup.occurrences();
+    assertEquals(2, dedup.size());
+    assertEquals(4312L, occurrences.get(0).count());
+    assertEquals(2L, occurrences.get(1).count());
+    assertEquals(
+      4312L,
+      dedup.count(TRFingerprints.of(failure(99, "Alter table")))
+    );
+    assertEquals(
+      TRFingerprints.of(occurrences.get(0).exemplar()),
+      occurrences.get(0).fingerprint()
+    );
+  }
+
+  /**
+   * The number of distinct fingerprints is bounded.
+   */
+
+  @Test
+  public void testDeduplicatorBounded()
+  {
+    final var dedup = TRTaskDeduplicator.create(1);
+    assertEquals(1L, dedup.add(failure(0, "A")));
+    assertEquals(0L, dedup.add(failure(0, "B")));
+    assertEquals(2L, dedup.add(failure(1, "A")));
+    assertEquals(1, dedup.size());
+    assertEquals(1L, dedup.overflowed());
+
+    dedup.clear();
+    assertEquals(1L, dedup.add(failure(0, "B")));
+    assertEquals(0L, dedup.overflowed());
+    assertThrows(IllegalArgumentException.class, () -> TRTaskDeduplicator.create(0));
+  }
+
+  /**
+   * Successive snapshots of a recorder reuse the fingerprints of unchanged
+   * subtasks.
+   */
+
+  @Test
+  public void testFingerprintSnapshots()
+  {
+    try (var taskRec = TRTaskRecorder.<TRNoResult>create(LOG, "Root")) {
+      taskRec.setTaskSucceeded("", TRNoResult.NO_RESULT);
+      final var seen = new HashSet<TRFingerprint>();
+      for (int index = 0; index < 100; ++index) {
+        try (var sub = taskRec.<TRNoResult>beginSubtask("Sub")) {
+          sub.beginStep("Step %d".formatted(index));
+          sub.setTaskSucceeded("", TRNoResult.NO_RESULT);
+        }
+        assertTrue(seen.add(TRFingerprints.of(taskRec.toTask())));
+      }
+    }
+  }
+
+  private static TRTask<TRNoResult> deepFailure(
+    final int depth,
+    final String failedStep)
+  {
+    TRTask<TRNoResult> current =
+      new TRTask<>(
+        List.of(new TRStep(failedStep, new TRStepFailed("", Optional.empty()))),
+        new TRTaskFailed<>("", Optional.empty())
+      );
+    for (int index = 0; index < depth; ++index) {
+      current =
+        new TRTask<>(
+          List.of(new TRStep("Step", new TRStepSucceeded("")), current),
+          new TRTaskFailed<>("", Optional.empty())
+        );
+    }
+    return current;
+  }
+
+  /**
+   * Very deep failures are fingerprinted and deduplicated without
+   * exhausting the stack, and tasks sharing cached subtasks agree with
+   * tasks fingerprinted from scratch.
+   */
+
+  @Test
+  public void testFingerprintDeep()
+  {
+    final var depth = 20_000;
+    final var dedup = TRTaskDeduplicator.create();
+
+    final var first = deepFailure(depth, "Alter table");
+    assertEquals(1L, dedup.add(first));
+    assertEquals(2L, dedup.add(deepFailure(depth, "Alter table")));
+    assertEquals(1L, dedup.add(deepFailure(depth, "Create index")));
+
+    final var extended =
+      new TRTask<>(
+        List.of(new TRStep("Step", new TRStepSucceeded("")), first),
+        new TRTaskFailed<>("", Optional.empty())
+      );
+    assertEquals(
+      TRFingerprints.of(deepFailure(depth + 1, "Alter table")),
+      TRFingerprints.of(extended)
+    );
+  }
+}
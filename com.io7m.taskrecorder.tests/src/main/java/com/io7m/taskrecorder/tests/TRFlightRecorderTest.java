@@ -0,0 +1,132 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.tests;
+
+import com.io7m.taskrecorder.core.TRNoResult;
+import com.io7m.taskrecorder.core.TRTaskRecorder;
+import com.io7m.taskrecorder.jfr.TRFlightRecorder;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Flight recorder integration tests.
+ */
+
+public final class TRFlightRecorderTest
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(TRFlightRecorderTest.class);
+
+  private static String render(
+    final RecordedEvent event)
+  {
+    final var type = event.getEventType().getName();
+    if (type.equals("com.io7m.taskrecorder.Step")) {
+      return "step %s/%s %d %s %s".formatted(
+        event.getString("task"),
+        event.getString("description"),
+        Integer.valueOf(event.getInt("depth")),
+        event.getString("resolution"),
+        event.getString("message")
+      );
+    }
+    return "task %s %d %s %s".formatted(
+      event.getString("description"),
+      Integer.valueOf(event.getInt("depth")),
+      event.getString("resolution"),
+      event.getString("message")
+    );
+  }
+
+  private static void record()
+  {
+    try (var taskRec = TRFlightRecorder.record(
+      TRTaskRecorder.<TRNoResult>create(LOG, "Task"))) {
+      taskRec.beginStep("Step 0");
+      taskRec.setStepFailed("Broken");
+      try (var sub = taskRec.beginSubtaskWithoutResult("Sub")) {
+        sub.beginStep("Inner");
+        sub.setTaskSucceeded("Done", TRNoResult.NO_RESULT);
+      }
+      taskRec.beginStep("Step 1");
+      taskRec.setTaskSucceeded("OK", TRNoResult.NO_RESULT);
+    }
+  }
+
+  /**
+   * Steps and tasks are emitted as flight recorder events.
+   */
+
+  @Test
+  public void testEvents()
+  {
+    final var events = Collections.synchronizedList(new ArrayList<String>());
+    try (var stream = new RecordingStream()) {
+      stream.enable("com.io7m.taskrecorder.Step");
+      stream.enable("com.io7m.taskrecorder.Task");
+      stream.onEvent("com.io7m.taskrecorder.Step", e -> events.add(render(e)));
+      stream.onEvent("com.io7m.taskrecorder.Task", e -> events.add(render(e)));
+      stream.startAsync();
+      record();
+      stream.stop();
+    }
+
+    assertEquals(
+      Stream.of(
+        "step Task/Task 0 succeeded ",
+        "step Task/Step 0 0 failed Broken",
+        "step Sub/Sub 1 succeeded ",
+        "step Sub/Inner 1 succeeded ",
+        "task Sub 1 succeeded Done",
+        "step Task/Step 1 0 succeeded ",
+        "task Task 0 succeeded OK"
+      ).sorted().toList(),
+      events.stream().sorted().toList()
+    );
+  }
+
+  /**
+   * Nothing is emitted whilst the events are disabled.
+   */
+
+  @Test
+  public void testDisabled()
+  {
+    final var events = Collections.synchronizedList(new ArrayList<String>());
+    try (var stream = new RecordingStream()) {
+      stream.disable("com.io7m.taskrecorder.Step");
+      stream.disable("com.io7m.taskrecorder.Task");
+      stream.onEvent("com.io7m.taskrecorder.Step", e -> events.add(render(e)));
+      stream.onEvent("com.io7m.taskrecorder.Task", e -> events.add(render(e)));
+      stream.startAsync();
+      record();
+      stream.stop();
+    }
+    assertEquals(List.of(), events);
+  }
+}
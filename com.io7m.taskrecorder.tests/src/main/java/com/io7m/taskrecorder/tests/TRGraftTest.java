@@ -0,0 +1,296 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.tests;
+
+import com.io7m.taskrecorder.archive.TRTaskSerialization;
+import com.io7m.taskrecorder.core.TRNoResult;
+import com.io7m.taskrecorder.core.TRStep;
+import com.io7m.taskrecorder.core.TRStepSucceeded;
+import com.io7m.taskrecorder.core.TRTask;
+import com.io7m.taskrecorder.core.TRTaskFailed;
+import com.io7m.taskrecorder.core.TRTaskRecorder;
+import com.io7m.taskrecorder.core.TRTaskRecorderOffHeap;
+import com.io7m.taskrecorder.core.TRTaskRecorderType;
+import com.io7m.taskrecorder.core.TRTaskResolutionType;
+import com.io7m.taskrecorder.core.TRTaskStepRecorderType;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Subtask grafting tests.
+ */
+
+public final class TRGraftTest
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(TRGraftTest.class);
+
+  private static TRTask<TRNoResult> recordRemote(
+    final int steps)
+  {
+    try (var taskRec = TRTaskRecorder.<TRNoResult>create(LOG, "Remote")) {
+      for (int index = 0; index < steps; ++index) {
+        taskRec.beginStep("Step");
+        taskRec.setStepSucceeded();
+      }
+      taskRec.setTaskFailed("Remote failed");
+      return taskRec.toTask();
+    }
+  }
+
+  private static TRTask<TRNoResult> recordRemoteDeep(
+    final int depth)
+  {
+    final var step =
+      new TRStep(
+        "Step",
+        new TRStepSucceeded(""),
+        Instant.ofEpochSecond(1L),
+        Instant.ofEpochSecond(2L)
+      );
+
+    TRTask<TRNoResult> current =
+      new TRTask<>(List.of(step), new TRTaskFailed<>("Bottom", Optional.empty()));
+    for (int index = 0; index < depth; ++index) {
+      current =
+        new TRTask<>(
+          List.of(step, current),
+          new TRTaskFailed<>("Remote failed", Optional.empty())
+        );
+    }
+    return current;
+  }
+
+  private static void checkGraft(
+    final Supplier<TRTaskRecorderType<TRNoResult>> recorders)
+    throws Exception
+  {
+    final TRTask<TRNoResult> remote;
+    try (var executor = Executors.newSingleThreadExecutor()) {
+      remote = executor.submit(() -> recordRemote(100_000)).get();
+    }
+
+    try (var taskRec = recorders.get()) {
+      taskRec.beginStep("Before");
+      taskRec.graft(remote);
+      taskRec.beginStep("After");
+
+      final var progress = taskRec.progress().snapshot();
+      assertEquals(1L, progress.subtasks());
+      assertEquals(1L, progress.subtasksFailed());
+
+      taskRec.setTaskSucceeded("OK", TRNoResult.NO_RESULT);
+      final var task = taskRec.toTask();
+      assertEquals(4, task.items().size());
+      assertEquals("Before", task.items().get(1).description());
+      assertSame(remote, task.items().get(2));
+      assertEquals("After", task.items().get(3).description());
+    }
+  }
+
+  /**
+   * Completed tasks can be grafted into the default recorder without being
+   * copied.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testGraft()
+    throws Exception
+  {
+    checkGraft(() -> TRTaskRecorder.create(LOG, "Task"));
+  }
+
+  /**
+   * Completed tasks can be grafted into the off-heap recorder without being
+   * copied.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testGraftOffHeap()
+    throws Exception
+  {
+    checkGraft(() -> TRTaskRecorderOffHeap.create(LOG, "Task"));
+  }
+
+  /**
+   * Serialized tasks can be read from streams and grafted.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testGraftStream()
+    throws Exception
+  {
+    final var remote = recordRemote(3);
+    final var bytes = new ByteArrayOutputStream();
+    TRTaskSerialization.write(bytes, remote);
+    TRTaskSerialization.write(bytes, remote);
+
+    final var input = new ByteArrayInputStream(bytes.toByteArray());
+    try (var taskRec = TRTaskRecorder.<TRNoResult>create(LOG, "Task")) {
+      taskRec.graft(TRTaskSerialization.read(input));
+      taskRec.graft(TRTaskSerialization.read(input));
+      taskRec.setTaskSucceeded("OK", TRNoResult.NO_RESULT);
+
+      final var task = taskRec.toTask();
+      assertEquals(task.items().get(1), task.items().get(2));
+      assertEquals(remote.items(), ((TRTask<?>) task.items().get(1)).items());
+    }
+
+    assertThrows(EOFException.class, () -> TRTaskSerialization.read(input));
+
+    final var truncated = bytes.toByteArray();
+    assertThrows(
+      EOFException.class,
+      () -> TRTaskSerialization.read(
+        new ByteArrayInputStream(Arrays.copyOf(truncated, 10))));
+
+    truncated[0] = (byte) 0xff;
+    assertThrows(
+      IOException.class,
+      () -> TRTaskSerialization.read(new ByteArrayInputStream(truncated)));
+  }
+
+  /**
+   * Deeply nested tasks can be read from streams and grafted, and
+   * malformed deeply nested tasks are rejected with I/O errors rather than
+   * exhausting the stack.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testGraftStreamDeep()
+    throws Exception
+  {
+    final var depth = 20_000;
+    final var bytes = new ByteArrayOutputStream();
+    TRTaskSerialization.write(bytes, recordRemoteDeep(depth));
+
+    final var input = new ByteArrayInputStream(bytes.toByteArray());
+    try (var taskRec = TRTaskRecorder.<TRNoResult>create(LOG, "Task")) {
+      taskRec.graft(TRTaskSerialization.read(input));
+      taskRec.setTaskSucceeded("OK", TRNoResult.NO_RESULT);
+
+      var current = (TRTask<?>) taskRec.toTask().items().get(1);
+      for (int index = 0; index < depth; ++index) {
+        assertEquals("Remote failed", current.resolution().message());
+        assertEquals(2, current.items().size());
+        current = assertInstanceOf(TRTask.class, current.items().get(1));
+      }
+      assertEquals("Bottom", current.resolution().message());
+      assertEquals(1, current.items().size());
+    }
+
+    final var data = TRTaskSerialization.serialize(recordRemoteDeep(depth));
+    assertThrows(
+      IOException.class,
+      () -> TRTaskSerialization.deserialize(
+        ByteBuffer.wrap(data, 0, data.length - 1)));
+  }
+
+  /**
+   * A task recorder written against the API before grafting and progress
+   * views existed still compiles, and rejects both.
+   */
+
+  @Test
+  public void testLegacyRecorderRejectsGraft()
+  {
+    final var legacy = new LegacyRecorder();
+    assertThrows(
+      UnsupportedOperationException.class,
+      () -> legacy.graft(recordRemote(1))
+    );
+    assertThrows(
+      UnsupportedOperationException.class,
+      legacy::progress
+    );
+  }
+
+  private static final class LegacyRecorder
+    implements TRTaskRecorderType<TRNoResult>
+  {
+    LegacyRecorder()
+    {
+
+    }
+
+    @Override
+    public <U> TRTaskRecorderType<U> beginSubtask(
+      final String description)
+    {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public TRTaskStepRecorderType beginStep(
+      final String description)
+    {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public TRTaskStepRecorderType stepCurrent()
+    {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setTaskResolution(
+      final TRTaskResolutionType<TRNoResult> resolution)
+    {
+
+    }
+
+    @Override
+    public TRTask<TRNoResult> toTask()
+    {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close()
+    {
+
+    }
+  }
+}
@@ -0,0 +1,415 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.taskrecorder.tests;
+
+import com.io7m.taskrecorder.core.TRNoResult;
+import com.io7m.taskrecorder.core.TRStepFailed;
+import com.io7m.taskrecorder.core.TRTaskRecorder;
+import com.io7m.taskrecorder.core.TRTaskSucceeded;
+import com.io7m.taskrecorder.export.TRRecordingEventType;
+import com.io7m.taskrecorder.export.TRRecordingOverflowPolicy;
+import com.io7m.taskrecorder.export.TRRecordingPublisher;
+import com.io7m.taskrecorder.export.TRRecordingPublisherConfiguration;
+import com.io7m.taskrecorder.export.TRRecordingStepBegan;
+import com.io7m.taskrecorder.export.TRRecordingStepResolved;
+import com.io7m.taskrecorder.export.TRRecordingTaskBegan;
+import com.io7m.taskrecorder.export.TRRecordingTaskGrafted;
+import com.io7m.taskrecorder.export.TRRecordingTaskResolved;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Recording publisher tests.
+ */
+
+public final class TRRecordingPublisherTest
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(TRRecordingPublisherTest.class);
+
+  private static final Executor DIRECT = Runnable::run;
+
+  private static TRRecordingPublisher publisher(
+    final int capacity,
+    final TRRecordingOverflowPolicy policy,
+    final Executor executor)
+  {
+    return TRRecordingPublisher.create(
+      LOG,
+      new TRRecordingPublisherConfiguration(capacity, policy),
+      Clock.systemUTC(),
+      executor
+    );
+  }
+
+  /**
+   * Record a root task with the given number of additional steps. This
+   * publishes two events for the root task and one for each step.
+   */
+
+  private static void recordSteps(
+    final TRRecordingPublisher publisher,
+    final int steps)
+  {
+    final var recorder =
+      publisher.record(TRTaskRecorder.create(LOG, "Root"));
+    for (int index = 0; index < steps; ++index) {
+      recorder.beginStep("Step %d".formatted(Integer.valueOf(index)));
+    }
+  }
+
+  /**
+   * A subscriber that collects events, requesting a fixed number on
+   * subscription.
+   */
+
+  private static final class CollectingSubscriber
+    implements Flow.Subscriber<TRRecordingEventType>
+  {
+    private final List<TRRecordingEventType> events;
+    private final long initialRequest;
+    private final CountDownLatch terminated;
+    private final CountDownLatch gate;
+    private volatile Flow.Subscription subscription;
+    private volatile Throwable error;
+
+    CollectingSubscriber(
+      final long inInitialRequest,
+      final CountDownLatch inGate)
+    {
+      this.events = Collections.synchronizedList(new ArrayList<>());
+      this.initialRequest = inInitialRequest;
+      this.terminated = new CountDownLatch(1);
+      this.gate = inGate;
+    }
+
+    @Override
+    public void onSubscribe(
+      final Flow.Subscription inSubscription)
+    {
+      this.subscription = inSubscription;
+      if (this.initialRequest > 0L) {
+        inSubscription.request(this.initialRequest);
+      }
+    }
+
+    @Override
+    public void onNext(
+      final TRRecordingEventType item)
+    {
+      try {
+        this.gate.await();
+      } catch (final InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+      this.events.add(item);
+    }
+
+    @Override
+    public void onError(
+      final Throwable throwable)
+    {
+      this.error = throwable;
+      this.terminated.countDown();
+    }
+
+    @Override
+    public void onComplete()
+    {
+      this.terminated.countDown();
+    }
+  }
+
+  /**
+   * Events are published for tasks, steps, resolutions, and grafts, in
+   * order, and subscribers are completed when the publisher is closed.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  @Timeout(30L)
+  public void testEvents()
+    throws Exception
+  {
+    final var publisher =
+      TRRecordingPublisher.create(
+        LOG, TRRecordingPublisherConfiguration.defaults());
+    final var subscriber =
+      new CollectingSubscriber(Long.MAX_VALUE, new CountDownLatch(0));
+
+    publisher.subscribe(subscriber);
+
+    final var grafted =
+      TRTaskRecorder.<TRNoResult>create(LOG, "Grafted");
+    grafted.setTaskSucceeded("OK", TRNoResult.NO_RESULT);
+
+    try (var recorder =
+           publisher.record(TRTaskRecorder.<TRNoResult>create(LOG, "Root"))) {
+      recorder.beginStep("Step 0");
+      recorder.setStepFailed("Failed");
+
+      try (var subtask = recorder.<TRNoResult>beginSubtask("Subtask")) {
+        subtask.setStepSucceeded("Subtask OK");
+        subtask.setTaskSucceeded("Subtask done", TRNoResult.NO_RESULT);
+      }
+
+      recorder.graft(grafted.toTask());
+      recorder.setTaskSucceeded("Done", TRNoResult.NO_RESULT);
+    }
+
+    publisher.close();
+    subscriber.terminated.await();
+    assertNull(subscriber.error);
+
+    final var events = subscriber.events;
+    assertEquals(10, events.size());
+    assertEquals(10L, publisher.publishedCount());
+
+    for (int index = 0; index < events.size(); ++index) {
+      assertEquals(index + 1L, events.get(index).sequence());
+    }
+
+    final var root =
+      assertInstanceOf(TRRecordingTaskBegan.class, events.get(0));
+    assertEquals("Root", root.description());
+    assertEquals(0L, root.parent());
+    final var rootStep =
+      assertInstanceOf(TRRecordingStepBegan.class, events.get(1));
+    assertEquals("Root", rootStep.description());
+    final var step =
+      assertInstanceOf(TRRecordingStepBegan.class, events.get(2));
+    assertEquals("Step 0", step.description());
+
+    final var failed =
+      assertInstanceOf(TRRecordingStepResolved.class, events.get(3));
+    assertEquals("Step 0", failed.description());
+    assertInstanceOf(TRStepFailed.class, failed.resolution());
+
+    final var subtask =
+      assertInstanceOf(TRRecordingTaskBegan.class, events.get(4));
+    assertEquals("Subtask", subtask.description());
+    assertEquals(root.task(), subtask.parent());
+    assertTrue(subtask.task() != root.task());
+
+    assertInstanceOf(TRRecordingStepBegan.class, events.get(5));
+    final var subtaskStep =
+      assertInstanceOf(TRRecordingStepResolved.class, events.get(6));
+    assertEquals("Subtask", subtaskStep.description());
+    assertEquals(subtask.task(), subtaskStep.task());
+
+    final var subtaskResolved =
+      assertInstanceOf(TRRecordingTaskResolved.class, events.get(7));
+    assertEquals(subtask.task(), subtaskResolved.task());
+
+    final var graft =
+      assertInstanceOf(TRRecordingTaskGrafted.class, events.get(8));
+    assertEquals(root.task(), graft.task());
+    assertEquals("Grafted", graft.grafted().description());
+
+    final var rootResolved =
+      assertInstanceOf(TRRecordingTaskResolved.class, events.get(9));
+    assertEquals(root.task(), rootResolved.task());
+    assertInstanceOf(TRTaskSucceeded.class, rootResolved.resolution());
+    assertEquals(0, publisher.subscriberCount());
+  }
+
+  /**
+   * Events are only delivered as they are requested.
+   */
+
+  @Test
+  public void testBackpressure()
+  {
+    final var publisher =
+      publisher(64, TRRecordingOverflowPolicy.DROP_NEWEST, DIRECT);
+    final var subscriber =
+      new CollectingSubscriber(2L, new CountDownLatch(0));
+
+    publisher.subscribe(subscriber);
+    recordSteps(publisher, 8);
+    assertEquals(2, subscriber.events.size());
+
+    subscriber.subscription.request(3L);
+    assertEquals(5, subscriber.events.size());
+
+    subscriber.subscription.request(Long.MAX_VALUE);
+    assertEquals(10, subscriber.events.size());
+    assertEquals(0L, publisher.droppedCount());
+
+    publisher.close();
+    assertEquals(0L, subscriber.terminated.getCount());
+  }
+
+  /**
+   * Under the drop-newest policy, the events published while the buffer is
+   * full are dropped.
+   */
+
+  @Test
+  public void testDropNewest()
+  {
+    final var publisher =
+      publisher(4, TRRecordingOverflowPolicy.DROP_NEWEST, DIRECT);
+    final var subscriber =
+      new CollectingSubscriber(0L, new CountDownLatch(0));
+
+    publisher.subscribe(subscriber);
+    recordSteps(publisher, 8);
+    subscriber.subscription.request(Long.MAX_VALUE);
+
+    assertEquals(6L, publisher.droppedCount());
+    assertEquals(
+      List.of(1L, 2L, 3L, 4L),
+      subscriber.events.stream().map(TRRecordingEventType::sequence).toList()
+    );
+  }
+
+  /**
+   * Under the drop-oldest policy, the oldest buffered events are dropped.
+   */
+
+  @Test
+  public void testDropOldest()
+  {
+    final var publisher =
+      publisher(4, TRRecordingOverflowPolicy.DROP_OLDEST, DIRECT);
+    final var subscriber =
+      new CollectingSubscriber(0L, new CountDownLatch(0));
+
+    publisher.subscribe(subscriber);
+    recordSteps(publisher, 8);
+    subscriber.subscription.request(Long.MAX_VALUE);
+
+    assertEquals(6L, publisher.droppedCount());
+    assertEquals(
+      List.of(7L, 8L, 9L, 10L),
+      subscriber.events.stream().map(TRRecordingEventType::sequence).toList()
+    );
+  }
+
+  /**
+   * Under the cancel policy, overflow cancels the subscription with an
+   * error.
+   */
+
+  @Test
+  public void testCancel()
+  {
+    final var publisher =
+      publisher(4, TRRecordingOverflowPolicy.CANCEL, DIRECT);
+    final var subscriber =
+      new CollectingSubscriber(0L, new CountDownLatch(0));
+
+    publisher.subscribe(subscriber);
+    recordSteps(publisher, 8);
+
+    assertInstanceOf(IllegalStateException.class, subscriber.error);
+    assertEquals(0, subscriber.events.size());
+    assertEquals(0, publisher.subscriberCount());
+  }
+
+  /**
+   * Requesting a non-positive number of events is an error.
+   */
+
+  @Test
+  public void testRequestNonPositive()
+  {
+    final var publisher =
+      publisher(4, TRRecordingOverflowPolicy.DROP_NEWEST, DIRECT);
+    final var subscriber =
+      new CollectingSubscriber(0L, new CountDownLatch(0));
+
+    publisher.subscribe(subscriber);
+    subscriber.subscription.request(0L);
+
+    assertInstanceOf(IllegalArgumentException.class, subscriber.error);
+    assertEquals(0, publisher.subscriberCount());
+  }
+
+  /**
+   * Without subscribers, no events are published.
+   */
+
+  @Test
+  public void testNoSubscribers()
+  {
+    final var publisher =
+      publisher(4, TRRecordingOverflowPolicy.DROP_NEWEST, DIRECT);
+
+    recordSteps(publisher, 8);
+    assertEquals(0L, publisher.publishedCount());
+    assertEquals(0L, publisher.droppedCount());
+    assertThrows(NullPointerException.class, () -> publisher.subscribe(null));
+  }
+
+  /**
+   * A subscriber that never returns from {@code onNext} does not stall
+   * the recording thread.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  @Timeout(30L)
+  public void testSlowSubscriberDoesNotStall()
+    throws Exception
+  {
+    final var gate =
+      new CountDownLatch(1);
+    final var publisher =
+      publisher(
+        16,
+        TRRecordingOverflowPolicy.DROP_OLDEST,
+        ForkJoinPool.commonPool()
+      );
+    final var subscriber =
+      new CollectingSubscriber(Long.MAX_VALUE, gate);
+
+    publisher.subscribe(subscriber);
+    recordSteps(publisher, 10_000);
+
+    assertTrue(publisher.droppedCount() > 0L);
+    assertEquals(10_002L, publisher.publishedCount());
+
+    gate.countDown();
+    publisher.close();
+    subscriber.terminated.await();
+
+    final var events = subscriber.events;
+    assertTrue(events.size() <= 18);
+    assertEquals(10_002L, events.getLast().sequence());
+  }
+}
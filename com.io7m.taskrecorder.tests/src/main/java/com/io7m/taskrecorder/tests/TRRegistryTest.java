@@ -0,0 +1,127 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.tests;
+
+import com.io7m.taskrecorder.core.TRNoResult;
+import com.io7m.taskrecorder.core.TRRegistry;
+import com.io7m.taskrecorder.core.TRTaskRecorder;
+import com.io7m.taskrecorder.core.TRTaskRecorderOffHeap;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Recorder registry tests.
+ */
+
+public final class TRRegistryTest
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(TRRegistryTest.class);
+
+  /**
+   * Open recorders are registered only whilst the registry is enabled, and
+   * are deregistered on closing.
+   */
+
+  @Test
+  public void testRegistry()
+  {
+    final var registry = TRRegistry.global();
+    try {
+      registry.setEnabled(false);
+      final var ignored =
+        TRTaskRecorder.<TRNoResult>create(LOG, "Ignored");
+      assertEquals(0, registry.size());
+
+      registry.setEnabled(true);
+      final var upload =
+        TRTaskRecorder.<TRNoResult>create(LOG, "Upload");
+      final var index =
+        TRTaskRecorderOffHeap.<TRNoResult>create(LOG, "Index");
+
+      upload.beginStep("Uploading chunk");
+      upload.setStepFailed("Retry");
+      final var sub = index.beginSubtaskWithoutResult("Merge");
+      sub.beginStep("Merging");
+
+      final var tasks = registry.activeTasks();
+      assertEquals(2, tasks.size());
+      assertEquals("Upload", tasks.get(0).description());
+      assertEquals(
+        List.of("Index", "Merge", "Merging"),
+        tasks.get(1).progress().path());
+      assertEquals(Thread.currentThread().getName(), tasks.get(0).thread());
+
+      final var dump = registry.dump();
+      assertTrue(
+        dump.contains(": Upload > Uploading chunk (steps 2, failed 1, subtasks 0, failed 0)"),
+        dump);
+      assertTrue(dump.contains(": Index > Merge > Merging"), dump);
+
+      upload.setTaskSucceeded("OK", TRNoResult.NO_RESULT);
+      upload.close();
+      assertEquals(1, registry.size());
+
+      sub.setTaskSucceeded("OK", TRNoResult.NO_RESULT);
+      index.setTaskSucceeded("OK", TRNoResult.NO_RESULT);
+      index.close();
+      assertEquals(0, registry.size());
+      assertEquals("", registry.dump());
+
+      ignored.setTaskSucceeded("OK", TRNoResult.NO_RESULT);
+      ignored.close();
+    } finally {
+      registry.setEnabled(false);
+    }
+  }
+
+  /**
+   * Recorders that are abandoned without being closed are eventually
+   * removed.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testAbandoned()
+    throws Exception
+  {
+    final var registry = TRRegistry.global();
+    try {
+      registry.setEnabled(true);
+      for (int index = 0; index < 10; ++index) {
+        TRTaskRecorder.<TRNoResult>create(LOG, "Abandoned");
+      }
+      assertEquals(10, registry.size());
+
+      for (int attempt = 0; attempt < 100 && registry.size() > 0; ++attempt) {
+        System.gc();
+        Thread.sleep(10L);
+      }
+      assertEquals(0, registry.size());
+    } finally {
+      registry.setEnabled(false);
+    }
+  }
+}
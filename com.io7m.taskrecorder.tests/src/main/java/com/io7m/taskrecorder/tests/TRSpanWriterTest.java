@@ -0,0 +1,341 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.tests;
+
+import com.io7m.taskrecorder.core.TRAttributeKey;
+import com.io7m.taskrecorder.core.TRAttributes;
+import com.io7m.taskrecorder.core.TRNoResult;
+import com.io7m.taskrecorder.core.TRStep;
+import com.io7m.taskrecorder.core.TRStepSucceeded;
+import com.io7m.taskrecorder.core.TRTask;
+import com.io7m.taskrecorder.core.TRTaskItemType;
+import com.io7m.taskrecorder.core.TRTaskRecorder;
+import com.io7m.taskrecorder.core.TRTaskSucceeded;
+import com.io7m.taskrecorder.export.TRSpanWriter;
+import com.io7m.taskrecorder.export.TRSpanWriterConfiguration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.regex.Pattern;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * OpenTelemetry span export tests.
+ */
+
+public final class TRSpanWriterTest
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(TRSpanWriterTest.class);
+
+  private static final Pattern SPAN_ID =
+    Pattern.compile("\"spanId\":\"([0-9a-f]{16})\"");
+  private static final Pattern PARENT_ID =
+    Pattern.compile("\"parentSpanId\":\"([0-9a-f]{16})\"");
+
+  private static TRTask<Integer> recordTask()
+  {
+    final var clock =
+      new TRSteppingClock(Instant.ofEpochSecond(1L), Duration.ofMillis(1L));
+
+    try (var taskRec = TRTaskRecorder.<Integer>create(LOG, clock, "Task")) {
+      taskRec.beginStep("Step 0");
+      taskRec.setStepSucceeded("OK");
+      try (var sub = taskRec.beginSubtaskWithoutResult("Sub")) {
+        sub.beginStep("Step 1");
+        sub.setStepFailed("Broken", new IOException("Disk"));
+        sub.setTaskFailed("Failed");
+      }
+      taskRec.setTaskSucceeded("Done", Integer.valueOf(23));
+      return taskRec.toTask();
+    }
+  }
+
+  private static TRSpanWriterConfiguration configuration(
+    final int batchSize,
+    final int maxStringLength)
+  {
+    return new TRSpanWriterConfiguration(
+      "test",
+      batchSize,
+      maxStringLength,
+      2,
+      new SplittableRandom(0L)
+    );
+  }
+
+  /**
+   * Tasks are written as spans with parent links.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testWrite()
+    throws Exception
+  {
+    final var output = new ByteArrayOutputStream();
+    try (var writer = TRSpanWriter.create(configuration(4, 4096), output)) {
+      writer.write(recordTask());
+    }
+
+    final var lines = output.toString(UTF_8).lines().toList();
+    assertEquals(2, lines.size());
+
+    for (final var line : lines) {
+      assertTrue(line.startsWith(
+        "{\"resourceSpans\":[{\"resource\":{\"attributes\":[{\"key\":\"service.name\",\"value\":{\"stringValue\":\"test\"}}]},\"scopeSpans\":[{\"scope\":{\"name\":\"com.io7m.taskrecorder\"},\"spans\":[{"));
+      assertTrue(line.endsWith("}]}]}]}"));
+    }
+
+    final var text = String.join("\n", lines);
+    final var spanIds = SPAN_ID.matcher(text).results().map(m -> m.group(1)).toList();
+    final var parentIds = PARENT_ID.matcher(text).results().map(m -> m.group(1)).toList();
+    assertEquals(6, spanIds.size());
+    assertEquals(5, parentIds.size());
+    assertTrue(spanIds.containsAll(parentIds));
+
+    final var root = spanIds.get(0);
+    final var sub = spanIds.get(3);
+    assertEquals(
+      List.of(root, root, root, sub, sub),
+      parentIds
+    );
+
+    assertTrue(text.contains(
+      "\"name\":\"Task\",\"kind\":1,\"startTimeUnixNano\":\"1000000000\",\"endTimeUnixNano\":\"1007000000\""));
+    assertTrue(text.contains(
+      "\"status\":{\"code\":2,\"message\":\"Failed\"}"));
+    assertTrue(text.contains(
+      "\"events\":[{\"timeUnixNano\":\"1005000000\",\"name\":\"exception\",\"attributes\":[{\"key\":\"exception.type\",\"value\":{\"stringValue\":\"java.io.IOException\"}},{\"key\":\"exception.message\",\"value\":{\"stringValue\":\"Disk\"}}"));
+    assertTrue(text.contains("\\n\\t... "));
+  }
+
+  /**
+   * Strings are truncated to the configured length.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testTruncated()
+    throws Exception
+  {
+    final var output = new ByteArrayOutputStream();
+    final var description = "x".repeat(100);
+
+    try (var writer = TRSpanWriter.create(configuration(1, 64), output)) {
+      try (var taskRec = TRTaskRecorder.<Integer>create(LOG, description)) {
+        taskRec.setTaskFailed("y".repeat(100));
+        writer.write(taskRec.toTask());
+      }
+    }
+
+    final var text = output.toString(UTF_8);
+    assertEquals(2L, text.lines().count());
+    assertTrue(text.contains("\"name\":\"%s\"".formatted("x".repeat(64))));
+    assertFalse(text.contains("x".repeat(65)));
+    assertFalse(text.contains("y".repeat(65)));
+  }
+
+  /**
+   * Spans can be written to files.
+   *
+   * @param directory A temporary directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testWriteFile(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var file = directory.resolve("spans.jsonl");
+    final var task = recordTask();
+
+    final var writer = TRSpanWriter.open(configuration(1000, 4096), file);
+    for (int index = 0; index < 500; ++index) {
+      writer.write(task);
+    }
+    writer.close();
+    writer.close();
+
+    assertThrows(IllegalStateException.class, () -> writer.write(task));
+    assertEquals(3L, Files.readAllLines(file, UTF_8).size());
+  }
+
+  /**
+   * Invalid configurations are rejected.
+   */
+
+  @Test
+  public void testConfigurationInvalid()
+  {
+    assertThrows(IllegalArgumentException.class, () -> configuration(0, 1));
+    assertThrows(IllegalArgumentException.class, () -> {
+      new TRSpanWriterConfiguration("x", 1, 0, 0, new SplittableRandom());
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      new TRSpanWriterConfiguration("x", 1, 1, -1, new SplittableRandom());
+    });
+  }
+
+  private static TRStep timedStep(
+    final String description,
+    final TRAttributes attributes)
+  {
+    return new TRStep(
+      description,
+      new TRStepSucceeded(""),
+      Instant.ofEpochSecond(1L),
+      Instant.ofEpochSecond(2L),
+      attributes
+    );
+  }
+
+  private static TRTask<TRNoResult> task(
+    final TRTaskItemType... items)
+  {
+    return new TRTask<>(
+      List.of(items),
+      new TRTaskSucceeded<>("", TRNoResult.NO_RESULT)
+    );
+  }
+
+  /**
+   * Items without timing information are rejected, and nothing is written
+   * for the task.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testUntimedRejected()
+    throws Exception
+  {
+    final var untimed =
+      task(
+        timedStep("Timed", TRAttributes.EMPTY),
+        task(new TRStep("Untimed", new TRStepSucceeded("")))
+      );
+
+    final var output = new ByteArrayOutputStream();
+    try (var writer = TRSpanWriter.create(configuration(4, 4096), output)) {
+      final var ex =
+        assertThrows(IllegalArgumentException.class, () -> writer.write(untimed));
+      assertTrue(ex.getMessage().contains("'Untimed'"), ex.getMessage());
+    }
+    assertEquals("", output.toString(UTF_8));
+  }
+
+  /**
+   * The number of attributes written per span is bounded, and the rest are
+   * counted as dropped.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testAttributesBounded()
+    throws Exception
+  {
+    final var attributes = TRAttributes.builder();
+    for (int index = 0; index < 200; ++index) {
+      attributes.set(TRAttributeKey.ofLong("test.a" + index), (long) index);
+    }
+
+    final var output = new ByteArrayOutputStream();
+    try (var writer = TRSpanWriter.create(configuration(4, 4096), output)) {
+      writer.write(task(timedStep("Step", attributes.build())));
+    }
+
+    final var text = output.toString(UTF_8);
+    final var userAttributes = TRSpanWriter.MAXIMUM_ATTRIBUTES - 2;
+    assertTrue(text.contains("\"test.a" + (userAttributes - 1) + "\""));
+    assertFalse(text.contains("\"test.a" + userAttributes + "\""));
+    assertTrue(
+      text.contains("\"droppedAttributesCount\":" + (200 - userAttributes)),
+      text);
+    assertEquals(1, text.split("droppedAttributesCount", -1).length - 1);
+  }
+
+  /**
+   * Very deep tasks are written without exhausting the stack, with every
+   * span linked to the span of its enclosing task.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testDeep()
+    throws Exception
+  {
+    final var depth = 20_000;
+    final var step = timedStep("Step", TRAttributes.EMPTY);
+
+    var current = task(step);
+    for (int index = 0; index < depth; ++index) {
+      current = task(step, current);
+    }
+
+    final var output = new ByteArrayOutputStream();
+    try (var writer = TRSpanWriter.create(configuration(1, 4096), output)) {
+      writer.write(current);
+    }
+
+    final var lines = output.toString(UTF_8).lines().toList();
+    assertEquals(2 * (depth + 1), lines.size());
+
+    var taskId = "";
+    for (int index = 0; index < lines.size(); index += 2) {
+      final var taskLine = lines.get(index);
+      final var stepLine = lines.get(index + 1);
+      assertTrue(taskLine.contains("\"stringValue\":\"task\""));
+      assertTrue(stepLine.contains("\"stringValue\":\"step\""));
+
+      final var taskMatch = SPAN_ID.matcher(taskLine);
+      assertTrue(taskMatch.find());
+      final var taskParent = PARENT_ID.matcher(taskLine);
+      assertEquals(!taskId.isEmpty(), taskParent.find());
+      if (!taskId.isEmpty()) {
+        assertEquals(taskId, taskParent.group(1));
+      }
+
+      taskId = taskMatch.group(1);
+      final var stepParent = PARENT_ID.matcher(stepLine);
+      assertTrue(stepParent.find());
+      assertEquals(taskId, stepParent.group(1));
+    }
+  }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.taskrecorder.tests;
+
+import com.io7m.taskrecorder.core.TRAttributeKey;
+import com.io7m.taskrecorder.core.TRNoResult;
+import com.io7m.taskrecorder.core.TRStep;
+import com.io7m.taskrecorder.core.TRStepFailed;
+import com.io7m.taskrecorder.core.TRStepSucceeded;
+import com.io7m.taskrecorder.core.TRTaskRecorder;
+import com.io7m.taskrecorder.core.TRTaskRecorderType;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Step scope tests.
+ */
+
+public final class TRStepScopeTest
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(TRStepScopeTest.class);
+
+  private static final TRAttributeKey<Long> ROWS =
+    TRAttributeKey.ofLong("com.io7m.taskrecorder.tests.scope.rows");
+
+  private static TRTaskRecorderType<TRNoResult> recorder()
+  {
+    return TRTaskRecorder.create(LOG, new TRSteppingClock(), "Task");
+  }
+
+  private static TRStep lastStep(
+    final TRTaskRecorderType<TRNoResult> recorder)
+  {
+    recorder.setTaskSucceeded("OK", TRNoResult.NO_RESULT);
+    return (TRStep) recorder.toTask().items().getLast();
+  }
+
+  private static void load()
+    throws IOException
+  {
+    throw new IOException("Disk on fire.");
+  }
+
+  /**
+   * A scope closed without a resolution fails its step.
+   */
+
+  @Test
+  public void testUnresolvedFails()
+  {
+    final var recorder = recorder();
+    try (var scope = recorder.beginStepScope("Step")) {
+      scope.setAttribute(ROWS, 23L);
+    }
+
+    final var step = lastStep(recorder);
+    final var failed = assertInstanceOf(TRStepFailed.class, step.resolution());
+    assertEquals(Optional.empty(), failed.exception());
+    assertEquals(Long.valueOf(23L), step.attributes().get(ROWS).orElseThrow());
+    assertEquals(1L, recorder.progress().snapshot().stepsFailed());
+  }
+
+  /**
+   * A resolution set on the scope is applied when the scope is closed, so
+   * the step ends when the scope is closed.
+   */
+
+  @Test
+  public void testResolvedOnClose()
+  {
+    final var recorder = recorder();
+    final Instant timeResolved;
+    try (var scope = recorder.beginStepScope("Step")) {
+      scope.setStepSucceeded("Done");
+      recorder.stepCurrent().setStepFailed("Overridden");
+      timeResolved = scope.step().toStep().timeEnded();
+    }
+
+    final var step = lastStep(recorder);
+    assertEquals(new TRStepSucceeded("Done"), step.resolution());
+    assertTrue(step.timeEnded().isAfter(timeResolved));
+    assertEquals(0L, recorder.progress().snapshot().stepsFailed());
+  }
+
+  /**
+   * Exceptions are captured with the failure helper.
+   */
+
+  @Test
+  public void testFailedHelper()
+  {
+    final var recorder = recorder();
+    final var thrown = assertThrows(IOException.class, () -> {
+      try (var scope = recorder.beginStepScope("Load")) {
+        try {
+          load();
+          scope.setStepSucceeded();
+        } catch (final IOException e) {
+          throw scope.failed(e);
+        }
+      }
+    });
+
+    final var step = lastStep(recorder);
+    final var failed = assertInstanceOf(TRStepFailed.class, step.resolution());
+    assertEquals("Disk on fire.", failed.message());
+    assertSame(thrown, failed.exception().orElseThrow());
+
+    final var scope = recorder.beginStepScope("Other");
+    assertEquals(
+      IllegalStateException.class.getName(),
+      scope.failed(new IllegalStateException()).getClass().getName()
+    );
+    scope.close();
+    assertEquals(
+      IllegalStateException.class.getName(),
+      recorder.stepCurrent().toStep().resolution().message()
+    );
+  }
+
+  /**
+   * Closing a scope twice has no effect, and resolving a closed scope is
+   * an error.
+   */
+
+  @Test
+  public void testClosed()
+  {
+    final var recorder = recorder();
+    final var scope = recorder.beginStepScope("Step");
+    scope.setStepSucceeded();
+    scope.close();
+    scope.close();
+
+    assertThrows(IllegalStateException.class, scope::setStepSucceeded);
+    assertEquals(new TRStepSucceeded(""), lastStep(recorder).resolution());
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.tests;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * A clock that advances by a fixed amount each time it is read.
+ */
+
+public final class TRSteppingClock extends Clock
+{
+  private final Duration step;
+  private Instant time;
+
+  /**
+   * A clock that advances by a fixed amount each time it is read.
+   *
+   * @param inTime The initial time
+   * @param inStep The amount by which the clock advances
+   */
+
+  public TRSteppingClock(
+    final Instant inTime,
+    final Duration inStep)
+  {
+    this.time = inTime;
+    this.step = inStep;
+  }
+
+  /**
+   * A clock that starts at the epoch and advances by one second each time
+   * it is read.
+   */
+
+  public TRSteppingClock()
+  {
+    this(Instant.EPOCH, Duration.ofSeconds(1L));
+  }
+
+  @Override
+  public ZoneId getZone()
+  {
+    return ZoneOffset.UTC;
+  }
+
+  @Override
+  public Clock withZone(
+    final ZoneId zone)
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public Instant instant()
+  {
+    final var result = this.time;
+    this.time = this.time.plus(this.step);
+    return result;
+  }
+}
@@ -0,0 +1,694 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.taskrecorder.tests;
+
+import com.io7m.taskrecorder.core.TRNoResult;
+import com.io7m.taskrecorder.core.TRStep;
+import com.io7m.taskrecorder.core.TRStepFailed;
+import com.io7m.taskrecorder.core.TRStepResolutionType;
+import com.io7m.taskrecorder.core.TRTask;
+import com.io7m.taskrecorder.core.TRTaskRecorderType;
+import com.io7m.taskrecorder.core.TRTaskStepRecorderType;
+import com.io7m.taskrecorder.core.TRTaskSucceeded;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A randomized stress harness for recorders that claim to be safe for use
+ * by multiple threads.
+ *
+ * <p>Each thread repeatedly begins steps and subtasks in the root task and
+ * in subtasks begun by any thread, and resolves its own steps in a random
+ * order, logging every operation. The recorder is given a clock that
+ * returns a strictly increasing time on each call, so the start time of
+ * each item records the point at which the recorder linearized the
+ * operation. Once all threads have finished, the resulting task must
+ * contain exactly the logged items, each under the task it was begun in,
+ * with the logged resolution; the items of every task must be in start
+ * time order; and the operations of each thread must have been linearized
+ * in program order.</p>
+ *
+ * <p>Optionally, a further thread repeatedly takes snapshots of the root
+ * task whilst the other threads are recording. Because a task can only be
+ * snapshotted once it has a resolution, the root task and each subtask are
+ * then resolved as soon as they are created. Every item in every snapshot
+ * must appear in the final task under the same parent and with the same
+ * start time, and each snapshot must contain at least as many items as the
+ * snapshots taken before it.</p>
+ */
+
+public final class TRStressHarness
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(TRStressHarness.class);
+
+  private static final String ROOT = "Root";
+
+  private TRStressHarness()
+  {
+
+  }
+
+  /**
+   * A function that creates recorders.
+   */
+
+  public interface TRRecorderFactoryType
+  {
+    /**
+     * Create a recorder.
+     *
+     * @param clock       The clock
+     * @param description The description of the first step
+     *
+     * @return A new recorder
+     *
+     * @throws Exception On errors
+     */
+
+    TRTaskRecorderType<TRNoResult> create(
+      Clock clock,
+      String description)
+      throws Exception;
+  }
+
+  /**
+   * The result of a stress run.
+   *
+   * @param threads    The number of threads
+   * @param operations The total number of operations performed
+   * @param duration   The time taken by all threads
+   * @param task       The recorded task
+   * @param snapshots  The number of snapshots taken concurrently
+   */
+
+  public record TRStressResult(
+    int threads,
+    long operations,
+    Duration duration,
+    TRTask<TRNoResult> task,
+    long snapshots)
+  {
+    /**
+     * @return The number of operations per second
+     */
+
+    public double operationsPerSecond()
+    {
+      final var nanos = Math.max(1L, this.duration.toNanos());
+      return (double) this.operations * 1.0e9 / (double) nanos;
+    }
+  }
+
+  /**
+   * Run the harness with 1, 2, 4, ... threads up to the given maximum,
+   * logging the throughput of each run.
+   *
+   * @param factory             The recorder factory
+   * @param threadsMaximum      The maximum number of threads
+   * @param operationsPerThread The number of operations per thread
+   * @param seed                The random seed
+   * @param snapshots           {@code true} if snapshots should be taken
+   *                            concurrently with recording
+   *
+   * @return The results of each run
+   *
+   * @throws Exception On errors, or if a run produces an inconsistent task
+   */
+
+  public static List<TRStressResult> scaling(
+    final TRRecorderFactoryType factory,
+    final int threadsMaximum,
+    final int operationsPerThread,
+    final long seed,
+    final boolean snapshots)
+    throws Exception
+  {
+    final var results = new ArrayList<TRStressResult>();
+    for (int threads = 1; ; threads = Math.min(threads * 2, threadsMaximum)) {
+      final var result =
+        run(factory, threads, operationsPerThread, seed, snapshots);
+      results.add(result);
+
+      LOG.info(
+        "{} threads: {} operations/s ({}x the single-threaded rate)",
+        Integer.valueOf(threads),
+        String.format("%.0f", Double.valueOf(result.operationsPerSecond())),
+        String.format(
+          "%.2f",
+          Double.valueOf(
+            result.operationsPerSecond()
+              / results.getFirst().operationsPerSecond()))
+      );
+
+      if (threads >= threadsMaximum) {
+        return results;
+      }
+    }
+  }
+
+  /**
+   * Run the harness once, without concurrent snapshots.
+   *
+   * @param factory             The recorder factory
+   * @param threads             The number of threads
+   * @param operationsPerThread The number of operations per thread
+   * @param seed                The random seed
+   *
+   * @return The result
+   *
+   * @throws Exception On errors, or if the run produces an inconsistent task
+   */
+
+  public static TRStressResult run(
+    final TRRecorderFactoryType factory,
+    final int threads,
+    final int operationsPerThread,
+    final long seed)
+    throws Exception
+  {
+    return run(factory, threads, operationsPerThread, seed, false);
+  }
+
+  /**
+   * Run the harness once.
+   *
+   * @param factory             The recorder factory
+   * @param threads             The number of threads
+   * @param operationsPerThread The number of operations per thread
+   * @param seed                The random seed
+   * @param snapshots           {@code true} if snapshots should be taken
+   *                            concurrently with recording
+   *
+   * @return The result
+   *
+   * @throws Exception On errors, or if the run produces an inconsistent task
+   */
+
+  public static TRStressResult run(
+    final TRRecorderFactoryType factory,
+    final int threads,
+    final int operationsPerThread,
+    final long seed,
+    final boolean snapshots)
+    throws Exception
+  {
+    Objects.requireNonNull(factory, "factory");
+
+    final var clock = new TRSequenceClock();
+    final var recorder = factory.create(clock, ROOT);
+    if (snapshots) {
+      recorder.setTaskSucceeded(ROOT, TRNoResult.NO_RESULT);
+    }
+
+    final var shared =
+      new TRSharedTasks(threads * operationsPerThread, recorder);
+    final var barrier = new CyclicBarrier(threads + 1);
+    final var logs = new ArrayList<Future<List<TROperation>>>();
+    final var snapshotter = new TRSnapshotter(recorder);
+
+    final long timeStart;
+    final long timeEnd;
+    try (var executor = Executors.newFixedThreadPool(threads + 1)) {
+      for (int thread = 0; thread < threads; ++thread) {
+        final var worker =
+          new TRWorker(
+            thread,
+            new Random(seed + thread),
+            shared,
+            barrier,
+            operationsPerThread,
+            snapshots
+          );
+        logs.add(executor.submit(worker::run));
+      }
+
+      barrier.await();
+      timeStart = System.nanoTime();
+      final var snapshotting =
+        snapshots ? executor.submit(snapshotter::run) : null;
+      barrier.await();
+      timeEnd = System.nanoTime();
+      snapshotter.stop();
+
+      for (final var log : logs) {
+        try {
+          log.get();
+        } catch (final ExecutionException e) {
+          throw new AssertionError("Worker failed.", e.getCause());
+        }
+      }
+      if (snapshotting != null) {
+        try {
+          snapshotting.get();
+        } catch (final ExecutionException e) {
+          throw new AssertionError("Snapshotter failed.", e.getCause());
+        }
+      }
+    }
+
+    recorder.setTaskSucceeded(ROOT, TRNoResult.NO_RESULT);
+    final var task = recorder.toTask();
+    recorder.close();
+
+    final var operations = new ArrayList<List<TROperation>>();
+    for (final var log : logs) {
+      operations.add(log.get());
+    }
+    final var seen = check(task, operations);
+    snapshotter.check(seen);
+
+    return new TRStressResult(
+      threads,
+      (long) threads * operationsPerThread,
+      Duration.ofNanos(timeEnd - timeStart),
+      task,
+      snapshotter.count
+    );
+  }
+
+  private enum TROperationKind
+  {
+    STEP,
+    SUBTASK
+  }
+
+  private record TROperation(
+    TROperationKind kind,
+    String label,
+    String parent,
+    boolean failed)
+  {
+
+  }
+
+  private record TRSeen(
+    String parent,
+    Instant timeStarted,
+    Object resolution)
+  {
+
+  }
+
+  private record TRShared(
+    String label,
+    TRTaskRecorderType<TRNoResult> recorder)
+  {
+
+  }
+
+  /**
+   * The tasks available to all threads. Subtasks are published after they
+   * are created, so a thread may briefly observe an unpublished slot, in
+   * which case it uses the root task instead.
+   */
+
+  private static final class TRSharedTasks
+  {
+    private final AtomicReferenceArray<TRShared> tasks;
+    private final AtomicInteger count;
+
+    TRSharedTasks(
+      final int capacity,
+      final TRTaskRecorderType<TRNoResult> root)
+    {
+      this.tasks = new AtomicReferenceArray<>(capacity + 1);
+      this.tasks.set(0, new TRShared(ROOT, root));
+      this.count = new AtomicInteger(1);
+    }
+
+    void publish(
+      final TRShared task)
+    {
+      this.tasks.set(this.count.getAndIncrement(), task);
+    }
+
+    TRShared pick(
+      final Random random)
+    {
+      if (random.nextBoolean()) {
+        return this.tasks.get(0);
+      }
+      final var task = this.tasks.get(random.nextInt(this.count.get()));
+      if (task == null) {
+        return this.tasks.get(0);
+      }
+      return task;
+    }
+  }
+
+  /**
+   * Repeatedly snapshots the root task until stopped, retaining the first
+   * snapshot and every snapshot whose index is a power of two. At least one
+   * snapshot is always taken, even if the workers finish before the
+   * snapshotter first runs.
+   */
+
+  private static final class TRSnapshotter
+  {
+    private final TRTaskRecorderType<TRNoResult> recorder;
+    private final AtomicBoolean stopped;
+    private final List<TRTask<TRNoResult>> retained;
+    private long count;
+    private long unresolved;
+
+    TRSnapshotter(
+      final TRTaskRecorderType<TRNoResult> inRecorder)
+    {
+      this.recorder = inRecorder;
+      this.stopped = new AtomicBoolean();
+      this.retained = new ArrayList<>();
+    }
+
+    void stop()
+    {
+      this.stopped.set(true);
+    }
+
+    Void run()
+    {
+      while (this.count == 0L || !this.stopped.get()) {
+        final TRTask<TRNoResult> snapshot;
+        try {
+          snapshot = this.recorder.toTask();
+        } catch (final IllegalStateException e) {
+          /*
+           * A subtask may be observed between being begun and being
+           * resolved by the thread that began it.
+           */
+
+          if (!e.getMessage().startsWith("No resolution was set")) {
+            throw e;
+          }
+          ++this.unresolved;
+          Thread.yield();
+          continue;
+        }
+
+        if (Long.bitCount(this.count) <= 1) {
+          this.retained.add(snapshot);
+        }
+        ++this.count;
+        Thread.yield();
+      }
+      return null;
+    }
+
+    void check(
+      final HashMap<String, TRSeen> seen)
+    {
+      LOG.info(
+        "{} concurrent snapshots ({} retained, {} of unresolved subtasks)",
+        Long.valueOf(this.count),
+        Integer.valueOf(this.retained.size()),
+        Long.valueOf(this.unresolved)
+      );
+
+      var previousSize = 0;
+      for (final var snapshot : this.retained) {
+        final var snapshotSeen = new HashMap<String, TRSeen>();
+        collect(snapshot, ROOT, snapshotSeen);
+        assertTrue(
+          snapshotSeen.size() >= previousSize,
+          "Snapshot lost items (%d < %d)".formatted(
+            Integer.valueOf(snapshotSeen.size()),
+            Integer.valueOf(previousSize))
+        );
+        previousSize = snapshotSeen.size();
+
+        for (final var entry : snapshotSeen.entrySet()) {
+          final var label = entry.getKey();
+          final var item = seen.get(label);
+          assertNotNull(item, "Snapshot item %s is missing".formatted(label));
+          assertEquals(item.parent(), entry.getValue().parent(), label);
+          assertEquals(
+            item.timeStarted(),
+            entry.getValue().timeStarted(),
+            label
+          );
+        }
+      }
+    }
+  }
+
+  private static final class TRWorker
+  {
+    private final int thread;
+    private final Random random;
+    private final TRSharedTasks shared;
+    private final CyclicBarrier barrier;
+    private final int operations;
+    private final boolean resolveEagerly;
+
+    TRWorker(
+      final int inThread,
+      final Random inRandom,
+      final TRSharedTasks inShared,
+      final CyclicBarrier inBarrier,
+      final int inOperations,
+      final boolean inResolveEagerly)
+    {
+      this.thread = inThread;
+      this.random = inRandom;
+      this.shared = inShared;
+      this.barrier = inBarrier;
+      this.operations = inOperations;
+      this.resolveEagerly = inResolveEagerly;
+    }
+
+    List<TROperation> run()
+      throws Exception
+    {
+      final var log = new ArrayList<TROperation>(this.operations);
+      final var pending = new ArrayList<TRTaskStepRecorderType>();
+      final var pendingLabels = new ArrayList<String>();
+      final var subtasks = new ArrayList<TRShared>();
+      final var resolved = new HashMap<String, Boolean>();
+
+      this.barrier.await();
+
+      for (int index = 0; index < this.operations; ++index) {
+        final var label = "T%d-%d".formatted(
+          Integer.valueOf(this.thread), Integer.valueOf(index));
+        final var choice = this.random.nextInt(10);
+
+        if (choice < 3 && !pending.isEmpty()) {
+          final var which = this.random.nextInt(pending.size());
+          final var failed = this.random.nextBoolean();
+          final var stepLabel = pendingLabels.remove(which);
+          resolveStep(pending.remove(which), stepLabel, failed);
+          resolved.put(stepLabel, Boolean.valueOf(failed));
+          continue;
+        }
+
+        final var target = this.shared.pick(this.random);
+        if (choice < 8) {
+          pending.add(target.recorder().beginStep(label));
+          pendingLabels.add(label);
+          log.add(
+            new TROperation(TROperationKind.STEP, label, target.label(), false)
+          );
+        } else {
+          final var subtask =
+            new TRShared(
+              label,
+              target.recorder().beginSubtaskWithoutResult(label)
+            );
+          if (this.resolveEagerly) {
+            subtask.recorder().setTaskSucceeded(label, TRNoResult.NO_RESULT);
+          }
+          this.shared.publish(subtask);
+          subtasks.add(subtask);
+          log.add(
+            new TROperation(TROperationKind.SUBTASK, label, target.label(), false)
+          );
+        }
+      }
+
+      for (int index = 0; index < pending.size(); ++index) {
+        resolveStep(pending.get(index), pendingLabels.get(index), false);
+        resolved.put(pendingLabels.get(index), Boolean.FALSE);
+      }
+      for (final var subtask : subtasks) {
+        subtask.recorder()
+          .setTaskSucceeded(subtask.label(), TRNoResult.NO_RESULT);
+      }
+
+      this.barrier.await();
+
+      final var results = new ArrayList<TROperation>(log.size());
+      for (final var operation : log) {
+        final var failed = resolved.get(operation.label());
+        results.add(
+          new TROperation(
+            operation.kind(),
+            operation.label(),
+            operation.parent(),
+            failed != null && failed.booleanValue()
+          )
+        );
+      }
+      return results;
+    }
+
+    private static void resolveStep(
+      final TRTaskStepRecorderType step,
+      final String label,
+      final boolean failed)
+    {
+      if (failed) {
+        step.setStepFailed(label);
+      } else {
+        step.setStepSucceeded(label);
+      }
+    }
+  }
+
+  private static HashMap<String, TRSeen> check(
+    final TRTask<TRNoResult> task,
+    final List<List<TROperation>> logs)
+  {
+    final var seen = new HashMap<String, TRSeen>();
+    collect(task, ROOT, seen);
+
+    var expected = 0;
+    for (final var log : logs) {
+      Instant previous = Instant.MIN;
+      for (final var operation : log) {
+        final var item = seen.get(operation.label());
+        assertNotNull(item, "Missing item " + operation.label());
+        assertEquals(operation.parent(), item.parent(), operation.label());
+        assertTrue(
+          item.timeStarted().isAfter(previous),
+          "Operation %s was not linearized in program order"
+            .formatted(operation.label())
+        );
+        previous = item.timeStarted();
+
+        switch (operation.kind()) {
+          case STEP -> {
+            final var resolution =
+              assertInstanceOf(TRStepResolutionType.class, item.resolution());
+            assertEquals(operation.label(), resolution.message());
+            assertEquals(
+              Boolean.valueOf(operation.failed()),
+              Boolean.valueOf(resolution instanceof TRStepFailed)
+            );
+          }
+          case SUBTASK -> {
+            final var resolution =
+              assertInstanceOf(TRTaskSucceeded.class, item.resolution());
+            assertEquals(operation.label(), resolution.message());
+          }
+        }
+        ++expected;
+      }
+    }
+
+    assertEquals(expected, seen.size(), "Unexpected items in task");
+    return seen;
+  }
+
+  private static void collect(
+    final TRTask<?> task,
+    final String label,
+    final HashMap<String, TRSeen> seen)
+  {
+    final var items = task.items();
+    var previous = items.getFirst().timeStarted();
+    for (int index = 1; index < items.size(); ++index) {
+      final var item = items.get(index);
+      final var time = item.timeStarted();
+      assertTrue(
+        time.isAfter(previous),
+        "Items of task %s are not in linearization order".formatted(label)
+      );
+      previous = time;
+
+      final Object resolution;
+      if (item instanceof final TRTask<?> subtask) {
+        resolution = subtask.resolution();
+        collect(subtask, subtask.description(), seen);
+      } else {
+        resolution = ((TRStep) item).resolution();
+      }
+
+      assertNull(
+        seen.put(item.description(), new TRSeen(label, time, resolution)),
+        "Duplicate item " + item.description()
+      );
+    }
+  }
+
+  /**
+   * A clock that returns a distinct, strictly increasing time on each call.
+   */
+
+  private static final class TRSequenceClock extends Clock
+  {
+    private final AtomicLong ticks = new AtomicLong();
+
+    TRSequenceClock()
+    {
+
+    }
+
+    @Override
+    public ZoneId getZone()
+    {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(
+      final ZoneId zone)
+    {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Instant instant()
+    {
+      return Instant.EPOCH.plusNanos(this.ticks.incrementAndGet());
+    }
+  }
+}
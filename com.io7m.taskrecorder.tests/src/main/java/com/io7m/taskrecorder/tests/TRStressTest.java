@@ -0,0 +1,188 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.taskrecorder.tests;
+
+import com.io7m.taskrecorder.archive.TRCheckpointRecorderType;
+import com.io7m.taskrecorder.archive.TRCheckpoints;
+import com.io7m.taskrecorder.core.TRNoResult;
+import com.io7m.taskrecorder.core.TRTaskRecorder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Concurrency stress tests.
+ *
+ * @see TRStressHarness
+ */
+
+public final class TRStressTest
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(TRStressTest.class);
+
+  private static final int OPERATIONS = 2000;
+
+  private static int threadsMaximum()
+  {
+    return Math.max(4, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * The plain recorder is not thread-safe, but a single thread must always
+   * produce a consistent task.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testRecorderSingleThreaded()
+    throws Exception
+  {
+    final var result =
+      TRStressHarness.run(
+        (clock, description) -> TRTaskRecorder.create(LOG, clock, description),
+        1,
+        OPERATIONS,
+        0x5452L
+      );
+
+    assertEquals(1, result.threads());
+    assertEquals(OPERATIONS, result.operations());
+  }
+
+  /**
+   * The checkpoint recorder is thread-safe, and so must produce a
+   * consistent task for any number of threads, including whilst snapshots
+   * are being taken concurrently.
+   *
+   * @param directory The directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testCheckpointRecorderScaling(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var files = new AtomicInteger();
+    final var results =
+      TRStressHarness.scaling(
+        (clock, description) -> {
+          return TRCheckpoints.create(
+            LOG,
+            clock,
+            directory.resolve("%d.trc".formatted(
+              Integer.valueOf(files.incrementAndGet()))),
+            description
+          );
+        },
+        threadsMaximum(),
+        OPERATIONS,
+        0x5452L,
+        true
+      );
+
+    assertEquals(1, results.getFirst().threads());
+    assertEquals(threadsMaximum(), results.getLast().threads());
+    for (final var result : results) {
+      assertEquals(
+        (long) result.threads() * OPERATIONS,
+        result.operations()
+      );
+      assertTrue(result.operationsPerSecond() > 0.0);
+      assertTrue(result.snapshots() > 0L);
+    }
+  }
+
+  /**
+   * Checkpoints and snapshots taken while many threads are recording
+   * capture a prefix of the linearization, and the final checkpoint replays
+   * to the same task.
+   *
+   * @param directory The directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testCheckpointRecorderConcurrentCheckpoints(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var file = directory.resolve("stress.trc");
+    final var recorder =
+      new AtomicReference<TRCheckpointRecorderType<TRNoResult>>();
+    final var checkpoints = new AtomicInteger();
+
+    final var created = new CountDownLatch(1);
+    final var done = new AtomicBoolean();
+
+    final var checkpointer = Thread.ofPlatform().start(() -> {
+      try {
+        created.await();
+        while (!done.get()) {
+          recorder.get().checkpoint();
+          checkpoints.incrementAndGet();
+          Thread.yield();
+        }
+      } catch (final Exception e) {
+        throw new IllegalStateException(e);
+      }
+    });
+
+    final TRStressHarness.TRStressResult result;
+    try {
+      result = TRStressHarness.run(
+        (clock, description) -> {
+          final TRCheckpointRecorderType<TRNoResult> newRecorder =
+            TRCheckpoints.create(LOG, clock, file, description);
+          recorder.set(newRecorder);
+          created.countDown();
+          return newRecorder;
+        },
+        threadsMaximum(),
+        OPERATIONS,
+        0x5452L,
+        true
+      );
+    } finally {
+      done.set(true);
+      created.countDown();
+      checkpointer.join();
+    }
+
+    LOG.info("{} concurrent checkpoints", Integer.valueOf(checkpoints.get()));
+    assertTrue(result.snapshots() > 0L);
+
+    final var restored = TRCheckpoints.resume(LOG, file);
+    try (var resumed = restored.recorder()) {
+      assertEquals(result.task(), resumed.toTask());
+    }
+  }
+}
@@ -0,0 +1,307 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.tests;
+
+import com.io7m.taskrecorder.archive.TRArchivedException;
+import com.io7m.taskrecorder.archive.TRTaskBatchCodec;
+import com.io7m.taskrecorder.archive.TRTaskSerialization;
+import com.io7m.taskrecorder.core.TRAttributeKey;
+import com.io7m.taskrecorder.core.TRAttributes;
+import com.io7m.taskrecorder.core.TRNoResult;
+import com.io7m.taskrecorder.core.TRStep;
+import com.io7m.taskrecorder.core.TRStepFailed;
+import com.io7m.taskrecorder.core.TRStepSucceeded;
+import com.io7m.taskrecorder.core.TRTask;
+import com.io7m.taskrecorder.core.TRTaskFailed;
+import com.io7m.taskrecorder.core.TRTaskItemType;
+import com.io7m.taskrecorder.core.TRTaskRecorder;
+import com.io7m.taskrecorder.core.TRTaskSucceeded;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Task batch codec tests.
+ */
+
+public final class TRTaskBatchCodecTest
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(TRTaskBatchCodecTest.class);
+
+  private static List<TRTask<?>> recordTasks(
+    final Clock clock,
+    final int count,
+    final int steps)
+  {
+    final var tasks = new ArrayList<TRTask<?>>(count);
+    for (int index = 0; index < count; ++index) {
+      try (var taskRec = TRTaskRecorder.<String>create(LOG, clock, "Request")) {
+        for (int step = 0; step < steps; ++step) {
+          taskRec.beginStep("Step " + (step % 5));
+          taskRec.setStepSucceeded();
+        }
+        try (var sub = taskRec.beginSubtaskWithoutResult("Subtask")) {
+          sub.beginStep("Sub step");
+          sub.setTaskSucceeded("", TRNoResult.NO_RESULT);
+        }
+        if (index % 10 == 9) {
+          taskRec.setTaskFailed("Failed");
+        } else {
+          taskRec.setTaskSucceeded("", "OK");
+        }
+        tasks.add(taskRec.toTask());
+      }
+    }
+    return tasks;
+  }
+
+  private static List<TRTask<?>> roundTrip(
+    final List<TRTask<?>> tasks)
+    throws IOException
+  {
+    final var buffer = ByteBuffer.wrap(TRTaskBatchCodec.encode(tasks));
+    final var result = TRTaskBatchCodec.decode(buffer);
+    assertEquals(0, buffer.remaining());
+    return result;
+  }
+
+  private static TRTask<?> deep(
+    final int depth)
+  {
+    final var rows =
+      TRAttributeKey.ofLong("test.rows");
+    final var base =
+      Instant.parse("2026-01-01T00:00:00Z");
+
+    TRTask<TRNoResult> current =
+      new TRTask<>(
+        List.of(new TRStep(
+          "Bottom",
+          new TRStepFailed("Broken", Optional.empty()),
+          base,
+          base.plusMillis(1L))),
+        new TRTaskFailed<>("Failed", Optional.empty()));
+
+    for (int index = 0; index < depth; ++index) {
+      final var step =
+        new TRStep(
+          "Step " + (index % 5),
+          new TRStepSucceeded(""),
+          base,
+          base.plusMillis(index % 7),
+          TRAttributes.builder().set(rows, (long) index).build()
+        );
+      current =
+        new TRTask<>(
+          List.<TRTaskItemType>of(step, current),
+          new TRTaskSucceeded<>("", TRNoResult.NO_RESULT),
+          base,
+          base.plusSeconds(1L),
+          TRAttributes.builder().set(rows, (long) -index).build()
+        );
+    }
+    return current;
+  }
+
+  /**
+   * Batches round trip with times in any unit.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testRoundTrip()
+    throws Exception
+  {
+    for (final var step : List.of(
+      Duration.ofSeconds(1L),
+      Duration.ofMillis(3L),
+      Duration.ofNanos(1001L))) {
+      final var clock =
+        new TRSteppingClock(Instant.parse("2026-01-01T00:00:00Z"), step);
+      final var tasks = recordTasks(clock, 50, 7);
+      assertEquals(tasks, roundTrip(tasks));
+    }
+
+    assertEquals(List.of(), roundTrip(List.of()));
+  }
+
+  /**
+   * Times that cannot be expressed as deltas round trip.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testExtremeTimes()
+    throws Exception
+  {
+    final var step =
+      new TRStep("Step", new TRStepSucceeded("OK"), Instant.MIN, Instant.MAX);
+    final var task0 =
+      new TRTask<>(
+        List.of(step),
+        new TRTaskSucceeded<>("OK", TRNoResult.NO_RESULT),
+        Instant.MIN,
+        Instant.MAX
+      );
+    final var task1 =
+      new TRTask<>(
+        List.of(new TRStep("Step", new TRStepSucceeded("OK"))),
+        new TRTaskFailed<>("Failed", Optional.empty())
+      );
+
+    final var tasks = List.<TRTask<?>>of(task0, task1, task0);
+    assertEquals(tasks, roundTrip(tasks));
+  }
+
+  /**
+   * Results and exceptions are encoded in string form.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testResultsAndExceptions()
+    throws Exception
+  {
+    final var exception =
+      new IOException("Disk", new IllegalStateException());
+
+    final TRTask<Integer> task;
+    try (var taskRec = TRTaskRecorder.<Integer>create(LOG, "Task")) {
+      taskRec.beginStep("Step");
+      taskRec.setStepFailed("Broken", exception);
+      taskRec.setTaskFailed("Failed", Optional.of(exception));
+      task = taskRec.toTask();
+    }
+
+    final var received = roundTrip(List.of(task)).get(0);
+    final var failed = (TRTaskFailed<?>) received.resolution();
+    final var archived =
+      assertInstanceOf(TRArchivedException.class, failed.exception().orElseThrow());
+
+    assertEquals(IOException.class.getName(), archived.className());
+    assertEquals("Disk", archived.getMessage());
+    assertArrayEquals(exception.getStackTrace(), archived.getStackTrace());
+
+    final var cause =
+      assertInstanceOf(TRArchivedException.class, archived.getCause());
+    assertEquals(IllegalStateException.class.getName(), cause.className());
+    assertEquals(null, cause.getMessage());
+
+    final var step = (TRStep) received.items().get(1);
+    assertInstanceOf(
+      TRArchivedException.class,
+      ((TRStepFailed) step.resolution()).exception().orElseThrow()
+    );
+
+    final var reencoded = roundTrip(List.of(received)).get(0);
+    assertEquals(
+      archived.toString(),
+      ((TRTaskFailed<?>) reencoded.resolution()).exception().orElseThrow().toString()
+    );
+  }
+
+  /**
+   * Repetitive batches are at least ten times smaller than the plain
+   * serialization.
+   */
+
+  @Test
+  public void testCompressionRatio()
+  {
+    final var clock =
+      new TRSteppingClock(Instant.parse("2026-01-01T00:00:00Z"), Duration.ofMillis(1L));
+    final var tasks = recordTasks(clock, 1000, 20);
+
+    final var plain =
+      tasks.stream()
+        .mapToLong(t -> TRTaskSerialization.serialize(t).length)
+        .sum();
+    final var encoded =
+      TRTaskBatchCodec.encode(tasks).length;
+
+    LOG.debug("plain {} encoded {}", Long.valueOf(plain), Integer.valueOf(encoded));
+    assertTrue(
+      plain >= 10L * encoded,
+      "Plain %d, encoded %d".formatted(Long.valueOf(plain), Integer.valueOf(encoded))
+    );
+  }
+
+  /**
+   * Malformed batches are rejected.
+   */
+
+  @Test
+  public void testMalformed()
+  {
+    final var clock = new TRSteppingClock();
+    final var encoded = TRTaskBatchCodec.encode(recordTasks(clock, 3, 3));
+
+    assertThrows(IOException.class, () -> {
+      TRTaskBatchCodec.decode(ByteBuffer.wrap(new byte[]{1, 2, 3, 4, 5}));
+    });
+
+    for (int length = 0; length < encoded.length; ++length) {
+      final var truncated = Arrays.copyOf(encoded, length);
+      assertThrows(IOException.class, () -> {
+        TRTaskBatchCodec.decode(ByteBuffer.wrap(truncated));
+      });
+    }
+  }
+
+  /**
+   * Very deep tasks are encoded and decoded without exhausting the stack.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testDeep()
+    throws Exception
+  {
+    final var task = deep(20_000);
+    final var encoded = TRTaskBatchCodec.encode(List.of(task, task));
+    final var decoded = TRTaskBatchCodec.decode(ByteBuffer.wrap(encoded));
+
+    assertEquals(2, decoded.size());
+    assertArrayEquals(encoded, TRTaskBatchCodec.encode(decoded));
+    assertArrayEquals(
+      TRTaskSerialization.serialize(task),
+      TRTaskSerialization.serialize(decoded.get(1))
+    );
+  }
+}
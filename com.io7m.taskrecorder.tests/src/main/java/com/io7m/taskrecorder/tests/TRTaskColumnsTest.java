@@ -0,0 +1,331 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.taskrecorder.tests;
+
+import com.io7m.taskrecorder.core.TRNoResult;
+import com.io7m.taskrecorder.core.TRStep;
+import com.io7m.taskrecorder.core.TRStepSucceeded;
+import com.io7m.taskrecorder.core.TRTask;
+import com.io7m.taskrecorder.core.TRTaskItemType;
+import com.io7m.taskrecorder.core.TRTaskRecorder;
+import com.io7m.taskrecorder.core.TRTaskSucceeded;
+import com.io7m.taskrecorder.export.TRColumnItemKind;
+import com.io7m.taskrecorder.export.TRTaskColumns;
+import com.io7m.taskrecorder.export.TRTaskColumnsFormat;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Columnar flattening tests.
+ */
+
+public final class TRTaskColumnsTest
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(TRTaskColumnsTest.class);
+
+  private static TRTask<TRNoResult> record(
+    final String description)
+  {
+    final var clock = new TRSteppingClock();
+    try (var recorder =
+           TRTaskRecorder.<TRNoResult>create(LOG, clock, description)) {
+      recorder.beginStep("Step \"A\", first");
+      recorder.setStepSucceeded("OK");
+      try (var subtask = recorder.<TRNoResult>beginSubtask("Subtask")) {
+        subtask.beginStep("Step \"A\", first");
+        subtask.setStepFailed("Failed");
+        subtask.setTaskFailed("Failed");
+      }
+      recorder.setTaskSucceeded("Done", TRNoResult.NO_RESULT);
+      return recorder.toTask();
+    }
+  }
+
+  private static byte[] encode(
+    final TRTaskColumns columns)
+    throws IOException
+  {
+    final var output = new ByteArrayOutputStream();
+    TRTaskColumnsFormat.write(columns, output);
+    return output.toByteArray();
+  }
+
+  /**
+   * Task trees are flattened in depth-first order with shared
+   * descriptions.
+   */
+
+  @Test
+  public void testFlatten()
+  {
+    final var first = record("First");
+    final var second = record("Second");
+    final var columns = TRTaskColumns.flatten(List.of(first, second));
+
+    assertEquals(12, columns.size());
+    assertEquals(
+      List.of("First", "Step \"A\", first", "Subtask", "Second"),
+      columns.descriptions()
+    );
+
+    assertEquals(-1, columns.parent(0));
+    assertEquals(0, columns.depth(0));
+    assertEquals(TRColumnItemKind.TASK_SUCCEEDED, columns.kind(0));
+    assertEquals("First", columns.description(1));
+    assertEquals(TRColumnItemKind.STEP_SUCCEEDED, columns.kind(1));
+    assertEquals(0, columns.parent(2));
+    assertEquals(columns.descriptionId(2), columns.descriptionId(5));
+
+    assertEquals(TRColumnItemKind.TASK_FAILED, columns.kind(3));
+    assertEquals(3, columns.parent(4));
+    assertEquals(3, columns.parent(5));
+    assertEquals(2, columns.depth(5));
+    assertEquals(TRColumnItemKind.STEP_FAILED, columns.kind(5));
+
+    assertEquals(-1, columns.parent(6));
+    assertEquals("Second", columns.description(6));
+    assertEquals(9, columns.parent(11));
+
+    final var step = (TRStep) first.items().get(1);
+    assertEquals(
+      step.timeStarted().getEpochSecond() * 1_000_000_000L,
+      columns.timeStarted(2)
+    );
+    assertEquals(
+      step.timeEnded().getEpochSecond() * 1_000_000_000L,
+      columns.timeEnded(2)
+    );
+  }
+
+  /**
+   * Columns survive a round trip through the columnar format.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testRoundTrip()
+    throws Exception
+  {
+    final var columns =
+      TRTaskColumns.flatten(List.of(record("First"), record("Second")));
+    final var bytes = encode(columns);
+
+    assertEquals(
+      columns,
+      TRTaskColumnsFormat.read(new ByteArrayInputStream(bytes))
+    );
+  }
+
+  /**
+   * Corrupted and truncated data is rejected.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testCorrupt()
+    throws Exception
+  {
+    final var bytes =
+      encode(TRTaskColumns.flatten(List.of(record("First"))));
+
+    final var corrupted = bytes.clone();
+    corrupted[corrupted.length - 12] ^= 1;
+    assertThrows(IOException.class, () -> {
+      TRTaskColumnsFormat.read(new ByteArrayInputStream(corrupted));
+    });
+
+    final var magic = bytes.clone();
+    magic[0] = 0;
+    assertThrows(IOException.class, () -> {
+      TRTaskColumnsFormat.read(new ByteArrayInputStream(magic));
+    });
+
+    final var truncated = Arrays.copyOf(bytes, bytes.length - 5);
+    assertThrows(IOException.class, () -> {
+      TRTaskColumnsFormat.read(new ByteArrayInputStream(truncated));
+    });
+  }
+
+  private static byte[] withCount(
+    final byte[] bytes,
+    final int offset,
+    final int count)
+  {
+    final var result = bytes.clone();
+    ByteBuffer.wrap(result).putInt(offset, count);
+    return result;
+  }
+
+  /**
+   * Header counts that are negative, too large, or larger than the data
+   * that follows are rejected with I/O errors rather than being allocated.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testCorruptCounts()
+    throws Exception
+  {
+    final var bytes =
+      encode(TRTaskColumns.flatten(List.of(record("First"))));
+
+    for (final var count : new int[]{
+      -1,
+      Integer.MAX_VALUE,
+      Integer.MAX_VALUE / Long.BYTES,
+    }) {
+      for (final var offset : new int[]{8, 12, 16}) {
+        final var corrupted = withCount(bytes, offset, count);
+        assertThrows(IOException.class, () -> {
+          TRTaskColumnsFormat.read(new ByteArrayInputStream(corrupted));
+        });
+      }
+    }
+  }
+
+  /**
+   * Items whose depth does not follow from their parent are rejected even
+   * when the checksum matches.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testCorruptDepth()
+    throws Exception
+  {
+    final var bytes = new ByteArrayOutputStream();
+    final var output = new DataOutputStream(bytes);
+    output.writeInt(0x5452434C);
+    output.writeInt(1);
+    output.writeInt(2);
+    output.writeInt(1);
+    output.writeInt(1);
+    output.write('A');
+    output.writeInt(-1);
+    output.writeInt(0);
+    output.writeInt(0);
+    output.writeInt(2);
+    output.writeInt(0);
+    output.writeInt(0);
+    output.write(TRColumnItemKind.TASK_SUCCEEDED.code());
+    output.write(TRColumnItemKind.STEP_SUCCEEDED.code());
+    for (int index = 0; index < 4; ++index) {
+      output.writeLong(0L);
+    }
+    output.flush();
+
+    final var checksum = new CRC32C();
+    checksum.update(bytes.toByteArray());
+    output.writeInt((int) checksum.getValue());
+    output.flush();
+
+    final var ex = assertThrows(IOException.class, () -> {
+      TRTaskColumnsFormat.read(new ByteArrayInputStream(bytes.toByteArray()));
+    });
+    assertEquals(
+      "Item 1 has depth 2 but its parent requires depth 1.",
+      ex.getMessage()
+    );
+  }
+
+  /**
+   * Columns are written as CSV with quoted descriptions.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testCSV()
+    throws Exception
+  {
+    final var writer = new StringWriter();
+    TRTaskColumnsFormat.writeCSV(
+      TRTaskColumns.flatten(List.of(record("First"))),
+      writer
+    );
+
+    final var lines = writer.toString().split("\r\n");
+    assertEquals(7, lines.length);
+    assertEquals(
+      "index,parent,depth,kind,description,time_started,time_ended",
+      lines[0]
+    );
+    assertEquals(
+      "2,0,1,STEP_SUCCEEDED,\"Step \"\"A\"\", first\",1000000000,2000000000",
+      lines[3]
+    );
+  }
+
+  /**
+   * A million items are flattened and written.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  @Timeout(60L)
+  public void testLarge()
+    throws Exception
+  {
+    final var steps = new TRTaskItemType[1_000_000];
+    for (int index = 0; index < steps.length; ++index) {
+      steps[index] = new TRStep(
+        "Step %d".formatted(Integer.valueOf(index % 1000)),
+        new TRStepSucceeded("OK"),
+        Instant.ofEpochSecond(index),
+        Instant.ofEpochSecond(index + 1L)
+      );
+    }
+
+    final var task =
+      new TRTask<>(
+        List.of(steps),
+        new TRTaskSucceeded<>("OK", TRNoResult.NO_RESULT)
+      );
+    final var columns = TRTaskColumns.flatten(List.of(task));
+
+    assertEquals(1_000_001, columns.size());
+    assertEquals(1000, columns.descriptions().size());
+
+    final var bytes = encode(columns);
+    assertEquals(
+      columns,
+      TRTaskColumnsFormat.read(new ByteArrayInputStream(bytes))
+    );
+  }
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.tests;
+
+import com.io7m.taskrecorder.analysis.TRItemAdded;
+import com.io7m.taskrecorder.analysis.TRItemRemoved;
+import com.io7m.taskrecorder.analysis.TRStepDiff;
+import com.io7m.taskrecorder.analysis.TRTaskDiff;
+import com.io7m.taskrecorder.analysis.TRTaskDiffs;
+import com.io7m.taskrecorder.core.TRNoResult;
+import com.io7m.taskrecorder.core.TRStep;
+import com.io7m.taskrecorder.core.TRStepFailed;
+import com.io7m.taskrecorder.core.TRStepSucceeded;
+import com.io7m.taskrecorder.core.TRTask;
+import com.io7m.taskrecorder.core.TRTaskItemType;
+import com.io7m.taskrecorder.core.TRTaskSucceeded;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Task diff tests.
+ */
+
+public final class TRTaskDiffsTest
+{
+  private static TRStep step(
+    final String description)
+  {
+    return new TRStep(description, new TRStepSucceeded(""));
+  }
+
+  private static TRStep stepTimed(
+    final String description,
+    final long seconds)
+  {
+    return new TRStep(
+      description,
+      new TRStepSucceeded(""),
+      Instant.EPOCH,
+      Instant.ofEpochSecond(seconds)
+    );
+  }
+
+  private static TRStep stepFailed(
+    final String description)
+  {
+    return new TRStep(description, new TRStepFailed("", Optional.empty()));
+  }
+
+  private static TRTask<TRNoResult> task(
+    final TRTaskItemType... items)
+  {
+    return new TRTask<>(
+      List.of(items),
+      new TRTaskSucceeded<>("", TRNoResult.NO_RESULT)
+    );
+  }
+
+  /**
+   * Identical tasks have no changes.
+   */
+
+  @Test
+  public void testIdentical()
+  {
+    final var t =
+      task(step("Task"), step("A"), task(step("Sub"), step("B")), step("C"));
+    final var diff = TRTaskDiffs.diff(t, t);
+
+    assertFalse(diff.isChanged(Duration.ZERO));
+    assertEquals(4, diff.items().size());
+    assertInstanceOf(TRTaskDiff.class, diff.items().get(2));
+    assertEquals("", TRTaskDiffs.render(diff, Duration.ZERO));
+  }
+
+  /**
+   * Added, removed, and changed steps are detected.
+   */
+
+  @Test
+  public void testChanges()
+  {
+    final var before =
+      task(
+        step("Task"),
+        step("A"),
+        step("B"),
+        task(step("Sub"), step("X"), step("Y")),
+        stepTimed("C", 1L)
+      );
+    final var after =
+      task(
+        step("Task"),
+        step("A"),
+        stepFailed("B"),
+        task(step("Sub"), step("X"), step("Z")),
+        step("D"),
+        stepTimed("C", 3L)
+      );
+
+    final var diff = TRTaskDiffs.diff(before, after);
+    assertTrue(diff.isChanged(Duration.ZERO));
+
+    final var items = diff.items();
+    assertEquals(6, items.size());
+    assertFalse(items.get(1).isChanged(Duration.ZERO));
+    assertTrue(((TRStepDiff) items.get(2)).resolutionChanged());
+
+    final var sub = (TRTaskDiff) items.get(3);
+    assertEquals(4, sub.items().size());
+    assertInstanceOf(TRItemRemoved.class, sub.items().get(2));
+    assertInstanceOf(TRItemAdded.class, sub.items().get(3));
+
+    assertInstanceOf(TRItemAdded.class, items.get(4));
+    final var c = (TRStepDiff) items.get(5);
+    assertEquals(Duration.ofSeconds(2L), c.durationDelta());
+    assertFalse(c.isChanged(Duration.ofSeconds(2L)));
+
+    assertEquals(
+      String.join(
+        "\n",
+        "~ Task [duration PT1S -> PT3S]",
+        "~   B [succeeded -> failed]",
+        "    Sub",
+        "-     Y",
+        "+     Z",
+        "+   D",
+        "~   C [duration PT1S -> PT3S]",
+        ""
+      ),
+      TRTaskDiffs.render(diff, Duration.ZERO)
+    );
+  }
+
+  /**
+   * Steps and subtasks with the same description are not aligned.
+   */
+
+  @Test
+  public void testKindsNotAligned()
+  {
+    final var diff =
+      TRTaskDiffs.diff(
+        task(step("Task"), step("A")),
+        task(step("Task"), task(step("A")))
+      );
+
+    final var items = diff.items();
+    assertEquals(3, items.size());
+    assertInstanceOf(TRItemRemoved.class, items.get(1));
+    assertInstanceOf(TRItemAdded.class, items.get(2));
+  }
+
+  /**
+   * Large traces with repeated descriptions are aligned.
+   */
+
+  @Test
+  public void testLarge()
+  {
+    final var itemsBefore = new ArrayList<TRTaskItemType>();
+    final var itemsAfter = new ArrayList<TRTaskItemType>();
+    itemsBefore.add(step("Task"));
+    itemsAfter.add(step("Task"));
+
+    for (int index = 0; index < 100_000; ++index) {
+      final var unique = step("Unique %d".formatted(index));
+      itemsBefore.add(unique);
+      itemsAfter.add(unique);
+
+      final var repeated = step("Repeated %d".formatted(index % 7));
+      if (index % 1000 != 500) {
+        itemsBefore.add(repeated);
+      }
+      if (index % 1000 != 250) {
+        itemsAfter.add(repeated);
+      }
+    }
+
+    final var before =
+      new TRTask<>(itemsBefore, new TRTaskSucceeded<>("", TRNoResult.NO_RESULT));
+    final var after =
+      new TRTask<>(itemsAfter, new TRTaskSucceeded<>("", TRNoResult.NO_RESULT));
+
+    final var diff = TRTaskDiffs.diff(before, after);
+
+    long added = 0L;
+    long removed = 0L;
+    for (final var item : diff.items()) {
+      if (item instanceof TRItemAdded) {
+        ++added;
+      }
+      if (item instanceof TRItemRemoved) {
+        ++removed;
+      }
+    }
+    assertEquals(100L, added);
+    assertEquals(100L, removed);
+  }
+
+  private static TRTask<TRNoResult> nested(
+    final int depth,
+    final TRStep bottom)
+  {
+    var current = task(bottom);
+    for (int index = 0; index < depth; ++index) {
+      current = task(step("Step"), current);
+    }
+    return current;
+  }
+
+  /**
+   * Very deep trees are compared and rendered without exhausting the
+   * stack.
+   */
+
+  @Test
+  public void testDeep()
+  {
+    final var depth = 20_000;
+    final var before = nested(depth, step("Bottom"));
+
+    final var unchanged =
+      TRTaskDiffs.diff(before, nested(depth, step("Bottom")));
+    assertFalse(unchanged.isChanged(Duration.ZERO));
+    assertEquals("", TRTaskDiffs.render(unchanged, Duration.ZERO));
+
+    final var changed =
+      TRTaskDiffs.diff(before, nested(depth, stepFailed("Bottom")));
+    assertTrue(changed.isChanged(Duration.ZERO));
+
+    var current = changed;
+    for (int index = 0; index < depth; ++index) {
+      assertTrue(current.isChanged(Duration.ZERO));
+      assertFalse(current.items().get(0).isChanged(Duration.ZERO));
+      current = assertInstanceOf(TRTaskDiff.class, current.items().get(1));
+    }
+    final var bottom =
+      assertInstanceOf(TRStepDiff.class, current.items().get(0));
+    assertTrue(bottom.resolutionChanged());
+
+    final var shallow =
+      TRTaskDiffs.diff(
+        nested(2_000, step("Bottom")),
+        nested(2_000, stepFailed("Bottom"))
+      );
+    final var lines = TRTaskDiffs.render(shallow, Duration.ZERO).split("\n");
+    assertEquals(2_002, lines.length);
+    assertTrue(lines[2_001].startsWith("~ "), lines[2_001]);
+  }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.tests;
+
+import com.io7m.taskrecorder.core.TRNoResult;
+import com.io7m.taskrecorder.core.TRTaskProgress;
+import com.io7m.taskrecorder.core.TRTaskProgressStatus;
+import com.io7m.taskrecorder.core.TRTaskRecorder;
+import com.io7m.taskrecorder.core.TRTaskRecorderOffHeap;
+import com.io7m.taskrecorder.core.TRTaskRecorderType;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Task progress view tests.
+ */
+
+public final class TRTaskProgressTest
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(TRTaskProgressTest.class);
+
+  private static void checkProgress(
+    final Supplier<TRTaskRecorderType<Integer>> recorders)
+  {
+    try (var taskRec = recorders.get()) {
+      final var view = taskRec.progress();
+      assertEquals(
+        new TRTaskProgress(
+          List.of("Task", "Task"),
+          1L,
+          0L,
+          0L,
+          0L,
+          TRTaskProgressStatus.RUNNING
+        ),
+        view.snapshot()
+      );
+
+      final var step0 = taskRec.beginStep("Step 0");
+      taskRec.beginStep("Step 1");
+      step0.setStepFailed("Failed");
+      assertEquals("Step 1", view.snapshot().stepCurrent());
+      assertEquals(1L, view.snapshot().stepsFailed());
+
+      final var version = view.version();
+      try (var sub = taskRec.beginSubtaskWithoutResult("Sub")) {
+        sub.beginStep("Inner");
+        assertTrue(view.version() > version);
+
+        final var inner = view.snapshot();
+        assertEquals(List.of("Task", "Sub", "Inner"), inner.path());
+        assertEquals(1L, inner.subtasks());
+        assertEquals(4L, inner.items());
+
+        sub.setTaskFailed("Failed");
+        assertEquals(TRTaskProgressStatus.FAILED, sub.progress().snapshot().status());
+      }
+
+      step0.setStepSucceeded("Recovered");
+      final var after = view.snapshot();
+      assertEquals(List.of("Task", "Step 1"), after.path());
+      assertEquals(0L, after.stepsFailed());
+      assertEquals(1L, after.subtasksFailed());
+      assertEquals(TRTaskProgressStatus.RUNNING, after.status());
+
+      taskRec.setTaskSucceeded("OK", Integer.valueOf(23));
+      assertEquals(TRTaskProgressStatus.SUCCEEDED, view.snapshot().status());
+    }
+  }
+
+  /**
+   * The progress view tracks steps, subtasks, and failures.
+   */
+
+  @Test
+  public void testProgress()
+  {
+    checkProgress(() -> TRTaskRecorder.create(LOG, "Task"));
+  }
+
+  /**
+   * The off-heap progress view tracks steps, subtasks, and failures.
+   */
+
+  @Test
+  public void testProgressOffHeap()
+  {
+    checkProgress(() -> TRTaskRecorderOffHeap.create(LOG, "Task"));
+  }
+
+  /**
+   * Snapshots taken concurrently with recording are always consistent.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testConcurrentSnapshots()
+    throws Exception
+  {
+    final var count = 100_000;
+    final var done = new AtomicBoolean();
+    final var error = new AtomicReference<String>();
+
+    try (var taskRec = TRTaskRecorder.<TRNoResult>create(LOG, "Task")) {
+      final var view = taskRec.progress();
+      final var reader = Thread.ofPlatform().start(() -> {
+        var lastSteps = 0L;
+        while (!done.get()) {
+          final var progress = view.snapshot();
+          final var name = progress.stepCurrent();
+          final var expected = "Step %d".formatted(Long.valueOf(progress.steps() - 1L));
+          if (progress.steps() > 1L && !name.equals(expected)) {
+            error.set("Step %s with count %d".formatted(name, Long.valueOf(progress.steps())));
+          }
+          final var failed = progress.stepsFailed();
+          if (failed != progress.steps() / 2L
+              && failed != (progress.steps() - 1L) / 2L) {
+            error.set("Failed %d of %d".formatted(
+              Long.valueOf(progress.stepsFailed()),
+              Long.valueOf(progress.steps())));
+          }
+          if (progress.steps() < lastSteps) {
+            error.set("Step count went backwards");
+          }
+          lastSteps = progress.steps();
+        }
+      });
+
+      for (int index = 1; index <= count; ++index) {
+        taskRec.beginStep("Step %d".formatted(Integer.valueOf(index)));
+        if (index % 2 == 1) {
+          taskRec.setStepFailed("Failed");
+        }
+      }
+
+      done.set(true);
+      reader.join();
+      taskRec.setTaskSucceeded("OK", TRNoResult.NO_RESULT);
+    }
+
+    assertNull(error.get(), error.get());
+  }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.tests;
+
+import com.io7m.taskrecorder.core.TRNoResult;
+import com.io7m.taskrecorder.core.TRStep;
+import com.io7m.taskrecorder.core.TRStepFailed;
+import com.io7m.taskrecorder.core.TRTask;
+import com.io7m.taskrecorder.core.TRTaskRecorder;
+import com.io7m.taskrecorder.core.TRTaskRecorderOffHeap;
+import com.io7m.taskrecorder.core.TRTaskRecorderType;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Off-heap task recorder tests.
+ */
+
+public final class TRTaskRecorderOffHeapTest
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(TRTaskRecorderOffHeapTest.class);
+
+  private static final Exception EXCEPTION =
+    new Exception();
+
+  private static final Clock CLOCK =
+    Clock.fixed(Instant.parse("2026-01-01T00:00:00Z"), ZoneOffset.UTC);
+
+  private static void record(
+    final TRTaskRecorderType<Integer> taskRec)
+  {
+    taskRec.beginStep("Step 0");
+    taskRec.setStepSucceeded("OK 0");
+    taskRec.beginStep("Step 1");
+    taskRec.setStepFailed("Failed 1", EXCEPTION);
+
+    try (var st = taskRec.<String>beginSubtask("Subtask X")) {
+      st.beginStep("Step X0");
+      st.setStepFailed("Failed X0");
+      st.setTaskSucceeded("X", "x");
+    }
+
+    try (var st = taskRec.beginSubtaskWithoutResult("Subtask Y")) {
+      st.beginStep("Step Y0");
+      st.setTaskFailed("Y", Optional.of(EXCEPTION));
+    }
+
+    for (int index = 0; index < 3000; ++index) {
+      taskRec.beginStep("Step");
+      taskRec.setStepSucceeded();
+    }
+
+    taskRec.setTaskSucceeded("OK!", Integer.valueOf(23));
+  }
+
+  /**
+   * Tasks recorded off-heap are identical to tasks recorded by the default
+   * recorder.
+   */
+
+  @Test
+  public void testIdenticalToDefault()
+  {
+    final TRTask<Integer> expected;
+    try (var taskRec =
+           TRTaskRecorder.<Integer>create(LOG, CLOCK, "Started task...")) {
+      record(taskRec);
+      expected = taskRec.toTask();
+    }
+
+    final TRTask<Integer> received;
+    try (var taskRec =
+           TRTaskRecorderOffHeap.<Integer>create(LOG, CLOCK, "Started task...")) {
+      record(taskRec);
+      received = taskRec.toTask();
+    }
+
+    assertEquals(expected, received);
+    assertEquals(3005, received.items().size());
+  }
+
+  /**
+   * Step recorders can be used after later steps have begun.
+   */
+
+  @Test
+  public void testStepRecorderRetained()
+  {
+    final TRTask<Integer> task;
+    try (var taskRec =
+           TRTaskRecorderOffHeap.<Integer>create(LOG, "Started task...")) {
+      final var step0 = taskRec.beginStep("Step 0");
+      taskRec.beginStep("Step 1");
+      step0.setStepFailed("Failed 0");
+      assertEquals("Failed 0", step0.toStep().resolution().message());
+      assertEquals("Step 1", taskRec.stepCurrent().toStep().description());
+      assertEquals("[TRTaskRecorderOffHeap (Step 1)]", taskRec.toString());
+      taskRec.setTaskFailed("FAILED!");
+      task = taskRec.toTask();
+    }
+
+    final var step0 = (TRStep) task.items().get(1);
+    assertEquals(TRStepFailed.class, step0.resolution().getClass());
+  }
+
+  /**
+   * Tasks must be resolved before closing, and the storage is released
+   * regardless.
+   */
+
+  @Test
+  public void testTaskNotResolved()
+  {
+    final var taskRec =
+      TRTaskRecorderOffHeap.<Integer>create(LOG, "Started task...");
+    final var sub =
+      taskRec.beginSubtaskWithoutResult("Subtask");
+
+    assertThrows(IllegalStateException.class, sub::toTask);
+    assertThrows(IllegalStateException.class, taskRec::close);
+    assertThrows(IllegalStateException.class, () -> taskRec.beginStep("X"));
+    assertThrows(IllegalStateException.class, sub::toTask);
+    assertEquals("[TRTaskRecorderOffHeap (closed)]", taskRec.toString());
+  }
+
+  /**
+   * An unresolved subtask makes its parent's task fail to build, with the
+   * same error as the default recorder.
+   */
+
+  @Test
+  public void testSubtaskNotResolvedAgrees()
+  {
+    final var messages = new ArrayList<String>();
+    for (final var taskRec : new TRTaskRecorderType<?>[]{
+      TRTaskRecorder.<TRNoResult>create(LOG, CLOCK, "Task"),
+      TRTaskRecorderOffHeap.<TRNoResult>create(LOG, CLOCK, "Task"),
+    }) {
+      final var sub = taskRec.beginSubtaskWithoutResult("Subtask");
+      sub.beginStep("Sub step");
+      sub.setStepSucceeded();
+      taskRec.beginStep("After");
+      taskRec.setTaskFailed("Failed");
+
+      messages.add(
+        assertThrows(IllegalStateException.class, taskRec::toTask)
+          .getMessage()
+      );
+
+      sub.setTaskSucceeded("OK", TRNoResult.NO_RESULT);
+      assertEquals(3, taskRec.toTask().items().size());
+      taskRec.close();
+    }
+
+    assertEquals(messages.get(0), messages.get(1));
+    assertEquals("No resolution was set for task 'Sub step'", messages.get(1));
+  }
+
+  /**
+   * Very deep trees are materialized without exhausting the stack.
+   */
+
+  @Test
+  public void testDeep()
+  {
+    final var depth = 20_000;
+    try (var taskRec =
+           TRTaskRecorderOffHeap.<TRNoResult>create(LOG, CLOCK, "Task")) {
+      final var recorders = new ArrayList<TRTaskRecorderType<TRNoResult>>();
+      recorders.add(taskRec);
+      for (int index = 0; index < depth; ++index) {
+        recorders.add(
+          recorders.get(index).beginSubtaskWithoutResult("Sub " + index));
+      }
+      for (int index = depth; index >= 0; --index) {
+        recorders.get(index).setTaskSucceeded("OK", TRNoResult.NO_RESULT);
+      }
+
+      TRTask<?> current = taskRec.toTask();
+      for (int index = 0; index < depth; ++index) {
+        assertEquals(2, current.items().size());
+        current = assertInstanceOf(TRTask.class, current.items().get(1));
+        assertEquals("Sub " + index, current.description());
+      }
+      assertEquals(1, current.items().size());
+    }
+  }
+
+  /**
+   * Closed recorders cannot be used.
+   */
+
+  @Test
+  public void testClosed()
+  {
+    final var taskRec =
+      TRTaskRecorderOffHeap.<Integer>create(LOG, "Started task...");
+    final var step =
+      taskRec.beginStep("Step 0");
+
+    taskRec.setTaskSucceeded("OK", Integer.valueOf(23));
+    taskRec.close();
+
+    assertThrows(IllegalStateException.class, taskRec::toTask);
+    assertThrows(IllegalStateException.class, step::setStepSucceeded);
+    assertThrows(IllegalStateException.class, () -> taskRec.beginSubtask("X"));
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.tests;
+
+import com.io7m.taskrecorder.core.TRTaskRecorder;
+import com.io7m.taskrecorder.core.TRTaskRecorderOffHeap;
+import com.io7m.taskrecorder.core.TRTaskRecorderType;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Parallel snapshot tests.
+ */
+
+public final class TRTaskRecorderParallelTest
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(TRTaskRecorderParallelTest.class);
+
+  private static void recordWide(
+    final TRTaskRecorderType<Integer> taskRec,
+    final int width,
+    final int depth)
+  {
+    for (int index = 0; index < width; ++index) {
+      if (index % 3 == 0) {
+        taskRec.beginStep("Step " + index);
+        taskRec.setStepFailed("Failed " + index);
+        continue;
+      }
+      try (var sub = taskRec.<Integer>beginSubtask("Subtask " + index)) {
+        if (depth > 0) {
+          recordWide(sub, width / 4, depth - 1);
+        }
+        sub.beginStep("Step");
+        sub.setTaskSucceeded("OK", Integer.valueOf(index));
+      }
+    }
+  }
+
+  /**
+   * Parallel snapshots are identical to sequential snapshots.
+   */
+
+  @Test
+  public void testIdentical()
+  {
+    try (var pool = new ForkJoinPool(4)) {
+      try (var taskRec = TRTaskRecorder.<Integer>create(LOG, "Root")) {
+        recordWide(taskRec, 1000, 1);
+        taskRec.setTaskSucceeded("Done", Integer.valueOf(23));
+
+        final var expected = taskRec.toTask();
+        assertEquals(expected, taskRec.toTaskParallel(pool, 1));
+        assertEquals(expected, taskRec.toTaskParallel(pool, 64));
+        assertEquals(expected, taskRec.toTaskParallel(pool, Integer.MAX_VALUE));
+        assertEquals(expected, taskRec.toTaskParallel());
+      }
+    }
+  }
+
+  /**
+   * Recorders that do not support parallel snapshots produce sequential
+   * snapshots.
+   */
+
+  @Test
+  public void testOffHeapSequential()
+  {
+    try (var taskRec = TRTaskRecorderOffHeap.<Integer>create(LOG, "Root")) {
+      recordWide(taskRec, 100, 1);
+      taskRec.setTaskSucceeded("Done", Integer.valueOf(23));
+      assertEquals(taskRec.toTask(), taskRec.toTaskParallel());
+    }
+  }
+
+  /**
+   * Unresolved subtasks are detected in parallel snapshots.
+   */
+
+  @Test
+  public void testUnresolved()
+  {
+    final var taskRec =
+      TRTaskRecorder.<Integer>create(LOG, "Root");
+
+    recordWide(taskRec, 200, 0);
+    taskRec.beginSubtaskWithoutResult("Unresolved");
+    recordWide(taskRec, 200, 0);
+    taskRec.setTaskSucceeded("Done", Integer.valueOf(23));
+
+    try (var pool = new ForkJoinPool(4)) {
+      assertThrows(IllegalStateException.class, () -> {
+        taskRec.toTaskParallel(pool, 1);
+      });
+      assertThrows(IllegalArgumentException.class, () -> {
+        taskRec.toTaskParallel(pool, 0);
+      });
+    }
+  }
+}
@@ -28,11 +28,14 @@ import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 /**
@@ -319,4 +322,81 @@ public final class TRTaskRecorderTest
       fail();
     }
   }
+
+  /**
+   * Steps and tasks are timestamped.
+   */
+
+  @Test
+  public void testTaskTimes()
+  {
+    final TRTask<Integer> task;
+    try (var taskRec =
+           TRTaskRecorder.<Integer>create(
+             LOG, new TRSteppingClock(), "Started task...")) {
+      taskRec.beginStep("Step 0");
+      taskRec.setStepSucceeded("OK 0");
+      taskRec.beginStep("Step 1");
+      taskRec.beginStep("Step 2");
+      taskRec.setTaskSucceeded("OK!", Integer.valueOf(23));
+      task = taskRec.toTask();
+    }
+
+    final var items = task.items();
+    assertEquals(Instant.ofEpochSecond(0L), task.timeStarted());
+    assertEquals(Instant.ofEpochSecond(5L), task.timeEnded());
+    assertEquals(Duration.ofSeconds(1L), items.get(0).duration());
+    assertEquals(Instant.ofEpochSecond(1L), items.get(1).timeStarted());
+    assertEquals(Instant.ofEpochSecond(2L), items.get(1).timeEnded());
+    assertEquals(Instant.ofEpochSecond(3L), items.get(2).timeStarted());
+    assertEquals(Instant.ofEpochSecond(4L), items.get(2).timeEnded());
+    assertEquals(Instant.ofEpochSecond(4L), items.get(3).timeStarted());
+    assertEquals(Instant.ofEpochSecond(5L), items.get(3).timeEnded());
+  }
+
+  /**
+   * Items cannot end before they start.
+   */
+
+  @Test
+  public void testTimesOrdered()
+  {
+    assertThrows(IllegalArgumentException.class, () -> {
+      new TRStep(
+        "Step",
+        new TRStepSucceeded(""),
+        Instant.ofEpochSecond(1L),
+        Instant.ofEpochSecond(0L)
+      );
+    });
+  }
+
+  /**
+   * Task times are derived from their items if not specified.
+   */
+
+  @Test
+  public void testTaskTimesDerived()
+  {
+    final var task =
+      new TRTask<>(
+        List.of(
+          new TRStep(
+            "Step 0",
+            new TRStepSucceeded(""),
+            Instant.ofEpochSecond(1L),
+            Instant.ofEpochSecond(3L)),
+          new TRStep(
+            "Step 1",
+            new TRStepSucceeded(""),
+            Instant.ofEpochSecond(2L),
+            Instant.ofEpochSecond(2L))
+        ),
+        new TRTaskFailed<>("WHAT?", Optional.empty())
+      );
+
+    assertEquals(Instant.ofEpochSecond(1L), task.timeStarted());
+    assertEquals(Instant.ofEpochSecond(3L), task.timeEnded());
+    assertTrue(task.duration().equals(Duration.ofSeconds(2L)));
+  }
 }
@@ -0,0 +1,214 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.taskrecorder.tests;
+
+import com.io7m.taskrecorder.core.TRAttributeKey;
+import com.io7m.taskrecorder.core.TRNoResult;
+import com.io7m.taskrecorder.core.TRStep;
+import com.io7m.taskrecorder.core.TRTask;
+import com.io7m.taskrecorder.core.TRTaskItemType;
+import com.io7m.taskrecorder.core.TRTaskRecorder;
+import com.io7m.taskrecorder.core.TRTaskStepRecorderType;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Snapshot sharing tests.
+ */
+
+public final class TRTaskSnapshotTest
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(TRTaskSnapshotTest.class);
+
+  private static final TRAttributeKey<Long> COUNT =
+    TRAttributeKey.ofLong("com.io7m.taskrecorder.tests.snapshot.count");
+
+  /**
+   * Produce a copy of the task that shares nothing with the recorder.
+   */
+
+  private static TRTask<?> deepCopy(
+    final TRTask<?> task)
+  {
+    final var items = new ArrayList<TRTaskItemType>();
+    for (final var item : task.items()) {
+      if (item instanceof final TRTask<?> subtask) {
+        items.add(deepCopy(subtask));
+      } else {
+        items.add(item);
+      }
+    }
+    return new TRTask<>(
+      List.copyOf(items),
+      task.resolution(),
+      task.timeStarted(),
+      task.timeEnded(),
+      task.attributes()
+    );
+  }
+
+  /**
+   * Snapshots of unchanged tasks are reused.
+   */
+
+  @Test
+  public void testSnapshotUnchanged()
+  {
+    try (var taskRec = TRTaskRecorder.<TRNoResult>create(LOG, "Task")) {
+      taskRec.setTaskSucceeded("Done", TRNoResult.NO_RESULT);
+
+      final var sub = taskRec.<TRNoResult>beginSubtask("Sub");
+      sub.setTaskSucceeded("Done", TRNoResult.NO_RESULT);
+      taskRec.beginStep("Step");
+
+      final var first = taskRec.toTask();
+      assertSame(first, taskRec.toTask());
+
+      taskRec.beginStep("Another");
+      final var second = taskRec.toTask();
+      assertNotSame(first, second);
+      assertSame(first.items().get(1), second.items().get(1));
+      assertEquals(3, first.items().size());
+      assertEquals(4, second.items().size());
+
+      assertThrows(
+        UnsupportedOperationException.class,
+        () -> second.items().add(first)
+      );
+    }
+  }
+
+  /**
+   * Modifying the recorder does not affect earlier snapshots, including
+   * modifications of items that earlier snapshots share.
+   */
+
+  @Test
+  public void testSnapshotIsolated()
+  {
+    final var random = new Random(0x5eedL);
+    final var snapshots = new ArrayList<TRTask<?>>();
+    final var copies = new ArrayList<TRTask<?>>();
+    final var steps = new ArrayList<TRTaskStepRecorderType>();
+
+    try (var taskRec = TRTaskRecorder.<TRNoResult>create(LOG, "Task")) {
+      taskRec.setTaskSucceeded("Running", TRNoResult.NO_RESULT);
+      var sub = taskRec.<TRNoResult>beginSubtask("Sub 0");
+      sub.setTaskSucceeded("Running", TRNoResult.NO_RESULT);
+
+      for (int index = 0; index < 2000; ++index) {
+        switch (random.nextInt(6)) {
+          case 0 -> steps.add(taskRec.beginStep("Step %d".formatted(index)));
+          case 1 -> sub.beginStep("Sub step %d".formatted(index));
+          case 2 -> {
+            if (!steps.isEmpty()) {
+              steps.get(random.nextInt(steps.size()))
+                .setStepFailed("Failed %d".formatted(index));
+            }
+          }
+          case 3 -> {
+            if (!steps.isEmpty()) {
+              steps.get(random.nextInt(steps.size()))
+                .setAttribute(COUNT, index);
+            }
+          }
+          case 4 -> {
+            sub = taskRec.beginSubtask("Sub %d".formatted(index));
+            sub.setTaskSucceeded("Running", TRNoResult.NO_RESULT);
+          }
+          default -> {
+            final var snapshot = taskRec.toTask();
+            snapshots.add(snapshot);
+            copies.add(deepCopy(snapshot));
+          }
+        }
+      }
+
+      for (int index = 0; index < snapshots.size(); ++index) {
+        assertEquals(copies.get(index), snapshots.get(index));
+      }
+
+      assertEquals(
+        taskRec.toTaskParallel(ForkJoinPool.commonPool(), 16),
+        taskRec.toTask()
+      );
+      assertEquals(deepCopy(taskRec.toTask()), taskRec.toTask());
+    }
+  }
+
+  /**
+   * Resolving the current step after a snapshot is reflected only in later
+   * snapshots.
+   */
+
+  @Test
+  public void testSnapshotCurrentStep()
+  {
+    try (var taskRec = TRTaskRecorder.<TRNoResult>create(LOG, "Task")) {
+      taskRec.setTaskSucceeded("Done", TRNoResult.NO_RESULT);
+      taskRec.beginStep("Step");
+
+      final var before = taskRec.toTask();
+      taskRec.setStepFailed("Failed");
+      final var after = taskRec.toTask();
+
+      assertEquals("", ((TRStep) before.items().get(1)).resolution().message());
+      assertEquals("Failed", ((TRStep) after.items().get(1)).resolution().message());
+    }
+  }
+
+  /**
+   * A snapshot that fails because a subtask has no resolution does not
+   * cause later snapshots to miss changes to shared items.
+   */
+
+  @Test
+  public void testSnapshotFailedKeepsStale()
+  {
+    try (var taskRec = TRTaskRecorder.<TRNoResult>create(LOG, "Task")) {
+      taskRec.setTaskSucceeded("Done", TRNoResult.NO_RESULT);
+      final var step = taskRec.beginStep("Step");
+      taskRec.beginStep("Later");
+      taskRec.beginStep("Latest");
+      taskRec.toTask();
+
+      step.setStepFailed("Failed");
+      final var sub = taskRec.<TRNoResult>beginSubtask("Sub");
+      assertThrows(IllegalStateException.class, taskRec::toTask);
+
+      sub.setTaskSucceeded("Done", TRNoResult.NO_RESULT);
+      final var after = taskRec.toTask();
+      assertEquals(
+        "Failed",
+        ((TRStep) after.items().get(1)).resolution().message()
+      );
+      assertEquals(deepCopy(taskRec.toTask()), after);
+    }
+  }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.taskrecorder.tests;
+
+import com.io7m.taskrecorder.analysis.TRTimedItem;
+import com.io7m.taskrecorder.analysis.TRTimings;
+import com.io7m.taskrecorder.core.TRNoResult;
+import com.io7m.taskrecorder.core.TRStep;
+import com.io7m.taskrecorder.core.TRStepSucceeded;
+import com.io7m.taskrecorder.core.TRTask;
+import com.io7m.taskrecorder.core.TRTaskItemType;
+import com.io7m.taskrecorder.core.TRTaskSucceeded;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Timing analysis tests.
+ */
+
+public final class TRTimingsTest
+{
+  private static Instant at(
+    final long seconds)
+  {
+    return Instant.EPOCH.plusSeconds(seconds);
+  }
+
+  private static TRStep step(
+    final String description,
+    final long start,
+    final long end)
+  {
+    return new TRStep(
+      description,
+      new TRStepSucceeded("OK"),
+      at(start),
+      at(end)
+    );
+  }
+
+  private static TRTask<TRNoResult> task(
+    final long start,
+    final long end,
+    final TRTaskItemType... items)
+  {
+    return new TRTask<>(
+      List.of(items),
+      new TRTaskSucceeded<>("OK", TRNoResult.NO_RESULT),
+      at(start),
+      at(end)
+    );
+  }
+
+  private static List<String> descriptions(
+    final List<TRTimedItem> items)
+  {
+    return items.stream()
+      .map(i -> "%d:%s".formatted(
+        Integer.valueOf(i.depth()), i.item().description()))
+      .toList();
+  }
+
+  /**
+   * Self time excludes the time covered by items, the hottest items are
+   * ordered by self time, and every item of a sequential task is on the
+   * critical path.
+   */
+
+  @Test
+  public void testSequential()
+  {
+    final var root =
+      task(0L, 40L,
+        step("Root", 0L, 2L),
+        task(2L, 32L,
+          step("Build", 2L, 5L),
+          step("Compile", 5L, 25L),
+          step("Link", 25L, 30L)),
+        task(32L, 40L,
+          step("Tests", 32L, 40L))
+      );
+
+    final var received = new ArrayList<TRTimedItem>();
+    final var analysis = TRTimings.analyze(root, 3, received::add);
+
+    assertEquals(8L, analysis.items());
+    assertEquals(Duration.ofSeconds(40L), analysis.total());
+
+    assertEquals(
+      List.of(
+        "0:Root", "1:Root", "1:Build", "2:Build",
+        "2:Compile", "2:Link", "1:Tests", "2:Tests"),
+      descriptions(received)
+    );
+
+    final var build = received.get(2);
+    assertEquals(Duration.ofSeconds(30L), build.inclusive());
+    assertEquals(Duration.ofSeconds(2L), build.self());
+    assertEquals(Duration.ZERO, received.get(0).self());
+    assertEquals(Duration.ZERO, received.get(6).self());
+
+    assertEquals(
+      List.of("2:Compile", "2:Tests", "2:Link"),
+      descriptions(analysis.hottest())
+    );
+    assertEquals(Duration.ofSeconds(20L), analysis.hottest().get(0).self());
+
+    assertEquals(descriptions(received), descriptions(analysis.criticalPath()));
+  }
+
+  /**
+   * Overlapping items are only counted once in self time, and only the
+   * item that finished last is on the critical path, whatever the order of
+   * the items.
+   */
+
+  @Test
+  public void testOverlapping()
+  {
+    final var first =
+      task(1L, 8L, step("A", 1L, 8L));
+    final var second =
+      task(2L, 10L, step("B", 2L, 10L));
+
+    for (final var root : List.of(
+      task(0L, 11L, step("Root", 0L, 1L), first, second),
+      task(0L, 11L, step("Root", 0L, 1L), second, first))) {
+      final var analysis = TRTimings.analyze(root, 1);
+      assertEquals(
+        List.of("0:Root", "1:Root", "1:B", "2:B"),
+        descriptions(analysis.criticalPath())
+      );
+      assertEquals(
+        Duration.ofSeconds(1L),
+        analysis.criticalPath().get(0).self()
+      );
+      assertEquals(List.of("2:B"), descriptions(analysis.hottest()));
+    }
+  }
+
+  /**
+   * Large and deep trees are analyzed without recursion.
+   */
+
+  @Test
+  @Timeout(60L)
+  public void testLarge()
+  {
+    final var steps = new TRTaskItemType[1_000_000];
+    for (int index = 0; index < steps.length; ++index) {
+      steps[index] = step("S", index, index + 1L);
+    }
+
+    TRTask<TRNoResult> deep = task(0L, steps.length, steps);
+    for (int depth = 0; depth < 100_000; ++depth) {
+      deep = task(0L, steps.length, step("D", 0L, 0L), deep);
+    }
+
+    final var analysis = TRTimings.analyze(deep, 10);
+    assertEquals(1_200_001L, analysis.items());
+    assertEquals(10, analysis.hottest().size());
+    assertEquals(
+      100_000 * 2 + 1 + steps.length,
+      analysis.criticalPath().size()
+    );
+  }
+
+  /**
+   * A negative number of hottest items is rejected.
+   */
+
+  @Test
+  public void testNegative()
+  {
+    assertThrows(
+      IllegalArgumentException.class,
+      () -> TRTimings.analyze(task(0L, 1L, step("S", 0L, 1L)), -1)
+    );
+  }
+}
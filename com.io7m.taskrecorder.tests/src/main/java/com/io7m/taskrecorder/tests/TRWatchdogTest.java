@@ -0,0 +1,172 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.taskrecorder.tests;
+
+import com.io7m.taskrecorder.core.TRNoResult;
+import com.io7m.taskrecorder.core.TRStalledStep;
+import com.io7m.taskrecorder.core.TRTaskRecorder;
+import com.io7m.taskrecorder.core.TRTaskRecorderType;
+import com.io7m.taskrecorder.core.TRWatchdog;
+import com.io7m.taskrecorder.core.TRWatchdogConfiguration;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Watchdog tests.
+ */
+
+public final class TRWatchdogTest
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(TRWatchdogTest.class);
+
+  private static TRWatchdogConfiguration configuration()
+  {
+    return new TRWatchdogConfiguration(
+      Duration.ofMillis(1L),
+      Duration.ofHours(1L),
+      Map.of("Slow", Duration.ofMillis(20L))
+    );
+  }
+
+  /**
+   * Steps that exceed their threshold are reported and marked until they
+   * are resolved.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testStalled()
+    throws Exception
+  {
+    final var reports = new LinkedBlockingQueue<TRStalledStep>();
+    try (var watchdog = TRWatchdog.create(LOG, configuration(), reports::add)) {
+      try (var taskRec =
+             watchdog.watch(TRTaskRecorder.<TRNoResult>create(LOG, "Task"))) {
+        taskRec.beginStep("Fast");
+        final var step = taskRec.beginStep("Slow");
+
+        final var report = reports.poll(10L, TimeUnit.SECONDS);
+        assertEquals(
+          new TRStalledStep(
+            "Task",
+            "Slow",
+            Thread.currentThread(),
+            Duration.ofMillis(20L)
+          ),
+          report
+        );
+        assertEquals(List.of(report), watchdog.stalled());
+        assertEquals(1L, watchdog.stalledCount());
+
+        step.setStepSucceeded("Eventually");
+        assertEquals(List.of(), watchdog.stalled());
+
+        try (var sub = taskRec.beginSubtaskWithoutResult("Slow")) {
+          assertEquals("Slow", reports.poll(10L, TimeUnit.SECONDS).task());
+          sub.setTaskSucceeded("OK", TRNoResult.NO_RESULT);
+        }
+        assertEquals(List.of(), watchdog.stalled());
+        taskRec.setTaskSucceeded("OK", TRNoResult.NO_RESULT);
+      }
+
+      Thread.sleep(50L);
+      assertEquals(List.of(), List.copyOf(reports));
+      assertEquals(2L, watchdog.stalledCount());
+    }
+  }
+
+  /**
+   * Steps are not reported before their threshold, including thresholds
+   * that span several levels of the timer wheel, and every stalled step of
+   * a large number of concurrent steps is reported exactly once.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testManySteps()
+    throws Exception
+  {
+    final var count = 20_000;
+    final var latch = new CountDownLatch(count);
+    final var threshold = Duration.ofMillis(300L);
+    final var config =
+      configuration().withThreshold("Waiting", threshold);
+
+    try (var watchdog = TRWatchdog.create(LOG, config, s -> latch.countDown())) {
+      final var recorders = new ArrayList<TRTaskRecorderType<TRNoResult>>();
+      final var time = System.nanoTime();
+      for (int index = 0; index < count * 2; ++index) {
+        final var taskRec =
+          watchdog.watch(TRTaskRecorder.<TRNoResult>create(LOG, "Task"));
+        taskRec.beginStep("Waiting");
+        if (index % 2 == 0) {
+          recorders.add(taskRec);
+        } else {
+          taskRec.setTaskSucceeded("OK", TRNoResult.NO_RESULT);
+        }
+      }
+
+      assertTrue(latch.await(30L, TimeUnit.SECONDS));
+      assertTrue(System.nanoTime() - time >= threshold.toNanos());
+      assertEquals(count, watchdog.stalled().size());
+
+      for (final var taskRec : recorders) {
+        taskRec.setTaskSucceeded("OK", TRNoResult.NO_RESULT);
+      }
+      assertEquals(0, watchdog.stalled().size());
+      assertEquals(count, watchdog.stalledCount());
+    }
+  }
+
+  /**
+   * Thresholds must be positive.
+   */
+
+  @Test
+  public void testConfiguration()
+  {
+    assertThrows(
+      IllegalArgumentException.class,
+      () -> TRWatchdogConfiguration.defaults(Duration.ZERO));
+    assertThrows(
+      IllegalArgumentException.class,
+      () -> configuration().withThreshold("X", Duration.ofSeconds(-1L)));
+    assertEquals(
+      Duration.ofMillis(20L),
+      configuration().thresholdFor("Slow"));
+    assertEquals(
+      Duration.ofHours(1L),
+      configuration().thresholdFor("Other"));
+  }
+}
@@ -29,7 +29,13 @@ open module com.io7m.taskrecorder.tests
   requires org.junit.platform.engine;
   requires org.junit.platform.launcher;
 
+  requires com.io7m.taskrecorder.analysis;
+  requires com.io7m.taskrecorder.archive;
   requires com.io7m.taskrecorder.core;
+  requires com.io7m.taskrecorder.export;
+  requires com.io7m.taskrecorder.jfr;
+  requires java.management;
+  requires jdk.management;
   requires org.slf4j;
 
   exports com.io7m.taskrecorder.tests;